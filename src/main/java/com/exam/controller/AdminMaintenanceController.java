@@ -0,0 +1,34 @@
+package com.exam.controller;
+
+import com.exam.service.ExamStatisticsService;
+import com.exam.service.ExamTotalsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/maintenance")
+@PreAuthorize("hasAuthority('ADMIN')")
+@RequiredArgsConstructor
+public class AdminMaintenanceController {
+
+    private final ExamTotalsService examTotalsService;
+    private final ExamStatisticsService examStatisticsService;
+
+    @PostMapping("/exam-totals/repair")
+    public ResponseEntity<Map<String, Object>> repairExamTotals() {
+        return ResponseEntity.ok(Map.of("examsRepaired", examTotalsService.repair()));
+    }
+
+    @PostMapping("/exam-statistics/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildExamStatistics(@RequestParam(required = false) Long examId) {
+        if (examId != null) {
+            examStatisticsService.rebuild(examId);
+            return ResponseEntity.ok(Map.of("examsRebuilt", 1));
+        }
+        return ResponseEntity.ok(Map.of("examsRebuilt", examStatisticsService.rebuildAll()));
+    }
+}
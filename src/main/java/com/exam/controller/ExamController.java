@@ -2,12 +2,19 @@ package com.exam.controller;
 
 
 import com.exam.dal.dto.ExamRequest;
+import com.exam.dal.dto.KeysetPage;
+import com.exam.dal.dto.RegradeProgress;
+import com.exam.dal.dto.SimilarityFlagResponse;
 import com.exam.dal.model.Exam;
+import com.exam.service.ExamRegradeService;
 import com.exam.service.ExamService;
+import com.exam.service.SimilarityCheckService;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -15,13 +22,19 @@ import java.util.List;
 @RestController
 @RequestMapping("/api/exams")
 @RequiredArgsConstructor
+@Validated
 public class ExamController {
 
     private final ExamService examService;
+    private final ExamRegradeService examRegradeService;
+    private final SimilarityCheckService similarityCheckService;
 
     @GetMapping
-    public ResponseEntity<List<Exam>> getAllExams() {
-        return ResponseEntity.ok(examService.getAllExams());
+    public ResponseEntity<List<Exam>> getAllExams(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) @Positive(message = "Size must be a positive number") Integer size) {
+        KeysetPage<Exam> page = examService.getAllExams(cursor, size);
+        return ResponseEntity.ok().headers(page.headers()).body(page.getItems());
     }
 
     @GetMapping("/{id}")
@@ -66,4 +79,29 @@ public class ExamController {
     public ResponseEntity<Exam> unpublishExam(@PathVariable Long id) {
         return ResponseEntity.ok(examService.unpublishExam(id));
     }
+
+    @PostMapping("/{id}/regrade")
+    @PreAuthorize("hasAuthority('TEACHER') or hasAuthority('ADMIN')")
+    public ResponseEntity<RegradeProgress> regradeExam(@PathVariable Long id) {
+        return ResponseEntity.accepted().body(examRegradeService.start(id));
+    }
+
+    @GetMapping("/{id}/regrade")
+    @PreAuthorize("hasAuthority('TEACHER') or hasAuthority('ADMIN')")
+    public ResponseEntity<RegradeProgress> getRegradeProgress(@PathVariable Long id) {
+        return ResponseEntity.ok(examRegradeService.getProgress(id));
+    }
+
+    @PostMapping("/{id}/similarity-check")
+    @PreAuthorize("hasAuthority('TEACHER') or hasAuthority('ADMIN')")
+    public ResponseEntity<Void> checkSimilarity(@PathVariable Long id) {
+        similarityCheckService.start(id);
+        return ResponseEntity.accepted().build();
+    }
+
+    @GetMapping("/{id}/similarity-flags")
+    @PreAuthorize("hasAuthority('TEACHER') or hasAuthority('ADMIN')")
+    public ResponseEntity<List<SimilarityFlagResponse>> getSimilarityFlags(@PathVariable Long id) {
+        return ResponseEntity.ok(similarityCheckService.getFlags(id));
+    }
 }
\ No newline at end of file
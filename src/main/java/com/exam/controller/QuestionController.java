@@ -1,14 +1,19 @@
 package com.exam.controller;
 
 
+import com.exam.dal.dto.ExamPaper.PaperQuestion;
 import com.exam.dal.dto.QuestionRequest;
+import com.exam.dal.dto.RenderedPaper;
 import com.exam.dal.model.Question;
 import com.exam.service.QuestionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -19,14 +24,33 @@ public class QuestionController {
 
     private final QuestionService questionService;
 
-    @GetMapping("/exam/{examId}")
-    public ResponseEntity<List<Question>> getQuestionsByExam(@PathVariable Long examId) {
-        return ResponseEntity.ok(questionService.getQuestionsByExam(examId));
+    @GetMapping(value = "/exam/{examId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getQuestionsByExam(
+            @PathVariable Long examId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        RenderedPaper paper = questionService.getQuestionsByExam(examId);
+
+        // The paper is serialized and compressed once when it is built, responses only copy the bytes
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = gzip ? paper.getGzipEtag() : paper.getEtag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(paper.getGzip());
+        }
+        return response.body(paper.getJson());
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Question> getQuestionById(@PathVariable Long id) {
-        return ResponseEntity.ok(questionService.getQuestionById(id));
+    public ResponseEntity<PaperQuestion> getQuestionById(@PathVariable Long id) {
+        return ResponseEntity.ok(questionService.getPaperQuestion(id));
     }
 
     @PostMapping
@@ -1,17 +1,22 @@
 package com.exam.controller;
 
+import com.exam.dal.dto.ExamSummary;
+import com.exam.dal.dto.KeysetPage;
+import com.exam.dal.dto.SubmissionSummary;
 import com.exam.dal.model.Course;
 import com.exam.dal.model.Exam;
-import com.exam.dal.model.Submission;
 import com.exam.service.CourseService;
 import com.exam.service.ExamService;
 import com.exam.service.SubmissionService;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -21,6 +26,7 @@ import java.util.Map;
 @RequestMapping("/api/student/dashboard")
 @PreAuthorize("hasAuthority('STUDENT')")
 @RequiredArgsConstructor
+@Validated
 public class StudentDashboardController {
 
     private final CourseService courseService;
@@ -33,13 +39,19 @@ public class StudentDashboardController {
     }
 
     @GetMapping("/exams/upcoming")
-    public ResponseEntity<List<Exam>> getUpcomingExams() {
-        return ResponseEntity.ok(examService.getUpcomingExams());
+    public ResponseEntity<List<Exam>> getUpcomingExams(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) @Positive(message = "Size must be a positive number") Integer size) {
+        KeysetPage<Exam> exams = examService.getUpcomingExams(cursor, size);
+        return ResponseEntity.ok().headers(exams.headers()).body(exams.getItems());
     }
 
     @GetMapping("/exams/available")
-    public ResponseEntity<List<Exam>> getAvailableExams() {
-        return ResponseEntity.ok(examService.getAvailableExams());
+    public ResponseEntity<List<ExamSummary>> getAvailableExams(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) @Positive(message = "Size must be a positive number") Integer size) {
+        KeysetPage<ExamSummary> exams = examService.getAvailableExams(cursor, size);
+        return ResponseEntity.ok().headers(exams.headers()).body(exams.getItems());
     }
 
     @GetMapping("/exams/completed")
@@ -48,8 +60,11 @@ public class StudentDashboardController {
     }
 
     @GetMapping("/submissions")
-    public ResponseEntity<List<Submission>> getMySubmissions() {
-        return ResponseEntity.ok(submissionService.getMySubmissions());
+    public ResponseEntity<List<SubmissionSummary>> getMySubmissions(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) @Positive(message = "Size must be a positive number") Integer size) {
+        KeysetPage<SubmissionSummary> submissions = submissionService.getMySubmissions(cursor, size);
+        return ResponseEntity.ok().headers(submissions.headers()).body(submissions.getItems());
     }
 
     @GetMapping("/course/{courseId}/progress")
@@ -1,17 +1,30 @@
 package com.exam.controller;
 
+import com.exam.dal.dto.AnswerDraft;
+import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.ExportFormat;
+import com.exam.dal.dto.KeysetPage;
+import com.exam.dal.dto.SubmissionReceipt;
 import com.exam.dal.dto.SubmissionRequest;
+import com.exam.dal.dto.SubmissionSummary;
 import com.exam.dal.model.Submission;
+import com.exam.service.IdempotencyStore;
+import com.exam.service.SubmissionExportService;
+import com.exam.service.SubmissionIngestService;
 import com.exam.service.SubmissionService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -23,29 +36,111 @@ import java.util.Map;
 public class SubmissionController {
 
     private final SubmissionService submissionService;
+    private final SubmissionIngestService submissionIngestService;
+    private final SubmissionExportService submissionExportService;
+    private final IdempotencyStore idempotencyStore;
 
     /**
-     * Get submissions for the current student
+     * Get submissions for the current student, newest first
+     * @param cursor Cursor of the previous page, from the X-Next-Cursor header
+     * @param size Page size, or absent to return every submission
      * @return List of student's submissions
      */
     @GetMapping("/student")
     @PreAuthorize("hasAuthority('STUDENT')")
-    public ResponseEntity<List<Submission>> getMySubmissions() {
+    public ResponseEntity<List<SubmissionSummary>> getMySubmissions(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) @Positive(message = "Size must be a positive number") Integer size) {
         log.info("Fetching submissions for current student");
-        return ResponseEntity.ok(submissionService.getMySubmissions());
+        KeysetPage<SubmissionSummary> submissions = submissionService.getMySubmissions(cursor, size);
+        return ResponseEntity.ok().headers(submissions.headers()).body(submissions.getItems());
     }
 
     /**
-     * Get submissions for a specific exam
+     * Get submissions for a specific exam, newest first
      * @param examId The exam ID
+     * @param cursor Cursor of the previous page, from the X-Next-Cursor header
+     * @param size Page size, or absent to return every submission
      * @return List of submissions for the exam
      */
     @GetMapping("/exam/{examId}")
     @PreAuthorize("hasAuthority('TEACHER') or hasAuthority('ADMIN')")
-    public ResponseEntity<List<Submission>> getSubmissionsByExam(
-            @PathVariable @Positive(message = "Exam ID must be a positive number") Long examId) {
+    public ResponseEntity<List<SubmissionSummary>> getSubmissionsByExam(
+            @PathVariable @Positive(message = "Exam ID must be a positive number") Long examId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) @Positive(message = "Size must be a positive number") Integer size) {
         log.info("Fetching submissions for exam with ID: {}", examId);
-        return ResponseEntity.ok(submissionService.getSubmissionsByExam(examId));
+        KeysetPage<SubmissionSummary> submissions = submissionService.getSubmissionsByExam(examId, cursor, size);
+        return ResponseEntity.ok().headers(submissions.headers()).body(submissions.getItems());
+    }
+
+    /**
+     * Export the results of an exam, a row per submission with the points of each question, the
+     * total and the percentage. Rows are streamed as they are read, so any number of submissions
+     * can be exported.
+     * @param examId The exam ID
+     * @param format csv or ndjson
+     * @param response The response the rows are written to
+     * @throws IOException if writing the response fails
+     */
+    @GetMapping("/exam/{examId}/export")
+    @PreAuthorize("hasAuthority('TEACHER') or hasAuthority('ADMIN')")
+    public void exportSubmissionsByExam(
+            @PathVariable @Positive(message = "Exam ID must be a positive number") Long examId,
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletResponse response) throws IOException {
+        log.info("Exporting submissions for exam with ID: {} as {}", examId, format);
+        ExportFormat exportFormat = ExportFormat.of(format);
+        SubmissionExportService.Export export = submissionExportService.prepare(examId);
+
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("exam-" + examId + "-submissions." + exportFormat.getExtension())
+                .build()
+                .toString());
+        submissionExportService.write(export, exportFormat, response.getOutputStream());
+    }
+
+    /**
+     * Start answering an exam, or resume the draft started earlier
+     * @param examId The exam ID
+     * @return The draft with the answers saved so far
+     */
+    @PostMapping("/exam/{examId}/draft")
+    @PreAuthorize("hasAuthority('STUDENT')")
+    public ResponseEntity<AnswerDraft> startDraft(
+            @PathVariable @Positive(message = "Exam ID must be a positive number") Long examId) {
+        log.info("Starting draft of exam with ID: {}", examId);
+        return ResponseEntity.ok(submissionService.startDraft(examId));
+    }
+
+    /**
+     * Get a draft with the answers saved so far
+     * @param id The draft submission ID
+     * @return The draft
+     */
+    @GetMapping("/{id}/draft")
+    @PreAuthorize("hasAuthority('STUDENT')")
+    public ResponseEntity<AnswerDraft> getDraft(
+            @PathVariable @Positive(message = "Submission ID must be a positive number") Long id) {
+        return ResponseEntity.ok(submissionService.getDraft(id));
+    }
+
+    /**
+     * Autosave an answer of a draft. Saves are buffered and only the latest one per question is
+     * written, so clients can save as often as they like.
+     * @param id The draft submission ID
+     * @param answerRequest The answer; its question is required, the submission is taken from the path
+     * @return No content
+     */
+    @PutMapping("/{id}/draft")
+    @PreAuthorize("hasAuthority('STUDENT')")
+    public ResponseEntity<Void> saveDraftAnswer(
+            @PathVariable @Positive(message = "Submission ID must be a positive number") Long id,
+            @RequestBody AnswerRequest answerRequest) {
+        submissionService.saveDraftAnswer(id, answerRequest);
+        return ResponseEntity.noContent().build();
     }
 
     /**
@@ -61,16 +156,41 @@ public class SubmissionController {
     }
 
     /**
-     * Submit an exam
+     * Submit an exam. With the ingest queue enabled the submission is saved and graded
+     * asynchronously and the response is 202 with a receipt to poll. A request with an
+     * Idempotency-Key header that was already used gets the first response again.
+     * @param idempotencyKey Optional key identifying retries of the same submit
      * @param submissionRequest The submission details
-     * @return The created submission
+     * @return The receipt, with the score if the submission was saved and graded right away
      */
     @PostMapping
     @PreAuthorize("hasAuthority('STUDENT')")
-    public ResponseEntity<Submission> submitExam(
+    public ResponseEntity<?> submitExam(
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody SubmissionRequest submissionRequest) {
         log.info("Submitting exam for student");
-        return ResponseEntity.ok(submissionService.submitExam(submissionRequest));
+        if (idempotencyKey == null) {
+            return submit(submissionRequest);
+        }
+        return idempotencyStore.execute(idempotencyKey, submissionRequest, () -> submit(submissionRequest));
+    }
+
+    private ResponseEntity<SubmissionReceipt> submit(SubmissionRequest submissionRequest) {
+        if (submissionIngestService.isEnabled()) {
+            return ResponseEntity.accepted().body(submissionIngestService.accept(submissionRequest));
+        }
+        return ResponseEntity.ok(SubmissionReceipt.saved(null, submissionService.submitExam(submissionRequest)));
+    }
+
+    /**
+     * Get the status of a queued submission
+     * @param receiptId The receipt returned when the submission was queued
+     * @return The receipt, with the score once the submission is graded
+     */
+    @GetMapping("/receipts/{receiptId}")
+    @PreAuthorize("hasAnyAuthority('STUDENT', 'ADMIN')")
+    public ResponseEntity<SubmissionReceipt> getReceipt(@PathVariable String receiptId) {
+        return ResponseEntity.ok(submissionIngestService.getReceipt(receiptId));
     }
 
     /**
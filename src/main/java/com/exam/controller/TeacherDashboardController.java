@@ -1,10 +1,15 @@
 package com.exam.controller;
 
+import com.exam.dal.dto.ExamStats;
+import com.exam.dal.dto.KeysetPage;
+import com.exam.dal.dto.PercentileRank;
+import com.exam.dal.dto.ScorePercentiles;
+import com.exam.dal.dto.SubmissionSummary;
 import com.exam.dal.model.Course;
 import com.exam.dal.model.Exam;
-import com.exam.dal.model.Submission;
 import com.exam.service.CourseService;
 import com.exam.service.ExamService;
+import com.exam.service.ExamStatisticsService;
 import com.exam.service.SubmissionService;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
@@ -15,11 +20,11 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/teacher/dashboard")
@@ -32,6 +37,7 @@ public class TeacherDashboardController {
     private final CourseService courseService;
     private final ExamService examService;
     private final SubmissionService submissionService;
+    private final ExamStatisticsService examStatisticsService;
 
     /**
      * Retrieve courses taught by the current teacher
@@ -46,13 +52,17 @@ public class TeacherDashboardController {
 
     /**
      * Retrieve exams created by the current teacher
-     * @return List of exams
+     * @param cursor Cursor of the previous page, omit for the first page
+     * @param size Page size, omit to fetch every exam
+     * @return List of exams, with the next page cursor in the X-Next-Cursor header
      */
     @GetMapping("/exams")
-    public ResponseEntity<List<Exam>> getTeacherExams() {
+    public ResponseEntity<List<Exam>> getTeacherExams(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) @Positive(message = "Size must be a positive number") Integer size) {
         log.info("Fetching exams for current teacher");
-        List<Exam> exams = examService.getTeacherExams();
-        return ResponseEntity.ok(exams);
+        KeysetPage<Exam> exams = examService.getTeacherExams(cursor, size);
+        return ResponseEntity.ok().headers(exams.headers()).body(exams.getItems());
     }
 
     /**
@@ -69,16 +79,20 @@ public class TeacherDashboardController {
     }
 
     /**
-     * Get submissions for a specific exam
+     * Get submissions for a specific exam, newest first
      * @param examId The ID of the exam
+     * @param cursor Cursor of the previous page, from the X-Next-Cursor header
+     * @param size Page size, or absent to return every submission
      * @return List of submissions
      */
     @GetMapping("/exam/{examId}/submissions")
-    public ResponseEntity<List<Submission>> getExamSubmissions(
-            @PathVariable @Positive(message = "Exam ID must be a positive number") Long examId) {
+    public ResponseEntity<List<SubmissionSummary>> getExamSubmissions(
+            @PathVariable @Positive(message = "Exam ID must be a positive number") Long examId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) @Positive(message = "Size must be a positive number") Integer size) {
         log.info("Fetching submissions for exam with ID: {}", examId);
-        List<Submission> submissions = submissionService.getSubmissionsByExam(examId);
-        return ResponseEntity.ok(submissions);
+        KeysetPage<SubmissionSummary> submissions = submissionService.getSubmissionsByExam(examId, cursor, size);
+        return ResponseEntity.ok().headers(submissions.headers()).body(submissions.getItems());
     }
 
     /**
@@ -87,80 +101,49 @@ public class TeacherDashboardController {
      * @return Exam statistics
      */
     @GetMapping("/exam/{examId}/stats")
-    public ResponseEntity<Map<String, Object>> getExamStats(
+    public ResponseEntity<ExamStats> getExamStats(
             @PathVariable @Positive(message = "Exam ID must be a positive number") Long examId) {
-        log.info("Calculating statistics for exam with ID: {}", examId);
-
-        // Fetch submissions
-        List<Submission> submissions = submissionService.getSubmissionsByExam(examId);
-
-        // Calculate statistics with more robust handling
-        Map<String, Object> stats = calculateExamStatistics(submissions);
-
-        return ResponseEntity.ok(stats);
+        log.info("Fetching statistics for exam with ID: {}", examId);
+        return ResponseEntity.ok(examStatisticsService.getExamStats(examId));
     }
 
     /**
-     * Calculate exam statistics
-     * @param submissions List of submissions
-     * @return Map of exam statistics
-     */
-    private Map<String, Object> calculateExamStatistics(List<Submission> submissions) {
-        // Filter graded submissions
-        List<Submission> gradedSubmissions = submissions.stream()
-                .filter(Submission::isGraded)
-                .collect(Collectors.toList());
-
-        // Calculate statistics
-        return Map.of(
-                "totalSubmissions", submissions.size(),
-                "gradedSubmissions", gradedSubmissions.size(),
-                "averageScore", calculateAverageScore(gradedSubmissions),
-                "highestScore", findHighestScore(gradedSubmissions),
-                "lowestScore", findLowestScore(gradedSubmissions),
-                "pendingGrading", submissions.stream().filter(s -> !s.isGraded()).count()
-        );
-    }
-
-    /**
-     * Calculate average score for graded submissions
-     * @param gradedSubmissions List of graded submissions
-     * @return Average score
+     * Get percentiles of the percentage scores of an exam
+     * @param examId The ID of the exam
+     * @param percentiles The percentiles, from 0 to 100
+     * @return The percentage score at each percentile, with its rank error
      */
-    private double calculateAverageScore(List<Submission> gradedSubmissions) {
-        return gradedSubmissions.stream()
-                .mapToDouble(submission ->
-                        submission.getScore() != null ?
-                                submission.getScore().getTotalScore() : 0.0)
-                .average()
-                .orElse(0.0);
+    @GetMapping("/exam/{examId}/percentiles")
+    public ResponseEntity<ScorePercentiles> getExamPercentiles(
+            @PathVariable @Positive(message = "Exam ID must be a positive number") Long examId,
+            @RequestParam(name = "p", defaultValue = "25,50,75,90") List<Double> percentiles) {
+        log.info("Fetching score percentiles for exam with ID: {}", examId);
+        return ResponseEntity.ok(examStatisticsService.getExamPercentiles(examId, percentiles));
     }
 
     /**
-     * Find highest score among graded submissions
-     * @param gradedSubmissions List of graded submissions
-     * @return Highest score
+     * Get percentiles of the percentage scores of all exams of a course
+     * @param courseId The ID of the course
+     * @param percentiles The percentiles, from 0 to 100
+     * @return The percentage score at each percentile, with its rank error
      */
-    private double findHighestScore(List<Submission> gradedSubmissions) {
-        return gradedSubmissions.stream()
-                .mapToDouble(submission ->
-                        submission.getScore() != null ?
-                                submission.getScore().getTotalScore() : 0.0)
-                .max()
-                .orElse(0.0);
+    @GetMapping("/course/{courseId}/percentiles")
+    public ResponseEntity<ScorePercentiles> getCoursePercentiles(
+            @PathVariable @Positive(message = "Course ID must be a positive number") Long courseId,
+            @RequestParam(name = "p", defaultValue = "25,50,75,90") List<Double> percentiles) {
+        log.info("Fetching score percentiles for course with ID: {}", courseId);
+        return ResponseEntity.ok(examStatisticsService.getCoursePercentiles(courseId, percentiles));
     }
 
     /**
-     * Find lowest score among graded submissions
-     * @param gradedSubmissions List of graded submissions
-     * @return Lowest score
+     * Get the percentile rank of a submission within its exam and its course
+     * @param submissionId The ID of the submission
+     * @return The percentile ranks, with their rank error
      */
-    private double findLowestScore(List<Submission> gradedSubmissions) {
-        return gradedSubmissions.stream()
-                .mapToDouble(submission ->
-                        submission.getScore() != null ?
-                                submission.getScore().getTotalScore() : 0.0)
-                .min()
-                .orElse(0.0);
+    @GetMapping("/submission/{submissionId}/rank")
+    public ResponseEntity<PercentileRank> getPercentileRank(
+            @PathVariable @Positive(message = "Submission ID must be a positive number") Long submissionId) {
+        log.info("Fetching percentile rank of submission with ID: {}", submissionId);
+        return ResponseEntity.ok(examStatisticsService.getPercentileRank(submissionId));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,31 @@
+package com.exam.dal.dto;
+
+
+import com.exam.dal.model.MatchType;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AcceptedAnswerRequest {
+
+    @NotBlank(message = "Pattern is required")
+    private String pattern;
+
+    @NotNull(message = "Match type is required")
+    private MatchType matchType;
+
+    @PositiveOrZero(message = "Tolerance must not be negative")
+    private Double tolerance;
+
+    @Positive(message = "Blank must be positive")
+    private Integer blank;
+}
@@ -0,0 +1,19 @@
+package com.exam.dal.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The answers saved so far for a submission in progress, to restore the exam after a reload
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnswerDraft {
+    private Long submissionId;
+    private Long examId;
+    private List<AnswerRequest> answers;
+}
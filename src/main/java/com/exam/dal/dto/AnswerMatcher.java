@@ -0,0 +1,333 @@
+package com.exam.dal.dto;
+
+import com.exam.dal.dto.ExamPaper.PaperAcceptedAnswer;
+import com.exam.dal.model.MatchType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * The accepted answers of a question, or of one blank of it, compiled for matching text answers.
+ * Exact, case and whitespace insensitive answers are each kept in a trie of their normalized
+ * form, and an answer walks all four tries in one pass over its characters, normalizing as it
+ * goes. Numeric answers are kept as ranges, regular expressions are compiled once. Matching
+ * allocates nothing unless the question accepts a regular expression.
+ */
+public final class AnswerMatcher {
+
+    private static final AnswerMatcher NONE = new AnswerMatcher(null, null, null, null, new double[0], new double[0], new Pattern[0]);
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final Node exact;
+    private final Node ignoreCase;
+    private final Node ignoreWhitespace;
+    private final Node ignoreCaseAndWhitespace;
+
+    // Inclusive bounds of the accepted numbers
+    private final double[] lowerBounds;
+    private final double[] upperBounds;
+
+    private final Pattern[] patterns;
+
+    private AnswerMatcher(Node exact, Node ignoreCase, Node ignoreWhitespace, Node ignoreCaseAndWhitespace,
+                          double[] lowerBounds, double[] upperBounds, Pattern[] patterns) {
+        this.exact = exact;
+        this.ignoreCase = ignoreCase;
+        this.ignoreWhitespace = ignoreWhitespace;
+        this.ignoreCaseAndWhitespace = ignoreCaseAndWhitespace;
+        this.lowerBounds = lowerBounds;
+        this.upperBounds = upperBounds;
+        this.patterns = patterns;
+    }
+
+    /**
+     * Compile accepted answers
+     * @param acceptedAnswers The accepted answers, numeric patterns must be numbers and regular expressions valid
+     * @return The matcher, matching nothing if there are no accepted answers
+     */
+    public static AnswerMatcher compile(List<PaperAcceptedAnswer> acceptedAnswers) {
+        if (acceptedAnswers.isEmpty()) {
+            return NONE;
+        }
+
+        Map<MatchType, TrieBuilder> tries = new TreeMap<>();
+        List<double[]> ranges = new ArrayList<>();
+        List<Pattern> patterns = new ArrayList<>();
+        for (PaperAcceptedAnswer answer : acceptedAnswers) {
+            String pattern = answer.getPattern();
+            switch (answer.getMatchType()) {
+                case NUMERIC -> {
+                    double value = parseNumber(pattern, 0, pattern.length());
+                    if (Double.isNaN(value)) {
+                        throw new IllegalArgumentException("Not a number: " + pattern);
+                    }
+                    double tolerance = answer.getTolerance() != null ? Math.abs(answer.getTolerance()) : 0;
+                    ranges.add(new double[]{value - tolerance, value + tolerance});
+                }
+                case REGEX -> patterns.add(Pattern.compile(pattern));
+                default -> tries.computeIfAbsent(answer.getMatchType(), type -> new TrieBuilder())
+                        .add(normalize(pattern, answer.getMatchType()));
+            }
+        }
+
+        return new AnswerMatcher(
+                freeze(tries.get(MatchType.EXACT)),
+                freeze(tries.get(MatchType.IGNORE_CASE)),
+                freeze(tries.get(MatchType.IGNORE_WHITESPACE)),
+                freeze(tries.get(MatchType.IGNORE_CASE_AND_WHITESPACE)),
+                ranges.stream().mapToDouble(range -> range[0]).toArray(),
+                ranges.stream().mapToDouble(range -> range[1]).toArray(),
+                patterns.toArray(Pattern[]::new));
+    }
+
+    /**
+     * Check whether this matcher accepts nothing, leaving the question to the teacher
+     * @return true if there are no accepted answers
+     */
+    public boolean isEmpty() {
+        return this == NONE;
+    }
+
+    /**
+     * Check whether a range of a text is an accepted answer. Whitespace around it is ignored.
+     * @param text The text
+     * @param from The start of the range, inclusive
+     * @param to The end of the range, exclusive
+     * @return true if it matches any accepted answer
+     */
+    public boolean matches(String text, int from, int to) {
+        while (from < to && isSpace(text.charAt(from))) {
+            from++;
+        }
+        while (to > from && isSpace(text.charAt(to - 1))) {
+            to--;
+        }
+
+        if (matchesTries(text, from, to)) {
+            return true;
+        }
+        if (lowerBounds.length > 0) {
+            double value = parseNumber(text, from, to);
+            for (int i = 0; i < lowerBounds.length; i++) {
+                if (value >= lowerBounds[i] && value <= upperBounds[i]) {
+                    return true;
+                }
+            }
+        }
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(text).region(from, to).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Walk the four tries together, the range is trimmed
+     */
+    private boolean matchesTries(String text, int from, int to) {
+        Node exactNode = exact;
+        Node ignoreCaseNode = ignoreCase;
+        Node ignoreWhitespaceNode = ignoreWhitespace;
+        Node ignoreBothNode = ignoreCaseAndWhitespace;
+
+        boolean inWhitespace = false;
+        for (int i = from; i < to; i++) {
+            if (exactNode == null && ignoreCaseNode == null && ignoreWhitespaceNode == null && ignoreBothNode == null) {
+                return false;
+            }
+            char c = text.charAt(i);
+            char lower = Character.toLowerCase(c);
+            exactNode = Node.next(exactNode, c);
+            ignoreCaseNode = Node.next(ignoreCaseNode, lower);
+
+            // A run of whitespace is one space, the trimmed range cannot end in one
+            if (isSpace(c)) {
+                inWhitespace = true;
+                continue;
+            }
+            if (inWhitespace) {
+                ignoreWhitespaceNode = Node.next(ignoreWhitespaceNode, ' ');
+                ignoreBothNode = Node.next(ignoreBothNode, ' ');
+                inWhitespace = false;
+            }
+            ignoreWhitespaceNode = Node.next(ignoreWhitespaceNode, c);
+            ignoreBothNode = Node.next(ignoreBothNode, lower);
+        }
+        return Node.isTerminal(exactNode) || Node.isTerminal(ignoreCaseNode)
+                || Node.isTerminal(ignoreWhitespaceNode) || Node.isTerminal(ignoreBothNode);
+    }
+
+    /**
+     * Normalize an accepted answer the way {@link #matchesTries} normalizes answers
+     */
+    private static String normalize(String pattern, MatchType matchType) {
+        boolean lowerCase = matchType == MatchType.IGNORE_CASE || matchType == MatchType.IGNORE_CASE_AND_WHITESPACE;
+        boolean collapse = matchType == MatchType.IGNORE_WHITESPACE || matchType == MatchType.IGNORE_CASE_AND_WHITESPACE;
+
+        int from = 0;
+        int to = pattern.length();
+        while (from < to && isSpace(pattern.charAt(from))) {
+            from++;
+        }
+        while (to > from && isSpace(pattern.charAt(to - 1))) {
+            to--;
+        }
+
+        StringBuilder normalized = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            char c = pattern.charAt(i);
+            if (collapse && isSpace(c)) {
+                if (!isSpace(pattern.charAt(i - 1))) {
+                    normalized.append(' ');
+                }
+            } else {
+                normalized.append(lowerCase ? Character.toLowerCase(c) : c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Parse a decimal number such as -12, 3.5 or 6.02e23 without allocating. Numbers of up to 15
+     * significant digits, scaled by at most 10^22 either way, parse to the same double as
+     * {@link Double#parseDouble}; longer ones may differ in the last bit.
+     * @return The number, or NaN if the range is not one
+     */
+    static double parseNumber(String text, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean point = false;
+        for (; i < to; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (mantissa < 100_000_000_000_000_000L) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    exponent -= point ? 1 : 0;
+                } else {
+                    // Digits beyond what a long holds only scale the number
+                    exponent += point ? 0 : 1;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+
+        if (i < to && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+                negativeExponent = text.charAt(i) == '-';
+                i++;
+            }
+            int exponentDigits = 0;
+            int explicitExponent = 0;
+            for (; i < to && text.charAt(i) >= '0' && text.charAt(i) <= '9'; i++) {
+                exponentDigits++;
+                explicitExponent = Math.min(explicitExponent * 10 + (text.charAt(i) - '0'), 10_000);
+            }
+            if (exponentDigits == 0) {
+                return Double.NaN;
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (i != to) {
+            return Double.NaN;
+        }
+
+        double value;
+        if (exponent == 0) {
+            value = mantissa;
+        } else if (exponent > 0 && exponent < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[exponent];
+        } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+            // Both exact, so the quotient is correctly rounded
+            value = mantissa / POWERS_OF_TEN[-exponent];
+        } else {
+            value = mantissa * Math.pow(10, exponent);
+        }
+        return negative ? -value : value;
+    }
+
+    // The characters of \s in a regular expression
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static Node freeze(TrieBuilder builder) {
+        return builder == null ? null : builder.freeze();
+    }
+
+    /**
+     * A node of a frozen trie, its children sorted by character
+     */
+    private static final class Node {
+        private final char[] keys;
+        private final Node[] children;
+        private final boolean terminal;
+
+        private Node(char[] keys, Node[] children, boolean terminal) {
+            this.keys = keys;
+            this.children = children;
+            this.terminal = terminal;
+        }
+
+        static Node next(Node node, char c) {
+            if (node == null) {
+                return null;
+            }
+            int index = Arrays.binarySearch(node.keys, c);
+            return index >= 0 ? node.children[index] : null;
+        }
+
+        static boolean isTerminal(Node node) {
+            return node != null && node.terminal;
+        }
+    }
+
+    private static final class TrieBuilder {
+        private final TreeMap<Character, TrieBuilder> children = new TreeMap<>();
+        private boolean terminal;
+
+        void add(String word) {
+            TrieBuilder node = this;
+            for (int i = 0; i < word.length(); i++) {
+                node = node.children.computeIfAbsent(word.charAt(i), c -> new TrieBuilder());
+            }
+            node.terminal = true;
+        }
+
+        Node freeze() {
+            char[] keys = new char[children.size()];
+            Node[] frozen = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, TrieBuilder> child : children.entrySet()) {
+                keys[i] = child.getKey();
+                frozen[i++] = child.getValue().freeze();
+            }
+            return new Node(keys, frozen, terminal);
+        }
+    }
+}
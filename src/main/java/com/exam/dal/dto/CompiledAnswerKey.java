@@ -0,0 +1,203 @@
+package com.exam.dal.dto;
+
+import com.exam.dal.dto.ExamPaper.PaperAcceptedAnswer;
+import com.exam.dal.dto.ExamPaper.PaperOption;
+import com.exam.dal.dto.ExamPaper.PaperQuestion;
+import com.exam.dal.model.MatchType;
+import com.exam.dal.model.QuestionType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * An exam's answer key compiled for auto-grading. Each question's options are numbered in ID
+ * order and the correct ones kept as a bitmask, one bit per option in as many long words as
+ * needed, so choice answers are compared with AND, XOR and popcount. The accepted answers of
+ * questions answered with text are compiled into one {@link AnswerMatcher} per blank. Answers are
+ * scored against it by the grading engine.
+ */
+public final class CompiledAnswerKey {
+
+    private final Map<Long, QuestionKey> questions;
+
+    private CompiledAnswerKey(Map<Long, QuestionKey> questions) {
+        this.questions = questions;
+    }
+
+    /**
+     * Compile the answer key of a paper's questions
+     * @param questions The questions with their options, including which are correct
+     * @return The compiled key
+     */
+    public static CompiledAnswerKey of(List<PaperQuestion> questions) {
+        return new CompiledAnswerKey(questions.stream()
+                .collect(Collectors.toUnmodifiableMap(PaperQuestion::getId, QuestionKey::of, (a, b) -> a)));
+    }
+
+    /**
+     * Get the key of a question
+     * @param questionId The question ID
+     * @return The key, or null if the question is not in this key
+     */
+    public QuestionKey getQuestion(Long questionId) {
+        return questions.get(questionId);
+    }
+
+    /**
+     * Get the keys of all questions
+     * @return The question keys
+     */
+    public Collection<QuestionKey> getQuestions() {
+        return questions.values();
+    }
+
+    public static final class QuestionKey {
+        private final Long questionId;
+        private final QuestionType type;
+        private final int marks;
+
+        // Option IDs in ascending order, an option's index is its bit
+        private final long[] optionIds;
+        private final long[] correct;
+
+        // The item each option of a matching question matches, from 0, by option index
+        private final int[] matchItems;
+
+        // Matchers of the accepted answers, one per blank, a short answer has one blank
+        private final AnswerMatcher[] blanks;
+
+        private QuestionKey(Long questionId, QuestionType type, int marks, long[] optionIds, long[] correct,
+                            int[] matchItems, AnswerMatcher[] blanks) {
+            this.questionId = questionId;
+            this.type = type;
+            this.marks = marks;
+            this.optionIds = optionIds;
+            this.correct = correct;
+            this.matchItems = matchItems;
+            this.blanks = blanks;
+        }
+
+        static QuestionKey of(PaperQuestion question) {
+            // Paper options are already sorted by ID
+            List<PaperOption> options = question.getOptions();
+            long[] optionIds = new long[options.size()];
+            long[] correct = new long[Math.max(1, (options.size() + 63) >>> 6)];
+            int[] matchItems = new int[options.size()];
+            for (int i = 0; i < options.size(); i++) {
+                optionIds[i] = options.get(i).getId();
+                if (Boolean.TRUE.equals(options.get(i).getCorrect())) {
+                    correct[i >>> 6] |= 1L << i;
+                }
+                // Options saved before their item was recorded match in option order
+                Integer matchItem = options.get(i).getMatchItem();
+                matchItems[i] = matchItem != null ? matchItem - 1 : i;
+            }
+            int marks = question.getMarks() != null ? question.getMarks() : 0;
+            return new QuestionKey(question.getId(), question.getQuestionType(), marks, optionIds, correct,
+                    matchItems, compileBlanks(question));
+        }
+
+        private static AnswerMatcher[] compileBlanks(PaperQuestion question) {
+            if (question.getQuestionType() != QuestionType.SHORT_ANSWER && question.getQuestionType() != QuestionType.FILL_IN_BLANK) {
+                return new AnswerMatcher[0];
+            }
+            boolean oneBlank = question.getQuestionType() == QuestionType.SHORT_ANSWER;
+
+            // Without accepted answers, each correct option is accepted ignoring case and whitespace
+            List<PaperAcceptedAnswer> acceptedAnswers = question.getAcceptedAnswers();
+            if (acceptedAnswers.isEmpty()) {
+                acceptedAnswers = new ArrayList<>();
+                for (PaperOption option : question.getOptions()) {
+                    if (Boolean.TRUE.equals(option.getCorrect()) && option.getContent() != null) {
+                        acceptedAnswers.add(new PaperAcceptedAnswer(option.getId(), option.getContent(),
+                                MatchType.IGNORE_CASE_AND_WHITESPACE, null, oneBlank ? 1 : acceptedAnswers.size() + 1));
+                    }
+                }
+            }
+
+            List<List<PaperAcceptedAnswer>> byBlank = new ArrayList<>();
+            for (PaperAcceptedAnswer answer : acceptedAnswers) {
+                int blank = oneBlank || answer.getBlank() == null ? 0 : answer.getBlank() - 1;
+                while (byBlank.size() <= blank) {
+                    byBlank.add(new ArrayList<>());
+                }
+                byBlank.get(blank).add(answer);
+            }
+            return byBlank.stream()
+                    .map(AnswerMatcher::compile)
+                    .toArray(AnswerMatcher[]::new);
+        }
+
+        public Long getQuestionId() {
+            return questionId;
+        }
+
+        public QuestionType getType() {
+            return type;
+        }
+
+        public int getMarks() {
+            return marks;
+        }
+
+        public int getOptionCount() {
+            return optionIds.length;
+        }
+
+        /**
+         * Get the bit of an option
+         * @param optionId The option ID
+         * @return The option's index in ID order, or a negative number if it is not an option of this question
+         */
+        public int indexOf(Long optionId) {
+            return optionId == null ? -1 : Arrays.binarySearch(optionIds, optionId);
+        }
+
+        /**
+         * Get the number of long words of the bitmasks
+         * @return At least 1
+         */
+        public int getWordCount() {
+            return correct.length;
+        }
+
+        /**
+         * Get a word of the bitmask of correct options
+         * @param word The word, bit i of word w is option 64 * w + i
+         * @return The bits of the correct options
+         */
+        public long getCorrectWord(int word) {
+            return correct[word];
+        }
+
+        /**
+         * Get the item of a matching question an option matches
+         * @param index The option's index
+         * @return The item, from 0
+         */
+        public int getMatchItem(int index) {
+            return matchItems[index];
+        }
+
+        /**
+         * Get the number of blanks answered with text
+         * @return The number of blanks, 1 for a short answer, 0 if nothing is accepted or the question is not answered with text
+         */
+        public int getBlankCount() {
+            return blanks.length;
+        }
+
+        /**
+         * Get the matcher of a blank
+         * @param blank The blank, from 0
+         * @return The matcher of its accepted answers
+         */
+        public AnswerMatcher getBlank(int blank) {
+            return blanks[blank];
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.exam.dal.dto;
+
+import com.exam.dal.model.AcceptedAnswer;
+import com.exam.dal.model.Exam;
+import com.exam.dal.model.MatchType;
+import com.exam.dal.model.Option;
+import com.exam.dal.model.Question;
+import com.exam.dal.model.QuestionType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Value;
+import lombok.With;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable snapshot of an exam's questions and options, detached from the persistence context
+ * so it can be shared between requests
+ */
+@Value
+public class ExamPaper {
+    Long examId;
+    Long courseId;
+    Long teacherId;
+    boolean published;
+    List<PaperQuestion> questions;
+
+    @JsonIgnore
+    Map<Long, PaperQuestion> questionsById;
+
+    /**
+     * The answer key compiled for auto-grading
+     */
+    @JsonIgnore
+    CompiledAnswerKey answerKey;
+
+    /**
+     * The paper as staff see it, including the answer key
+     */
+    @With
+    @JsonIgnore
+    RenderedPaper fullView;
+
+    /**
+     * The paper as students see it, without the answer key
+     */
+    @With
+    @JsonIgnore
+    RenderedPaper studentView;
+
+    /**
+     * Build a snapshot of an exam
+     * @param exam The exam, with its course loaded or loadable
+     * @param questions The exam's questions with their options loaded
+     * @return The snapshot
+     */
+    public static ExamPaper of(Exam exam, List<Question> questions) {
+        List<PaperQuestion> paperQuestions = questions.stream()
+                .sorted(Comparator.comparing(Question::getId))
+                .map(PaperQuestion::of)
+                .toList();
+
+        return new ExamPaper(
+                exam.getId(),
+                exam.getCourse().getId(),
+                exam.getCourse().getTeacher().getId(),
+                exam.isPublished(),
+                paperQuestions,
+                paperQuestions.stream().collect(Collectors.toUnmodifiableMap(PaperQuestion::getId, Function.identity())),
+                CompiledAnswerKey.of(paperQuestions),
+                null,
+                null);
+    }
+
+    /**
+     * Get a question of this paper
+     * @param questionId The question ID
+     * @return The question, or null if it does not belong to this exam
+     */
+    public PaperQuestion getQuestion(Long questionId) {
+        return questionsById.get(questionId);
+    }
+
+    /**
+     * Get the questions with the answer key removed, as shown to students
+     * @return The redacted questions
+     */
+    public List<PaperQuestion> redactedQuestions() {
+        return questions.stream()
+                .map(PaperQuestion::withoutAnswerKey)
+                .toList();
+    }
+
+    @Value
+    public static class PaperQuestion {
+        Long id;
+        String content;
+        Integer marks;
+        QuestionType questionType;
+        String difficultyLevel;
+        List<PaperOption> options;
+
+        // Empty in the student view, so it is left out of the JSON entirely
+        @JsonInclude(JsonInclude.Include.NON_EMPTY)
+        List<PaperAcceptedAnswer> acceptedAnswers;
+
+        static PaperQuestion of(Question question) {
+            List<PaperOption> options = question.getOptions() == null ? List.of() : question.getOptions().stream()
+                    .sorted(Comparator.comparing(Option::getId))
+                    .map(option -> new PaperOption(option.getId(), option.getContent(), option.isCorrect(), option.getMatchItem()))
+                    .toList();
+            List<PaperAcceptedAnswer> acceptedAnswers = question.getAcceptedAnswers() == null ? List.of() : question.getAcceptedAnswers().stream()
+                    .sorted(Comparator.comparing(AcceptedAnswer::getId))
+                    .map(answer -> new PaperAcceptedAnswer(answer.getId(), answer.getPattern(), answer.getMatchType(),
+                            answer.getTolerance(), answer.getBlank()))
+                    .toList();
+
+            return new PaperQuestion(question.getId(), question.getContent(), question.getMarks(),
+                    question.getQuestionType(), question.getDifficultyLevel(), options, acceptedAnswers);
+        }
+
+        /**
+         * Check whether an option belongs to this question
+         * @param optionId The option ID
+         * @return true if the option is one of this question's options
+         */
+        public boolean hasOption(Long optionId) {
+            return options.stream().anyMatch(option -> option.getId().equals(optionId));
+        }
+
+        /**
+         * Get the question with the answer key removed, as shown to students
+         * @return The redacted question
+         */
+        public PaperQuestion withoutAnswerKey() {
+            // The correct options of questions answered with text may be their accepted answers, and matching
+            // options are in the order of the items they match
+            if (questionType == QuestionType.SHORT_ANSWER || questionType == QuestionType.FILL_IN_BLANK) {
+                return new PaperQuestion(id, content, marks, questionType, difficultyLevel, List.of(), List.of());
+            }
+            Comparator<PaperOption> order = questionType == QuestionType.MATCHING
+                    ? Comparator.comparing(PaperOption::getContent, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    : Comparator.comparing(PaperOption::getId);
+            List<PaperOption> redacted = options.stream()
+                    .sorted(order)
+                    .map(option -> new PaperOption(option.getId(), option.getContent(), null, null))
+                    .toList();
+            return new PaperQuestion(id, content, marks, questionType, difficultyLevel, redacted, List.of());
+        }
+    }
+
+    @Value
+    public static class PaperOption {
+        Long id;
+        String content;
+
+        // Null in the student view, so the flag is left out of the JSON entirely
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        Boolean correct;
+
+        // The item of a matching question this option matches, null in the student view
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        Integer matchItem;
+    }
+
+    @Value
+    public static class PaperAcceptedAnswer {
+        Long id;
+        String pattern;
+        MatchType matchType;
+
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        Double tolerance;
+
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        Integer blank;
+    }
+}
@@ -0,0 +1,52 @@
+package com.exam.dal.dto;
+
+import com.exam.dal.model.ExamStatistics;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Submission counts and score statistics of an exam. Scores are those of graded submissions.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExamStats {
+    private long totalSubmissions;
+    private long gradedSubmissions;
+    private long pendingGrading;
+    private long passedSubmissions;
+    private double averageScore;
+    private double standardDeviation;
+    private double highestScore;
+    private double lowestScore;
+
+    // Graded submissions in each tenth of the percentage range, lowest first
+    private long[] histogram;
+
+    private LocalDateTime updatedAt;
+
+    /**
+     * Get the statistics of an exam as kept up to date
+     * @param statistics The exam's statistics
+     * @return The statistics, zero where there is nothing to count
+     */
+    public static ExamStats of(ExamStatistics statistics) {
+        return ExamStats.builder()
+                .totalSubmissions(statistics.getSubmitted())
+                .gradedSubmissions(statistics.getGraded())
+                .pendingGrading(Math.max(0, statistics.getSubmitted() - statistics.getGraded()))
+                .passedSubmissions(statistics.getPassed())
+                .averageScore(statistics.getMeanScore())
+                .standardDeviation(Math.sqrt(statistics.getVariance()))
+                .highestScore(statistics.getMaxScore() != null ? statistics.getMaxScore() : 0.0)
+                .lowestScore(statistics.getMinScore() != null ? statistics.getMinScore() : 0.0)
+                .histogram(statistics.getHistogram().toArray())
+                .updatedAt(statistics.getUpdatedAt())
+                .build();
+    }
+}
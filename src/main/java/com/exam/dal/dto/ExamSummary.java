@@ -0,0 +1,25 @@
+package com.exam.dal.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only view of an exam for listings, selected directly by the query instead of loading the entity
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExamSummary {
+    private Long id;
+    private String title;
+    private String description;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private Integer durationMinutes;
+    private Double totalMarks;
+    private Long courseId;
+    private String courseTitle;
+}
@@ -0,0 +1,19 @@
+package com.exam.dal.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * The time window of an exam, used to schedule its status transitions
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExamWindow {
+    private Long examId;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+}
@@ -0,0 +1,43 @@
+package com.exam.dal.dto;
+
+import com.exam.exception.ValidationException;
+
+import java.util.Locale;
+
+/**
+ * Enum to represent the formats an exam's results can be exported in
+ */
+public enum ExportFormat {
+    CSV("text/csv", "csv"),                    // A header line, then a line of comma separated values per submission
+    NDJSON("application/x-ndjson", "ndjson");  // A JSON object per line, one per submission
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    /**
+     * Get a format by name
+     * @param name The name, in any case
+     * @return The format
+     * @throws ValidationException if there is no such format
+     */
+    public static ExportFormat of(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Unsupported export format: " + name);
+        }
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,16 @@
+package com.exam.dal.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Total and percentage score of a graded submission
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GradedScore {
+    private Double totalScore;
+    private Double percentageScore;
+}
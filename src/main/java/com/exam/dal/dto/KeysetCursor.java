@@ -0,0 +1,66 @@
+package com.exam.dal.dto;
+
+import com.exam.exception.ValidationException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a keyset-paginated listing, handed to clients as an opaque string.
+ * Listings ordered by id only leave {@code position} empty.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeysetCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private LocalDateTime position;
+    private Long id;
+
+    /**
+     * Create a cursor for a listing ordered by id only
+     * @param id The id of the last row
+     * @return The cursor
+     */
+    public static KeysetCursor ofId(Long id) {
+        return new KeysetCursor(null, id);
+    }
+
+    /**
+     * Encode the cursor as an opaque, URL-safe string
+     * @return The encoded cursor
+     */
+    public String encode() {
+        String raw = (position != null ? position.toString() : "") + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor received from a client
+     * @param encoded The encoded cursor, may be null for the first page
+     * @return The cursor, or null if none was given
+     * @throws ValidationException if the cursor is malformed
+     */
+    public static KeysetCursor decode(String encoded) {
+        if (encoded == null || encoded.isBlank()) {
+            return null;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            String position = raw.substring(0, separator);
+            return new KeysetCursor(
+                    position.isEmpty() ? null : LocalDateTime.parse(position),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+}
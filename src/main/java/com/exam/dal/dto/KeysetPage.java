@@ -0,0 +1,71 @@
+package com.exam.dal.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing. The rows are returned as the response body and the
+ * cursor of the next page, if any, in the {@value #NEXT_CURSOR_HEADER} header.
+ *
+ * @param <T> The row type
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeysetPage<T> {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private List<T> items;
+    private String nextCursor;
+
+    /**
+     * Build the row limit for a page query. One extra row is fetched to find out whether another page follows.
+     * @param size The requested page size, or null to fetch every row
+     * @return The pageable to pass to the repository
+     */
+    public static Pageable limit(Integer size) {
+        return size == null ? Pageable.unpaged() : PageRequest.of(0, Math.min(size, MAX_PAGE_SIZE) + 1);
+    }
+
+    /**
+     * Build a page from rows fetched with {@link #limit(Integer)}
+     * @param rows The fetched rows
+     * @param size The requested page size, or null if the listing was not paginated
+     * @param cursorOf Extracts the cursor of a row
+     * @return The page
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, Integer size, Function<T, KeysetCursor> cursorOf) {
+        if (size == null) {
+            return new KeysetPage<>(rows, null);
+        }
+
+        int pageSize = Math.min(size, MAX_PAGE_SIZE);
+        if (rows.size() <= pageSize) {
+            return new KeysetPage<>(rows, null);
+        }
+
+        List<T> items = rows.subList(0, pageSize);
+        return new KeysetPage<>(items, cursorOf.apply(items.get(pageSize - 1)).encode());
+    }
+
+    /**
+     * Response headers carrying the next cursor
+     * @return The headers, empty on the last page
+     */
+    public HttpHeaders headers() {
+        HttpHeaders headers = new HttpHeaders();
+        if (nextCursor != null) {
+            headers.add(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,20 @@
+package com.exam.dal.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A submission still being answered, with what an autosave is checked against
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OpenDraft {
+    private Long submissionId;
+    private Long studentId;
+    private Long examId;
+    private LocalDateTime endTime;
+}
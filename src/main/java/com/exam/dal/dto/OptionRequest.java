@@ -14,6 +14,9 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class OptionRequest {
 
+    // Set when updating a question to keep an existing option, answers selecting it stay valid
+    private Long id;
+
     @NotBlank(message = "Content is required")
     private String content;
 
@@ -0,0 +1,28 @@
+package com.exam.dal.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Percentile rank of a graded submission's percentage score among those of its exam and of its
+ * course: the percentage of scores below it, counting equal scores as half below. Estimated from a
+ * quantile sketch, within rankError percentile points in 99% of cases.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PercentileRank {
+    private Long submissionId;
+    private Long examId;
+    private Long courseId;
+
+    // The ranks are null while the submission is not graded
+    private Double percentageScore;
+    private Double examPercentileRank;
+    private Double coursePercentileRank;
+
+    private double rankError;
+}
@@ -34,4 +34,8 @@ public class QuestionRequest {
 
     @Valid
     private List<OptionRequest> options;
+
+    // For short answer and fill-in-the-blank questions, replaces the question's accepted answers when set
+    @Valid
+    private List<AcceptedAnswerRequest> acceptedAnswers;
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.exam.dal.dto;
+
+import com.exam.dal.model.QuestionType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number and total marks of an exam's questions of one type
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuestionTypeTotal {
+    private Long examId;
+    private QuestionType questionType;
+    private Long count;
+    private Long marks;
+}
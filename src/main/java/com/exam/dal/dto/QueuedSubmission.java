@@ -0,0 +1,25 @@
+package com.exam.dal.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A validated submission as written to the ingest log, waiting to be saved and graded
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueuedSubmission {
+    private String receiptId;
+    private Long studentId;
+    private Long examId;
+    private LocalDateTime submittedAt;
+
+    /** The draft being submitted, null if the answers were all sent with the submit */
+    private Long submissionId;
+    private List<AnswerRequest> answers;
+}
@@ -0,0 +1,43 @@
+package com.exam.dal.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of re-grading an exam's submissions after its answer key or marks changed
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RegradeProgress {
+    private Long examId;
+    private Status status;
+
+    /** Scored submissions to re-grade */
+    private long total;
+    private long processed;
+
+    /** Submissions whose score changed */
+    private long changed;
+
+    /** Submissions graded by a teacher before their automatic marks were kept, left with their old score */
+    private long stale;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String message;
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,41 @@
+package com.exam.dal.dto;
+
+import lombok.Value;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An exam paper serialized once to JSON, with a gzip variant and ETags, so it can be written
+ * to many responses without serializing or compressing it again
+ */
+@Value
+public class RenderedPaper {
+    byte[] json;
+    byte[] gzip;
+    String etag;
+    String gzipEtag;
+
+    /**
+     * Build the variants of a serialized paper
+     * @param json The serialized paper
+     * @return The rendered paper
+     */
+    public static RenderedPaper of(byte[] json) {
+        String hash = DigestUtils.md5DigestAsHex(json);
+        return new RenderedPaper(json, gzip(json), "\"" + hash + "\"", "\"" + hash + "-gzip\"");
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,37 @@
+package com.exam.dal.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Percentiles of the percentage scores of the graded submissions of an exam or a course, estimated
+ * from a quantile sketch. Each score's true percentile rank is within rankError percentile points of
+ * the one asked for, in 99% of cases; below 200 scores they are exact.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScorePercentiles {
+    private Long examId;
+    private Long courseId;
+    private long count;
+    private double rankError;
+    private List<Percentile> percentiles;
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Percentile {
+        private double percentile;
+
+        // Null without graded scores
+        private Double percentageScore;
+    }
+}
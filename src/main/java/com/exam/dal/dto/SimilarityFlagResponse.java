@@ -0,0 +1,30 @@
+package com.exam.dal.dto;
+
+import com.exam.dal.model.SimilarityKind;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A flagged pair of submissions with the students who made them
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SimilarityFlagResponse {
+    private Long id;
+    private SimilarityKind kind;
+    private Long questionId;
+    private Long submissionId;
+    private String studentName;
+    private Long otherSubmissionId;
+    private String otherStudentName;
+    private Double similarity;
+    private Integer sharedErrors;
+    private Double probability;
+    private LocalDateTime detectedAt;
+}
@@ -0,0 +1,75 @@
+package com.exam.dal.dto;
+
+import com.exam.dal.model.RejectedSubmission;
+import com.exam.dal.model.Submission;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a submit: where a queued submission is on its way to being graded, or the result of
+ * one saved right away
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SubmissionReceipt {
+    private String receiptId;
+    private Status status;
+    private Long submissionId;
+    private Double totalScore;
+    private Double percentageScore;
+    private String message;
+
+    @JsonIgnore
+    private Long studentId;
+
+    /**
+     * Build the receipt of a saved submission
+     * @param receiptId The receipt ID, null if the submission was not queued
+     * @param submission The saved submission
+     * @return The receipt
+     */
+    public static SubmissionReceipt saved(String receiptId, Submission submission) {
+        SubmissionReceiptBuilder receipt = SubmissionReceipt.builder()
+                .receiptId(receiptId)
+                .status(submission.isGraded() ? Status.GRADED : Status.SUBMITTED)
+                .submissionId(submission.getId())
+                .studentId(submission.getStudent().getId());
+        if (submission.getScore() != null) {
+            receipt.totalScore(submission.getScore().getTotalScore())
+                    .percentageScore(submission.getScore().getPercentageScore());
+        }
+        return receipt.build();
+    }
+
+    /**
+     * Build the receipt of a rejected submission
+     * @param rejected The rejection
+     * @return The receipt
+     */
+    public static SubmissionReceipt rejected(RejectedSubmission rejected) {
+        return SubmissionReceipt.builder()
+                .receiptId(rejected.getReceiptId())
+                .status(Status.FAILED)
+                .message(rejected.getMessage())
+                .studentId(rejected.getStudentId())
+                .build();
+    }
+
+    public enum Status {
+        /** Accepted and durably logged, not saved yet */
+        QUEUED,
+        /** Saved, waiting for manual grading */
+        SUBMITTED,
+        /** Saved and fully auto-graded */
+        GRADED,
+        /** Rejected when it was saved, see the message */
+        FAILED
+    }
+}
@@ -1,7 +1,6 @@
 package com.exam.dal.dto;
 
 import jakarta.validation.Valid;
-import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -19,7 +18,14 @@ public class SubmissionRequest {
     @NotNull(message = "Exam ID is required")
     private Long examId;
 
+    /**
+     * The draft to submit, if the answers were autosaved. Answers sent with it replace the autosaved ones.
+     */
+    private Long submissionId;
+
+    /**
+     * Required unless a draft is submitted
+     */
     @Valid
-    @NotEmpty(message = "Answers are required")
     private List<AnswerRequest> answers;
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.exam.dal.dto;
+
+import com.exam.dal.model.SubmissionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only view of a submission for listings, selected directly by the query with its exam,
+ * student and score instead of loading the entities
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SubmissionSummary {
+    private Long id;
+    private Long examId;
+    private String examTitle;
+    private Long studentId;
+    private String studentName;
+    private LocalDateTime submittedAt;
+    private SubmissionStatus status;
+    private boolean graded;
+    private Double totalScore;
+    private Double percentageScore;
+    private String reading;
+}
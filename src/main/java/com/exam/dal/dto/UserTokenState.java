@@ -0,0 +1,16 @@
+package com.exam.dal.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The part of a user that decides whether an issued token is still accepted
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserTokenState {
+    private long tokenVersion;
+    private boolean active;
+}
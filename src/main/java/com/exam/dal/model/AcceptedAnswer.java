@@ -0,0 +1,49 @@
+package com.exam.dal.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * An answer accepted for a short answer or fill-in-the-blank question, compiled into the
+ * question's matcher when the exam paper is built
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "accepted_answers")
+public class AcceptedAnswer {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "pattern", nullable = false, length = 500)
+    private String pattern;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "match_type", nullable = false, length = 30)
+    private MatchType matchType;
+
+    // Allowed distance from the pattern of a numeric answer
+    @Column(name = "tolerance")
+    private Double tolerance;
+
+    // The blank this answer fills, from 1, for fill-in-the-blank questions
+    @Column(name = "blank")
+    private Integer blank;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "question_id")
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @JsonIgnore
+    private Question question;
+}
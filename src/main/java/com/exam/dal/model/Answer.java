@@ -16,7 +16,8 @@ import java.util.stream.Collectors;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "answers")
+// One answer per question, autosaved drafts are updated in place
+@Table(name = "answers", uniqueConstraints = @UniqueConstraint(name = "uk_answers_submission_question", columnNames = {"submission_id", "question_id"}))
 public class Answer {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -34,6 +35,7 @@ public class Answer {
     private Question question;
 
     @ManyToMany
+    @Builder.Default
     @JoinTable(
             name = "answer_options",
             joinColumns = @JoinColumn(name = "answer_id"),
@@ -14,7 +14,7 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "courses")
+@Table(name = "courses", indexes = @Index(name = "idx_courses_teacher", columnList = "teacher_id"))
 public class Course {
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -44,7 +44,8 @@ public class Course {
 	@JoinTable(
 			name = "course_students",
 			joinColumns = @JoinColumn(name = "course_id"),
-			inverseJoinColumns = @JoinColumn(name = "student_id")
+			inverseJoinColumns = @JoinColumn(name = "student_id"),
+			indexes = @Index(name = "idx_course_students_student", columnList = "student_id, course_id")
 	)
 	@Builder.Default
 	private Set<User> students = new HashSet<>();
@@ -0,0 +1,41 @@
+package com.exam.dal.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running statistics of the graded submissions of all exams of a course, kept up to date with
+ * those of its exams
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "course_statistics")
+public class CourseStatistics {
+
+    @Id
+    @Column(name = "course_id")
+    private Long courseId;
+
+    // Graded percentage scores in the sketch, not counting stale ones
+    @Column(name = "scored_count", nullable = false)
+    private long scored;
+
+    // Quantile sketch of the graded percentage scores, the merge of its exams' sketches
+    @Column(name = "score_sketch", length = 4096)
+    private byte[] scoreSketch;
+
+    // Replaced scores still in the sketch, which cannot take values back
+    @Column(name = "sketch_stale_count", nullable = false)
+    private long sketchStale;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public CourseStatistics(Long courseId) {
+        this.courseId = courseId;
+    }
+}
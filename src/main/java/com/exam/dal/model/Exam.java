@@ -8,6 +8,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -18,7 +19,12 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "exams")
+// Only changed columns are written, so saving an exam does not undo concurrent updates of its totals
+@DynamicUpdate
+@Table(name = "exams", indexes = {
+        @Index(name = "idx_exams_status_start", columnList = "status, start_time"),
+        @Index(name = "idx_exams_status_end", columnList = "status, end_time")
+})
 public class Exam {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -42,9 +48,19 @@ public class Exam {
     @Column(name = "published")
     private boolean published;
 
+    /**
+     * Sum of the marks of the exam's questions, maintained as questions change
+     */
     @Column(name = "total_marks")
     private Double totalMarks;
 
+    /**
+     * Number of questions of each type, maintained as questions change
+     */
+    @Embedded
+    @Builder.Default
+    private QuestionTypeCounts questionCounts = new QuestionTypeCounts();
+
     @Enumerated(EnumType.STRING)
     @Column(name = "status")
     private ExamStatus status;
@@ -63,6 +79,18 @@ public class Exam {
             fetch = FetchType.LAZY)
     private Set<Question> questions = new HashSet<>();
 
+    /**
+     * Status a published exam should be in at a point in time, based on its time window
+     * @param time The point in time
+     * @return SCHEDULED before the start, ACTIVE during the window and COMPLETED after the end
+     */
+    public ExamStatus statusAt(LocalDateTime time) {
+        if (time.isBefore(startTime)) {
+            return ExamStatus.SCHEDULED;
+        }
+        return time.isBefore(endTime) ? ExamStatus.ACTIVE : ExamStatus.COMPLETED;
+    }
+
     /**
      * Adds a question to the exam
      * @param question The question to add
@@ -0,0 +1,138 @@
+package com.exam.dal.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running statistics of an exam's submissions, kept up to date as they are submitted and graded
+ * so dashboards read one row. The mean and the sum of squared deviations from it are maintained
+ * with Welford's update, which stays accurate over many small changes where a running sum of
+ * squares would not. Graded scores are added and removed, a re-grade removes the old score and
+ * adds the new one.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "exam_statistics")
+public class ExamStatistics {
+
+    @Id
+    @Column(name = "exam_id")
+    private Long examId;
+
+    @Column(name = "submitted_count", nullable = false)
+    private long submitted;
+
+    @Column(name = "graded_count", nullable = false)
+    private long graded;
+
+    @Column(name = "passed_count", nullable = false)
+    private long passed;
+
+    @Column(name = "mean_score", nullable = false)
+    private double meanScore;
+
+    // Sum of the squared differences of the graded scores from their mean
+    @Column(name = "squared_deviations", nullable = false)
+    private double squaredDeviations;
+
+    @Column(name = "min_score")
+    private Double minScore;
+
+    @Column(name = "max_score")
+    private Double maxScore;
+
+    @Embedded
+    private ScoreHistogram histogram = new ScoreHistogram();
+
+    // Quantile sketch of the graded percentage scores
+    @Column(name = "score_sketch", length = 4096)
+    private byte[] scoreSketch;
+
+    // Replaced scores still in the sketch, which cannot take values back
+    @Column(name = "sketch_stale_count", nullable = false)
+    private long sketchStale;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public ExamStatistics(Long examId) {
+        this.examId = examId;
+    }
+
+    /**
+     * Account for a graded score
+     * @param score The total score
+     * @param percentageScore The percentage score
+     */
+    public void addScore(double score, Double percentageScore) {
+        graded++;
+        double delta = score - meanScore;
+        meanScore += delta / graded;
+        squaredDeviations += delta * (score - meanScore);
+
+        minScore = minScore == null ? score : Math.min(minScore, score);
+        maxScore = maxScore == null ? score : Math.max(maxScore, score);
+        if (isPassing(percentageScore)) {
+            passed++;
+        }
+        histogram.add(ScoreHistogram.bucketOf(percentageScore), 1);
+    }
+
+    /**
+     * Take back a graded score added earlier
+     * @param score The total score
+     * @param percentageScore The percentage score
+     * @return true if the score was the lowest or highest, which then may no longer be
+     */
+    public boolean removeScore(double score, Double percentageScore) {
+        if (isPassing(percentageScore)) {
+            passed--;
+        }
+        histogram.add(ScoreHistogram.bucketOf(percentageScore), -1);
+
+        if (graded <= 1) {
+            graded = 0;
+            meanScore = 0;
+            squaredDeviations = 0;
+            minScore = null;
+            maxScore = null;
+            return false;
+        }
+        // Welford's update run backwards
+        double mean = meanScore;
+        meanScore -= (score - mean) / (graded - 1);
+        squaredDeviations = Math.max(0, squaredDeviations - (score - meanScore) * (score - mean));
+        graded--;
+
+        return (minScore != null && score <= minScore) || (maxScore != null && score >= maxScore);
+    }
+
+    /**
+     * Clear the graded scores, before adding them all again
+     */
+    public void clearScores() {
+        graded = 0;
+        passed = 0;
+        meanScore = 0;
+        squaredDeviations = 0;
+        minScore = null;
+        maxScore = null;
+        histogram = new ScoreHistogram();
+    }
+
+    /**
+     * Get the population variance of the graded scores
+     * @return The variance, 0 without graded scores
+     */
+    public double getVariance() {
+        return graded > 0 ? squaredDeviations / graded : 0;
+    }
+
+    private static boolean isPassing(Double percentageScore) {
+        return percentageScore != null && percentageScore >= Score.PASS_PERCENTAGE;
+    }
+}
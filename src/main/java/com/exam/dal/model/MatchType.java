@@ -0,0 +1,10 @@
+package com.exam.dal.model;
+
+public enum MatchType {
+    EXACT,                        // Same text, apart from surrounding whitespace
+    IGNORE_CASE,                  // Same text in any case
+    IGNORE_WHITESPACE,            // Same words, spaced in any way
+    IGNORE_CASE_AND_WHITESPACE,   // Same words in any case, spaced in any way
+    NUMERIC,                      // A number within the tolerance of the pattern
+    REGEX                         // The whole answer matches the pattern
+}
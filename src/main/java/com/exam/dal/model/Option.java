@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Data
 @Builder
@@ -22,7 +24,13 @@ public class Option {
 
     private boolean correct;
 
+    // The item of a matching question this option matches, from 1, null for other question types
+    @Column(name = "match_item")
+    private Integer matchItem;
+
     @ManyToOne
     @JoinColumn(name = "question_id")
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Question question;
 }
@@ -1,10 +1,13 @@
 package com.exam.dal.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -34,6 +37,8 @@ public class Question {
 
 	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "exam_id")
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
 	private Exam exam;
 
 	@OneToMany(mappedBy = "question",
@@ -42,6 +47,15 @@ public class Question {
 			fetch = FetchType.LAZY)
 	private Set<Option> options = new HashSet<>();
 
+	// Left out of the question's JSON, teachers see them in the exam paper
+	@OneToMany(mappedBy = "question",
+			cascade = CascadeType.ALL,
+			orphanRemoval = true,
+			fetch = FetchType.LAZY)
+	@JsonIgnore
+	@Builder.Default
+	private Set<AcceptedAnswer> acceptedAnswers = new HashSet<>();
+
 	/**
 	 * Adds an option to the question
 	 * @param option The option to add
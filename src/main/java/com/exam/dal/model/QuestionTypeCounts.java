@@ -0,0 +1,77 @@
+package com.exam.dal.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of questions of each type in an exam, kept up to date as questions are added and removed
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class QuestionTypeCounts {
+
+    @Column(name = "multiple_choice_count", nullable = false)
+    private int multipleChoice;
+
+    @Column(name = "multiple_response_count", nullable = false)
+    private int multipleResponse;
+
+    @Column(name = "true_false_count", nullable = false)
+    private int trueFalse;
+
+    @Column(name = "short_answer_count", nullable = false)
+    private int shortAnswer;
+
+    @Column(name = "essay_count", nullable = false)
+    private int essay;
+
+    @Column(name = "matching_count", nullable = false)
+    private int matching;
+
+    @Column(name = "fill_in_blank_count", nullable = false)
+    private int fillInBlank;
+
+    @Column(name = "single_choice_count", nullable = false)
+    private int singleChoice;
+
+    /**
+     * Get the number of questions of a type
+     * @param type The question type
+     * @return The count
+     */
+    public int get(QuestionType type) {
+        return switch (type) {
+            case MULTIPLE_CHOICE -> multipleChoice;
+            case MULTIPLE_RESPONSE -> multipleResponse;
+            case TRUE_FALSE -> trueFalse;
+            case SHORT_ANSWER -> shortAnswer;
+            case ESSAY -> essay;
+            case MATCHING -> matching;
+            case FILL_IN_BLANK -> fillInBlank;
+            case SINGLE_CHOICE -> singleChoice;
+        };
+    }
+
+    /**
+     * Set the number of questions of a type
+     * @param type The question type
+     * @param count The count
+     */
+    public void set(QuestionType type, int count) {
+        switch (type) {
+            case MULTIPLE_CHOICE -> multipleChoice = count;
+            case MULTIPLE_RESPONSE -> multipleResponse = count;
+            case TRUE_FALSE -> trueFalse = count;
+            case SHORT_ANSWER -> shortAnswer = count;
+            case ESSAY -> essay = count;
+            case MATCHING -> matching = count;
+            case FILL_IN_BLANK -> fillInBlank = count;
+            case SINGLE_CHOICE -> singleChoice = count;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.exam.dal.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A queued submission rejected when it was saved, kept so its receipt reports why after the
+ * in-memory receipt is gone
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "rejected_submissions")
+public class RejectedSubmission {
+
+    @Id
+    @Column(name = "receipt_id", length = 36)
+    private String receiptId;
+
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    @Column(name = "exam_id", nullable = false)
+    private Long examId;
+
+    @Column(name = "message", length = 1000)
+    private String message;
+
+    @Column(name = "rejected_at", nullable = false)
+    private LocalDateTime rejectedAt;
+}
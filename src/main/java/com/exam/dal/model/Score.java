@@ -14,6 +14,9 @@ import java.time.LocalDateTime;
 @Table(name = "scores", schema = "public")
 public class Score implements Serializable {
 
+	// Lowest percentage with a PASS status
+	public static final double PASS_PERCENTAGE = 60;
+
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
 	private Long scoreId;
@@ -24,6 +27,10 @@ public class Score implements Serializable {
 	@Column(name = "percentage_score")
 	private Double percentageScore;
 
+	// Marks of the automatically graded questions included in the total, null for scores given before they were kept
+	@Column(name = "auto_score")
+	private Double autoScore;
+
 	@Column(name = "reading", length = 50)
 	private String reading;
 
@@ -58,14 +65,21 @@ public class Score implements Serializable {
 	 */
 	public void calculatePercentageScore() {
 		if (submission != null && submission.getExam() != null) {
-			Double totalExamMarks = submission.getExam().getTotalMarks();
+			calculatePercentageScore(submission.getExam().getTotalMarks());
+		}
+	}
 
-			if (totalExamMarks != null && totalExamMarks > 0) {
-				this.percentageScore = (this.totalScore / totalExamMarks) * 100;
+	/**
+	 * Calculates percentage score based on total score and the given total marks, for when the
+	 * exam is not loaded through the submission
+	 * @param totalExamMarks The exam's total marks
+	 */
+	public void calculatePercentageScore(Double totalExamMarks) {
+		if (totalExamMarks != null && totalExamMarks > 0) {
+			this.percentageScore = (this.totalScore / totalExamMarks) * 100;
 
-				// Determine reading and status based on percentage
-				determineGradeDetails();
-			}
+			// Determine reading and status based on percentage
+			determineGradeDetails();
 		}
 	}
 
@@ -82,7 +96,7 @@ public class Score implements Serializable {
 		} else if (percentageScore >= 70) {
 			this.reading = "Good";
 			this.status = ScoreStatus.PASS;
-		} else if (percentageScore >= 60) {
+		} else if (percentageScore >= PASS_PERCENTAGE) {
 			this.reading = "Satisfactory";
 			this.status = ScoreStatus.PASS;
 		} else if (percentageScore >= 50) {
@@ -0,0 +1,115 @@
+package com.exam.dal.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of graded submissions in each tenth of the percentage range, the last bucket includes 100%
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class ScoreHistogram {
+
+    public static final int BUCKETS = 10;
+
+    @Column(name = "histogram_0", nullable = false)
+    private long bucket0;
+
+    @Column(name = "histogram_10", nullable = false)
+    private long bucket10;
+
+    @Column(name = "histogram_20", nullable = false)
+    private long bucket20;
+
+    @Column(name = "histogram_30", nullable = false)
+    private long bucket30;
+
+    @Column(name = "histogram_40", nullable = false)
+    private long bucket40;
+
+    @Column(name = "histogram_50", nullable = false)
+    private long bucket50;
+
+    @Column(name = "histogram_60", nullable = false)
+    private long bucket60;
+
+    @Column(name = "histogram_70", nullable = false)
+    private long bucket70;
+
+    @Column(name = "histogram_80", nullable = false)
+    private long bucket80;
+
+    @Column(name = "histogram_90", nullable = false)
+    private long bucket90;
+
+    /**
+     * Get the bucket of a percentage score
+     * @param percentageScore The percentage, null counts as 0
+     * @return The bucket, from 0 to {@link #BUCKETS} - 1
+     */
+    public static int bucketOf(Double percentageScore) {
+        if (percentageScore == null || !(percentageScore > 0)) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, (int) (percentageScore / (100.0 / BUCKETS)));
+    }
+
+    /**
+     * Get the number of submissions in a bucket
+     * @param bucket The bucket, from 0
+     * @return The count
+     */
+    public long get(int bucket) {
+        return switch (bucket) {
+            case 0 -> bucket0;
+            case 1 -> bucket10;
+            case 2 -> bucket20;
+            case 3 -> bucket30;
+            case 4 -> bucket40;
+            case 5 -> bucket50;
+            case 6 -> bucket60;
+            case 7 -> bucket70;
+            case 8 -> bucket80;
+            case 9 -> bucket90;
+            default -> throw new IndexOutOfBoundsException(bucket);
+        };
+    }
+
+    /**
+     * Add to the number of submissions in a bucket
+     * @param bucket The bucket, from 0
+     * @param delta The change, negative to remove
+     */
+    public void add(int bucket, long delta) {
+        switch (bucket) {
+            case 0 -> bucket0 += delta;
+            case 1 -> bucket10 += delta;
+            case 2 -> bucket20 += delta;
+            case 3 -> bucket30 += delta;
+            case 4 -> bucket40 += delta;
+            case 5 -> bucket50 += delta;
+            case 6 -> bucket60 += delta;
+            case 7 -> bucket70 += delta;
+            case 8 -> bucket80 += delta;
+            case 9 -> bucket90 += delta;
+            default -> throw new IndexOutOfBoundsException(bucket);
+        }
+    }
+
+    /**
+     * Get the counts of all buckets
+     * @return The counts, lowest percentages first
+     */
+    public long[] toArray() {
+        long[] counts = new long[BUCKETS];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts[bucket] = get(bucket);
+        }
+        return counts;
+    }
+}
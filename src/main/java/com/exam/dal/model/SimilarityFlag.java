@@ -0,0 +1,59 @@
+package com.exam.dal.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A pair of an exam's submissions found suspiciously similar, for a teacher to review. Flags of
+ * an exam are replaced each time its similarity check runs.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "similarity_flags", indexes = @Index(name = "idx_similarity_flags_exam_kind", columnList = "exam_id, kind"))
+public class SimilarityFlag {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "exam_id", nullable = false)
+    private Long examId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", nullable = false, length = 30)
+    private SimilarityKind kind;
+
+    // The question whose answers are similar, null if the flag is about a whole submission
+    @Column(name = "question_id")
+    private Long questionId;
+
+    // The pair, the lower submission ID first
+    @Column(name = "submission_id", nullable = false)
+    private Long submissionId;
+
+    @Column(name = "other_submission_id", nullable = false)
+    private Long otherSubmissionId;
+
+    // Between 0 and 1
+    @Column(name = "similarity", nullable = false)
+    private Double similarity;
+
+    // Wrong options both picked, for answer patterns
+    @Column(name = "shared_errors")
+    private Integer sharedErrors;
+
+    // Chance of two independent students sharing at least as many wrong options, for answer patterns
+    @Column(name = "probability")
+    private Double probability;
+
+    @Column(name = "detected_at", nullable = false)
+    private LocalDateTime detectedAt;
+}
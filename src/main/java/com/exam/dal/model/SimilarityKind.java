@@ -0,0 +1,9 @@
+package com.exam.dal.model;
+
+/**
+ * Enum to represent why two submissions were flagged as suspiciously similar
+ */
+public enum SimilarityKind {
+    ESSAY_TEXT,     // Essay answers to the same question share most of their wording
+    ANSWER_PATTERN  // Choice answers share more of the same wrong options than chance explains
+}
@@ -13,7 +13,14 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "submissions")
+// One submission per student and exam, also serves the available-exams anti-join. Listings page
+// through an exam's or a student's submissions by submission time, the primary key breaks ties.
+@Table(name = "submissions",
+        uniqueConstraints = @UniqueConstraint(name = "uk_submissions_student_exam", columnNames = {"student_id", "exam_id"}),
+        indexes = {
+                @Index(name = "idx_submissions_exam_submitted", columnList = "exam_id, submitted_at"),
+                @Index(name = "idx_submissions_student_submitted", columnList = "student_id, submitted_at")
+        })
 public class Submission {
 
     @Id
@@ -32,6 +39,12 @@ public class Submission {
     @Column(name = "total_score")
     private Double totalScore;
 
+    /**
+     * Receipt handed out when the submission was queued for asynchronous grading, null otherwise
+     */
+    @Column(name = "receipt_id", length = 36, unique = true)
+    private String receiptId;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "student_id")
     private User student;
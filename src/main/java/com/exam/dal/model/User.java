@@ -60,6 +60,12 @@ public class User implements UserDetails {
     @Column(name = "is_active")
     private boolean isActive = true;
 
+    /**
+     * Incremented whenever credentials or role change, which revokes every token issued before
+     */
+    @Column(name = "token_version", nullable = false)
+    private long tokenVersion;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -109,4 +115,11 @@ public class User implements UserDetails {
     public void updateLastLogin() {
         this.lastLogin = LocalDateTime.now();
     }
+
+    /**
+     * Revokes all tokens issued to this user so far
+     */
+    public void revokeTokens() {
+        this.tokenVersion++;
+    }
 }
\ No newline at end of file
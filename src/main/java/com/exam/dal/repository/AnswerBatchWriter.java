@@ -0,0 +1,210 @@
+package com.exam.dal.repository;
+
+import com.exam.dal.dto.AnswerRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the answers of a submission as JDBC batches. Answers have IDENTITY ids, which keeps
+ * Hibernate from batching their inserts, so saving them as entities costs one statement per
+ * answer and one per selected option.
+ * <p>
+ * Runs on the connection of the surrounding JPA transaction, so the submission must already be inserted.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AnswerBatchWriter {
+
+    private static final String INSERT_ANSWER =
+            "insert into answers (submission_id, question_id, text_answer) values (?, ?, ?)";
+    private static final String INSERT_SELECTED_OPTION =
+            "insert into answer_options (answer_id, option_id) values (?, ?)";
+    private static final String UPDATE_ANSWER =
+            "update answers set text_answer = ? where submission_id = ? and question_id = ?";
+    private static final String DELETE_SELECTED_OPTIONS =
+            "delete from answer_options where answer_id in (select id from answers where submission_id = ? and question_id = ?)";
+    private static final String INSERT_SELECTED_OPTION_BY_QUESTION =
+            "insert into answer_options (answer_id, option_id) select id, ? from answers where submission_id = ? and question_id = ?";
+    private static final String DELETE_SUBMISSION_OPTIONS =
+            "delete from answer_options where answer_id in (select id from answers where submission_id = ?)";
+    private static final String DELETE_SUBMISSION_ANSWERS =
+            "delete from answers where submission_id = ?";
+    private static final int MAX_IN_LIST = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insert the answers of a submission and their selected options
+     *
+     * @param submissionId The submission ID
+     * @param answerRequests The validated answers
+     * @return The IDs of the inserted answers, in the order of the requests
+     */
+    public List<Long> insertAnswers(Long submissionId, List<AnswerRequest> answerRequests) {
+        if (answerRequests.isEmpty()) {
+            return List.of();
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_ANSWER, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        AnswerRequest answerRequest = answerRequests.get(i);
+                        ps.setLong(1, submissionId);
+                        ps.setLong(2, answerRequest.getQuestionId());
+                        ps.setString(3, answerRequest.getTextAnswer());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return answerRequests.size();
+                    }
+                },
+                keyHolder);
+
+        List<Long> answerIds = keyHolder.getKeyList().stream()
+                .map(AnswerBatchWriter::generatedId)
+                .toList();
+        if (answerIds.size() != answerRequests.size()) {
+            throw new IllegalStateException("Expected " + answerRequests.size() + " answer ids but got " + answerIds.size());
+        }
+
+        List<Object[]> selections = new ArrayList<>();
+        for (int i = 0; i < answerRequests.size(); i++) {
+            List<Long> optionIds = answerRequests.get(i).getSelectedOptionIds();
+            if (optionIds != null) {
+                // The join table is keyed on both columns, so an option selected twice is stored once
+                for (Long optionId : new LinkedHashSet<>(optionIds)) {
+                    selections.add(new Object[]{answerIds.get(i), optionId});
+                }
+            }
+        }
+        if (!selections.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SELECTED_OPTION, selections);
+        }
+
+        return answerIds;
+    }
+
+    /**
+     * Write answers of submissions in progress, replacing the answer to the same question if
+     * there is one. Costs a fixed number of statements however many answers are written.
+     * <p>
+     * The submissions still in progress are locked first and only their answers are written, so a
+     * submission submitted on another node, before or while this runs, keeps the answers it was
+     * graded on.
+     *
+     * @param answerRequests The answers, each with its submission ID
+     * @return The IDs of the submissions no longer in progress, whose answers were dropped
+     */
+    public Set<Long> upsertAnswers(List<AnswerRequest> answerRequests) {
+        if (answerRequests.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<Long> submissionIds = new HashSet<>();
+        answerRequests.forEach(answerRequest -> submissionIds.add(answerRequest.getSubmissionId()));
+        Set<Long> inProgress = lockInProgress(submissionIds.stream().sorted().toList());
+        submissionIds.removeAll(inProgress);
+        if (!submissionIds.isEmpty()) {
+            answerRequests = answerRequests.stream()
+                    .filter(answerRequest -> inProgress.contains(answerRequest.getSubmissionId()))
+                    .toList();
+        }
+
+        Set<String> existing = findAnsweredQuestions(List.copyOf(inProgress));
+
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> replacedSelections = new ArrayList<>();
+        List<Object[]> selections = new ArrayList<>();
+        for (AnswerRequest answerRequest : answerRequests) {
+            Long submissionId = answerRequest.getSubmissionId();
+            Long questionId = answerRequest.getQuestionId();
+            if (existing.contains(submissionId + ":" + questionId)) {
+                updates.add(new Object[]{answerRequest.getTextAnswer(), submissionId, questionId});
+                replacedSelections.add(new Object[]{submissionId, questionId});
+            } else {
+                inserts.add(new Object[]{submissionId, questionId, answerRequest.getTextAnswer()});
+            }
+            if (answerRequest.getSelectedOptionIds() != null) {
+                for (Long optionId : new LinkedHashSet<>(answerRequest.getSelectedOptionIds())) {
+                    selections.add(new Object[]{optionId, submissionId, questionId});
+                }
+            }
+        }
+
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_ANSWER, updates);
+            jdbcTemplate.batchUpdate(DELETE_SELECTED_OPTIONS, replacedSelections);
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ANSWER, inserts);
+        }
+        if (!selections.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SELECTED_OPTION_BY_QUESTION, selections);
+        }
+        return submissionIds;
+    }
+
+    /**
+     * Delete the answers of a submission and their selected options
+     *
+     * @param submissionId The submission ID
+     */
+    public void deleteAnswers(Long submissionId) {
+        jdbcTemplate.update(DELETE_SUBMISSION_OPTIONS, submissionId);
+        jdbcTemplate.update(DELETE_SUBMISSION_ANSWERS, submissionId);
+    }
+
+    // Locked until the transaction ends, a submit on any node locks the same row before it reads the answers.
+    // Taken in ID order, so two flushes cannot deadlock.
+    private Set<Long> lockInProgress(List<Long> submissionIds) {
+        Set<Long> inProgress = new HashSet<>();
+        for (int i = 0; i < submissionIds.size(); i += MAX_IN_LIST) {
+            List<Long> chunk = submissionIds.subList(i, Math.min(i + MAX_IN_LIST, submissionIds.size()));
+            String sql = "select id from submissions where id in (" +
+                    String.join(", ", Collections.nCopies(chunk.size(), "?")) + ") and status = 'IN_PROGRESS' " +
+                    "order by id for update";
+            jdbcTemplate.query(sql, rs -> {
+                inProgress.add(rs.getLong(1));
+            }, chunk.toArray());
+        }
+        return inProgress;
+    }
+
+    // "submissionId:questionId" of every answer the submissions already have
+    private Set<String> findAnsweredQuestions(List<Long> submissionIds) {
+        Set<String> answered = new HashSet<>();
+        for (int i = 0; i < submissionIds.size(); i += MAX_IN_LIST) {
+            List<Long> chunk = submissionIds.subList(i, Math.min(i + MAX_IN_LIST, submissionIds.size()));
+            String sql = "select submission_id, question_id from answers where submission_id in (" +
+                    String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            jdbcTemplate.query(sql, rs -> {
+                answered.add(rs.getLong(1) + ":" + rs.getLong(2));
+            }, chunk.toArray());
+        }
+        return answered;
+    }
+
+    // Drivers name the generated column differently (ID, id, GENERATED_KEY), each row has just the one
+    private static Long generatedId(Map<String, Object> keys) {
+        return ((Number) keys.values().iterator().next()).longValue();
+    }
+}
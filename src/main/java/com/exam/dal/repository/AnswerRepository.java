@@ -4,6 +4,8 @@ package com.exam.dal.repository;
 import com.exam.dal.model.Answer;
 import com.exam.dal.model.Submission;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -23,4 +25,12 @@ public interface AnswerRepository extends JpaRepository<Answer, Long> {
      * @return List of answers for the question
      */
     List<Answer> findByQuestion_Id(Long questionId);
-}
\ No newline at end of file
+
+    /**
+     * Find the answers of a submission with their selected options
+     * @param submissionId The submission ID
+     * @return List of answers for the submission
+     */
+    @Query("select distinct a from Answer a left join fetch a.selectedOptions where a.submission.id = :submissionId")
+    List<Answer> findWithOptionsBySubmissionId(@Param("submissionId") Long submissionId);
+}
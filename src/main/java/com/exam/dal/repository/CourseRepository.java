@@ -3,10 +3,20 @@ package com.exam.dal.repository;
 import com.exam.dal.model.Course;
 import com.exam.dal.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface CourseRepository extends JpaRepository<Course, Long> {
     List<Course> findByTeacher(User teacher);
     List<Course> findByStudentsContaining(User student);
+
+    /**
+     * Find the ids of the students enrolled in a course, without loading the users
+     * @param courseId The course ID
+     * @return The student ids in ascending order
+     */
+    @Query("select s.id from Course c join c.students s where c.id = :courseId order by s.id")
+    List<Long> findStudentIdsByCourseId(@Param("courseId") Long courseId);
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.exam.dal.repository;
+
+import com.exam.dal.model.CourseStatistics;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface CourseStatisticsRepository extends JpaRepository<CourseStatistics, Long> {
+
+    /**
+     * Find the statistics of a course and lock their row until the transaction ends
+     * @param courseId The course ID
+     * @return The statistics, as last committed
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from CourseStatistics s where s.courseId = :courseId")
+    Optional<CourseStatistics> findByIdForUpdate(@Param("courseId") Long courseId);
+
+    /**
+     * Find the courses without statistics, e.g. courses created before statistics were maintained
+     * @return The course IDs
+     */
+    @Query("select c.id from Course c where not exists (select 1 from CourseStatistics s where s.courseId = c.id)")
+    List<Long> findCourseIdsWithoutStatistics();
+}
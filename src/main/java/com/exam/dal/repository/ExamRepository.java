@@ -1,13 +1,205 @@
 package com.exam.dal.repository;
 
+import com.exam.dal.dto.ExamSummary;
+import com.exam.dal.dto.ExamWindow;
 import com.exam.dal.model.Course;
+import com.exam.dal.model.ExamStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 
 import com.exam.dal.model.Exam;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface ExamRepository extends JpaRepository<Exam, Long> {
     List<Exam> findByCourse(Course course);
     List<Exam> findByCourseAndPublishedTrue(Course course);
-}
\ No newline at end of file
+
+    /**
+     * Find all exams after a keyset position, ordered by id
+     * @param afterId The id of the last exam already returned, 0 for the first page
+     * @param pageable The row limit
+     * @return The exams with their course
+     */
+    @Query("select e from Exam e join fetch e.course " +
+            "where e.id > :afterId order by e.id")
+    List<Exam> findAllAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * Find the exams of courses taught by a teacher, ordered by id
+     * @param teacherId The teacher's user ID
+     * @param afterId The id of the last exam already returned, 0 for the first page
+     * @param pageable The row limit
+     * @return The exams with their course
+     */
+    @Query("select e from Exam e join fetch e.course c " +
+            "where c.teacher.id = :teacherId and e.id > :afterId order by e.id")
+    List<Exam> findByTeacherAfter(@Param("teacherId") Long teacherId,
+                                  @Param("afterId") long afterId,
+                                  Pageable pageable);
+
+    /**
+     * Find the published exams of courses a student is enrolled in, ordered by id
+     * @param studentId The student's user ID
+     * @param afterId The id of the last exam already returned, 0 for the first page
+     * @param pageable The row limit
+     * @return The exams with their course
+     */
+    @Query("select e from Exam e join fetch e.course c join c.students s " +
+            "where s.id = :studentId and e.published = true and e.id > :afterId order by e.id")
+    List<Exam> findPublishedForStudentAfter(@Param("studentId") Long studentId,
+                                            @Param("afterId") long afterId,
+                                            Pageable pageable);
+
+    /**
+     * Find the scheduled exams a student is enrolled in, ordered by start time and id
+     * @param studentId The student's user ID
+     * @param afterStart Start time of the last exam already returned, the current time for the first page
+     * @param afterId Id of the last exam already returned, {@link Long#MAX_VALUE} for the first page
+     * @param pageable The row limit
+     * @return The exams with their course
+     */
+    @Query("select e from Exam e join fetch e.course c join c.students s " +
+            "where s.id = :studentId and e.status = com.exam.dal.model.ExamStatus.SCHEDULED " +
+            "and (e.startTime > :afterStart or (e.startTime = :afterStart and e.id > :afterId)) " +
+            "order by e.startTime, e.id")
+    List<Exam> findUpcomingForStudent(@Param("studentId") Long studentId,
+                                      @Param("afterStart") LocalDateTime afterStart,
+                                      @Param("afterId") long afterId,
+                                      Pageable pageable);
+
+    /**
+     * Find the active exams a student is enrolled in and has not submitted yet, ordered by id.
+     * An exam with a draft in progress stays available so the student can go back to it.
+     * @param studentId The student's user ID
+     * @param afterId The id of the last exam already returned, 0 for the first page
+     * @param pageable The row limit
+     * @return Summaries of the available exams
+     */
+    @Query("select new com.exam.dal.dto.ExamSummary(e.id, e.title, e.description, e.startTime, e.endTime, " +
+            "e.durationMinutes, e.totalMarks, c.id, c.title) " +
+            "from Exam e join e.course c join c.students st " +
+            "where st.id = :studentId and e.status = com.exam.dal.model.ExamStatus.ACTIVE and e.id > :afterId " +
+            "and not exists (select 1 from Submission sub where sub.exam = e and sub.student.id = :studentId " +
+            "and sub.status <> com.exam.dal.model.SubmissionStatus.IN_PROGRESS) " +
+            "order by e.id")
+    List<ExamSummary> findAvailableForStudent(@Param("studentId") Long studentId,
+                                              @Param("afterId") long afterId,
+                                              Pageable pageable);
+
+    /**
+     * Find the start and end times of published exams with a boundary inside a time range
+     * @param from Exclusive lower bound
+     * @param to Inclusive upper bound
+     * @return The exam windows
+     */
+    @Query("select new com.exam.dal.dto.ExamWindow(e.id, e.startTime, e.endTime) from Exam e " +
+            "where e.published = true and ((e.startTime > :from and e.startTime <= :to) " +
+            "or (e.endTime > :from and e.endTime <= :to))")
+    List<ExamWindow> findWindowsWithBoundaryBetween(@Param("from") LocalDateTime from,
+                                                    @Param("to") LocalDateTime to);
+
+    /**
+     * Find the exams in one of the given statuses that have started but not ended at a point in time
+     * @param statuses The current statuses
+     * @param now The point in time
+     * @return The exam ids
+     */
+    @Query("select e.id from Exam e where e.status in :statuses and e.startTime <= :now and e.endTime > :now")
+    List<Long> findIdsRunningAt(@Param("statuses") Collection<ExamStatus> statuses,
+                                @Param("now") LocalDateTime now);
+
+    /**
+     * Find the exams in one of the given statuses that have ended at a point in time
+     * @param statuses The current statuses
+     * @param now The point in time
+     * @return The exam ids
+     */
+    @Query("select e.id from Exam e where e.status in :statuses and e.endTime <= :now")
+    List<Long> findIdsEndedAt(@Param("statuses") Collection<ExamStatus> statuses,
+                              @Param("now") LocalDateTime now);
+
+    /**
+     * Move exams to a new status, skipping any that left the expected statuses in the meantime
+     * @param ids The exam ids
+     * @param from The statuses the exams are expected to be in
+     * @param to The new status
+     * @return The number of exams updated
+     */
+    @Transactional
+    @Modifying
+    @Query("update Exam e set e.status = :to where e.id in :ids and e.status in :from")
+    int updateStatus(@Param("ids") Collection<Long> ids,
+                     @Param("from") Collection<ExamStatus> from,
+                     @Param("to") ExamStatus to);
+
+    /**
+     * Add to the total marks and question count of an exam in place, so concurrent question
+     * changes cannot overwrite each other
+     * @param examId The exam ID
+     * @param type The name of the type of the question added or removed
+     * @param marks The marks to add, negative when a question is removed
+     * @param count The number of questions to add, negative when a question is removed
+     * @return The number of exams updated
+     */
+    @Transactional
+    @Modifying
+    @Query("update Exam e set e.totalMarks = coalesce(e.totalMarks, 0) + :marks, " +
+            "e.questionCounts.multipleChoice = e.questionCounts.multipleChoice + case when :type = 'MULTIPLE_CHOICE' then :count else 0 end, " +
+            "e.questionCounts.multipleResponse = e.questionCounts.multipleResponse + case when :type = 'MULTIPLE_RESPONSE' then :count else 0 end, " +
+            "e.questionCounts.trueFalse = e.questionCounts.trueFalse + case when :type = 'TRUE_FALSE' then :count else 0 end, " +
+            "e.questionCounts.shortAnswer = e.questionCounts.shortAnswer + case when :type = 'SHORT_ANSWER' then :count else 0 end, " +
+            "e.questionCounts.essay = e.questionCounts.essay + case when :type = 'ESSAY' then :count else 0 end, " +
+            "e.questionCounts.matching = e.questionCounts.matching + case when :type = 'MATCHING' then :count else 0 end, " +
+            "e.questionCounts.fillInBlank = e.questionCounts.fillInBlank + case when :type = 'FILL_IN_BLANK' then :count else 0 end, " +
+            "e.questionCounts.singleChoice = e.questionCounts.singleChoice + case when :type = 'SINGLE_CHOICE' then :count else 0 end " +
+            "where e.id = :examId")
+    int adjustQuestionTotals(@Param("examId") Long examId,
+                             @Param("type") String type,
+                             @Param("marks") double marks,
+                             @Param("count") int count);
+
+    /**
+     * Recompute the total marks and question counts of an exam from its questions
+     * @param examId The exam ID
+     * @return The number of exams updated
+     */
+    @Transactional
+    @Modifying
+    @Query("update Exam e set " +
+            "e.totalMarks = coalesce((select sum(q.marks) from Question q where q.exam = e), 0), " +
+            "e.questionCounts.multipleChoice = (select count(q) from Question q where q.exam = e and q.questionType = com.exam.dal.model.QuestionType.MULTIPLE_CHOICE), " +
+            "e.questionCounts.multipleResponse = (select count(q) from Question q where q.exam = e and q.questionType = com.exam.dal.model.QuestionType.MULTIPLE_RESPONSE), " +
+            "e.questionCounts.trueFalse = (select count(q) from Question q where q.exam = e and q.questionType = com.exam.dal.model.QuestionType.TRUE_FALSE), " +
+            "e.questionCounts.shortAnswer = (select count(q) from Question q where q.exam = e and q.questionType = com.exam.dal.model.QuestionType.SHORT_ANSWER), " +
+            "e.questionCounts.essay = (select count(q) from Question q where q.exam = e and q.questionType = com.exam.dal.model.QuestionType.ESSAY), " +
+            "e.questionCounts.matching = (select count(q) from Question q where q.exam = e and q.questionType = com.exam.dal.model.QuestionType.MATCHING), " +
+            "e.questionCounts.fillInBlank = (select count(q) from Question q where q.exam = e and q.questionType = com.exam.dal.model.QuestionType.FILL_IN_BLANK), " +
+            "e.questionCounts.singleChoice = (select count(q) from Question q where q.exam = e and q.questionType = com.exam.dal.model.QuestionType.SINGLE_CHOICE) " +
+            "where e.id = :examId")
+    int recomputeQuestionTotals(@Param("examId") Long examId);
+
+    /**
+     * Find the exams whose totals were never computed, e.g. exams created before they were maintained
+     * @return The exam IDs
+     */
+    @Query("select e.id from Exam e where e.totalMarks is null")
+    List<Long> findIdsWithoutTotals();
+
+    /**
+     * Give exams created before statuses were maintained a status matching their publication
+     * @return The number of exams updated
+     */
+    @Transactional
+    @Modifying
+    @Query("update Exam e set e.status = case when e.published = true " +
+            "then com.exam.dal.model.ExamStatus.SCHEDULED else com.exam.dal.model.ExamStatus.DRAFT end " +
+            "where e.status is null")
+    int backfillStatus();
+}
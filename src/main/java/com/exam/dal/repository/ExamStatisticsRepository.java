@@ -0,0 +1,38 @@
+package com.exam.dal.repository;
+
+import com.exam.dal.model.ExamStatistics;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ExamStatisticsRepository extends JpaRepository<ExamStatistics, Long> {
+
+    /**
+     * Find the statistics of an exam and lock their row until the transaction ends
+     * @param examId The exam ID
+     * @return The statistics, as last committed
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from ExamStatistics s where s.examId = :examId")
+    Optional<ExamStatistics> findByIdForUpdate(@Param("examId") Long examId);
+
+    /**
+     * Find the statistics of the exams of a course
+     * @param courseId The course ID
+     * @return The statistics of each exam that has them
+     */
+    @Query("select s from ExamStatistics s where s.examId in (select e.id from Exam e where e.course.id = :courseId)")
+    List<ExamStatistics> findByCourseId(@Param("courseId") Long courseId);
+
+    /**
+     * Find the exams without statistics, e.g. exams created before statistics were maintained
+     * @return The exam IDs
+     */
+    @Query("select e.id from Exam e where not exists (select 1 from ExamStatistics s where s.examId = e.id)")
+    List<Long> findExamIdsWithoutStatistics();
+}
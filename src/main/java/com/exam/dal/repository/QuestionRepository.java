@@ -1,12 +1,40 @@
 package com.exam.dal.repository;
 
+import com.exam.dal.dto.QuestionTypeTotal;
 import com.exam.dal.model.Exam;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.exam.dal.model.Question;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface QuestionRepository extends JpaRepository<Question, Long> {
     List<Question> findByExam(Exam exam);
+
+    /**
+     * Find the questions of an exam together with their options and accepted answers in a single query
+     * @param examId The exam ID
+     * @return The questions with options and accepted answers loaded
+     */
+    @Query("select distinct q from Question q left join fetch q.options left join fetch q.acceptedAnswers " +
+            "where q.exam.id = :examId")
+    List<Question> findByExamIdWithOptions(@Param("examId") Long examId);
+
+    /**
+     * Sum the marks of an exam's questions
+     * @param examId The exam ID
+     * @return The total marks, 0 without questions
+     */
+    @Query("select coalesce(sum(q.marks), 0) from Question q where q.exam.id = :examId")
+    long sumMarksByExam(@Param("examId") Long examId);
+
+    /**
+     * Count the questions and sum their marks per exam and question type
+     * @return One row per exam and question type that has questions
+     */
+    @Query("select new com.exam.dal.dto.QuestionTypeTotal(q.exam.id, q.questionType, count(q), coalesce(sum(q.marks), 0)) " +
+            "from Question q group by q.exam.id, q.questionType")
+    List<QuestionTypeTotal> sumByExamAndType();
 }
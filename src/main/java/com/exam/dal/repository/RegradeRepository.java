@@ -0,0 +1,162 @@
+package com.exam.dal.repository;
+
+import com.exam.dal.dto.AnswerRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes of an exam re-grade as plain JDBC. Scored submissions are read in keyset
+ * chunks with their current score, their answers with one query per chunk, and changed
+ * scores are written back as one batch per chunk. Scores set by a teacher are re-graded only
+ * if they know the automatic marks they were given on top of.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RegradeRepository {
+
+    private static final String REGRADABLE = "(sc.graded_by is null or sc.auto_score is not null)";
+    private static final String FIND_REGRADABLE =
+            "select s.id, sc.total_score, sc.percentage_score, sc.auto_score, sc.graded_by is not null " +
+            "from submissions s join scores sc on sc.submission_id = s.id " +
+            "where s.exam_id = ? and s.id > ? and " + REGRADABLE + " order by s.id limit ?";
+    private static final String COUNT_REGRADABLE =
+            "select count(*) from submissions s join scores sc on sc.submission_id = s.id " +
+            "where s.exam_id = ? and " + REGRADABLE;
+    private static final String COUNT_STALE =
+            "select count(*) from submissions s join scores sc on sc.submission_id = s.id " +
+            "where s.exam_id = ? and not " + REGRADABLE;
+    // Skips a score a teacher graded, or graded again, in the meantime
+    private static final String UPDATE_SCORE =
+            "update scores set total_score = ?, percentage_score = ?, reading = ?, status = ?, auto_score = ?, graded_at = ? " +
+            "where submission_id = ? and total_score = ? and (graded_by is not null) = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Find the next chunk of an exam's submissions a re-grade can score
+     * @param examId The exam ID
+     * @param afterId The id of the last submission already read, 0 for the first chunk
+     * @param limit The chunk size
+     * @return The submissions with their current score, ordered by id
+     */
+    public List<GradedSubmission> findRegradable(Long examId, long afterId, int limit) {
+        return jdbcTemplate.query(FIND_REGRADABLE,
+                (rs, row) -> new GradedSubmission(rs.getLong(1), rs.getDouble(2), rs.getObject(3, Double.class),
+                        rs.getObject(4, Double.class), rs.getBoolean(5)),
+                examId, afterId, limit);
+    }
+
+    /**
+     * Count an exam's submissions a re-grade can score
+     * @param examId The exam ID
+     * @return The number of submissions a re-grade reads
+     */
+    public long countRegradable(Long examId) {
+        Long count = jdbcTemplate.queryForObject(COUNT_REGRADABLE, Long.class, examId);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Count an exam's submissions graded by a teacher before their automatic marks were kept
+     * @param examId The exam ID
+     * @return The number of submissions a re-grade leaves with their old score
+     */
+    public long countStale(Long examId) {
+        Long count = jdbcTemplate.queryForObject(COUNT_STALE, Long.class, examId);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Find the answers of submissions with their text and selected options
+     * @param submissionIds The submission IDs, at most a chunk
+     * @return The answers by submission ID
+     */
+    public Map<Long, List<AnswerRequest>> findAnswers(List<Long> submissionIds) {
+        Map<Long, List<AnswerRequest>> answers = new HashMap<>();
+        if (submissionIds.isEmpty()) {
+            return answers;
+        }
+
+        String sql = "select a.submission_id, a.question_id, a.text_answer, ao.option_id from answers a " +
+                "left join answer_options ao on ao.answer_id = a.id " +
+                "where a.submission_id in (" + String.join(", ", Collections.nCopies(submissionIds.size(), "?")) + ") " +
+                "order by a.submission_id, a.question_id";
+        jdbcTemplate.query(sql, rs -> {
+            long submissionId = rs.getLong(1);
+            long questionId = rs.getLong(2);
+            long optionId = rs.getLong(4);
+            boolean selected = !rs.wasNull();
+
+            List<AnswerRequest> submissionAnswers = answers.computeIfAbsent(submissionId, id -> new ArrayList<>());
+            AnswerRequest last = submissionAnswers.isEmpty() ? null : submissionAnswers.get(submissionAnswers.size() - 1);
+            if (last == null || last.getQuestionId() != questionId) {
+                last = AnswerRequest.builder()
+                        .submissionId(submissionId)
+                        .questionId(questionId)
+                        .textAnswer(rs.getString(3))
+                        .selectedOptionIds(new ArrayList<>())
+                        .build();
+                submissionAnswers.add(last);
+            }
+            if (selected) {
+                last.getSelectedOptionIds().add(optionId);
+            }
+        }, submissionIds.toArray());
+        return answers;
+    }
+
+    /**
+     * Write re-graded scores, skipping any a teacher graded in the meantime
+     * @param updates The new scores
+     * @param gradedAt When they were graded
+     */
+    public void updateScores(List<ScoreUpdate> updates, LocalDateTime gradedAt) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        Timestamp timestamp = Timestamp.valueOf(gradedAt);
+        jdbcTemplate.batchUpdate(UPDATE_SCORE, updates.stream()
+                .map(update -> new Object[]{update.getTotalScore(), update.getPercentageScore(), update.getReading(),
+                        update.getStatus(), update.getAutoScore(), timestamp, update.getSubmissionId(),
+                        update.getPreviousTotalScore(), update.isGradedByTeacher()})
+                .toList());
+    }
+
+    /**
+     * A scored submission and its current score
+     */
+    @Value
+    public static class GradedSubmission {
+        long submissionId;
+        double totalScore;
+        Double percentageScore;
+        // The automatic marks the total was given on, null for some scores given before they were kept
+        Double autoScore;
+        boolean gradedByTeacher;
+    }
+
+    /**
+     * A re-graded score
+     */
+    @Value
+    public static class ScoreUpdate {
+        long submissionId;
+        double totalScore;
+        Double percentageScore;
+        String reading;
+        String status;
+        double autoScore;
+        double previousTotalScore;
+        boolean gradedByTeacher;
+    }
+}
@@ -0,0 +1,20 @@
+package com.exam.dal.repository;
+
+import com.exam.dal.model.RejectedSubmission;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface RejectedSubmissionRepository extends JpaRepository<RejectedSubmission, String> {
+
+    /**
+     * Find which of the given receipts were already rejected
+     * @param receiptIds The receipt IDs
+     * @return The rejected receipt IDs
+     */
+    @Query("select r.receiptId from RejectedSubmission r where r.receiptId in :receiptIds")
+    List<String> findExistingReceiptIds(@Param("receiptIds") Collection<String> receiptIds);
+}
@@ -0,0 +1,35 @@
+package com.exam.dal.repository;
+
+import com.exam.dal.dto.SimilarityFlagResponse;
+import com.exam.dal.model.SimilarityFlag;
+import com.exam.dal.model.SimilarityKind;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface SimilarityFlagRepository extends JpaRepository<SimilarityFlag, Long> {
+
+    /**
+     * Delete the flags of an exam found by one kind of check, before they are replaced
+     * @param examId The exam ID
+     * @param kind The kind of check
+     * @return The number of flags deleted
+     */
+    @Modifying
+    @Query("delete from SimilarityFlag f where f.examId = :examId and f.kind = :kind")
+    int deleteByExamAndKind(@Param("examId") Long examId, @Param("kind") SimilarityKind kind);
+
+    /**
+     * Find the flags of an exam with the names of the students, most similar first
+     * @param examId The exam ID
+     * @return The flags
+     */
+    @Query("select new com.exam.dal.dto.SimilarityFlagResponse(f.id, f.kind, f.questionId, " +
+            "s.id, s.student.name, o.id, o.student.name, f.similarity, f.sharedErrors, f.probability, f.detectedAt) " +
+            "from SimilarityFlag f join Submission s on s.id = f.submissionId join Submission o on o.id = f.otherSubmissionId " +
+            "where f.examId = :examId order by f.similarity desc, f.id")
+    List<SimilarityFlagResponse> findResponsesByExamId(@Param("examId") Long examId);
+}
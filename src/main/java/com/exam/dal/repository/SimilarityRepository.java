@@ -0,0 +1,87 @@
+package com.exam.dal.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+
+/**
+ * Reads the answers a similarity check compares as plain JDBC, streamed row by row so only what
+ * the check derives from them is kept in memory. Drafts still being answered are left out.
+ */
+@Repository
+public class SimilarityRepository {
+
+    private static final String FIND_ESSAY_ANSWERS =
+            "select a.submission_id, a.question_id, a.text_answer from answers a " +
+            "join submissions s on s.id = a.submission_id join questions q on q.id = a.question_id " +
+            "where s.exam_id = ? and s.status <> 'IN_PROGRESS' and q.question_type = 'ESSAY' and a.text_answer is not null";
+    private static final String FIND_SELECTED_OPTIONS =
+            "select a.submission_id, a.question_id, ao.option_id from answer_options ao " +
+            "join answers a on a.id = ao.answer_id join submissions s on s.id = a.submission_id " +
+            "where s.exam_id = ? and s.status <> 'IN_PROGRESS'";
+    private static final String COUNT_FINISHED =
+            "select count(*) from submissions where exam_id = ? and status <> 'IN_PROGRESS'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+
+    public SimilarityRepository(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.similarity.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Stream the essay answers of an exam
+     * @param examId The exam ID
+     * @param handler Called with each answer
+     */
+    public void forEachEssayAnswer(Long examId, TextAnswerHandler handler) {
+        RowCallbackHandler rows = rs -> handler.handle(rs.getLong(1), rs.getLong(2), rs.getString(3));
+        jdbcTemplate.query(streamed(FIND_ESSAY_ANSWERS, examId), rows);
+    }
+
+    /**
+     * Stream the options selected in an exam's answers
+     * @param examId The exam ID
+     * @param handler Called with each selected option
+     */
+    public void forEachSelectedOption(Long examId, SelectedOptionHandler handler) {
+        RowCallbackHandler rows = rs -> handler.handle(rs.getLong(1), rs.getLong(2), rs.getLong(3));
+        jdbcTemplate.query(streamed(FIND_SELECTED_OPTIONS, examId), rows);
+    }
+
+    /**
+     * Count an exam's finished submissions
+     * @param examId The exam ID
+     * @return The number of submissions a check compares
+     */
+    public long countFinished(Long examId) {
+        Long count = jdbcTemplate.queryForObject(COUNT_FINISHED, Long.class, examId);
+        return count != null ? count : 0;
+    }
+
+    private PreparedStatementCreator streamed(String sql, Long examId) {
+        return connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            StreamingFetch.stream(statement, fetchSize);
+            statement.setLong(1, examId);
+            return statement;
+        };
+    }
+
+    @FunctionalInterface
+    public interface TextAnswerHandler {
+        void handle(long submissionId, long questionId, String textAnswer);
+    }
+
+    @FunctionalInterface
+    public interface SelectedOptionHandler {
+        void handle(long submissionId, long questionId, long optionId);
+    }
+}
@@ -0,0 +1,30 @@
+package com.exam.dal.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Fetch size of a statement whose result is read as a stream. MySQL Connector/J reads a whole
+ * result into memory whatever the fetch size, unless the connection uses server-side cursors or
+ * the statement asks for row by row streaming with {@link Integer#MIN_VALUE}. Only the latter is
+ * scoped to the statement, so streamed reads ask for it and other queries keep the driver's
+ * default. Other drivers honour the fetch size as given.
+ */
+final class StreamingFetch {
+
+    private static final String MYSQL = "MySQL";
+
+    private StreamingFetch() {
+    }
+
+    /**
+     * Make a statement stream its result
+     * @param statement The statement, before it is executed
+     * @param fetchSize The rows fetched at a time by drivers that honour it
+     * @throws SQLException if the driver rejects the fetch size
+     */
+    static void stream(PreparedStatement statement, int fetchSize) throws SQLException {
+        boolean mysql = MYSQL.equals(statement.getConnection().getMetaData().getDatabaseProductName());
+        statement.setFetchSize(mysql ? Integer.MIN_VALUE : fetchSize);
+    }
+}
@@ -0,0 +1,121 @@
+package com.exam.dal.repository;
+
+import com.exam.dal.dto.AnswerRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads an exam's submissions for export as plain JDBC. One query returns every selected option
+ * of every answer ordered by submission, streamed so the driver holds only a window of rows, and
+ * each submission is handed on as soon as its last row is read. Only one submission is in memory
+ * at a time, however many the exam has.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SubmissionExportRepository {
+
+    private static final String FIND_SUBMISSIONS =
+            "select s.id, u.name, u.email, s.submitted_at, sc.total_score, sc.percentage_score, " +
+            "a.question_id, a.text_answer, ao.option_id from submissions s " +
+            "join users u on u.id = s.student_id " +
+            "left join scores sc on sc.submission_id = s.id " +
+            "left join answers a on a.submission_id = s.id " +
+            "left join answer_options ao on ao.answer_id = a.id " +
+            "where s.exam_id = ? and s.status <> 'IN_PROGRESS' order by s.id, a.question_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Stream the finished submissions of an exam with their answers and score
+     * @param examId The exam ID
+     * @param fetchSize The rows the driver fetches at a time, MySQL streams them one by one
+     * @param handler Called with each submission, in ID order
+     */
+    public void forEachSubmission(Long examId, int fetchSize, Consumer<ExportedSubmission> handler) {
+        SubmissionAssembler assembler = new SubmissionAssembler(handler);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(FIND_SUBMISSIONS);
+            StreamingFetch.stream(statement, fetchSize);
+            statement.setLong(1, examId);
+            return statement;
+        }, assembler);
+        assembler.finish();
+    }
+
+    /**
+     * A submission with its answers and score, as exported
+     */
+    @Value
+    public static class ExportedSubmission {
+        long submissionId;
+        String studentName;
+        String studentEmail;
+        LocalDateTime submittedAt;
+        Double totalScore;
+        Double percentageScore;
+        List<AnswerRequest> answers;
+    }
+
+    /**
+     * Gathers the rows of each submission, they come one submission after the other
+     */
+    private static class SubmissionAssembler implements RowCallbackHandler {
+        private final Consumer<ExportedSubmission> handler;
+        private ExportedSubmission current;
+
+        SubmissionAssembler(Consumer<ExportedSubmission> handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long submissionId = rs.getLong(1);
+            if (current == null || current.getSubmissionId() != submissionId) {
+                finish();
+                Timestamp submittedAt = rs.getTimestamp(4);
+                current = new ExportedSubmission(submissionId, rs.getString(2), rs.getString(3),
+                        submittedAt != null ? submittedAt.toLocalDateTime() : null,
+                        rs.getObject(5, Double.class), rs.getObject(6, Double.class), new ArrayList<>());
+            }
+
+            long questionId = rs.getLong(7);
+            if (rs.wasNull()) {
+                return;
+            }
+            List<AnswerRequest> answers = current.getAnswers();
+            AnswerRequest last = answers.isEmpty() ? null : answers.get(answers.size() - 1);
+            if (last == null || last.getQuestionId() != questionId) {
+                last = AnswerRequest.builder()
+                        .submissionId(submissionId)
+                        .questionId(questionId)
+                        .textAnswer(rs.getString(8))
+                        .selectedOptionIds(new ArrayList<>())
+                        .build();
+                answers.add(last);
+            }
+            long optionId = rs.getLong(9);
+            if (!rs.wasNull()) {
+                last.getSelectedOptionIds().add(optionId);
+            }
+        }
+
+        void finish() {
+            if (current != null) {
+                handler.accept(current);
+                current = null;
+            }
+        }
+    }
+}
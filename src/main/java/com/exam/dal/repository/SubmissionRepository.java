@@ -1,10 +1,20 @@
 package com.exam.dal.repository;
 
+import com.exam.dal.dto.GradedScore;
+import com.exam.dal.dto.OpenDraft;
+import com.exam.dal.dto.SubmissionSummary;
 import com.exam.dal.model.Exam;
 import com.exam.dal.model.Submission;
 import com.exam.dal.model.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +22,147 @@ public interface SubmissionRepository extends JpaRepository<Submission, Long> {
     List<Submission> findByStudent(User student);
     List<Submission> findByExam(Exam exam);
     Optional<Submission> findByStudentAndExam(User student, Exam exam);
+
+    /**
+     * Find the submissions of a student without a submission time, before a keyset position, by id
+     * newest first. Rows written outside the application may lack one, listings show them
+     * before the rest rather than leave them out.
+     * @param studentId The student's user ID
+     * @param beforeId Id of the last such submission already returned, {@link Long#MAX_VALUE} for the first page
+     * @param pageable The row limit
+     * @return The submissions with their exam and score
+     */
+    @Query("select new com.exam.dal.dto.SubmissionSummary(s.id, e.id, e.title, u.id, u.name, s.submittedAt, s.status, " +
+            "s.graded, sc.totalScore, sc.percentageScore, sc.reading) " +
+            "from Submission s join s.exam e join s.student u left join s.score sc " +
+            "where u.id = :studentId and s.submittedAt is null and s.id < :beforeId " +
+            "order by s.id desc")
+    List<SubmissionSummary> findUntimedSummariesByStudent(@Param("studentId") Long studentId,
+                                                          @Param("beforeId") long beforeId,
+                                                          Pageable pageable);
+
+    /**
+     * Find the submissions of a student before a keyset position, newest first
+     * @param studentId The student's user ID
+     * @param beforeSubmitted Submission time of the last submission already returned, the latest possible time for the first page
+     * @param beforeId Id of the last submission already returned, {@link Long#MAX_VALUE} for the first page
+     * @param pageable The row limit
+     * @return The submissions with their exam and score
+     */
+    @Query("select new com.exam.dal.dto.SubmissionSummary(s.id, e.id, e.title, u.id, u.name, s.submittedAt, s.status, " +
+            "s.graded, sc.totalScore, sc.percentageScore, sc.reading) " +
+            "from Submission s join s.exam e join s.student u left join s.score sc " +
+            "where u.id = :studentId " +
+            "and (s.submittedAt < :beforeSubmitted or (s.submittedAt = :beforeSubmitted and s.id < :beforeId)) " +
+            "order by s.submittedAt desc, s.id desc")
+    List<SubmissionSummary> findSummariesByStudent(@Param("studentId") Long studentId,
+                                                   @Param("beforeSubmitted") LocalDateTime beforeSubmitted,
+                                                   @Param("beforeId") long beforeId,
+                                                   Pageable pageable);
+
+    /**
+     * Find the submissions to an exam without a submission time, before a keyset position, by id
+     * newest first. Rows written outside the application may lack one, listings show them
+     * before the rest rather than leave them out.
+     * @param examId The exam ID
+     * @param beforeId Id of the last such submission already returned, {@link Long#MAX_VALUE} for the first page
+     * @param pageable The row limit
+     * @return The submissions with their student and score
+     */
+    @Query("select new com.exam.dal.dto.SubmissionSummary(s.id, e.id, e.title, u.id, u.name, s.submittedAt, s.status, " +
+            "s.graded, sc.totalScore, sc.percentageScore, sc.reading) " +
+            "from Submission s join s.exam e join s.student u left join s.score sc " +
+            "where e.id = :examId and s.submittedAt is null and s.id < :beforeId " +
+            "order by s.id desc")
+    List<SubmissionSummary> findUntimedSummariesByExam(@Param("examId") Long examId,
+                                                       @Param("beforeId") long beforeId,
+                                                       Pageable pageable);
+
+    /**
+     * Find the submissions to an exam before a keyset position, newest first
+     * @param examId The exam ID
+     * @param beforeSubmitted Submission time of the last submission already returned, the latest possible time for the first page
+     * @param beforeId Id of the last submission already returned, {@link Long#MAX_VALUE} for the first page
+     * @param pageable The row limit
+     * @return The submissions with their student and score
+     */
+    @Query("select new com.exam.dal.dto.SubmissionSummary(s.id, e.id, e.title, u.id, u.name, s.submittedAt, s.status, " +
+            "s.graded, sc.totalScore, sc.percentageScore, sc.reading) " +
+            "from Submission s join s.exam e join s.student u left join s.score sc " +
+            "where e.id = :examId " +
+            "and (s.submittedAt < :beforeSubmitted or (s.submittedAt = :beforeSubmitted and s.id < :beforeId)) " +
+            "order by s.submittedAt desc, s.id desc")
+    List<SubmissionSummary> findSummariesByExam(@Param("examId") Long examId,
+                                                @Param("beforeSubmitted") LocalDateTime beforeSubmitted,
+                                                @Param("beforeId") long beforeId,
+                                                Pageable pageable);
+
+    /**
+     * Count the submissions to an exam, leaving out drafts still being answered
+     * @param examId The exam ID
+     * @return The number of submitted submissions
+     */
+    @Query("select count(s) from Submission s " +
+            "where s.exam.id = :examId and s.status <> com.exam.dal.model.SubmissionStatus.IN_PROGRESS")
+    long countSubmittedByExam(@Param("examId") Long examId);
+
+    /**
+     * Find the scores of an exam's graded submissions
+     * @param examId The exam ID
+     * @return The total and percentage scores
+     */
+    @Query("select new com.exam.dal.dto.GradedScore(sc.totalScore, sc.percentageScore) " +
+            "from Submission s join s.score sc " +
+            "where s.exam.id = :examId and s.graded = true")
+    List<GradedScore> findGradedScoresByExam(@Param("examId") Long examId);
+
+    /**
+     * Find the lowest score of an exam's graded submissions
+     * @param examId The exam ID
+     * @return The score, or null without graded submissions
+     */
+    @Query("select min(sc.totalScore) from Submission s join s.score sc where s.exam.id = :examId and s.graded = true")
+    Double findLowestGradedScore(@Param("examId") Long examId);
+
+    /**
+     * Find the highest score of an exam's graded submissions
+     * @param examId The exam ID
+     * @return The score, or null without graded submissions
+     */
+    @Query("select max(sc.totalScore) from Submission s join s.score sc where s.exam.id = :examId and s.graded = true")
+    Double findHighestGradedScore(@Param("examId") Long examId);
+
+    /**
+     * Find the submission saved for an ingest receipt
+     * @param receiptId The receipt ID
+     * @return The submission, if it was saved
+     */
+    Optional<Submission> findByReceiptId(String receiptId);
+
+    /**
+     * Find which of the given receipts already have a saved submission
+     * @param receiptIds The receipt IDs
+     * @return The receipt IDs with a submission
+     */
+    @Query("select s.receiptId from Submission s where s.receiptId in :receiptIds")
+    List<String> findExistingReceiptIds(@Param("receiptIds") Collection<String> receiptIds);
+
+    /**
+     * Find a submission that is still being answered
+     * @param id The submission ID
+     * @return The draft's owner, exam and deadline, if the submission is in progress
+     */
+    @Query("select new com.exam.dal.dto.OpenDraft(s.id, s.student.id, e.id, e.endTime) " +
+            "from Submission s join s.exam e " +
+            "where s.id = :id and s.status = com.exam.dal.model.SubmissionStatus.IN_PROGRESS")
+    Optional<OpenDraft> findOpenDraft(@Param("id") Long id);
+
+    /**
+     * Find a submission and lock its row until the transaction ends
+     * @param id The submission ID
+     * @return The submission, as last committed
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from Submission s where s.id = :id")
+    Optional<Submission> findByIdForUpdate(@Param("id") Long id);
 }
@@ -1,10 +1,21 @@
 package com.exam.dal.repository;
 
+import com.exam.dal.dto.UserTokenState;
 import com.exam.dal.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    /**
+     * Fetch only the columns needed to decide whether a user's tokens are still valid
+     * @param id The user ID
+     * @return The token state, if the user exists
+     */
+    @Query("select new com.exam.dal.dto.UserTokenState(u.tokenVersion, u.isActive) from User u where u.id = :id")
+    Optional<UserTokenState> findTokenStateById(@Param("id") Long id);
 }
@@ -0,0 +1,85 @@
+package com.exam.security;
+
+import com.exam.dal.model.User;
+import com.exam.dal.repository.UserRepository;
+import com.exam.exception.ResourceNotFoundException;
+import com.exam.exception.UnauthorizedAccessException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Resolves the authenticated user at most once per request and hands the same entity
+ * to every service involved in that request.
+ * <p>
+ * Every call is counted in the {@code exam.current_user.lookups} metric, tagged with the endpoint
+ * and whether the user was {@code loaded} from the database or {@code memoized}; the memoized
+ * count is the number of lookups saved.
+ */
+@Component
+@RequestScope
+@RequiredArgsConstructor
+public class CurrentUserProvider {
+
+    private static final String LOOKUP_METRIC = "exam.current_user.lookups";
+
+    private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+
+    private User currentUser;
+
+    /**
+     * Get the currently authenticated user
+     *
+     * @return The user entity
+     * @throws UnauthorizedAccessException if no user is authenticated
+     * @throws ResourceNotFoundException if the authenticated user no longer exists
+     */
+    public User getCurrentUser() {
+        if (currentUser != null) {
+            recordLookup("memoized");
+            return currentUser;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication == null || !authentication.isAuthenticated() ||
+                authentication instanceof AnonymousAuthenticationToken) {
+            throw new UnauthorizedAccessException("No authenticated user found");
+        }
+
+        // A stateless principal already carries the id, which is cheaper to look up than the email
+        if (authentication.getPrincipal() instanceof JwtPrincipal principal) {
+            currentUser = userRepository.findById(principal.getId())
+                    .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + principal.getId()));
+        } else {
+            String email = authentication.getName();
+            currentUser = userRepository.findByEmail(email)
+                    .orElseThrow(() -> new ResourceNotFoundException("User not found with email: " + email));
+        }
+
+        recordLookup("loaded");
+        return currentUser;
+    }
+
+    private void recordLookup(String result) {
+        meterRegistry.counter(LOOKUP_METRIC, "endpoint", currentEndpoint(), "result", result).increment();
+    }
+
+    private String currentEndpoint() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return "unknown";
+        }
+        HttpServletRequest request = attributes.getRequest();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : "unknown");
+    }
+}
@@ -1,6 +1,9 @@
 package com.exam.security;
 
+import com.exam.dal.model.Role;
 import com.exam.service.JwtService;
+import com.exam.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -23,6 +26,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
 
     @Override
     protected void doFilterInternal(
@@ -42,12 +46,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
 
         try {
-            userEmail = jwtService.extractUsername(jwt);
+            // Verify the token once and reuse its claims for the validity check below
+            final Claims claims = jwtService.extractAllClaims(jwt);
+            userEmail = claims.getSubject();
 
             if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+                UserDetails userDetails = resolvePrincipal(claims, userEmail);
 
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                if (userDetails != null && jwtService.isTokenValid(claims, userDetails)) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
@@ -65,4 +71,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    /**
+     * Build the principal for a verified token. In stateless mode a token that carries the user id,
+     * role and token version is trusted after a cached revocation check; any other token falls back
+     * to loading the user.
+     *
+     * @return The principal, or null if the token has been revoked
+     */
+    private UserDetails resolvePrincipal(Claims claims, String userEmail) {
+        if (jwtService.isStatelessPrincipalEnabled()) {
+            Number userId = claims.get(JwtService.USER_ID_CLAIM, Number.class);
+            String role = claims.get(JwtService.ROLE_CLAIM, String.class);
+            Number tokenVersion = claims.get(JwtService.TOKEN_VERSION_CLAIM, Number.class);
+
+            if (userId != null && role != null && tokenVersion != null) {
+                if (!tokenRevocationService.isCurrent(userId.longValue(), tokenVersion.longValue())) {
+                    return null;
+                }
+                return new JwtPrincipal(userId.longValue(), userEmail, Role.valueOf(role));
+            }
+        }
+
+        return this.userDetailsService.loadUserByUsername(userEmail);
+    }
+}
@@ -0,0 +1,320 @@
+package com.exam.service;
+
+import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.ExamPaper;
+import com.exam.dal.dto.ExamPaper.PaperQuestion;
+import com.exam.dal.dto.OpenDraft;
+import com.exam.dal.repository.AnswerBatchWriter;
+import com.exam.dal.repository.ExamRepository;
+import com.exam.dal.repository.SubmissionRepository;
+import com.exam.exception.ConflictException;
+import com.exam.exception.ResourceNotFoundException;
+import com.exam.exception.UnauthorizedAccessException;
+import com.exam.exception.ValidationException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffers the answers students autosave while taking an exam. Only the latest save of each
+ * question is kept, so a student typing into an essay produces one write per flush instead of one
+ * per keystroke pause. Buffered answers are written to the draft submission periodically, all
+ * drafts together in one transaction of batched statements.
+ * <p>
+ * Submitting a draft takes its buffered answers over with {@link #close(Long)}. Flushing and
+ * submitting the same draft are serialized on a lock striped by submission ID, held until the
+ * submitting transaction completes, so a flush can neither be missed by a submit nor land after it.
+ * A draft submitted on another node is seen by the flush, which writes only to drafts still in
+ * progress, and by autosaves once the draft is looked up again after the open TTL.
+ * <p>
+ * The buffer is per node: answers saved in the last flush interval are lost if the node crashes.
+ */
+@Service
+@Slf4j
+public class AnswerDraftService {
+
+    private static final int LOCK_STRIPES = 1024;
+
+    // Long enough for the submitting transaction to have committed, after which the status says the same
+    private static final Duration CLOSED_TTL = Duration.ofHours(1);
+
+    private final SubmissionRepository submissionRepository;
+    private final ExamRepository examRepository;
+    private final ExamPaperCache examPaperCache;
+    private final AnswerBatchWriter answerBatchWriter;
+    private final TransactionTemplate transactionTemplate;
+
+    // Latest unflushed answer per submission and question
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<Long, AnswerRequest>> pending = new ConcurrentHashMap<>();
+
+    // Drafts by submission ID, so an autosave is checked without a query, looked up again after a while
+    // in case one was submitted on another node
+    private final Cache<Long, OpenDraft> openDrafts;
+
+    // Drafts being or already submitted, their autosaves are rejected and no longer flushed
+    private final Cache<Long, Boolean> closed;
+
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public AnswerDraftService(
+            SubmissionRepository submissionRepository,
+            ExamRepository examRepository,
+            ExamPaperCache examPaperCache,
+            AnswerBatchWriter answerBatchWriter,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.answer-drafts.max-open:100000}") long maxOpen,
+            @Value("${app.answer-drafts.open-ttl:60s}") Duration openTtl) {
+        this.submissionRepository = submissionRepository;
+        this.examRepository = examRepository;
+        this.examPaperCache = examPaperCache;
+        this.answerBatchWriter = answerBatchWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.openDrafts = Caffeine.newBuilder()
+                .maximumSize(maxOpen)
+                .expireAfterWrite(openTtl)
+                .build();
+        this.closed = Caffeine.newBuilder()
+                .expireAfterWrite(CLOSED_TTL)
+                .build();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Remember a draft that was just started, so its first autosave needs no query
+     *
+     * @param draft The draft
+     */
+    public void opened(OpenDraft draft) {
+        openDrafts.put(draft.getSubmissionId(), draft);
+    }
+
+    /**
+     * Buffer an answer of a student's draft, replacing any earlier unflushed answer to the same question
+     *
+     * @param studentId The student saving the answer
+     * @param submissionId The draft submission ID
+     * @param answerRequest The answer, it may still be incomplete
+     */
+    public void save(Long studentId, Long submissionId, AnswerRequest answerRequest) {
+        OpenDraft draft = getOpenDraft(studentId, submissionId);
+        if (LocalDateTime.now().isAfter(draft.getEndTime())) {
+            throw new ValidationException("Exam is not currently available for submission");
+        }
+        validateAnswer(draft.getExamId(), answerRequest);
+
+        AnswerRequest buffered = AnswerRequest.builder()
+                .submissionId(submissionId)
+                .questionId(answerRequest.getQuestionId())
+                .textAnswer(answerRequest.getTextAnswer())
+                .selectedOptionIds(answerRequest.getSelectedOptionIds() == null ? null : List.copyOf(answerRequest.getSelectedOptionIds()))
+                .build();
+        pending.compute(submissionId, (id, answers) -> {
+            ConcurrentHashMap<Long, AnswerRequest> draftAnswers = answers != null ? answers : new ConcurrentHashMap<>();
+            draftAnswers.put(buffered.getQuestionId(), buffered);
+            return draftAnswers;
+        });
+    }
+
+    /**
+     * Get a draft of a student that is still open for autosaving
+     *
+     * @param studentId The student
+     * @param submissionId The draft submission ID
+     * @return The draft
+     */
+    public OpenDraft getOpenDraft(Long studentId, Long submissionId) {
+        if (closed.getIfPresent(submissionId) != null) {
+            throw new ConflictException("You have already submitted this exam");
+        }
+        OpenDraft draft = openDrafts.get(submissionId, id -> submissionRepository.findOpenDraft(id).orElse(null));
+        if (draft == null) {
+            throw new ResourceNotFoundException("No submission in progress with id: " + submissionId);
+        }
+        if (!draft.getStudentId().equals(studentId)) {
+            throw new UnauthorizedAccessException("You don't have permission to modify this submission");
+        }
+        return draft;
+    }
+
+    /**
+     * Get the unflushed answers of a draft
+     *
+     * @param submissionId The draft submission ID
+     * @return The buffered answers by question ID
+     */
+    public Map<Long, AnswerRequest> getBuffered(Long submissionId) {
+        Map<Long, AnswerRequest> answers = pending.get(submissionId);
+        return answers != null ? Map.copyOf(answers) : Map.of();
+    }
+
+    /**
+     * Stop autosaving a draft that is being submitted and take over its buffered answers. Must be
+     * called in the submitting transaction: it waits for a flush of the draft in progress and holds
+     * off the next one until the transaction completes. If it rolls back, the draft is reopened with
+     * the answers returned here. A transaction closes one draft at most, holding the locks of two
+     * could deadlock with a flush taking them in the other order.
+     *
+     * @param submissionId The draft submission ID
+     * @return The buffered answers by question ID, newer than what the database has
+     */
+    public Map<Long, AnswerRequest> close(Long submissionId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("A draft can only be closed in a transaction");
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            throw new IllegalStateException("Only one draft can be closed per transaction");
+        }
+
+        ReentrantLock lock = lockFor(submissionId);
+        lock.lock();
+        TransactionSynchronizationManager.bindResource(this, submissionId);
+        closed.put(submissionId, Boolean.TRUE);
+        openDrafts.invalidate(submissionId);
+        Map<Long, AnswerRequest> answers = pending.remove(submissionId);
+        Map<Long, AnswerRequest> taken = answers != null ? Map.copyOf(answers) : Map.of();
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    closed.invalidate(submissionId);
+                    pending.compute(submissionId, (id, answers) -> {
+                        ConcurrentHashMap<Long, AnswerRequest> restored = new ConcurrentHashMap<>(taken);
+                        if (answers != null) {
+                            restored.putAll(answers);
+                        }
+                        return restored.isEmpty() ? null : restored;
+                    });
+                }
+                TransactionSynchronizationManager.unbindResourceIfPossible(AnswerDraftService.this);
+                lock.unlock();
+            }
+        });
+        return taken;
+    }
+
+    /**
+     * Write the buffered answers of all open drafts. An answer saved again while the flush runs
+     * stays buffered for the next one.
+     */
+    @Scheduled(fixedDelayString = "${app.answer-drafts.flush-interval:2000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        TreeSet<Integer> stripes = new TreeSet<>();
+        pending.keySet().forEach(submissionId -> stripes.add(stripe(submissionId)));
+        // Taken in order, and a submitting transaction holds a single stripe, so this cannot deadlock with it
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+        try {
+            Map<Long, List<AnswerRequest>> answersByDraft = new HashMap<>();
+            pending.forEach((submissionId, draftAnswers) -> {
+                // Drafts that appeared after the stripes were taken wait for the next flush
+                if (stripes.contains(stripe(submissionId)) && closed.getIfPresent(submissionId) == null) {
+                    answersByDraft.put(submissionId, new ArrayList<>(draftAnswers.values()));
+                }
+            });
+            if (answersByDraft.isEmpty()) {
+                return;
+            }
+
+            List<AnswerRequest> answers = answersByDraft.values().stream().flatMap(List::stream).toList();
+            Set<Long> submitted = new HashSet<>();
+            try {
+                submitted.addAll(transactionTemplate.execute(status -> answerBatchWriter.upsertAnswers(answers)));
+            } catch (DataIntegrityViolationException e) {
+                // Such as a draft whose submission was deleted, write the drafts alone to find it
+                answersByDraft.forEach((submissionId, draftAnswers) -> submitted.addAll(flushAlone(submissionId, draftAnswers)));
+            }
+            // Submitted on another node, their answers were dropped and later autosaves are rejected
+            submitted.forEach(submissionId -> {
+                closed.put(submissionId, Boolean.TRUE);
+                openDrafts.invalidate(submissionId);
+            });
+
+            for (AnswerRequest answer : answers) {
+                // Kept if it was replaced by a newer save in the meantime
+                pending.computeIfPresent(answer.getSubmissionId(), (id, draftAnswers) -> {
+                    draftAnswers.remove(answer.getQuestionId(), answer);
+                    return draftAnswers.isEmpty() ? null : draftAnswers;
+                });
+            }
+            log.debug("Flushed {} draft answers", answers.size());
+        } finally {
+            for (int stripe : stripes) {
+                locks[stripe].unlock();
+            }
+        }
+
+        // Autosaves raced with a submit, the submitted answers are final
+        pending.keySet().removeIf(submissionId -> closed.getIfPresent(submissionId) != null);
+    }
+
+    private Set<Long> flushAlone(Long submissionId, List<AnswerRequest> answers) {
+        try {
+            return transactionTemplate.execute(status -> answerBatchWriter.upsertAnswers(answers));
+        } catch (DataIntegrityViolationException e) {
+            // Dropped with the rest of the flushed answers, retrying cannot succeed
+            log.warn("Discarded {} draft answers of submission {}: {}", answers.size(), submissionId, e.getMessage());
+            return Set.of();
+        }
+    }
+
+    /**
+     * Check that an answer is to a question of the exam and selects only that question's options.
+     * Whether it is complete is checked when the draft is submitted.
+     */
+    private void validateAnswer(Long examId, AnswerRequest answerRequest) {
+        if (answerRequest.getQuestionId() == null) {
+            throw new ValidationException("Question ID is required");
+        }
+
+        ExamPaper paper = examPaperCache.getIfPresent(examId);
+        if (paper == null) {
+            paper = examPaperCache.getPaper(examRepository.findById(examId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Exam not found")));
+        }
+
+        PaperQuestion question = paper.getQuestion(answerRequest.getQuestionId());
+        if (question == null) {
+            throw new ValidationException("Question does not belong to this exam");
+        }
+        if (answerRequest.getSelectedOptionIds() != null
+                && !answerRequest.getSelectedOptionIds().stream().allMatch(question::hasOption)) {
+            throw new ValidationException("Selected options must belong to the question");
+        }
+    }
+
+    private ReentrantLock lockFor(Long submissionId) {
+        return locks[stripe(submissionId)];
+    }
+
+    private static int stripe(Long submissionId) {
+        return Long.hashCode(submissionId) & (LOCK_STRIPES - 1);
+    }
+}
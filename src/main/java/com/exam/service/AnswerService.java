@@ -10,10 +10,9 @@ import com.exam.dal.model.*;
 import com.exam.dal.repository.*;
 import com.exam.exception.ResourceNotFoundException;
 import com.exam.exception.UnauthorizedAccessException;
+import com.exam.security.CurrentUserProvider;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -30,7 +29,7 @@ public class AnswerService {
     private final SubmissionRepository submissionRepository;
     private final QuestionRepository questionRepository;
     private final OptionRepository optionRepository;
-    private final UserRepository userRepository;
+    private final CurrentUserProvider currentUserProvider;
 
     /**
      * Get answers for a specific submission
@@ -55,7 +54,7 @@ public class AnswerService {
      */
     @Transactional
     public Answer createAnswer(AnswerRequest answerRequest) {
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         // Validate submission
         Submission submission = submissionRepository.findById(answerRequest.getSubmissionId())
@@ -140,7 +139,7 @@ public class AnswerService {
      * @param submission Submission to validate access for
      */
     private void validateAnswerAccess(Submission submission) {
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         boolean hasAccess = submission.getStudent().getId().equals(currentUser.getId()) ||
                 submission.getExam().getCourse().getTeacher().getId().equals(currentUser.getId()) ||
@@ -156,27 +155,11 @@ public class AnswerService {
      * @param answer Answer to validate modification access for
      */
     private void validateAnswerModificationAccess(Answer answer) {
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         // Only the student who submitted the answer can modify it
         if (!answer.getSubmission().getStudent().getId().equals(currentUser.getId())) {
             throw new UnauthorizedAccessException("You are not authorized to modify this answer");
         }
     }
-
-    /**
-     * Get current authenticated user
-     * @return Current user
-     */
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new UnauthorizedAccessException("No authenticated user found");
-        }
-
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with email: " + email));
-    }
 }
\ No newline at end of file
@@ -6,10 +6,9 @@ import com.exam.dal.model.*;
 import com.exam.dal.repository.*;
 import com.exam.exception.ResourceNotFoundException;
 import com.exam.exception.UnauthorizedAccessException;
+import com.exam.security.CurrentUserProvider;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,34 +25,13 @@ public class CourseService {
 
     private final CourseRepository courseRepository;
     private final UserRepository userRepository;
+    private final CurrentUserProvider currentUserProvider;
+    private final EnrollmentIndex enrollmentIndex;
     private final ExamRepository examRepository;
     private final SubmissionRepository submissionRepository;
     private final GradingConfigurationRepository gradingConfigurationRepository;
     private final GradeResultRepository gradeResultRepository;
-
-    /**
-     * Get the currently authenticated user
-     *
-     * @return The user entity
-     * @throws RuntimeException if the user is not found or authentication is invalid
-     */
-    private User getCurrentUser() {
-        // Get the current authentication context
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-
-        // Check if authentication is null or not authenticated
-        if (authentication == null || !authentication.isAuthenticated() ||
-                "anonymousUser".equals(authentication.getName())) {
-            throw new UnauthorizedAccessException("No authenticated user found");
-        }
-
-        // Get the username (email)
-        String email = authentication.getName();
-
-        // Find and return the user
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with email: " + email));
-    }
+    private final ExamStatisticsService examStatisticsService;
 
     /**
      * Create a new course
@@ -63,7 +41,7 @@ public class CourseService {
      */
     public Course createCourse(CourseRequest courseRequest) {
         try {
-            User currentUser = getCurrentUser();
+            User currentUser = currentUserProvider.getCurrentUser();
 
             // Additional role validation
             if (currentUser.getRole() != Role.TEACHER && currentUser.getRole() != Role.ADMIN) {
@@ -76,7 +54,9 @@ public class CourseService {
                     .teacher(currentUser)
                     .build();
 
-            return courseRepository.save(course);
+            Course saved = courseRepository.save(course);
+            examStatisticsService.courseCreated(saved.getId());
+            return saved;
         } catch (Exception e) {
             // Log the error
             log.error("Error creating course", e);
@@ -96,7 +76,7 @@ public class CourseService {
     public Course updateCourse(Long id, CourseRequest courseRequest) {
         try {
             Course course = getCourseById(id);
-            User currentUser = getCurrentUser();
+            User currentUser = currentUserProvider.getCurrentUser();
 
             // Robust permission check
             if (!course.getTeacher().getId().equals(currentUser.getId()) &&
@@ -122,10 +102,10 @@ public class CourseService {
     @Transactional(readOnly = true)
     public Map<String, Object> getStudentCourseProgress(Long courseId) {
         Course course = getCourseById(courseId);
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         // Ensure student is enrolled in the course
-        if (!course.getStudents().contains(currentUser)) {
+        if (!enrollmentIndex.isEnrolled(course.getId(), currentUser.getId())) {
             throw new UnauthorizedAccessException("You are not enrolled in this course");
         }
 
@@ -151,7 +131,8 @@ public class CourseService {
             examProgress.put("examTitle", exam.getTitle());
 
             // Find submission for this exam
-            Optional<Submission> submissionOpt = submissionRepository.findByStudentAndExam(currentUser, exam);
+            Optional<Submission> submissionOpt = submissionRepository.findByStudentAndExam(currentUser, exam)
+                    .filter(submission -> submission.getStatus() != SubmissionStatus.IN_PROGRESS);
 
             if (submissionOpt.isPresent()) {
                 Submission submission = submissionOpt.get();
@@ -214,7 +195,7 @@ public class CourseService {
     @Transactional(readOnly = true)
     public List<Map<String, Object>> getCourseStudentsWithProgress(Long courseId) {
         Course course = getCourseById(courseId);
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         // Verify teacher or admin access
         if (!course.getTeacher().getId().equals(currentUser.getId()) &&
@@ -249,7 +230,8 @@ public class CourseService {
                         examDetail.put("examId", exam.getId());
                         examDetail.put("examTitle", exam.getTitle());
 
-                        Optional<Submission> submissionOpt = submissionRepository.findByStudentAndExam(student, exam);
+                        Optional<Submission> submissionOpt = submissionRepository.findByStudentAndExam(student, exam)
+                                .filter(submission -> submission.getStatus() != SubmissionStatus.IN_PROGRESS);
 
                         if (submissionOpt.isPresent()) {
                             Submission submission = submissionOpt.get();
@@ -332,14 +314,16 @@ public class CourseService {
      */
     public void deleteCourse(Long id) {
         Course course = getCourseById(id);
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         if (!course.getTeacher().getId().equals(currentUser.getId()) &&
                 !currentUser.getRole().equals(Role.ADMIN)) {
             throw new RuntimeException("You don't have permission to delete this course");
         }
 
+        examStatisticsService.courseDeleted(id);
         courseRepository.delete(course);
+        enrollmentIndex.evict(id);
     }
 
     /**
@@ -361,7 +345,9 @@ public class CourseService {
         }
 
         course.getStudents().add(student);
-        return courseRepository.save(course);
+        Course saved = courseRepository.save(course);
+        enrollmentIndex.evict(courseId);
+        return saved;
     }
 
     /**
@@ -378,7 +364,9 @@ public class CourseService {
                 .orElseThrow(() -> new ResourceNotFoundException("Student not found with id: " + studentId));
 
         course.getStudents().remove(student);
-        return courseRepository.save(course);
+        Course saved = courseRepository.save(course);
+        enrollmentIndex.evict(courseId);
+        return saved;
     }
 
     /**
@@ -387,7 +375,7 @@ public class CourseService {
      * @return List of courses
      */
     public List<Course> getTeacherCourses() {
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
         return courseRepository.findByTeacher(currentUser);
     }
 
@@ -397,7 +385,7 @@ public class CourseService {
      * @return List of courses
      */
     public List<Course> getStudentCourses() {
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
         return courseRepository.findByStudentsContaining(currentUser);
     }
 
@@ -409,9 +397,8 @@ public class CourseService {
      * @return true if enrolled, false otherwise
      */
     public boolean isStudentEnrolled(Long courseId, Long studentId) {
-        Course course = getCourseById(courseId);
-        return course.getStudents().stream()
-                .anyMatch(student -> student.getId().equals(studentId));
+        getCourseById(courseId);
+        return enrollmentIndex.isEnrolled(courseId, studentId);
     }
 
 }
\ No newline at end of file
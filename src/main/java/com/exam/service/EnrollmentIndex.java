@@ -0,0 +1,69 @@
+package com.exam.service;
+
+import com.exam.dal.repository.CourseRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Answers "is this student enrolled in this course" without loading the course's students.
+ * Each course is kept as a sorted array of student ids, so a check is a binary search.
+ * Entries are dropped when enrollment changes on this node and expire after a TTL to pick up
+ * changes made elsewhere.
+ */
+@Service
+public class EnrollmentIndex {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final CourseRepository courseRepository;
+    private final LoadingCache<Long, long[]> studentIdsByCourse;
+
+    public EnrollmentIndex(
+            CourseRepository courseRepository,
+            @Value("${app.enrollment-index.ttl:10m}") Duration ttl,
+            @Value("${app.enrollment-index.max-courses:10000}") long maxCourses) {
+        this.courseRepository = courseRepository;
+        this.studentIdsByCourse = Caffeine.newBuilder()
+                .maximumSize(maxCourses)
+                .expireAfterWrite(ttl)
+                .build(this::loadStudentIds);
+    }
+
+    /**
+     * Check whether a student is enrolled in a course
+     *
+     * @param courseId The course ID
+     * @param studentId The student user ID
+     * @return true if enrolled
+     */
+    public boolean isEnrolled(Long courseId, Long studentId) {
+        if (courseId == null || studentId == null) {
+            return false;
+        }
+        return Arrays.binarySearch(studentIdsByCourse.get(courseId), studentId) >= 0;
+    }
+
+    /**
+     * Drop the cached enrollment of a course after it changed
+     *
+     * @param courseId The course ID
+     */
+    public void evict(Long courseId) {
+        studentIdsByCourse.invalidate(courseId);
+    }
+
+    private long[] loadStudentIds(Long courseId) {
+        List<Long> ids = courseRepository.findStudentIdsByCourseId(courseId);
+        if (ids.isEmpty()) {
+            return EMPTY;
+        }
+        // The query orders by id, so the array is ready for binary search
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+}
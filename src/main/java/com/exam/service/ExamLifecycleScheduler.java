@@ -0,0 +1,149 @@
+package com.exam.service;
+
+import com.exam.dal.dto.ExamWindow;
+import com.exam.dal.model.Exam;
+import com.exam.dal.model.ExamStatus;
+import com.exam.dal.repository.ExamRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Moves published exams through SCHEDULED, ACTIVE and COMPLETED as their time windows open and close.
+ * <p>
+ * Start and end times within the horizon are loaded into a {@link TimerWheel}. When a boundary is
+ * reached, every exam due for a transition is updated in one bulk update per status and an
+ * {@link ExamStatusChangedEvent} is published. The same transitions also run on each reload, which
+ * catches boundaries missed while the application was down or set on another node.
+ */
+@Service
+@Slf4j
+public class ExamLifecycleScheduler {
+
+    private static final Set<ExamStatus> NOT_STARTED = EnumSet.of(ExamStatus.SCHEDULED);
+    private static final Set<ExamStatus> NOT_ENDED = EnumSet.of(ExamStatus.SCHEDULED, ExamStatus.ACTIVE);
+    private static final int BATCH_SIZE = 500;
+
+    private final ExamRepository examRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration horizon;
+    private final TimerWheel<Long> wheel;
+
+    // Boundaries up to this time are in the wheel, guarded by this
+    private LocalDateTime loadedUntil;
+
+    public ExamLifecycleScheduler(
+            ExamRepository examRepository,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${app.exam-lifecycle.tick:1000}") long tickMillis,
+            @Value("${app.exam-lifecycle.horizon:6h}") Duration horizon) {
+        this.examRepository = examRepository;
+        this.eventPublisher = eventPublisher;
+        this.horizon = horizon;
+        // Twice the horizon leaves room for the wheel lagging behind the clock
+        this.wheel = new TimerWheel<>(tickMillis, horizon.toMillis() * 2, System.currentTimeMillis());
+    }
+
+    /**
+     * Give existing exams a status, then load the first horizon of boundaries
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        int backfilled = examRepository.backfillStatus();
+        if (backfilled > 0) {
+            log.info("Assigned a status to {} exams", backfilled);
+        }
+        reload();
+    }
+
+    /**
+     * Load the boundaries that entered the horizon since the last reload and apply any overdue transitions
+     */
+    @Scheduled(fixedDelayString = "${app.exam-lifecycle.reload-interval:600000}",
+            initialDelayString = "${app.exam-lifecycle.reload-interval:600000}")
+    public void reload() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plus(horizon);
+
+        LocalDateTime from;
+        synchronized (this) {
+            from = loadedUntil != null ? loadedUntil : now;
+        }
+
+        List<ExamWindow> windows = examRepository.findWindowsWithBoundaryBetween(from, until);
+        synchronized (this) {
+            loadedUntil = until;
+            windows.forEach(this::scheduleBoundaries);
+        }
+        log.debug("Loaded {} exam windows up to {}", windows.size(), until);
+
+        applyDueTransitions(now);
+    }
+
+    /**
+     * Advance the wheel and apply the transitions of any boundary reached since the last tick
+     */
+    @Scheduled(fixedDelayString = "${app.exam-lifecycle.tick:1000}")
+    public void tick() {
+        List<Long> reached;
+        synchronized (this) {
+            reached = wheel.advance(System.currentTimeMillis());
+        }
+
+        if (!reached.isEmpty()) {
+            log.debug("Reached boundaries of exams {}", reached);
+            applyDueTransitions(LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Follow an exam whose status or time window was just set by a user: schedule its boundaries
+     * and announce its new status
+     *
+     * @param exam The saved exam
+     */
+    public void track(Exam exam) {
+        if (exam.isPublished()) {
+            synchronized (this) {
+                scheduleBoundaries(new ExamWindow(exam.getId(), exam.getStartTime(), exam.getEndTime()));
+            }
+        }
+        eventPublisher.publishEvent(new ExamStatusChangedEvent(List.of(exam.getId()), exam.getStatus()));
+    }
+
+    private void applyDueTransitions(LocalDateTime now) {
+        transition(examRepository.findIdsRunningAt(NOT_STARTED, now), NOT_STARTED, ExamStatus.ACTIVE);
+        transition(examRepository.findIdsEndedAt(NOT_ENDED, now), NOT_ENDED, ExamStatus.COMPLETED);
+    }
+
+    private void transition(List<Long> ids, Set<ExamStatus> from, ExamStatus to) {
+        for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+            List<Long> batch = List.copyOf(ids.subList(i, Math.min(i + BATCH_SIZE, ids.size())));
+            int updated = examRepository.updateStatus(batch, from, to);
+            log.info("Moved {} exams to {}", updated, to);
+            eventPublisher.publishEvent(new ExamStatusChangedEvent(batch, to));
+        }
+    }
+
+    // Callers hold the lock
+    private void scheduleBoundaries(ExamWindow window) {
+        LocalDateTime limit = loadedUntil != null ? loadedUntil : LocalDateTime.now().plus(horizon);
+        for (LocalDateTime boundary : new LocalDateTime[]{window.getStartTime(), window.getEndTime()}) {
+            // Boundaries past the loaded range are picked up by a later reload
+            if (boundary != null && !boundary.isAfter(limit)) {
+                wheel.schedule(boundary.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), window.getExamId());
+            }
+        }
+    }
+}
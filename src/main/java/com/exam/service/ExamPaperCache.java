@@ -0,0 +1,117 @@
+package com.exam.service;
+
+import com.exam.dal.dto.ExamPaper;
+import com.exam.dal.dto.RenderedPaper;
+import com.exam.dal.model.Exam;
+import com.exam.dal.repository.QuestionRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Keeps immutable question papers of published exams, so students opening the same exam
+ * share one snapshot instead of each loading the questions and options again.
+ * Each paper is serialized when it is built, once with and once without the answer key,
+ * so serving it is a plain byte copy.
+ * Only published exams are cached; drafts are always built from the database.
+ * Changes evict the paper on the node that made them; other nodes rebuild it when it expires.
+ */
+@Service
+@Slf4j
+public class ExamPaperCache {
+
+    private final QuestionRepository questionRepository;
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, ExamPaper> papers;
+
+    public ExamPaperCache(
+            QuestionRepository questionRepository,
+            ObjectMapper objectMapper,
+            @Value("${app.exam-paper-cache.max-size:1000}") long maxSize,
+            @Value("${app.exam-paper-cache.ttl:1m}") Duration ttl) {
+        this.questionRepository = questionRepository;
+        this.objectMapper = objectMapper;
+        this.papers = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Get the cached paper of a published exam
+     *
+     * @param examId The exam ID
+     * @return The paper, or null if it is not cached
+     */
+    public ExamPaper getIfPresent(Long examId) {
+        return papers.getIfPresent(examId);
+    }
+
+    /**
+     * Get the paper of an exam, building and caching it if the exam is published
+     *
+     * @param exam The exam
+     * @return The paper
+     */
+    public ExamPaper getPaper(Exam exam) {
+        if (!exam.isPublished()) {
+            return build(exam);
+        }
+        return papers.get(exam.getId(), id -> build(exam));
+    }
+
+    /**
+     * Build and cache the paper of an exam that is being published
+     *
+     * @param exam The published exam
+     * @return The paper
+     */
+    public ExamPaper publish(Exam exam) {
+        ExamPaper paper = build(exam);
+        papers.put(exam.getId(), paper);
+        return paper;
+    }
+
+    /**
+     * Drop the paper of an exam whose questions or publication changed. Inside a transaction the
+     * entry is dropped again after commit, so a paper rebuilt by a concurrent reader from the
+     * not yet committed state does not survive.
+     *
+     * @param examId The exam ID
+     */
+    public void evict(Long examId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    papers.invalidate(examId);
+                }
+            });
+        }
+        papers.invalidate(examId);
+    }
+
+    private ExamPaper build(Exam exam) {
+        log.debug("Building question paper for exam {}", exam.getId());
+        ExamPaper paper = ExamPaper.of(exam, questionRepository.findByExamIdWithOptions(exam.getId()));
+        return paper
+                .withFullView(render(paper.getQuestions()))
+                .withStudentView(render(paper.redactedQuestions()));
+    }
+
+    private RenderedPaper render(Object questions) {
+        try {
+            return RenderedPaper.of(objectMapper.writeValueAsBytes(questions));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize exam paper", e);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.exam.service;
+
+import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.CompiledAnswerKey;
+import com.exam.dal.dto.RegradeProgress;
+import com.exam.dal.model.Exam;
+import com.exam.dal.model.Role;
+import com.exam.dal.model.Score;
+import com.exam.dal.model.User;
+import com.exam.dal.repository.ExamRepository;
+import com.exam.dal.repository.RegradeRepository;
+import com.exam.dal.repository.RegradeRepository.GradedSubmission;
+import com.exam.dal.repository.RegradeRepository.ScoreUpdate;
+import com.exam.exception.ConflictException;
+import com.exam.exception.ResourceNotFoundException;
+import com.exam.exception.UnauthorizedAccessException;
+import com.exam.security.CurrentUserProvider;
+import com.exam.service.grading.GradingEngine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-grades an exam's submissions after a teacher corrected its answer key or
+ * marks. A job reads the submissions in keyset chunks, scores each chunk in parallel on a
+ * fork-join pool against the exam's compiled answer key and writes the changed scores in one
+ * batched transaction per chunk, so a large exam takes a few statements per thousand submissions.
+ * <p>
+ * A score set by a teacher keeps the teacher's marks on top of the automatic ones, which may be
+ * for essays, and takes the new automatic marks. Scores given by a teacher before the automatic
+ * marks were kept cannot be split and are left as they are, the job reports how many. The exam's
+ * statistics are rebuilt once the scores are written. Progress is kept in memory, for the last
+ * job of each exam.
+ */
+@Service
+@Slf4j
+public class ExamRegradeService {
+
+    private final ExamRepository examRepository;
+    private final ExamPaperCache examPaperCache;
+    private final RegradeRepository regradeRepository;
+    private final CurrentUserProvider currentUserProvider;
+    private final GradingEngine gradingEngine;
+    private final ExamStatisticsService examStatisticsService;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final ExecutorService jobRunner;
+    private final ForkJoinPool scoringPool;
+
+    private final Map<Long, Job> jobs = new ConcurrentHashMap<>();
+
+    public ExamRegradeService(
+            ExamRepository examRepository,
+            ExamPaperCache examPaperCache,
+            RegradeRepository regradeRepository,
+            CurrentUserProvider currentUserProvider,
+            GradingEngine gradingEngine,
+            ExamStatisticsService examStatisticsService,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.regrade.chunk-size:1000}") int chunkSize,
+            @Value("${app.regrade.concurrent-jobs:2}") int concurrentJobs,
+            @Value("${app.regrade.parallelism:0}") int parallelism) {
+        this.examRepository = examRepository;
+        this.examPaperCache = examPaperCache;
+        this.regradeRepository = regradeRepository;
+        this.currentUserProvider = currentUserProvider;
+        this.gradingEngine = gradingEngine;
+        this.examStatisticsService = examStatisticsService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+
+        AtomicInteger threads = new AtomicInteger();
+        this.jobRunner = Executors.newFixedThreadPool(concurrentJobs,
+                runnable -> new Thread(runnable, "exam-regrade-" + threads.incrementAndGet()));
+        this.scoringPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Start re-grading an exam
+     *
+     * @param examId The exam ID
+     * @return The progress of the new job
+     * @throws ConflictException if the exam is already being re-graded
+     */
+    @Transactional(readOnly = true)
+    public RegradeProgress start(Long examId) {
+        validateRegradeAccess(examId);
+
+        Job job = new Job(examId);
+        Job current = jobs.compute(examId, (id, existing) -> existing != null && existing.isActive() ? existing : job);
+        if (current != job) {
+            throw new ConflictException("This exam is already being re-graded");
+        }
+
+        jobRunner.submit(() -> run(job));
+        log.info("Queued re-grade of exam {}", examId);
+        return job.progress();
+    }
+
+    /**
+     * Get the progress of the last re-grade of an exam
+     *
+     * @param examId The exam ID
+     * @return The progress
+     */
+    @Transactional(readOnly = true)
+    public RegradeProgress getProgress(Long examId) {
+        validateRegradeAccess(examId);
+
+        Job job = jobs.get(examId);
+        if (job == null) {
+            throw new ResourceNotFoundException("No re-grade found for exam with id: " + examId);
+        }
+        return job.progress();
+    }
+
+    @PreDestroy
+    public void stop() {
+        jobRunner.shutdownNow();
+        scoringPool.shutdownNow();
+    }
+
+    private void run(Job job) {
+        Long examId = job.examId;
+        try {
+            // Built now rather than when queued, so it has every change made until the job starts
+            Grading grading = transactionTemplate.execute(status -> {
+                Exam exam = examRepository.findById(examId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+                return new Grading(examPaperCache.getPaper(exam).getAnswerKey(), exam.getTotalMarks());
+            });
+            job.started(regradeRepository.countRegradable(examId), regradeRepository.countStale(examId));
+
+            long afterId = 0;
+            List<GradedSubmission> chunk;
+            while (!(chunk = regradeRepository.findRegradable(examId, afterId, chunkSize)).isEmpty()) {
+                afterId = chunk.get(chunk.size() - 1).getSubmissionId();
+                Map<Long, List<AnswerRequest>> answers = regradeRepository.findAnswers(chunk.stream()
+                        .map(GradedSubmission::getSubmissionId)
+                        .toList());
+
+                List<GradedSubmission> scored = chunk;
+                List<ScoreUpdate> updates = scoringPool.submit(() -> scored.parallelStream()
+                        .map(submission -> rescore(submission, answers.getOrDefault(submission.getSubmissionId(), List.of()), grading))
+                        .filter(Objects::nonNull)
+                        .toList()).get();
+
+                transactionTemplate.executeWithoutResult(status -> regradeRepository.updateScores(updates, LocalDateTime.now()));
+                job.chunkDone(chunk.size(), updates.size());
+            }
+
+            examStatisticsService.rebuild(examId);
+            if (job.stale > 0) {
+                log.warn("Re-grade of exam {} left {} submissions graded by a teacher with their old score", examId, job.stale);
+                job.finish(RegradeProgress.Status.COMPLETED, job.stale + " submissions graded by a teacher " +
+                        "kept their old score, grade them again to apply the corrected key");
+            } else {
+                job.finish(RegradeProgress.Status.COMPLETED, null);
+            }
+            log.info("Re-graded exam {}: {} submissions, {} changed", examId, job.processed, job.changed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish(RegradeProgress.Status.FAILED, "Re-grade was interrupted");
+        } catch (ExecutionException | RuntimeException e) {
+            log.error("Re-grade of exam {} failed", examId, e);
+            job.finish(RegradeProgress.Status.FAILED, "Re-grade failed after " + job.processed + " submissions");
+            rebuildStatistics(examId);
+        }
+    }
+
+    /**
+     * Score a submission against the current key
+     *
+     * @return The new score, or null if it is unchanged
+     */
+    private ScoreUpdate rescore(GradedSubmission submission, List<AnswerRequest> answers, Grading grading) {
+        double autoScore = gradingEngine.score(grading.answerKey, answers);
+        double totalScore = autoScore;
+        if (submission.isGradedByTeacher()) {
+            // The teacher's marks on top of the automatic ones are kept
+            totalScore = Math.max(0, submission.getTotalScore() - submission.getAutoScore() + autoScore);
+            if (grading.totalMarks != null) {
+                totalScore = Math.min(totalScore, grading.totalMarks);
+            }
+        }
+
+        // Same percentage, reading and status as a score graded at submit
+        Score score = new Score();
+        score.setTotalScore(totalScore);
+        score.calculatePercentageScore(grading.totalMarks);
+
+        if (totalScore == submission.getTotalScore() && Objects.equals(score.getPercentageScore(), submission.getPercentageScore())
+                && Objects.equals(autoScore, submission.getAutoScore())) {
+            return null;
+        }
+        return new ScoreUpdate(submission.getSubmissionId(), totalScore, score.getPercentageScore(), score.getReading(),
+                score.getStatus() != null ? score.getStatus().name() : Score.ScoreStatus.PENDING.name(),
+                autoScore, submission.getTotalScore(), submission.isGradedByTeacher());
+    }
+
+    /**
+     * Rebuild the statistics of an exam left partly re-graded, the chunks written so far count
+     */
+    private void rebuildStatistics(Long examId) {
+        try {
+            examStatisticsService.rebuild(examId);
+        } catch (RuntimeException e) {
+            log.error("Could not rebuild the statistics of exam {}", examId, e);
+        }
+    }
+
+    private void validateRegradeAccess(Long examId) {
+        Exam exam = examRepository.findById(examId)
+                .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+        User currentUser = currentUserProvider.getCurrentUser();
+
+        if (!exam.getCourse().getTeacher().getId().equals(currentUser.getId()) &&
+                currentUser.getRole() != Role.ADMIN) {
+            throw new UnauthorizedAccessException("You don't have permission to re-grade this exam");
+        }
+    }
+
+    private static class Grading {
+        private final CompiledAnswerKey answerKey;
+        private final Double totalMarks;
+
+        Grading(CompiledAnswerKey answerKey, Double totalMarks) {
+            this.answerKey = answerKey;
+            this.totalMarks = totalMarks;
+        }
+    }
+
+    private static class Job {
+        private final Long examId;
+        private volatile RegradeProgress.Status status = RegradeProgress.Status.QUEUED;
+        private volatile long total;
+        private volatile long stale;
+        private final AtomicLong processedCount = new AtomicLong();
+        private final AtomicLong changedCount = new AtomicLong();
+        private volatile long processed;
+        private volatile long changed;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String message;
+
+        Job(Long examId) {
+            this.examId = examId;
+        }
+
+        boolean isActive() {
+            return status == RegradeProgress.Status.QUEUED || status == RegradeProgress.Status.RUNNING;
+        }
+
+        void started(long total, long stale) {
+            this.total = total;
+            this.stale = stale;
+            this.startedAt = LocalDateTime.now();
+            this.status = RegradeProgress.Status.RUNNING;
+        }
+
+        void chunkDone(int submissions, int updated) {
+            processed = processedCount.addAndGet(submissions);
+            changed = changedCount.addAndGet(updated);
+        }
+
+        void finish(RegradeProgress.Status status, String message) {
+            this.message = message;
+            this.finishedAt = LocalDateTime.now();
+            this.status = status;
+        }
+
+        RegradeProgress progress() {
+            return RegradeProgress.builder()
+                    .examId(examId)
+                    .status(status)
+                    .total(Math.max(total, processed))
+                    .processed(processed)
+                    .changed(changed)
+                    .stale(stale)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .message(message)
+                    .build();
+        }
+    }
+}
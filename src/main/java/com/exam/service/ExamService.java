@@ -1,15 +1,17 @@
 package com.exam.service;
 
 import com.exam.dal.dto.ExamRequest;
+import com.exam.dal.dto.ExamSummary;
+import com.exam.dal.dto.KeysetCursor;
+import com.exam.dal.dto.KeysetPage;
 import com.exam.dal.model.*;
 import com.exam.dal.repository.CourseRepository;
 import com.exam.dal.repository.ExamRepository;
 import com.exam.dal.repository.SubmissionRepository;
-import com.exam.dal.repository.UserRepository;
 import com.exam.exception.ResourceNotFoundException;
+import com.exam.security.CurrentUserProvider;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -18,7 +20,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -27,75 +28,92 @@ public class ExamService {
     private final ExamRepository examRepository;
     private final CourseRepository courseRepository;
     private final SubmissionRepository submissionRepository;
-    private final UserRepository userRepository;
+    private final CurrentUserProvider currentUserProvider;
+    private final EnrollmentIndex enrollmentIndex;
+    private final ExamPaperCache examPaperCache;
+    private final ExamLifecycleScheduler examLifecycleScheduler;
+    private final ExamStatisticsService examStatisticsService;
 
     /**
      * Gets all exams, filtered based on the user's role
      *
-     * @return List of exams the user has access to
+     * @param cursor Cursor of the previous page, or null for the first page
+     * @param size Page size, or null to return every exam
+     * @return Page of exams the user has access to, ordered by id
      */
-    public List<Exam> getAllExams() {
-        User currentUser = getCurrentUser();
+    public KeysetPage<Exam> getAllExams(String cursor, Integer size) {
+        User currentUser = currentUserProvider.getCurrentUser();
+        long afterId = afterId(KeysetCursor.decode(cursor));
+        Pageable limit = KeysetPage.limit(size);
 
+        List<Exam> exams;
         if (currentUser.getRole() == Role.ADMIN) {
-            return examRepository.findAll();
+            exams = examRepository.findAllAfter(afterId, limit);
         } else if (currentUser.getRole() == Role.TEACHER) {
-            return examRepository.findAll().stream()
-                    .filter(exam -> exam.getCourse().getTeacher().getId().equals(currentUser.getId()))
-                    .collect(Collectors.toList());
+            exams = examRepository.findByTeacherAfter(currentUser.getId(), afterId, limit);
         } else {
-            return examRepository.findAll().stream()
-                    .filter(Exam::isPublished)
-                    .filter(exam -> exam.getCourse().getStudents().contains(currentUser))
-                    .collect(Collectors.toList());
+            exams = examRepository.findPublishedForStudentAfter(currentUser.getId(), afterId, limit);
         }
+
+        return KeysetPage.of(exams, size, exam -> KeysetCursor.ofId(exam.getId()));
     }
 
     /**
      * Gets all exams created by the current teacher
      *
-     * @return List of exams created by the teacher
+     * @param cursor Cursor of the previous page, or null for the first page
+     * @param size Page size, or null to return every exam
+     * @return Page of exams created by the teacher, ordered by id
      */
-    public List<Exam> getTeacherExams() {
-        User currentUser = getCurrentUser();
-        return examRepository.findAll().stream()
-                .filter(exam -> exam.getCourse().getTeacher().getId().equals(currentUser.getId()))
-                .collect(Collectors.toList());
+    public KeysetPage<Exam> getTeacherExams(String cursor, Integer size) {
+        User currentUser = currentUserProvider.getCurrentUser();
+        List<Exam> exams = examRepository.findByTeacherAfter(
+                currentUser.getId(), afterId(KeysetCursor.decode(cursor)), KeysetPage.limit(size));
+        return KeysetPage.of(exams, size, exam -> KeysetCursor.ofId(exam.getId()));
     }
 
     /**
      * Gets all upcoming exams for the current student.
      * Upcoming exams are published exams that haven't started yet.
      *
-     * @return List of upcoming exams
+     * @param cursor Cursor of the previous page, or null for the first page
+     * @param size Page size, or null to return every exam
+     * @return Page of upcoming exams, ordered by start time
      */
-    public List<Exam> getUpcomingExams() {
-        User currentUser = getCurrentUser();
+    public KeysetPage<Exam> getUpcomingExams(String cursor, Integer size) {
+        User currentUser = currentUserProvider.getCurrentUser();
         LocalDateTime now = LocalDateTime.now();
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        List<Exam> exams = examRepository.findUpcomingForStudent(
+                currentUser.getId(),
+                after != null && after.getPosition() != null ? after.getPosition() : now,
+                after != null && after.getPosition() != null ? after.getId() : Long.MAX_VALUE,
+                KeysetPage.limit(size));
 
-        return examRepository.findAll().stream()
-                .filter(Exam::isPublished)
-                .filter(exam -> exam.getStartTime().isAfter(now))
-                .filter(exam -> exam.getCourse().getStudents().contains(currentUser))
-                .collect(Collectors.toList());
+        return KeysetPage.of(exams, size, exam -> new KeysetCursor(exam.getStartTime(), exam.getId()));
     }
 
     /**
      * Gets all currently available exams for the current student.
      * Available exams are published exams that are currently running and haven't been submitted yet.
      *
-     * @return List of available exams
+     * @param cursor Cursor of the previous page, or null for the first page
+     * @param size Page size, or null to return every exam
+     * @return Page of available exam summaries, ordered by id
      */
-    public List<Exam> getAvailableExams() {
-        User currentUser = getCurrentUser();
-        LocalDateTime now = LocalDateTime.now();
+    public KeysetPage<ExamSummary> getAvailableExams(String cursor, Integer size) {
+        User currentUser = currentUserProvider.getCurrentUser();
+
+        // Already submitted exams are excluded by the query itself, so every page is full
+        List<ExamSummary> exams = examRepository.findAvailableForStudent(
+                currentUser.getId(), afterId(KeysetCursor.decode(cursor)), KeysetPage.limit(size));
 
-        return examRepository.findAll().stream()
-                .filter(Exam::isPublished)
-                .filter(exam -> exam.getStartTime().isBefore(now) && exam.getEndTime().isAfter(now))
-                .filter(exam -> exam.getCourse().getStudents().contains(currentUser))
-                .filter(exam -> submissionRepository.findByStudentAndExam(currentUser, exam).isEmpty())
-                .collect(Collectors.toList());
+        return KeysetPage.of(exams, size, exam -> KeysetCursor.ofId(exam.getId()));
+    }
+
+    private static long afterId(KeysetCursor cursor) {
+        return cursor != null ? cursor.getId() : 0L;
     }
 
 //    /**
@@ -104,7 +122,7 @@ public class ExamService {
 //     * @return List of maps containing exam and submission details
 //     */
 //    public List<Map<String, Object>> getCompletedExamsWithResults() {
-//        User currentUser = getCurrentUser();
+//        User currentUser = currentUserProvider.getCurrentUser();
 //        List<Submission> submissions = submissionRepository.findByStudent(currentUser);
 //
 //        List<Map<String, Object>> results = new ArrayList<>();
@@ -153,11 +171,11 @@ public class ExamService {
         Exam exam = examRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + id));
 
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         if (currentUser.getRole() == Role.ADMIN ||
                 exam.getCourse().getTeacher().getId().equals(currentUser.getId()) ||
-                (exam.isPublished() && exam.getCourse().getStudents().contains(currentUser))) {
+                (exam.isPublished() && enrollmentIndex.isEnrolled(exam.getCourse().getId(), currentUser.getId()))) {
             return exam;
         } else {
             throw new RuntimeException("You don't have permission to view this exam");
@@ -174,12 +192,12 @@ public class ExamService {
         Course course = courseRepository.findById(courseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Course not found with id: " + courseId));
 
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         if (currentUser.getRole() == Role.ADMIN ||
                 course.getTeacher().getId().equals(currentUser.getId())) {
             return examRepository.findByCourse(course);
-        } else if (course.getStudents().contains(currentUser)) {
+        } else if (enrollmentIndex.isEnrolled(course.getId(), currentUser.getId())) {
             return examRepository.findByCourseAndPublishedTrue(course);
         } else {
             throw new RuntimeException("You are not enrolled in this course");
@@ -195,7 +213,7 @@ public class ExamService {
      * @throws RuntimeException if the user doesn't have permission
      */
     public Exam createExam(ExamRequest examRequest) {
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         Course course = courseRepository.findById(examRequest.getCourseId())
                 .orElseThrow(() -> new ResourceNotFoundException("Course not found with id: " + examRequest.getCourseId()));
@@ -212,10 +230,14 @@ public class ExamService {
                 .endTime(examRequest.getEndTime())
                 .durationMinutes(examRequest.getDurationMinutes())
                 .published(false)
+                .status(ExamStatus.DRAFT)
+                .totalMarks(0.0)
                 .course(course)
                 .build();
 
-        return examRepository.save(exam);
+        Exam saved = examRepository.save(exam);
+        examStatisticsService.examCreated(saved.getId());
+        return saved;
     }
 
     /**
@@ -229,7 +251,7 @@ public class ExamService {
      */
     public Exam updateExam(Long id, ExamRequest examRequest) {
         Exam exam = getExamById(id);
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         if (!exam.getCourse().getTeacher().getId().equals(currentUser.getId()) &&
                 currentUser.getRole() != Role.ADMIN) {
@@ -237,6 +259,7 @@ public class ExamService {
         }
 
         // If course is changing, verify permissions
+        Long previousCourseId = null;
         if (!exam.getCourse().getId().equals(examRequest.getCourseId())) {
             Course newCourse = courseRepository.findById(examRequest.getCourseId())
                     .orElseThrow(() -> new ResourceNotFoundException("Course not found with id: " + examRequest.getCourseId()));
@@ -246,6 +269,7 @@ public class ExamService {
                 throw new RuntimeException("You don't have permission to move this exam to the specified course");
             }
 
+            previousCourseId = exam.getCourse().getId();
             exam.setCourse(newCourse);
         }
 
@@ -254,8 +278,17 @@ public class ExamService {
         exam.setStartTime(examRequest.getStartTime());
         exam.setEndTime(examRequest.getEndTime());
         exam.setDurationMinutes(examRequest.getDurationMinutes());
+        if (exam.isPublished()) {
+            exam.setStatus(exam.statusAt(LocalDateTime.now()));
+        }
 
-        return examRepository.save(exam);
+        Exam saved = examRepository.save(exam);
+        examPaperCache.evict(id);
+        examLifecycleScheduler.track(saved);
+        if (previousCourseId != null) {
+            examStatisticsService.examMoved(previousCourseId, saved);
+        }
+        return saved;
     }
 
     /**
@@ -267,7 +300,7 @@ public class ExamService {
      */
     public void deleteExam(Long id) {
         Exam exam = getExamById(id);
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         if (!exam.getCourse().getTeacher().getId().equals(currentUser.getId()) &&
                 currentUser.getRole() != Role.ADMIN) {
@@ -275,6 +308,8 @@ public class ExamService {
         }
 
         examRepository.delete(exam);
+        examPaperCache.evict(id);
+        examStatisticsService.examDeleted(exam);
     }
 
     /**
@@ -287,7 +322,7 @@ public class ExamService {
      */
     public Exam publishExam(Long id) {
         Exam exam = getExamById(id);
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         if (!exam.getCourse().getTeacher().getId().equals(currentUser.getId()) &&
                 currentUser.getRole() != Role.ADMIN) {
@@ -299,7 +334,13 @@ public class ExamService {
         }
 
         exam.setPublished(true);
-        return examRepository.save(exam);
+        exam.setStatus(exam.statusAt(LocalDateTime.now()));
+        Exam saved = examRepository.save(exam);
+        examLifecycleScheduler.track(saved);
+
+        // Build the paper once now, instead of on the first student's request
+        examPaperCache.publish(saved);
+        return saved;
     }
 
     /**
@@ -312,7 +353,7 @@ public class ExamService {
      */
     public Exam unpublishExam(Long id) {
         Exam exam = getExamById(id);
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         if (!exam.getCourse().getTeacher().getId().equals(currentUser.getId()) &&
                 currentUser.getRole() != Role.ADMIN) {
@@ -320,35 +361,29 @@ public class ExamService {
         }
 
         exam.setPublished(false);
-        return examRepository.save(exam);
-    }
-
-    /**
-     * Gets the currently authenticated user
-     *
-     * @return The user entity
-     * @throws RuntimeException if the user is not found
-     */
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        exam.setStatus(ExamStatus.DRAFT);
+        Exam saved = examRepository.save(exam);
+        examPaperCache.evict(id);
+        examLifecycleScheduler.track(saved);
+        return saved;
     }
 
-
     /**
      * Gets all completed exams with their results for the current student.
      *
      * @return List of maps containing exam and submission details
      */
     public List<Map<String, Object>> getCompletedExamsWithResults() {
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
         List<Submission> submissions = submissionRepository.findByStudent(currentUser);
 
         List<Map<String, Object>> results = new ArrayList<>();
 
         for (Submission submission : submissions) {
+            // Drafts still being answered are not completed
+            if (submission.getStatus() == SubmissionStatus.IN_PROGRESS) {
+                continue;
+            }
             Exam exam = submission.getExam();
 
             Map<String, Object> examResult = new HashMap<>();
@@ -0,0 +1,548 @@
+package com.exam.service;
+
+import com.exam.dal.dto.ExamStats;
+import com.exam.dal.dto.GradedScore;
+import com.exam.dal.dto.PercentileRank;
+import com.exam.dal.dto.ScorePercentiles;
+import com.exam.dal.model.Course;
+import com.exam.dal.model.CourseStatistics;
+import com.exam.dal.model.Exam;
+import com.exam.dal.model.ExamStatistics;
+import com.exam.dal.model.Role;
+import com.exam.dal.model.Score;
+import com.exam.dal.model.Submission;
+import com.exam.dal.model.User;
+import com.exam.dal.repository.CourseRepository;
+import com.exam.dal.repository.CourseStatisticsRepository;
+import com.exam.dal.repository.ExamRepository;
+import com.exam.dal.repository.ExamStatisticsRepository;
+import com.exam.dal.repository.SubmissionRepository;
+import com.exam.exception.ResourceNotFoundException;
+import com.exam.exception.UnauthorizedAccessException;
+import com.exam.exception.ValidationException;
+import com.exam.security.CurrentUserProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Keeps each exam's {@link ExamStatistics} up to date as its submissions are submitted and graded,
+ * so a dashboard reads one row instead of the submissions. Changes are collected for the
+ * transaction making them and applied just before it commits, locking each exam's row in exam ID
+ * order: a transaction saving a batch of submissions updates each row once, and concurrent ones
+ * cannot deadlock on the rows.
+ * <p>
+ * The percentage scores are also kept in a {@link QuantileSketch} per exam and per course, for
+ * percentiles and percentile ranks. Course rows are locked after all exam rows, also in ID order.
+ * A sketch cannot take a score back, so a re-graded score's old value stays in it until replaced
+ * scores are more than {@link #STALE_FRACTION} of it, and then the exam's sketch is rebuilt from the
+ * scores and the course's from the exam sketches. That keeps re-grading cheap under the row lock and
+ * moves a rank by at most that fraction, on top of the sketch's own error.
+ * <p>
+ * A re-grade rewrites scores in bulk, so its exam's statistics are rebuilt from the scores when
+ * it ends. Rebuilding is also how exams without statistics get them, and how an admin repairs them.
+ */
+@Service
+@Slf4j
+public class ExamStatisticsService {
+
+    private static final int PAGE_SIZE = 500;
+    private static final int MAX_PERCENTILES = 100;
+    private static final double STALE_FRACTION = 0.005;
+
+    // Documented error of percentiles and percentile ranks, in percentile points
+    private static final double RANK_ERROR = (QuantileSketch.RANK_ERROR + STALE_FRACTION) * 100;
+
+    private final ExamRepository examRepository;
+    private final ExamStatisticsRepository examStatisticsRepository;
+    private final CourseRepository courseRepository;
+    private final CourseStatisticsRepository courseStatisticsRepository;
+    private final SubmissionRepository submissionRepository;
+    private final CurrentUserProvider currentUserProvider;
+    private final TransactionTemplate transactionTemplate;
+
+    public ExamStatisticsService(
+            ExamRepository examRepository,
+            ExamStatisticsRepository examStatisticsRepository,
+            CourseRepository courseRepository,
+            CourseStatisticsRepository courseStatisticsRepository,
+            SubmissionRepository submissionRepository,
+            CurrentUserProvider currentUserProvider,
+            PlatformTransactionManager transactionManager) {
+        this.examRepository = examRepository;
+        this.examStatisticsRepository = examStatisticsRepository;
+        this.courseRepository = courseRepository;
+        this.courseStatisticsRepository = courseStatisticsRepository;
+        this.submissionRepository = submissionRepository;
+        this.currentUserProvider = currentUserProvider;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Get the statistics of an exam
+     *
+     * @param examId The exam ID
+     * @return The submission counts and score statistics
+     */
+    @Transactional
+    public ExamStats getExamStats(Long examId) {
+        Exam exam = examRepository.findById(examId)
+                .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+        checkTeacher(exam.getCourse());
+
+        return ExamStats.of(examStatisticsRepository.findById(examId)
+                .orElseGet(() -> rebuild(examId)));
+    }
+
+    /**
+     * Get percentiles of the percentage scores of an exam
+     *
+     * @param examId The exam ID
+     * @param percentiles The percentiles, from 0 to 100
+     * @return The percentage score at each percentile, estimated within the documented rank error
+     */
+    @Transactional
+    public ScorePercentiles getExamPercentiles(Long examId, List<Double> percentiles) {
+        checkPercentiles(percentiles);
+        Exam exam = examRepository.findById(examId)
+                .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+        checkTeacher(exam.getCourse());
+
+        ExamStatistics statistics = examStatisticsRepository.findById(examId)
+                .orElseGet(() -> rebuild(examId));
+        return percentiles(statistics.getScoreSketch(), statistics.getSketchStale(), percentiles)
+                .examId(examId)
+                .courseId(exam.getCourse().getId())
+                .updatedAt(statistics.getUpdatedAt())
+                .build();
+    }
+
+    /**
+     * Get percentiles of the percentage scores of all exams of a course
+     *
+     * @param courseId The course ID
+     * @param percentiles The percentiles, from 0 to 100
+     * @return The percentage score at each percentile, estimated within the documented rank error
+     */
+    @Transactional
+    public ScorePercentiles getCoursePercentiles(Long courseId, List<Double> percentiles) {
+        checkPercentiles(percentiles);
+        Course course = courseRepository.findById(courseId)
+                .orElseThrow(() -> new ResourceNotFoundException("Course not found with id: " + courseId));
+        checkTeacher(course);
+
+        CourseStatistics statistics = courseStatisticsRepository.findById(courseId)
+                .orElseGet(() -> rebuildCourse(courseId));
+        return percentiles(statistics.getScoreSketch(), statistics.getSketchStale(), percentiles)
+                .courseId(courseId)
+                .updatedAt(statistics.getUpdatedAt())
+                .build();
+    }
+
+    /**
+     * Get the percentile rank of a graded submission among those of its exam and of its course
+     *
+     * @param submissionId The submission ID
+     * @return The ranks, null while the submission is not graded
+     */
+    @Transactional
+    public PercentileRank getPercentileRank(Long submissionId) {
+        Submission submission = submissionRepository.findById(submissionId)
+                .orElseThrow(() -> new ResourceNotFoundException("Submission not found with id: " + submissionId));
+        Exam exam = submission.getExam();
+        Long courseId = exam.getCourse().getId();
+        checkTeacher(exam.getCourse());
+
+        PercentileRank rank = PercentileRank.builder()
+                .submissionId(submissionId)
+                .examId(exam.getId())
+                .courseId(courseId)
+                .rankError(RANK_ERROR)
+                .build();
+        Double percentageScore = submission.isGraded() && submission.getScore() != null
+                ? submission.getScore().getPercentageScore()
+                : null;
+        if (percentageScore == null) {
+            return rank;
+        }
+
+        ExamStatistics examStatistics = examStatisticsRepository.findById(exam.getId())
+                .orElseGet(() -> rebuild(exam.getId()));
+        CourseStatistics courseStatistics = courseStatisticsRepository.findById(courseId)
+                .orElseGet(() -> rebuildCourse(courseId));
+        rank.setPercentageScore(percentageScore);
+        rank.setExamPercentileRank(percentileRank(examStatistics.getScoreSketch(), percentageScore));
+        rank.setCoursePercentileRank(percentileRank(courseStatistics.getScoreSketch(), percentageScore));
+        return rank;
+    }
+
+    /**
+     * Start the statistics of a new exam
+     *
+     * @param examId The exam ID
+     */
+    public void examCreated(Long examId) {
+        ExamStatistics statistics = new ExamStatistics(examId);
+        statistics.setUpdatedAt(LocalDateTime.now());
+        examStatisticsRepository.save(statistics);
+    }
+
+    /**
+     * Drop the statistics of a deleted exam and take its scores out of its course's
+     *
+     * @param exam The exam
+     */
+    public void examDeleted(Exam exam) {
+        examStatisticsRepository.deleteById(exam.getId());
+        rebuildCourse(exam.getCourse().getId());
+    }
+
+    /**
+     * Move the scores of an exam that changed course from its previous course's statistics to its new one's
+     *
+     * @param previousCourseId The ID of the course the exam was in
+     * @param exam The exam, in its new course
+     */
+    public void examMoved(Long previousCourseId, Exam exam) {
+        rebuildCourse(previousCourseId);
+        rebuildCourse(exam.getCourse().getId());
+    }
+
+    /**
+     * Start the statistics of a new course
+     *
+     * @param courseId The course ID
+     */
+    public void courseCreated(Long courseId) {
+        CourseStatistics statistics = new CourseStatistics(courseId);
+        statistics.setUpdatedAt(LocalDateTime.now());
+        courseStatisticsRepository.save(statistics);
+    }
+
+    /**
+     * Drop the statistics of a course about to be deleted, and of its exams
+     *
+     * @param courseId The course ID
+     */
+    public void courseDeleted(Long courseId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            examStatisticsRepository.deleteAll(examStatisticsRepository.findByCourseId(courseId));
+            courseStatisticsRepository.deleteById(courseId);
+        });
+    }
+
+    /**
+     * Account for a submission, when the current transaction commits
+     *
+     * @param exam The submission's exam
+     * @param score The submission's score if it was graded as it was submitted, otherwise null
+     */
+    public void submitted(Exam exam, Score score) {
+        Changes changes = changes(exam);
+        changes.submitted++;
+        if (score != null) {
+            changes.added.add(new GradedScore(score.getTotalScore(), score.getPercentageScore()));
+        }
+    }
+
+    /**
+     * Account for a submission graded by hand, when the current transaction commits
+     *
+     * @param exam The submission's exam
+     * @param previous The score the submission was counted with, null if it was not graded yet
+     * @param score The new score
+     */
+    public void graded(Exam exam, GradedScore previous, Score score) {
+        Changes changes = changes(exam);
+        if (previous != null) {
+            changes.removed.add(previous);
+        }
+        changes.added.add(new GradedScore(score.getTotalScore(), score.getPercentageScore()));
+    }
+
+    /**
+     * Recompute the statistics of an exam from its submissions, and those of its course
+     *
+     * @param examId The exam ID
+     * @return The statistics
+     * @throws ResourceNotFoundException if the exam is not found
+     */
+    public ExamStatistics rebuild(Long examId) {
+        return transactionTemplate.execute(status -> {
+            Exam exam = examRepository.findById(examId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+            ExamStatistics statistics = rebuildExam(examId);
+            rebuildCourse(exam.getCourse().getId());
+            return statistics;
+        });
+    }
+
+    /**
+     * Recompute the statistics of a course from those of its exams
+     *
+     * @param courseId The course ID
+     * @return The statistics
+     * @throws ResourceNotFoundException if the course is not found
+     */
+    public CourseStatistics rebuildCourse(Long courseId) {
+        return transactionTemplate.execute(status -> {
+            if (!courseRepository.existsById(courseId)) {
+                throw new ResourceNotFoundException("Course not found with id: " + courseId);
+            }
+            CourseStatistics statistics = courseStatisticsRepository.findByIdForUpdate(courseId)
+                    .orElseGet(() -> new CourseStatistics(courseId));
+            recompute(statistics);
+            return courseStatisticsRepository.save(statistics);
+        });
+    }
+
+    /**
+     * Recompute the statistics of every exam and course
+     *
+     * @return The number of exams rebuilt
+     */
+    public int rebuildAll() {
+        int rebuilt = 0;
+        long afterId = 0;
+        Set<Long> courseIds = new TreeSet<>();
+        List<Exam> page;
+        do {
+            page = examRepository.findAllAfter(afterId, PageRequest.of(0, PAGE_SIZE));
+            for (Exam exam : page) {
+                transactionTemplate.execute(status -> rebuildExam(exam.getId()));
+                courseIds.add(exam.getCourse().getId());
+                rebuilt++;
+                afterId = exam.getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+        // Each course once, after all of its exams
+        courseIds.forEach(this::rebuildCourse);
+
+        log.info("Rebuilt the statistics of {} exams and {} courses", rebuilt, courseIds.size());
+        return rebuilt;
+    }
+
+    /**
+     * Give exams and courses created before statistics were maintained their statistics
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        List<Long> examIds = examStatisticsRepository.findExamIdsWithoutStatistics();
+        examIds.forEach(examId -> transactionTemplate.execute(status -> rebuildExam(examId)));
+        List<Long> courseIds = courseStatisticsRepository.findCourseIdsWithoutStatistics();
+        courseIds.forEach(this::rebuildCourse);
+        if (!examIds.isEmpty() || !courseIds.isEmpty()) {
+            log.info("Built the statistics of {} exams and {} courses", examIds.size(), courseIds.size());
+        }
+    }
+
+    private ExamStatistics rebuildExam(Long examId) {
+        // Locked first, so a change committing meanwhile is either counted here or applied after
+        ExamStatistics statistics = examStatisticsRepository.findByIdForUpdate(examId)
+                .orElseGet(() -> new ExamStatistics(examId));
+        recompute(statistics);
+        return examStatisticsRepository.save(statistics);
+    }
+
+    private Changes changes(Exam exam) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Exam statistics can only change within a transaction");
+        }
+        @SuppressWarnings("unchecked")
+        Map<Long, Changes> pending = (Map<Long, Changes>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            // Sorted, so rows are locked in the same order by every transaction
+            Map<Long, Changes> changesByExam = new TreeMap<>();
+            TransactionSynchronizationManager.bindResource(this, changesByExam);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    changesByExam.forEach(ExamStatisticsService.this::apply);
+
+                    Map<Long, List<Changes>> changesByCourse = new TreeMap<>();
+                    changesByExam.values().forEach(changes -> changesByCourse
+                            .computeIfAbsent(changes.courseId, id -> new ArrayList<>())
+                            .add(changes));
+                    changesByCourse.forEach(ExamStatisticsService.this::applyToCourse);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(ExamStatisticsService.this);
+                }
+            });
+            pending = changesByExam;
+        }
+        return pending.computeIfAbsent(exam.getId(), id -> new Changes(exam.getCourse().getId()));
+    }
+
+    private void apply(Long examId, Changes changes) {
+        ExamStatistics statistics = examStatisticsRepository.findByIdForUpdate(examId).orElse(null);
+        if (statistics == null) {
+            // The submissions already include this transaction's changes
+            statistics = new ExamStatistics(examId);
+            recompute(statistics);
+            examStatisticsRepository.save(statistics);
+            changes.recomputed = true;
+            return;
+        }
+
+        statistics.setSubmitted(statistics.getSubmitted() + changes.submitted);
+        boolean rangeChanged = false;
+        for (GradedScore score : changes.removed) {
+            rangeChanged |= statistics.removeScore(score.getTotalScore(), score.getPercentageScore());
+        }
+        for (GradedScore score : changes.added) {
+            statistics.addScore(score.getTotalScore(), score.getPercentageScore());
+        }
+        if (rangeChanged && statistics.getGraded() > 0) {
+            // A removed score was the lowest or highest, only the scores themselves know what is now
+            statistics.setMinScore(submissionRepository.findLowestGradedScore(examId));
+            statistics.setMaxScore(submissionRepository.findHighestGradedScore(examId));
+        }
+
+        long stale = statistics.getSketchStale() + changes.staleScores();
+        if (stale > STALE_FRACTION * statistics.getGraded()) {
+            QuantileSketch sketch = new QuantileSketch();
+            submissionRepository.findGradedScoresByExam(examId).forEach(score -> addPercentage(sketch, score));
+            statistics.setScoreSketch(sketch.toBytes());
+            statistics.setSketchStale(0);
+        } else {
+            QuantileSketch sketch = QuantileSketch.fromBytes(statistics.getScoreSketch());
+            changes.added.forEach(score -> addPercentage(sketch, score));
+            statistics.setScoreSketch(sketch.toBytes());
+            statistics.setSketchStale(stale);
+        }
+        statistics.setUpdatedAt(LocalDateTime.now());
+    }
+
+    private void applyToCourse(Long courseId, List<Changes> changesOfExams) {
+        CourseStatistics statistics = courseStatisticsRepository.findByIdForUpdate(courseId).orElse(null);
+        boolean recomputed = changesOfExams.stream().anyMatch(changes -> changes.recomputed);
+        long stale = changesOfExams.stream().mapToLong(Changes::staleScores).sum()
+                + (statistics != null ? statistics.getSketchStale() : 0);
+        if (statistics == null || recomputed || stale > STALE_FRACTION * statistics.getScored()) {
+            // The exam sketches already include this transaction's changes
+            statistics = statistics != null ? statistics : new CourseStatistics(courseId);
+            recompute(statistics);
+            courseStatisticsRepository.save(statistics);
+            return;
+        }
+
+        QuantileSketch sketch = QuantileSketch.fromBytes(statistics.getScoreSketch());
+        for (Changes changes : changesOfExams) {
+            changes.added.forEach(score -> addPercentage(sketch, score));
+        }
+        statistics.setScored(sketch.getCount() - stale);
+        statistics.setScoreSketch(sketch.toBytes());
+        statistics.setSketchStale(stale);
+        statistics.setUpdatedAt(LocalDateTime.now());
+    }
+
+    private void recompute(ExamStatistics statistics) {
+        Long examId = statistics.getExamId();
+        statistics.setSubmitted(submissionRepository.countSubmittedByExam(examId));
+        statistics.clearScores();
+        QuantileSketch sketch = new QuantileSketch();
+        for (GradedScore score : submissionRepository.findGradedScoresByExam(examId)) {
+            statistics.addScore(score.getTotalScore(), score.getPercentageScore());
+            addPercentage(sketch, score);
+        }
+        statistics.setScoreSketch(sketch.toBytes());
+        statistics.setSketchStale(0);
+        statistics.setUpdatedAt(LocalDateTime.now());
+    }
+
+    private void recompute(CourseStatistics statistics) {
+        QuantileSketch sketch = new QuantileSketch();
+        long stale = 0;
+        for (ExamStatistics examStatistics : examStatisticsRepository.findByCourseId(statistics.getCourseId())) {
+            sketch.merge(QuantileSketch.fromBytes(examStatistics.getScoreSketch()));
+            stale += examStatistics.getSketchStale();
+        }
+        statistics.setScored(sketch.getCount() - stale);
+        statistics.setScoreSketch(sketch.toBytes());
+        statistics.setSketchStale(stale);
+        statistics.setUpdatedAt(LocalDateTime.now());
+    }
+
+    private static void addPercentage(QuantileSketch sketch, GradedScore score) {
+        // Exams without marks have no percentage to rank
+        if (score.getPercentageScore() != null) {
+            sketch.add(score.getPercentageScore());
+        }
+    }
+
+    private void checkTeacher(Course course) {
+        User currentUser = currentUserProvider.getCurrentUser();
+        if (!course.getTeacher().getId().equals(currentUser.getId()) &&
+                currentUser.getRole() != Role.ADMIN) {
+            throw new UnauthorizedAccessException("You don't have permission to view submissions");
+        }
+    }
+
+    private static void checkPercentiles(List<Double> percentiles) {
+        if (percentiles == null || percentiles.isEmpty() || percentiles.size() > MAX_PERCENTILES) {
+            throw new ValidationException("Between 1 and " + MAX_PERCENTILES + " percentiles are required");
+        }
+        for (Double percentile : percentiles) {
+            if (percentile == null || !(percentile >= 0 && percentile <= 100)) {
+                throw new ValidationException("Percentiles must be between 0 and 100");
+            }
+        }
+    }
+
+    private static ScorePercentiles.ScorePercentilesBuilder percentiles(
+            byte[] sketchBytes, long stale, List<Double> percentiles) {
+        QuantileSketch sketch = QuantileSketch.fromBytes(sketchBytes);
+        List<ScorePercentiles.Percentile> values = new ArrayList<>(percentiles.size());
+        for (Double percentile : percentiles) {
+            double value = sketch.quantile(percentile / 100);
+            values.add(new ScorePercentiles.Percentile(percentile, Double.isNaN(value) ? null : value));
+        }
+        return ScorePercentiles.builder()
+                .count(sketch.getCount() - stale)
+                .rankError(RANK_ERROR)
+                .percentiles(values);
+    }
+
+    private static Double percentileRank(byte[] sketchBytes, double percentageScore) {
+        double rank = QuantileSketch.fromBytes(sketchBytes).rank(percentageScore);
+        return Double.isNaN(rank) ? null : rank * 100;
+    }
+
+    /**
+     * Changes to an exam's statistics made by one transaction
+     */
+    private static class Changes {
+        private final Long courseId;
+        private long submitted;
+        private boolean recomputed;
+        private final List<GradedScore> removed = new ArrayList<>();
+        private final List<GradedScore> added = new ArrayList<>();
+
+        Changes(Long courseId) {
+            this.courseId = courseId;
+        }
+
+        // Replaced scores left in the sketches
+        long staleScores() {
+            return removed.stream().filter(score -> score.getPercentageScore() != null).count();
+        }
+    }
+}
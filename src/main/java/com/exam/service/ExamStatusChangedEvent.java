@@ -0,0 +1,15 @@
+package com.exam.service;
+
+import com.exam.dal.model.ExamStatus;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Published after exams moved to a new status, one event per batch of exams
+ */
+@Value
+public class ExamStatusChangedEvent {
+    List<Long> examIds;
+    ExamStatus status;
+}
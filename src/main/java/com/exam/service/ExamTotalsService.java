@@ -0,0 +1,119 @@
+package com.exam.service;
+
+import com.exam.dal.dto.QuestionTypeTotal;
+import com.exam.dal.model.Exam;
+import com.exam.dal.model.QuestionType;
+import com.exam.dal.model.QuestionTypeCounts;
+import com.exam.dal.repository.ExamRepository;
+import com.exam.dal.repository.QuestionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the denormalized total marks and per-type question counts of exams
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExamTotalsService {
+
+    private static final int PAGE_SIZE = 500;
+
+    private final ExamRepository examRepository;
+    private final QuestionRepository questionRepository;
+
+    /**
+     * Account for a question added to an exam
+     *
+     * @param examId The exam ID
+     * @param type The question type
+     * @param marks The question's marks
+     */
+    public void questionAdded(Long examId, QuestionType type, Integer marks) {
+        examRepository.adjustQuestionTotals(examId, type.name(), marks != null ? marks : 0, 1);
+    }
+
+    /**
+     * Account for a question removed from an exam
+     *
+     * @param examId The exam ID
+     * @param type The question type
+     * @param marks The question's marks
+     */
+    public void questionRemoved(Long examId, QuestionType type, Integer marks) {
+        examRepository.adjustQuestionTotals(examId, type.name(), marks != null ? -marks : 0, -1);
+    }
+
+    /**
+     * Get the total marks of an exam, summing its questions if they were never computed
+     *
+     * @param exam The exam, whose total is filled in if it was missing
+     * @return The total marks
+     */
+    public double getTotalMarks(Exam exam) {
+        if (exam.getTotalMarks() == null) {
+            exam.setTotalMarks((double) questionRepository.sumMarksByExam(exam.getId()));
+        }
+        return exam.getTotalMarks();
+    }
+
+    /**
+     * Compute the totals of exams created before they were maintained, so they are not treated
+     * as exams without marks until the next repair
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        List<Long> examIds = examRepository.findIdsWithoutTotals();
+        examIds.forEach(examRepository::recomputeQuestionTotals);
+        if (!examIds.isEmpty()) {
+            log.info("Computed the totals of {} exams", examIds.size());
+        }
+    }
+
+    /**
+     * Compare every exam's totals with its questions and recompute the ones that drifted,
+     * e.g. exams created before the totals were maintained
+     *
+     * @return The number of exams repaired
+     */
+    @Scheduled(cron = "${app.exam-totals.repair-cron:0 30 3 * * *}")
+    public int repair() {
+        Map<Long, QuestionTypeCounts> expectedCounts = new HashMap<>();
+        Map<Long, Double> expectedMarks = new HashMap<>();
+        for (QuestionTypeTotal total : questionRepository.sumByExamAndType()) {
+            expectedCounts.computeIfAbsent(total.getExamId(), id -> new QuestionTypeCounts())
+                    .set(total.getQuestionType(), total.getCount().intValue());
+            expectedMarks.merge(total.getExamId(), total.getMarks().doubleValue(), Double::sum);
+        }
+
+        int repaired = 0;
+        long afterId = 0;
+        List<Exam> page;
+        do {
+            page = examRepository.findAllAfter(afterId, PageRequest.of(0, PAGE_SIZE));
+            for (Exam exam : page) {
+                QuestionTypeCounts counts = expectedCounts.getOrDefault(exam.getId(), new QuestionTypeCounts());
+                double marks = expectedMarks.getOrDefault(exam.getId(), 0.0);
+
+                // The expected values may already be stale, so the exam is recomputed in place rather than overwritten
+                if (!counts.equals(exam.getQuestionCounts()) || exam.getTotalMarks() == null || exam.getTotalMarks() != marks) {
+                    examRepository.recomputeQuestionTotals(exam.getId());
+                    repaired++;
+                }
+                afterId = exam.getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        log.info("Checked exam totals, repaired {} exams", repaired);
+        return repaired;
+    }
+}
@@ -0,0 +1,102 @@
+package com.exam.service;
+
+import com.exam.exception.ConflictException;
+import com.exam.exception.UnauthorizedAccessException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the responses of requests sent with an {@code Idempotency-Key} header, so a client
+ * retrying after a timeout gets the original response back instead of running the request again.
+ * Keys are scoped to the authenticated user, bounded in number and forgotten after a while.
+ * <p>
+ * Only successful responses are kept; after a failure the key is released so the request can be
+ * retried.
+ */
+@Service
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final Cache<String, Entry> entries;
+
+    public IdempotencyStore(
+            @Value("${app.idempotency.max-keys:100000}") long maxKeys,
+            @Value("${app.idempotency.ttl:24h}") Duration ttl) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Run a request at most once per key
+     *
+     * @param key The idempotency key sent by the client
+     * @param request The request, a retry has to send an equal one
+     * @param action Runs the request the first time
+     * @return The response of the first run
+     * @throws ConflictException if the key is in use by a request still running or was used for a different request
+     */
+    public ResponseEntity<?> execute(String key, Object request, Supplier<ResponseEntity<?>> action) {
+        String scopedKey = currentPrincipal() + ":" + key;
+        Entry reserved = new Entry(request);
+
+        Entry existing = entries.asMap().putIfAbsent(scopedKey, reserved);
+        if (existing != null) {
+            return replay(existing, request);
+        }
+
+        try {
+            ResponseEntity<?> response = action.get();
+            reserved.response = response;
+            return response;
+        } catch (RuntimeException e) {
+            entries.asMap().remove(scopedKey, reserved);
+            throw e;
+        }
+    }
+
+    private ResponseEntity<?> replay(Entry entry, Object request) {
+        if (!entry.request.equals(request)) {
+            throw new ConflictException("This " + HEADER + " was already used for a different request");
+        }
+        ResponseEntity<?> response = entry.response;
+        if (response == null) {
+            throw new ConflictException("A request with this " + HEADER + " is still in progress");
+        }
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(REPLAYED_HEADER, "true")
+                .body(response.getBody());
+    }
+
+    // Taken from the security context, loading the user would cost the query a replay avoids
+    private static String currentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new UnauthorizedAccessException("No authenticated user found");
+        }
+        return authentication.getName();
+    }
+
+    private static class Entry {
+        private final Object request;
+
+        // Set once the request has completed
+        private volatile ResponseEntity<?> response;
+
+        Entry(Object request) {
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.exam.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * KLL quantile sketch. Values are kept in a stack of levels, a value on level h standing for 2^h
+ * of the values added. When the levels hold more than their capacity, the lowest full level is
+ * sorted and every other value, starting at a random one of the first two, moves up a level while
+ * the rest are dropped. Level capacities shrink by 2/3 from the top level's k downwards, so the
+ * sketch keeps about 3k values however many were added.
+ * <p>
+ * With k = 200 the rank of a value, and so the value at a given rank, is off by at most 1% of
+ * the count in 99% of sketches, also after merging. Up to 200 values nothing is dropped and the
+ * sketch is exact. It keeps at most about 600 values, 2.5 KB serialized.
+ * <p>
+ * Values are stored as floats. Not thread-safe.
+ */
+class QuantileSketch {
+
+    static final int DEFAULT_K = 200;
+
+    // Rank error of DEFAULT_K in 99% of sketches, as a fraction of the count
+    static final double RANK_ERROR = 0.01;
+
+    private static final byte FORMAT = 1;
+    private static final int MIN_CAPACITY = 8;
+    private static final double CAPACITY_RATIO = 2.0 / 3.0;
+
+    private final int k;
+    private long count;
+    private float min = Float.NaN;
+    private float max = Float.NaN;
+    private float[][] levels = {new float[MIN_CAPACITY]};
+    private int[] sizes = {0};
+
+    QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    QuantileSketch(int k) {
+        this.k = Math.max(MIN_CAPACITY, k);
+    }
+
+    /**
+     * Read a sketch written by {@link #toBytes()}
+     *
+     * @param bytes The serialized sketch, null or empty for an empty sketch
+     * @return The sketch
+     */
+    static QuantileSketch fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return new QuantileSketch();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.get() != FORMAT) {
+            throw new IllegalArgumentException("Unknown quantile sketch format");
+        }
+        QuantileSketch sketch = new QuantileSketch(buffer.getShort());
+        sketch.count = buffer.getLong();
+        sketch.min = buffer.getFloat();
+        sketch.max = buffer.getFloat();
+        int levelCount = buffer.get();
+        sketch.levels = new float[levelCount][];
+        sketch.sizes = new int[levelCount];
+        for (int h = 0; h < levelCount; h++) {
+            int size = buffer.getShort();
+            float[] level = new float[Math.max(size, MIN_CAPACITY)];
+            for (int i = 0; i < size; i++) {
+                level[i] = buffer.getFloat();
+            }
+            sketch.levels[h] = level;
+            sketch.sizes[h] = size;
+        }
+        return sketch;
+    }
+
+    /**
+     * Serialize the sketch, 4 bytes per value kept plus a small header
+     *
+     * @return The serialized sketch
+     */
+    byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(20 + 2 * levels.length + 4 * retained());
+        buffer.put(FORMAT).putShort((short) k).putLong(count).putFloat(min).putFloat(max).put((byte) levels.length);
+        for (int h = 0; h < levels.length; h++) {
+            buffer.putShort((short) sizes[h]);
+            for (int i = 0; i < sizes[h]; i++) {
+                buffer.putFloat(levels[h][i]);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Add a value
+     *
+     * @param value The value
+     */
+    void add(double value) {
+        float v = (float) value;
+        if (Float.isNaN(v)) {
+            return;
+        }
+        min = count == 0 || v < min ? v : min;
+        max = count == 0 || v > max ? v : max;
+        count++;
+        append(0, v);
+        compress();
+    }
+
+    /**
+     * Add all values of another sketch
+     *
+     * @param other The other sketch
+     */
+    void merge(QuantileSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        min = count == 0 || other.min < min ? other.min : min;
+        max = count == 0 || other.max > max ? other.max : max;
+        count += other.count;
+        for (int h = 0; h < other.levels.length; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+        }
+        compress();
+    }
+
+    /**
+     * Get the number of values added
+     *
+     * @return The count
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the value at a rank
+     *
+     * @param fraction The rank as a fraction of the count, 0 for the lowest value, 1 for the highest
+     * @return The value, NaN if the sketch is empty
+     */
+    double quantile(double fraction) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (fraction <= 0) {
+            return min;
+        }
+        if (fraction >= 1) {
+            return max;
+        }
+        SortedView view = sortedView();
+        double target = fraction * count;
+        long cumulative = 0;
+        for (int i = 0; i < view.values.length; i++) {
+            cumulative += view.weights[i];
+            if (cumulative >= target) {
+                return view.values[i];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Get the rank of a value, counting values equal to it as half below
+     *
+     * @param value The value
+     * @return The fraction of the count below the value, from 0 to 1, NaN if the sketch is empty
+     */
+    double rank(double value) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        float v = (float) value;
+        long below = 0;
+        long equal = 0;
+        for (int h = 0; h < levels.length; h++) {
+            long weight = 1L << h;
+            for (int i = 0; i < sizes[h]; i++) {
+                if (levels[h][i] < v) {
+                    below += weight;
+                } else if (levels[h][i] == v) {
+                    equal += weight;
+                }
+            }
+        }
+        return (below + equal / 2.0) / count;
+    }
+
+    private int retained() {
+        int retained = 0;
+        for (int size : sizes) {
+            retained += size;
+        }
+        return retained;
+    }
+
+    private void append(int h, float value) {
+        while (h >= levels.length) {
+            levels = Arrays.copyOf(levels, levels.length + 1);
+            levels[levels.length - 1] = new float[MIN_CAPACITY];
+            sizes = Arrays.copyOf(sizes, sizes.length + 1);
+        }
+        if (sizes[h] == levels[h].length) {
+            levels[h] = Arrays.copyOf(levels[h], levels[h].length * 2);
+        }
+        levels[h][sizes[h]++] = value;
+    }
+
+    private int capacity(int h) {
+        int depth = levels.length - 1 - h;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_RATIO, depth)));
+    }
+
+    private int totalCapacity() {
+        int total = 0;
+        for (int h = 0; h < levels.length; h++) {
+            total += capacity(h);
+        }
+        return total;
+    }
+
+    /**
+     * Compact the lowest full levels until the sketch is within its capacity
+     */
+    private void compress() {
+        while (retained() > totalCapacity()) {
+            int h = 0;
+            while (sizes[h] < capacity(h)) {
+                h++;
+            }
+            compact(h);
+        }
+    }
+
+    private void compact(int h) {
+        float[] level = levels[h];
+        int size = sizes[h];
+        Arrays.sort(level, 0, size);
+
+        // An odd value out stays, the others pair up and one of each pair moves up
+        int kept = size % 2;
+        int offset = kept + ThreadLocalRandom.current().nextInt(2);
+        for (int i = offset; i < size; i += 2) {
+            append(h + 1, level[i]);
+        }
+        // The level array may have been replaced when a level was added
+        levels[h] = level;
+        sizes[h] = kept;
+    }
+
+    private SortedView sortedView() {
+        int retained = retained();
+        long[] packed = new long[retained];
+        int i = 0;
+        for (int h = 0; h < levels.length; h++) {
+            for (int j = 0; j < sizes[h]; j++) {
+                // Sortable bits of the value in the high half, the level in the low
+                packed[i++] = (long) sortableBits(levels[h][j]) << 32 | h;
+            }
+        }
+        Arrays.sort(packed);
+        float[] values = new float[retained];
+        long[] weights = new long[retained];
+        for (i = 0; i < retained; i++) {
+            values[i] = fromSortableBits((int) (packed[i] >> 32));
+            weights[i] = 1L << (int) (packed[i] & 0xFF);
+        }
+        return new SortedView(values, weights);
+    }
+
+    // Float bits with the order of the floats, as signed ints
+    private static int sortableBits(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits < 0 ? bits ^ 0x7FFFFFFF : bits;
+    }
+
+    private static float fromSortableBits(int bits) {
+        return Float.intBitsToFloat(bits < 0 ? bits ^ 0x7FFFFFFF : bits);
+    }
+
+    private static final class SortedView {
+        private final float[] values;
+        private final long[] weights;
+
+        SortedView(float[] values, long[] weights) {
+            this.values = values;
+            this.weights = weights;
+        }
+    }
+}
@@ -1,21 +1,31 @@
 package com.exam.service;
 
+import com.exam.dal.dto.AcceptedAnswerRequest;
+import com.exam.dal.dto.AnswerMatcher;
+import com.exam.dal.dto.ExamPaper;
+import com.exam.dal.dto.ExamPaper.PaperAcceptedAnswer;
+import com.exam.dal.dto.ExamPaper.PaperQuestion;
 import com.exam.dal.dto.OptionRequest;
 import com.exam.dal.dto.QuestionRequest;
+import com.exam.dal.dto.RenderedPaper;
 import com.exam.dal.model.*;
 import com.exam.dal.repository.ExamRepository;
 import com.exam.dal.repository.OptionRepository;
 import com.exam.dal.repository.QuestionRepository;
-import com.exam.dal.repository.UserRepository;
 import com.exam.exception.ResourceNotFoundException;
+import com.exam.exception.ValidationException;
+import com.exam.security.CurrentUserProvider;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Service
@@ -25,33 +35,75 @@ public class QuestionService {
     private final QuestionRepository questionRepository;
     private final ExamRepository examRepository;
     private final OptionRepository optionRepository;
-    private final UserRepository userRepository;
-
-    public List<Question> getQuestionsByExam(Long examId) {
-        Exam exam = examRepository.findById(examId)
-                .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
-
-        User currentUser = getCurrentUser();
+    private final CurrentUserProvider currentUserProvider;
+    private final EnrollmentIndex enrollmentIndex;
+    private final ExamPaperCache examPaperCache;
+    private final ExamTotalsService examTotalsService;
+
+    /**
+     * Get the serialized question paper of an exam as the current user may see it.
+     * Students get the paper without the answer key.
+     *
+     * @param examId The exam ID
+     * @return The rendered paper
+     */
+    public RenderedPaper getQuestionsByExam(Long examId) {
+        User currentUser = currentUserProvider.getCurrentUser();
+
+        // A cached paper carries everything the access check needs, so a hit needs no query at all
+        ExamPaper paper = examPaperCache.getIfPresent(examId);
+        if (paper == null) {
+            Exam exam = examRepository.findById(examId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+            paper = examPaperCache.getPaper(exam);
+        }
 
-        if (currentUser.getRole() == Role.ADMIN ||
-                exam.getCourse().getTeacher().getId().equals(currentUser.getId()) ||
-                (exam.isPublished() && exam.getCourse().getStudents().contains(currentUser))) {
-            return questionRepository.findByExam(exam);
+        if (currentUser.getRole() == Role.ADMIN || paper.getTeacherId().equals(currentUser.getId())) {
+            return paper.getFullView();
+        } else if (paper.isPublished() && enrollmentIndex.isEnrolled(paper.getCourseId(), currentUser.getId())) {
+            return paper.getStudentView();
         } else {
             throw new RuntimeException("You don't have permission to view questions for this exam");
         }
     }
 
+    /**
+     * Get a question from its exam's paper as the current user may see it.
+     * Students get the question without the answer key.
+     *
+     * @param id The question ID
+     * @return The question
+     */
+    public PaperQuestion getPaperQuestion(Long id) {
+        Question question = questionRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Question not found with id: " + id));
+
+        User currentUser = currentUserProvider.getCurrentUser();
+        Exam exam = question.getExam();
+        boolean staff = currentUser.getRole() == Role.ADMIN ||
+                exam.getCourse().getTeacher().getId().equals(currentUser.getId());
+
+        if (!staff && !(exam.isPublished() && enrollmentIndex.isEnrolled(exam.getCourse().getId(), currentUser.getId()))) {
+            throw new RuntimeException("You don't have permission to view this question");
+        }
+
+        PaperQuestion paperQuestion = examPaperCache.getPaper(exam).getQuestion(id);
+        if (paperQuestion == null) {
+            throw new ResourceNotFoundException("Question not found with id: " + id);
+        }
+        return staff ? paperQuestion : paperQuestion.withoutAnswerKey();
+    }
+
     public Question getQuestionById(Long id) {
         Question question = questionRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Question not found with id: " + id));
 
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         if (currentUser.getRole() == Role.ADMIN ||
                 question.getExam().getCourse().getTeacher().getId().equals(currentUser.getId()) ||
                 (question.getExam().isPublished() &&
-                        question.getExam().getCourse().getStudents().contains(currentUser))) {
+                        enrollmentIndex.isEnrolled(question.getExam().getCourse().getId(), currentUser.getId()))) {
             return question;
         } else {
             throw new RuntimeException("You don't have permission to view this question");
@@ -60,7 +112,7 @@ public class QuestionService {
 
     @Transactional
     public Question createQuestion(QuestionRequest questionRequest) {
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         Exam exam = examRepository.findById(questionRequest.getExamId())
                 .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + questionRequest.getExamId()));
@@ -72,6 +124,7 @@ public class QuestionService {
 
         // Validate options based on question type
         validateOptions(questionRequest);
+        validateAcceptedAnswers(questionRequest);
 
         Question question = Question.builder()
                 .content(questionRequest.getContent())
@@ -85,17 +138,20 @@ public class QuestionService {
 
         // Create options if provided
         if (questionRequest.getOptions() != null && !questionRequest.getOptions().isEmpty()) {
-            Set<Option> options = createOptionsForQuestion(savedQuestion, questionRequest.getOptions());
+            Set<Option> options = createOptionsForQuestion(savedQuestion, questionRequest, questionRequest.getOptions());
             savedQuestion.setOptions(options);
         }
+        replaceAcceptedAnswers(savedQuestion, questionRequest);
 
+        examTotalsService.questionAdded(exam.getId(), savedQuestion.getQuestionType(), savedQuestion.getMarks());
+        examPaperCache.evict(exam.getId());
         return savedQuestion;
     }
 
     @Transactional
     public Question updateQuestion(Long id, QuestionRequest questionRequest) {
         Question question = getQuestionById(id);
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         if (!question.getExam().getCourse().getTeacher().getId().equals(currentUser.getId()) &&
                 currentUser.getRole() != Role.ADMIN) {
@@ -104,6 +160,10 @@ public class QuestionService {
 
         // Validate options based on question type
         validateOptions(questionRequest);
+        validateAcceptedAnswers(questionRequest);
+
+        examPaperCache.evict(question.getExam().getId());
+        examTotalsService.questionRemoved(question.getExam().getId(), question.getQuestionType(), question.getMarks());
 
         // If exam is changing, verify permissions
         if (!question.getExam().getId().equals(questionRequest.getExamId())) {
@@ -116,6 +176,7 @@ public class QuestionService {
             }
 
             question.setExam(newExam);
+            examPaperCache.evict(newExam.getId());
         }
 
         question.setContent(questionRequest.getContent());
@@ -124,21 +185,46 @@ public class QuestionService {
 
         // Update options
         if (questionRequest.getOptions() != null) {
-            // Delete existing options
-            optionRepository.deleteAll(question.getOptions());
+            // Options sent with the ID of one of the question's options are updated in place, so
+            // answers selecting them stay valid and a corrected key can be re-graded
+            Map<Long, Option> existingOptions = new HashMap<>();
+            question.getOptions().forEach(option -> existingOptions.put(option.getId(), option));
+            Map<Option, OptionRequest> keptOptions = new IdentityHashMap<>();
+            List<OptionRequest> addedOptions = new ArrayList<>();
+            for (OptionRequest optionRequest : questionRequest.getOptions()) {
+                Option option = optionRequest.getId() != null ? existingOptions.remove(optionRequest.getId()) : null;
+                if (option == null) {
+                    addedOptions.add(optionRequest);
+                } else {
+                    keptOptions.put(option, optionRequest);
+                }
+            }
+
+            // Delete the options no longer sent
+            optionRepository.deleteAll(existingOptions.values());
             question.getOptions().clear();
 
-            // Create new options
-            Set<Option> newOptions = createOptionsForQuestion(question, questionRequest.getOptions());
-            question.setOptions(newOptions);
+            // Changed after leaving the set, their content and flag are part of the hash code
+            keptOptions.forEach((option, optionRequest) -> {
+                option.setContent(optionRequest.getContent());
+                option.setCorrect(optionRequest.getCorrect());
+                option.setMatchItem(matchItem(questionRequest, optionRequest));
+            });
+
+            // Keep the managed collection, replacing it would break orphan removal
+            question.getOptions().addAll(keptOptions.keySet());
+            question.getOptions().addAll(createOptionsForQuestion(question, questionRequest, addedOptions));
         }
+        replaceAcceptedAnswers(question, questionRequest);
 
+        examTotalsService.questionAdded(question.getExam().getId(), question.getQuestionType(), question.getMarks());
         return questionRepository.save(question);
     }
 
+    @Transactional
     public void deleteQuestion(Long id) {
         Question question = getQuestionById(id);
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         if (!question.getExam().getCourse().getTeacher().getId().equals(currentUser.getId()) &&
                 currentUser.getRole() != Role.ADMIN) {
@@ -146,16 +232,25 @@ public class QuestionService {
         }
 
         questionRepository.delete(question);
+        examTotalsService.questionRemoved(question.getExam().getId(), question.getQuestionType(), question.getMarks());
+        examPaperCache.evict(question.getExam().getId());
     }
 
     private void validateOptions(QuestionRequest questionRequest) {
         // For multiple choice and single choice questions, options are required
         if ((questionRequest.getQuestionType() == QuestionType.MULTIPLE_CHOICE ||
+                questionRequest.getQuestionType() == QuestionType.MULTIPLE_RESPONSE ||
                 questionRequest.getQuestionType() == QuestionType.SINGLE_CHOICE) &&
                 (questionRequest.getOptions() == null || questionRequest.getOptions().isEmpty())) {
             throw new RuntimeException("Options are required for multiple/single choice questions");
         }
 
+        // For matching questions, the options are the matches of the items, sent in item order
+        if (questionRequest.getQuestionType() == QuestionType.MATCHING &&
+                (questionRequest.getOptions() == null || questionRequest.getOptions().isEmpty())) {
+            throw new RuntimeException("Options are required for matching questions");
+        }
+
         // For true/false questions, verify exactly 2 options
         if (questionRequest.getQuestionType() == QuestionType.TRUE_FALSE &&
                 (questionRequest.getOptions() == null || questionRequest.getOptions().size() != 2)) {
@@ -177,7 +272,8 @@ public class QuestionService {
         }
 
         // For multiple choice, verify at least one correct option
-        if (questionRequest.getQuestionType() == QuestionType.MULTIPLE_CHOICE &&
+        if ((questionRequest.getQuestionType() == QuestionType.MULTIPLE_CHOICE ||
+                questionRequest.getQuestionType() == QuestionType.MULTIPLE_RESPONSE) &&
                 questionRequest.getOptions() != null) {
 
             boolean hasCorrect = questionRequest.getOptions().stream()
@@ -189,26 +285,104 @@ public class QuestionService {
         }
     }
 
-    private Set<Option> createOptionsForQuestion(Question question, List<OptionRequest> optionRequests) {
-        Set<Option> options = new HashSet<>();
+    /**
+     * Check that accepted answers are given only for questions answered with text and compile,
+     * so building the exam paper cannot fail on them
+     */
+    private void validateAcceptedAnswers(QuestionRequest questionRequest) {
+        List<AcceptedAnswerRequest> acceptedAnswers = questionRequest.getAcceptedAnswers();
+        if (acceptedAnswers == null || acceptedAnswers.isEmpty()) {
+            return;
+        }
+        if (!isAnsweredWithText(questionRequest.getQuestionType())) {
+            throw new ValidationException("Accepted answers are only for short answer and fill in the blank questions");
+        }
+
+        for (AcceptedAnswerRequest acceptedAnswer : acceptedAnswers) {
+            try {
+                AnswerMatcher.compile(List.of(new PaperAcceptedAnswer(null, acceptedAnswer.getPattern(),
+                        acceptedAnswer.getMatchType(), acceptedAnswer.getTolerance(), acceptedAnswer.getBlank())));
+            } catch (IllegalArgumentException e) {
+                throw new ValidationException("Invalid accepted answer '" + acceptedAnswer.getPattern() + "': " + e.getMessage());
+            }
+        }
 
+        // Blanks are numbered from 1 without gaps, an answer without a blank fills the first
+        if (questionRequest.getQuestionType() == QuestionType.FILL_IN_BLANK) {
+            Set<Integer> blanks = new HashSet<>();
+            acceptedAnswers.forEach(acceptedAnswer -> blanks.add(acceptedAnswer.getBlank() != null ? acceptedAnswer.getBlank() : 1));
+            if (blanks.size() != Collections.max(blanks)) {
+                throw new ValidationException("Every blank from 1 to " + Collections.max(blanks) + " needs an accepted answer");
+            }
+        }
+    }
+
+    /**
+     * Replace the accepted answers of a question with those of the request, if it has any
+     */
+    private void replaceAcceptedAnswers(Question question, QuestionRequest questionRequest) {
+        if (!isAnsweredWithText(question.getQuestionType())) {
+            question.getAcceptedAnswers().clear();
+            return;
+        }
+        if (questionRequest.getAcceptedAnswers() == null) {
+            return;
+        }
+
+        // Keep the managed collection, replacing it would break orphan removal
+        question.getAcceptedAnswers().clear();
+        for (AcceptedAnswerRequest acceptedAnswer : questionRequest.getAcceptedAnswers()) {
+            question.getAcceptedAnswers().add(AcceptedAnswer.builder()
+                    .pattern(acceptedAnswer.getPattern())
+                    .matchType(acceptedAnswer.getMatchType())
+                    .tolerance(acceptedAnswer.getTolerance())
+                    .blank(acceptedAnswer.getBlank())
+                    .question(question)
+                    .build());
+        }
+    }
+
+    private static boolean isAnsweredWithText(QuestionType questionType) {
+        return questionType == QuestionType.SHORT_ANSWER || questionType == QuestionType.FILL_IN_BLANK;
+    }
+
+    private Set<Option> createOptionsForQuestion(Question question, QuestionRequest questionRequest,
+                                                 List<OptionRequest> optionRequests) {
+        List<Option> created = new ArrayList<>();
         for (OptionRequest optionRequest : optionRequests) {
-            Option option = Option.builder()
+            created.add(Option.builder()
                     .content(optionRequest.getContent())
                     .correct(optionRequest.getCorrect())
+                    .matchItem(matchItem(questionRequest, optionRequest))
                     .question(question)
-                    .build();
+                    .build());
+        }
 
-            options.add(optionRepository.save(option));
+        // Saved in random order, so the IDs students see do not give away which item an option matches
+        if (questionRequest.getQuestionType() == QuestionType.MATCHING) {
+            Collections.shuffle(created);
         }
 
+        Set<Option> options = new HashSet<>();
+        for (Option option : created) {
+            options.add(optionRepository.save(option));
+        }
         return options;
     }
 
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    /**
+     * Get the item of a matching question an option matches, its position in the request
+     */
+    private static Integer matchItem(QuestionRequest questionRequest, OptionRequest optionRequest) {
+        if (questionRequest.getQuestionType() != QuestionType.MATCHING) {
+            return null;
+        }
+        List<OptionRequest> options = questionRequest.getOptions();
+        for (int i = 0; i < options.size(); i++) {
+            if (options.get(i) == optionRequest) {
+                return i + 1;
+            }
+        }
+        throw new IllegalStateException("Option is not one of the question's");
     }
 }
\ No newline at end of file
@@ -0,0 +1,163 @@
+package com.exam.service;
+
+import com.exam.dal.dto.CompiledAnswerKey;
+import com.exam.dal.dto.SimilarityFlagResponse;
+import com.exam.dal.model.Exam;
+import com.exam.dal.model.ExamStatus;
+import com.exam.dal.model.Role;
+import com.exam.dal.model.SimilarityFlag;
+import com.exam.dal.model.SimilarityKind;
+import com.exam.dal.model.User;
+import com.exam.dal.repository.ExamRepository;
+import com.exam.dal.repository.SimilarityFlagRepository;
+import com.exam.exception.ConflictException;
+import com.exam.exception.ResourceNotFoundException;
+import com.exam.exception.UnauthorizedAccessException;
+import com.exam.security.CurrentUserProvider;
+import com.exam.service.similarity.AnswerPatternDetector;
+import com.exam.service.similarity.EssaySimilarityDetector;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Checks an exam's submissions for suspiciously similar answers once the exam has ended, in the
+ * background on a single thread, and keeps the pairs found for the teacher to review: essay
+ * answers sharing most of their wording and choice answers sharing unlikely many wrong options. A teacher
+ * can also run the check again, for instance after late submissions were accepted.
+ */
+@Service
+@Slf4j
+public class SimilarityCheckService {
+
+    private final ExamRepository examRepository;
+    private final ExamPaperCache examPaperCache;
+    private final SimilarityFlagRepository similarityFlagRepository;
+    private final EssaySimilarityDetector essaySimilarityDetector;
+    private final AnswerPatternDetector answerPatternDetector;
+    private final CurrentUserProvider currentUserProvider;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService checker = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "similarity-check"));
+
+    // Exams queued or being checked
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    public SimilarityCheckService(
+            ExamRepository examRepository,
+            ExamPaperCache examPaperCache,
+            SimilarityFlagRepository similarityFlagRepository,
+            EssaySimilarityDetector essaySimilarityDetector,
+            AnswerPatternDetector answerPatternDetector,
+            CurrentUserProvider currentUserProvider,
+            PlatformTransactionManager transactionManager) {
+        this.examRepository = examRepository;
+        this.examPaperCache = examPaperCache;
+        this.similarityFlagRepository = similarityFlagRepository;
+        this.essaySimilarityDetector = essaySimilarityDetector;
+        this.answerPatternDetector = answerPatternDetector;
+        this.currentUserProvider = currentUserProvider;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Queue the check of exams that just ended
+     *
+     * @param event The status change
+     */
+    @EventListener
+    public void onExamStatusChanged(ExamStatusChangedEvent event) {
+        if (event.getStatus() == ExamStatus.COMPLETED) {
+            event.getExamIds().forEach(this::queue);
+        }
+    }
+
+    /**
+     * Queue the check of an exam
+     *
+     * @param examId The exam ID
+     * @throws ConflictException if the exam is already queued or being checked
+     */
+    @Transactional(readOnly = true)
+    public void start(Long examId) {
+        validateReviewAccess(examId);
+        if (!queue(examId)) {
+            throw new ConflictException("This exam is already being checked");
+        }
+    }
+
+    /**
+     * Get the pairs of submissions of an exam flagged as similar
+     *
+     * @param examId The exam ID
+     * @return The flagged pairs, most similar first
+     */
+    @Transactional(readOnly = true)
+    public List<SimilarityFlagResponse> getFlags(Long examId) {
+        validateReviewAccess(examId);
+        return similarityFlagRepository.findResponsesByExamId(examId);
+    }
+
+    @PreDestroy
+    public void stop() {
+        checker.shutdownNow();
+    }
+
+    private boolean queue(Long examId) {
+        if (!pending.add(examId)) {
+            return false;
+        }
+        checker.submit(() -> {
+            try {
+                check(examId);
+            } finally {
+                pending.remove(examId);
+            }
+        });
+        return true;
+    }
+
+    private void check(Long examId) {
+        try {
+            long started = System.nanoTime();
+            CompiledAnswerKey answerKey = transactionTemplate.execute(status -> {
+                Exam exam = examRepository.findById(examId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+                return examPaperCache.getPaper(exam).getAnswerKey();
+            });
+            List<SimilarityFlag> essayFlags = essaySimilarityDetector.detect(examId);
+            List<SimilarityFlag> patternFlags = answerPatternDetector.detect(examId, answerKey);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                similarityFlagRepository.deleteByExamAndKind(examId, SimilarityKind.ESSAY_TEXT);
+                similarityFlagRepository.deleteByExamAndKind(examId, SimilarityKind.ANSWER_PATTERN);
+                similarityFlagRepository.saveAll(essayFlags);
+                similarityFlagRepository.saveAll(patternFlags);
+            });
+            log.info("Checked exam {} for similar answers in {} ms: {} similar essay pairs, {} similar answer patterns",
+                    examId, (System.nanoTime() - started) / 1_000_000, essayFlags.size(), patternFlags.size());
+        } catch (RuntimeException e) {
+            log.error("Similarity check of exam {} failed", examId, e);
+        }
+    }
+
+    private void validateReviewAccess(Long examId) {
+        Exam exam = examRepository.findById(examId)
+                .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+        User currentUser = currentUserProvider.getCurrentUser();
+
+        if (!exam.getCourse().getTeacher().getId().equals(currentUser.getId()) &&
+                currentUser.getRole() != Role.ADMIN) {
+            throw new UnauthorizedAccessException("You don't have permission to review this exam");
+        }
+    }
+}
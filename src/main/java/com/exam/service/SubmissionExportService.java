@@ -0,0 +1,323 @@
+package com.exam.service;
+
+import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.CompiledAnswerKey.QuestionKey;
+import com.exam.dal.dto.ExamPaper;
+import com.exam.dal.dto.ExportFormat;
+import com.exam.dal.model.Exam;
+import com.exam.dal.model.Role;
+import com.exam.dal.model.User;
+import com.exam.dal.repository.ExamRepository;
+import com.exam.dal.repository.SubmissionExportRepository;
+import com.exam.dal.repository.SubmissionExportRepository.ExportedSubmission;
+import com.exam.exception.ResourceNotFoundException;
+import com.exam.exception.UnauthorizedAccessException;
+import com.exam.security.CurrentUserProvider;
+import com.exam.service.grading.GradingEngine;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Exports an exam's results, a row per finished submission with the student, when they
+ * submitted, the points of each question, the total and the percentage. Submissions are streamed
+ * from the database and written to the response as they are read, flushing every few rows, so
+ * memory use does not grow with the number of submissions.
+ * <p>
+ * Question points are scored against the current answer key. Questions a teacher grades, such as
+ * essays, are left empty; their marks are in the total.
+ */
+@Service
+@Slf4j
+public class SubmissionExportService {
+
+    private final ExamRepository examRepository;
+    private final ExamPaperCache examPaperCache;
+    private final SubmissionExportRepository submissionExportRepository;
+    private final CurrentUserProvider currentUserProvider;
+    private final GradingEngine gradingEngine;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+    private final int flushRows;
+
+    public SubmissionExportService(
+            ExamRepository examRepository,
+            ExamPaperCache examPaperCache,
+            SubmissionExportRepository submissionExportRepository,
+            CurrentUserProvider currentUserProvider,
+            GradingEngine gradingEngine,
+            ObjectMapper objectMapper,
+            @Value("${app.export.fetch-size:500}") int fetchSize,
+            @Value("${app.export.flush-rows:200}") int flushRows) {
+        this.examRepository = examRepository;
+        this.examPaperCache = examPaperCache;
+        this.submissionExportRepository = submissionExportRepository;
+        this.currentUserProvider = currentUserProvider;
+        this.gradingEngine = gradingEngine;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+        this.flushRows = Math.max(1, flushRows);
+    }
+
+    /**
+     * Prepare the export of an exam's results, before anything is written
+     *
+     * @param examId The exam ID
+     * @return The export, to write with {@link #write(Export, ExportFormat, OutputStream)}
+     */
+    @Transactional(readOnly = true)
+    public Export prepare(Long examId) {
+        Exam exam = examRepository.findById(examId)
+                .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+        User currentUser = currentUserProvider.getCurrentUser();
+
+        if (!exam.getCourse().getTeacher().getId().equals(currentUser.getId()) &&
+                currentUser.getRole() != Role.ADMIN) {
+            throw new UnauthorizedAccessException("You don't have permission to view submissions");
+        }
+
+        ExamPaper paper = examPaperCache.getPaper(exam);
+        QuestionKey[] questions = paper.getQuestions().stream()
+                .map(question -> paper.getAnswerKey().getQuestion(question.getId()))
+                .toArray(QuestionKey[]::new);
+        boolean[] automatic = new boolean[questions.length];
+        for (int i = 0; i < questions.length; i++) {
+            automatic[i] = gradingEngine.isAutomatic(questions[i]);
+        }
+        return new Export(examId, questions, automatic);
+    }
+
+    /**
+     * Write an exam's results
+     *
+     * @param export The prepared export
+     * @param format The format
+     * @param out Where to write, it is flushed but not closed
+     * @throws IOException if writing fails, for instance because the client went away
+     */
+    public void write(Export export, ExportFormat format, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        RowWriter writer = format == ExportFormat.CSV ? new CsvWriter(out, export) : new NdjsonWriter(out, export);
+        long[] rows = new long[1];
+        try {
+            writer.begin();
+            submissionExportRepository.forEachSubmission(export.examId, fetchSize, submission -> {
+                try {
+                    writer.write(submission, points(export, submission.getAnswers()));
+                    if (++rows[0] % flushRows == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        log.info("Exported {} submissions of exam {} as {} in {} ms", rows[0], export.examId, format,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Score each answer of a submission
+     *
+     * @return The points of each question in column order, null for questions graded by a teacher
+     */
+    private Double[] points(Export export, List<AnswerRequest> answers) {
+        Double[] points = new Double[export.questions.length];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = export.automatic[i] ? 0.0 : null;
+        }
+        for (AnswerRequest answer : answers) {
+            int column = export.columnOf(answer.getQuestionId());
+            if (column >= 0 && export.automatic[column]) {
+                points[column] = gradingEngine.score(export.questions[column], answer);
+            }
+        }
+        return points;
+    }
+
+    /**
+     * An exam's questions, in ID order as on the paper, with which of them are graded automatically
+     */
+    public static final class Export {
+        private final Long examId;
+        private final QuestionKey[] questions;
+        private final boolean[] automatic;
+        private final long[] questionIds;
+
+        private Export(Long examId, QuestionKey[] questions, boolean[] automatic) {
+            this.examId = examId;
+            this.questions = questions;
+            this.automatic = automatic;
+            this.questionIds = new long[questions.length];
+            for (int i = 0; i < questions.length; i++) {
+                questionIds[i] = questions[i].getQuestionId();
+            }
+        }
+
+        public Long getExamId() {
+            return examId;
+        }
+
+        private int columnOf(Long questionId) {
+            return questionId == null ? -1 : Arrays.binarySearch(questionIds, questionId);
+        }
+    }
+
+    private interface RowWriter {
+        void begin() throws IOException;
+
+        void write(ExportedSubmission submission, Double[] points) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    private static final class CsvWriter implements RowWriter {
+        private final Writer writer;
+        private final Export export;
+
+        CsvWriter(OutputStream out, Export export) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.export = export;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writer.write("submission_id,student_name,student_email,submitted_at");
+            for (long questionId : export.questionIds) {
+                writer.write(",question_");
+                writer.write(Long.toString(questionId));
+            }
+            writer.write(",total_score,percentage_score\r\n");
+        }
+
+        @Override
+        public void write(ExportedSubmission submission, Double[] points) throws IOException {
+            writer.write(Long.toString(submission.getSubmissionId()));
+            writer.write(',');
+            writeText(submission.getStudentName());
+            writer.write(',');
+            writeText(submission.getStudentEmail());
+            writer.write(',');
+            if (submission.getSubmittedAt() != null) {
+                writer.write(submission.getSubmittedAt().toString());
+            }
+            for (Double point : points) {
+                writer.write(',');
+                writeNumber(point);
+            }
+            writer.write(',');
+            writeNumber(submission.getTotalScore());
+            writer.write(',');
+            writeNumber(submission.getPercentageScore());
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        private void writeNumber(Double value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            double number = value;
+            if (number == Math.rint(number) && Math.abs(number) < 1e15) {
+                writer.write(Long.toString((long) number));
+            } else {
+                writer.write(Double.toString(number));
+            }
+        }
+
+        private void writeText(String value) throws IOException {
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+            // A leading =, +, - or @ would make a spreadsheet run the cell as a formula
+            char first = value.charAt(0);
+            boolean formula = first == '=' || first == '+' || first == '-' || first == '@';
+            boolean quote = formula || value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write(formula ? "\"'" : "\"");
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    writer.write('"');
+                }
+                writer.write(c);
+            }
+            writer.write('"');
+        }
+    }
+
+    private final class NdjsonWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private final Export export;
+
+        NdjsonWriter(OutputStream out, Export export) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            this.generator.setRootValueSeparator(null);
+            this.export = export;
+        }
+
+        @Override
+        public void begin() {
+            // Every line stands on its own
+        }
+
+        @Override
+        public void write(ExportedSubmission submission, Double[] points) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("submissionId", submission.getSubmissionId());
+            generator.writeStringField("studentName", submission.getStudentName());
+            generator.writeStringField("studentEmail", submission.getStudentEmail());
+            if (submission.getSubmittedAt() != null) {
+                generator.writeStringField("submittedAt", submission.getSubmittedAt().toString());
+            }
+            generator.writeObjectFieldStart("points");
+            for (int i = 0; i < points.length; i++) {
+                generator.writeFieldName(Long.toString(export.questionIds[i]));
+                if (points[i] != null) {
+                    generator.writeNumber(points[i]);
+                } else {
+                    generator.writeNull();
+                }
+            }
+            generator.writeEndObject();
+            if (submission.getTotalScore() != null) {
+                generator.writeNumberField("totalScore", submission.getTotalScore());
+            }
+            if (submission.getPercentageScore() != null) {
+                generator.writeNumberField("percentageScore", submission.getPercentageScore());
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+}
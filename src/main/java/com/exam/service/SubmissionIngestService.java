@@ -0,0 +1,388 @@
+package com.exam.service;
+
+import com.exam.dal.dto.QueuedSubmission;
+import com.exam.dal.dto.SubmissionReceipt;
+import com.exam.dal.dto.SubmissionRequest;
+import com.exam.dal.model.RejectedSubmission;
+import com.exam.dal.model.Role;
+import com.exam.dal.model.User;
+import com.exam.dal.repository.RejectedSubmissionRepository;
+import com.exam.dal.repository.SubmissionRepository;
+import com.exam.exception.ConflictException;
+import com.exam.exception.ResourceNotFoundException;
+import com.exam.exception.UnauthorizedAccessException;
+import com.exam.exception.ValidationException;
+import com.exam.security.CurrentUserProvider;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Two-stage submission pipeline for the rush at an exam's end time. Stage one validates a
+ * submission, appends it to a durable {@link SubmissionLog} and answers with a receipt as soon as
+ * the record is on disk. Stage two reads the log in batches and has a pool of workers save and
+ * auto-grade them, a slice of the batch per transaction; a slice that fails is retried one
+ * submission at a time so only the offending submission is rejected. A submission is rejected
+ * whatever is wrong with it; only a failure of the database itself fails the batch, which is
+ * then retried, and a submission it keeps failing on is rejected after a number of attempts.
+ * <p>
+ * The log is checkpointed after each batch. Submissions replayed after a crash are recognized by
+ * their receipt ID and not saved twice. Rejections are recorded in the database before the
+ * checkpoint, so a receipt reports its failure after a restart too.
+ */
+@Service
+@Slf4j
+public class SubmissionIngestService {
+
+    private final SubmissionService submissionService;
+    private final SubmissionRepository submissionRepository;
+    private final RejectedSubmissionRepository rejectedSubmissionRepository;
+    private final CurrentUserProvider currentUserProvider;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final int workers;
+    private final int batchSize;
+    private final long pollMillis;
+    private final long retryMillis;
+    private final int maxAttempts;
+
+    // Receipts of recent submissions, older ones are looked up by their saved submission or rejection
+    private final Cache<String, SubmissionReceipt> receipts;
+
+    // Student and exam of every queued submission, so a second submit is rejected before it is saved
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    // Failed attempts to save a submission the database keeps failing on, by receipt ID
+    private final ConcurrentHashMap<String, Integer> attempts = new ConcurrentHashMap<>();
+
+    private SubmissionLog submissionLog;
+    private ExecutorService workerPool;
+    private Thread dispatcher;
+    private volatile boolean running;
+
+    public SubmissionIngestService(
+            SubmissionService submissionService,
+            SubmissionRepository submissionRepository,
+            RejectedSubmissionRepository rejectedSubmissionRepository,
+            CurrentUserProvider currentUserProvider,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.submission-ingest.enabled:false}") boolean enabled,
+            @Value("${app.submission-ingest.directory:data/submission-log}") Path directory,
+            @Value("${app.submission-ingest.segment-size:67108864}") int segmentSize,
+            @Value("${app.submission-ingest.workers:8}") int workers,
+            @Value("${app.submission-ingest.batch-size:256}") int batchSize,
+            @Value("${app.submission-ingest.poll-interval:20}") long pollMillis,
+            @Value("${app.submission-ingest.retry-interval:5000}") long retryMillis,
+            @Value("${app.submission-ingest.max-attempts:10}") int maxAttempts,
+            @Value("${app.submission-ingest.receipt-ttl:1h}") Duration receiptTtl,
+            @Value("${app.submission-ingest.receipt-cache-size:100000}") long receiptCacheSize) {
+        this.submissionService = submissionService;
+        this.submissionRepository = submissionRepository;
+        this.rejectedSubmissionRepository = rejectedSubmissionRepository;
+        this.currentUserProvider = currentUserProvider;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // As in SubmissionService.submitExam, a submitted draft must see the answers flushed while it waited
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.pollMillis = pollMillis;
+        this.retryMillis = retryMillis;
+        this.maxAttempts = maxAttempts;
+        this.receipts = Caffeine.newBuilder()
+                .maximumSize(receiptCacheSize)
+                .expireAfterWrite(receiptTtl)
+                .build();
+    }
+
+    /**
+     * @return true if submissions go through the queue, false if they are saved while the student waits
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Open the log and start processing, beginning with whatever was queued before a restart
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        submissionLog = new SubmissionLog(directory, segmentSize);
+        if (submissionLog.backlog() > 0) {
+            log.info("Resuming {} bytes of queued submissions", submissionLog.backlog());
+        }
+
+        AtomicInteger threads = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workers,
+                runnable -> new Thread(runnable, "submission-worker-" + threads.incrementAndGet()));
+        running = true;
+        dispatcher = new Thread(this::dispatch, "submission-dispatcher");
+        dispatcher.start();
+    }
+
+    /**
+     * Stop after the batch in progress. Whatever is left in the log is processed on the next start.
+     */
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        if (dispatcher == null) {
+            return;
+        }
+        running = false;
+        dispatcher.interrupt();
+        dispatcher.join(TimeUnit.SECONDS.toMillis(30));
+        workerPool.shutdown();
+        submissionLog.close();
+    }
+
+    /**
+     * Validate a submission of the current student and queue it for saving and grading
+     *
+     * @param submissionRequest Submission details
+     * @return The receipt to poll for the result
+     */
+    public SubmissionReceipt accept(SubmissionRequest submissionRequest) {
+        User student = submissionService.validateSubmission(submissionRequest);
+
+        String key = queueKey(student.getId(), submissionRequest.getExamId());
+        if (!queued.add(key)) {
+            throw new ValidationException("You have already submitted this exam");
+        }
+
+        try {
+            QueuedSubmission submission = new QueuedSubmission(UUID.randomUUID().toString(), student.getId(),
+                    submissionRequest.getExamId(), LocalDateTime.now(), submissionRequest.getSubmissionId(),
+                    submissionRequest.getAnswers());
+            SubmissionReceipt receipt = SubmissionReceipt.builder()
+                    .receiptId(submission.getReceiptId())
+                    .status(SubmissionReceipt.Status.QUEUED)
+                    .studentId(student.getId())
+                    .build();
+
+            long position = submissionLog.append(objectMapper.writeValueAsBytes(submission));
+            // Registered before the record can be read, so the worker always finds it
+            receipts.put(receipt.getReceiptId(), receipt);
+            submissionLog.sync(position);
+            return receipt;
+        } catch (IOException e) {
+            queued.remove(key);
+            throw new UncheckedIOException("Could not queue submission", e);
+        }
+    }
+
+    /**
+     * Get the receipt of a queued submission of the current user
+     *
+     * @param receiptId The receipt ID
+     * @return The receipt, with the score once the submission is graded
+     */
+    public SubmissionReceipt getReceipt(String receiptId) {
+        SubmissionReceipt receipt = receipts.getIfPresent(receiptId);
+        if (receipt == null) {
+            receipt = submissionRepository.findByReceiptId(receiptId)
+                    .map(submission -> SubmissionReceipt.saved(receiptId, submission))
+                    .or(() -> rejectedSubmissionRepository.findById(receiptId).map(SubmissionReceipt::rejected))
+                    .orElseThrow(() -> new ResourceNotFoundException("Receipt not found: " + receiptId));
+        }
+
+        User currentUser = currentUserProvider.getCurrentUser();
+        if (!receipt.getStudentId().equals(currentUser.getId()) && currentUser.getRole() != Role.ADMIN) {
+            throw new UnauthorizedAccessException("You don't have permission to view this receipt");
+        }
+        return receipt;
+    }
+
+    private void dispatch() {
+        List<SubmissionLog.Entry> entries = List.of();
+        while (running) {
+            try {
+                if (entries.isEmpty()) {
+                    entries = submissionLog.read(batchSize);
+                    if (entries.isEmpty()) {
+                        Thread.sleep(pollMillis);
+                        continue;
+                    }
+                }
+                process(entries);
+                submissionLog.checkpoint(entries.get(entries.size() - 1).getEndPosition());
+                entries = List.of();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Keep the batch, submissions saved before the failure are skipped on the retry
+                log.error("Could not process {} queued submissions, retrying", entries.size(), e);
+                try {
+                    Thread.sleep(retryMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void process(List<SubmissionLog.Entry> entries) throws IOException, InterruptedException {
+        List<QueuedSubmission> batch = new ArrayList<>(entries.size());
+        for (SubmissionLog.Entry entry : entries) {
+            try {
+                batch.add(objectMapper.readValue(entry.getPayload(), QueuedSubmission.class));
+            } catch (JsonProcessingException e) {
+                // Reading it again cannot succeed, and without its receipt ID there is nothing to reject
+                log.error("Skipped an unreadable queued submission ending at {}", entry.getEndPosition(), e);
+            }
+        }
+
+        // Replayed after a restart and already saved or rejected before it
+        List<String> receiptIds = batch.stream().map(QueuedSubmission::getReceiptId).toList();
+        Set<String> saved = new HashSet<>(submissionRepository.findExistingReceiptIds(receiptIds));
+        saved.addAll(rejectedSubmissionRepository.findExistingReceiptIds(receiptIds));
+
+        List<QueuedSubmission> pending = batch.stream()
+                .filter(submission -> !saved.contains(submission.getReceiptId()))
+                .toList();
+
+        int sliceSize = Math.max(1, (pending.size() + workers - 1) / workers);
+        List<Future<?>> slices = new ArrayList<>();
+        for (int i = 0; i < pending.size(); i += sliceSize) {
+            List<QueuedSubmission> slice = pending.subList(i, Math.min(i + sliceSize, pending.size()));
+            slices.add(workerPool.submit(() -> saveSlice(slice)));
+        }
+        for (Future<?> slice : slices) {
+            try {
+                slice.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Submission worker failed", e.getCause());
+            }
+        }
+
+        batch.forEach(submission -> queued.remove(queueKey(submission.getStudentId(), submission.getExamId())));
+        log.debug("Processed {} queued submissions, {} already saved or rejected", batch.size(), saved.size());
+    }
+
+    private void saveSlice(List<QueuedSubmission> slice) {
+        // Submitting a draft holds its draft lock until the transaction completes, and a transaction
+        // holding several could deadlock with a flush of the drafts, so each is submitted alone
+        List<QueuedSubmission> fresh = new ArrayList<>();
+        for (QueuedSubmission submission : slice) {
+            if (submission.getSubmissionId() != null) {
+                saveOne(submission);
+            } else {
+                fresh.add(submission);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<SubmissionReceipt> done = transactionTemplate.execute(status -> fresh.stream()
+                    .map(submission -> SubmissionReceipt.saved(submission.getReceiptId(), submissionService.saveQueuedSubmission(submission)))
+                    .toList());
+            done.forEach(receipt -> receipts.put(receipt.getReceiptId(), receipt));
+            if (!attempts.isEmpty()) {
+                fresh.forEach(submission -> attempts.remove(submission.getReceiptId()));
+            }
+        } catch (RuntimeException e) {
+            // One bad submission rolls back the slice, so retry them alone to find it
+            fresh.forEach(this::saveOne);
+        }
+    }
+
+    private void saveOne(QueuedSubmission submission) {
+        SubmissionReceipt receipt;
+        try {
+            receipt = SubmissionReceipt.saved(submission.getReceiptId(),
+                    transactionTemplate.execute(status -> submissionService.saveQueuedSubmission(submission)));
+        } catch (RuntimeException e) {
+            // The database failing fails the batch so it is retried, up to a limit for this submission
+            if (isTransient(e) && attempts.merge(submission.getReceiptId(), 1, Integer::sum) < maxAttempts) {
+                throw e;
+            }
+            log.warn("Rejected queued submission {}: {}", submission.getReceiptId(), e.getMessage());
+            // Saved before the batch is checkpointed, a failure to save it fails the batch as well
+            receipt = SubmissionReceipt.rejected(rejectedSubmissionRepository.save(RejectedSubmission.builder()
+                    .receiptId(submission.getReceiptId())
+                    .studentId(submission.getStudentId())
+                    .examId(submission.getExamId())
+                    .message(rejectionMessage(e))
+                    .rejectedAt(LocalDateTime.now())
+                    .build()));
+        }
+        attempts.remove(submission.getReceiptId());
+        receipts.put(receipt.getReceiptId(), receipt);
+    }
+
+    /**
+     * Check whether a failure lies with the database rather than the submission, so saving the
+     * submission again later may succeed
+     */
+    private static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof CannotCreateTransactionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The reason given to the student, the details of unexpected failures are only logged
+     */
+    private static String rejectionMessage(RuntimeException e) {
+        if (e instanceof ValidationException || e instanceof ConflictException
+                || e instanceof ResourceNotFoundException || e instanceof UnauthorizedAccessException) {
+            return e.getMessage();
+        }
+        return "The submission could not be saved";
+    }
+
+    private static String queueKey(Long studentId, Long examId) {
+        return studentId + ":" + examId;
+    }
+}
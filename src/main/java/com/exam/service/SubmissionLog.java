@@ -0,0 +1,283 @@
+package com.exam.service;
+
+import lombok.Value;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of byte records in fixed-size memory-mapped segment files. Each record is
+ * written as its length, a CRC32 of the payload and the payload; a zero length marks the end of
+ * the data in a segment. Positions are global: segment index times segment size plus offset.
+ * <p>
+ * Appends only copy into the mapped segment. {@link #sync(long)} forces the segment to disk with
+ * group commit: callers queue up behind the one fsync in flight and most find their record
+ * already covered by it when their turn comes. Only synced records are handed to the reader.
+ * <p>
+ * A single reader consumes records through {@link #read(int)} and marks them processed with
+ * {@link #checkpoint(long)}, which also deletes segments that are entirely processed. On restart,
+ * reading resumes from the checkpoint and appending from the last intact record.
+ */
+class SubmissionLog implements Closeable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final int segmentSize;
+
+    // Writer state, guarded by this
+    private long writeSegment;
+    private FileChannel writeChannel;
+    private MappedByteBuffer writeBuffer;
+
+    // Forcing is serialized on syncLock, durablePosition is read without it
+    private final Object syncLock = new Object();
+    private volatile long durablePosition;
+
+    // Reader state, only used by the reading thread
+    private long readPosition;
+    private long readSegment = -1;
+    private FileChannel readChannel;
+    private MappedByteBuffer readBuffer;
+
+    /**
+     * Open the log in a directory, creating it if needed
+     *
+     * @param directory Where the segment files live
+     * @param segmentSize The size of each segment file in bytes
+     */
+    SubmissionLog(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        readPosition = readCheckpoint();
+        List<Long> segments = listSegments();
+        long lastSegment = segments.isEmpty() ? readPosition / segmentSize : segments.get(segments.size() - 1);
+        openWriteSegment(Math.max(lastSegment, readPosition / segmentSize));
+        recoverWritePosition();
+        durablePosition = position();
+    }
+
+    /**
+     * Append a record. It is not durable, nor visible to the reader, until {@link #sync(long)}
+     * has been called with the returned position.
+     *
+     * @param payload The record
+     * @return The position just past the record
+     */
+    synchronized long append(byte[] payload) throws IOException {
+        int recordBytes = HEADER_BYTES + payload.length;
+        if (recordBytes > segmentSize) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit in a segment");
+        }
+        if (writeBuffer.remaining() < recordBytes) {
+            // The zeros left at the end of the segment mark where its data stops
+            writeBuffer.force();
+            closeWriteSegment();
+            openWriteSegment(writeSegment + 1);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        writeBuffer.putInt(payload.length);
+        writeBuffer.putInt((int) crc.getValue());
+        writeBuffer.put(payload);
+        return position();
+    }
+
+    /**
+     * Make every record up to a position durable
+     *
+     * @param position A position returned by {@link #append(byte[])}
+     */
+    void sync(long position) throws IOException {
+        if (durablePosition >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            // The fsync this caller waited behind may have covered its record
+            if (durablePosition >= position) {
+                return;
+            }
+            long target;
+            MappedByteBuffer buffer;
+            synchronized (this) {
+                target = position();
+                buffer = writeBuffer;
+            }
+            // Earlier segments were forced when the writer moved past them
+            buffer.force();
+            durablePosition = target;
+        }
+    }
+
+    /**
+     * Read the next durable records after the last one read
+     *
+     * @param max The maximum number of records
+     * @return The records, empty if there are none yet
+     */
+    List<Entry> read(int max) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        long durable = durablePosition;
+        while (entries.size() < max && readPosition < durable) {
+            long segment = readPosition / segmentSize;
+            int offset = (int) (readPosition % segmentSize);
+            MappedByteBuffer buffer = readSegment(segment);
+
+            int length = offset + HEADER_BYTES <= segmentSize ? buffer.getInt(offset) : 0;
+            if (length == 0) {
+                // The writer moved on to the next segment
+                readPosition = (segment + 1) * segmentSize;
+                continue;
+            }
+
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER_BYTES, payload);
+            readPosition += HEADER_BYTES + length;
+            entries.add(new Entry(payload, readPosition));
+        }
+        return entries;
+    }
+
+    /**
+     * Record that every record up to a position is processed, so they are not read again after a
+     * restart, and delete the segments before it
+     *
+     * @param position The position just past the last processed record
+     */
+    void checkpoint(long position) throws IOException {
+        Path tmp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        Files.writeString(tmp, Long.toString(position), StandardCharsets.US_ASCII,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.SYNC);
+        Files.move(tmp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        long firstNeeded = position / segmentSize;
+        for (long segment : listSegments()) {
+            if (segment < firstNeeded && segment != readSegment) {
+                Files.deleteIfExists(segmentPath(segment));
+            }
+        }
+    }
+
+    /**
+     * @return The number of bytes appended but not yet read
+     */
+    long backlog() {
+        return durablePosition - readPosition;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writeBuffer.force();
+        closeWriteSegment();
+        if (readChannel != null) {
+            readChannel.close();
+        }
+    }
+
+    private long position() {
+        return writeSegment * segmentSize + writeBuffer.position();
+    }
+
+    private void openWriteSegment(long segment) throws IOException {
+        writeSegment = segment;
+        writeChannel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        writeBuffer = writeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    private void closeWriteSegment() throws IOException {
+        writeChannel.close();
+    }
+
+    /**
+     * Move the writer past the last intact record of its segment and clear anything after it, such
+     * as a record torn by a crash
+     */
+    private void recoverWritePosition() {
+        int offset = writeSegment == readPosition / segmentSize ? (int) (readPosition % segmentSize) : 0;
+        while (offset + HEADER_BYTES <= segmentSize) {
+            int length = writeBuffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_BYTES + length > segmentSize) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            writeBuffer.get(offset + HEADER_BYTES, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != writeBuffer.getInt(offset + 4)) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+
+        for (int i = offset; i < segmentSize; i++) {
+            writeBuffer.put(i, (byte) 0);
+        }
+        writeBuffer.position(offset);
+        writeBuffer.force();
+    }
+
+    private MappedByteBuffer readSegment(long segment) throws IOException {
+        if (segment != readSegment) {
+            if (readChannel != null) {
+                readChannel.close();
+            }
+            readChannel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ);
+            readBuffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, segmentSize);
+            readSegment = segment;
+        }
+        return readBuffer;
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        return Long.parseLong(Files.readString(checkpoint, StandardCharsets.US_ASCII).trim());
+    }
+
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%020d%s", segment, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * A record read from the log
+     */
+    @Value
+    static class Entry {
+        byte[] payload;
+
+        /** The position just past the record, to checkpoint once it is processed */
+        long endPosition;
+    }
+}
@@ -1,22 +1,37 @@
 package com.exam.service;
 
+import com.exam.dal.dto.AnswerDraft;
 import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.CompiledAnswerKey.QuestionKey;
+import com.exam.dal.dto.ExamPaper;
+import com.exam.dal.dto.GradedScore;
+import com.exam.dal.dto.KeysetCursor;
+import com.exam.dal.dto.KeysetPage;
+import com.exam.dal.dto.OpenDraft;
+import com.exam.dal.dto.QueuedSubmission;
 import com.exam.dal.dto.SubmissionRequest;
+import com.exam.dal.dto.SubmissionSummary;
 import com.exam.dal.model.*;
 import com.exam.dal.repository.*;
+import com.exam.exception.ConflictException;
 import com.exam.exception.ResourceNotFoundException;
 import com.exam.exception.UnauthorizedAccessException;
 import com.exam.exception.ValidationException;
+import com.exam.security.CurrentUserProvider;
+import com.exam.service.grading.GradingEngine;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,73 +39,332 @@ import java.util.stream.Collectors;
 @Slf4j
 public class SubmissionService {
 
+    // Keyset position of the first page of a newest-first listing, still a valid MySQL DATETIME
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
     private final SubmissionRepository submissionRepository;
     private final ExamRepository examRepository;
-    private final QuestionRepository questionRepository;
-    private final OptionRepository optionRepository;
+    private final CurrentUserProvider currentUserProvider;
+    private final EnrollmentIndex enrollmentIndex;
+    private final ExamPaperCache examPaperCache;
+    private final AnswerBatchWriter answerBatchWriter;
+    private final ScoreRepository scoreRepository;
     private final UserRepository userRepository;
     private final AnswerRepository answerRepository;
-    private final ScoreRepository scoreRepository;
+    private final AnswerDraftService answerDraftService;
+    private final GradingEngine gradingEngine;
+    private final ExamStatisticsService examStatisticsService;
+    private final ExamTotalsService examTotalsService;
 
     /**
      * Get submissions for the current student
      *
-     * @return List of submissions
+     * @param cursor Cursor of the previous page, or null for the first page
+     * @param size Page size, or null to return every submission
+     * @return Page of submissions, newest first
      */
     @Transactional(readOnly = true)
-    public List<Submission> getMySubmissions() {
-        User currentUser = getCurrentUser();
-        return submissionRepository.findByStudent(currentUser);
+    public KeysetPage<SubmissionSummary> getMySubmissions(String cursor, Integer size) {
+        User currentUser = currentUserProvider.getCurrentUser();
+        KeysetCursor before = KeysetCursor.decode(cursor);
+
+        List<SubmissionSummary> submissions = untimedFirst(before, KeysetPage.limit(size),
+                limit -> submissionRepository.findUntimedSummariesByStudent(currentUser.getId(), beforeUntimedId(before), limit),
+                limit -> submissionRepository.findSummariesByStudent(
+                        currentUser.getId(), beforeSubmitted(before), beforeId(before), limit));
+        return KeysetPage.of(submissions, size, submission -> new KeysetCursor(submission.getSubmittedAt(), submission.getId()));
     }
 
     /**
-     * Get submissions for a specific exam
+     * Get a page of the submissions for a specific exam
      *
      * @param examId The exam ID
-     * @return List of submissions
+     * @param cursor Cursor of the previous page, or null for the first page
+     * @param size Page size, or null to return every submission
+     * @return Page of submissions, newest first
      */
     @Transactional(readOnly = true)
-    public List<Submission> getSubmissionsByExam(Long examId) {
-        // Fetch exam and validate access
+    public KeysetPage<SubmissionSummary> getSubmissionsByExam(Long examId, String cursor, Integer size) {
         Exam exam = examRepository.findById(examId)
                 .orElseThrow(() -> new ResourceNotFoundException("Exam not found with id: " + examId));
+        validateSubmissionViewAccess(currentUserProvider.getCurrentUser(), exam);
+        KeysetCursor before = KeysetCursor.decode(cursor);
+
+        List<SubmissionSummary> submissions = untimedFirst(before, KeysetPage.limit(size),
+                limit -> submissionRepository.findUntimedSummariesByExam(examId, beforeUntimedId(before), limit),
+                limit -> submissionRepository.findSummariesByExam(
+                        examId, beforeSubmitted(before), beforeId(before), limit));
+        return KeysetPage.of(submissions, size, submission -> new KeysetCursor(submission.getSubmittedAt(), submission.getId()));
+    }
 
-        User currentUser = getCurrentUser();
+    /**
+     * Fetch the rows of a page of submissions without a submission time, followed by the rest by
+     * submission time. The former have no keyset position, so neither do their cursors.
+     */
+    private static List<SubmissionSummary> untimedFirst(KeysetCursor before, Pageable limit,
+                                                        Function<Pageable, List<SubmissionSummary>> untimed,
+                                                        Function<Pageable, List<SubmissionSummary>> timed) {
+        List<SubmissionSummary> rows = new ArrayList<>();
+        if (before == null || before.getPosition() == null) {
+            rows.addAll(untimed.apply(limit));
+        }
+        if (limit.isUnpaged()) {
+            rows.addAll(timed.apply(limit));
+        } else if (rows.size() < limit.getPageSize()) {
+            rows.addAll(timed.apply(PageRequest.of(0, limit.getPageSize() - rows.size())));
+        }
+        return rows;
+    }
 
-        // Check if user has permission to view submissions
-        validateSubmissionViewAccess(currentUser, exam);
+    private static long beforeUntimedId(KeysetCursor cursor) {
+        return cursor != null ? cursor.getId() : Long.MAX_VALUE;
+    }
 
-        return submissionRepository.findByExam(exam);
+    private static LocalDateTime beforeSubmitted(KeysetCursor cursor) {
+        return cursor != null && cursor.getPosition() != null ? cursor.getPosition() : LATEST;
+    }
+
+    private static long beforeId(KeysetCursor cursor) {
+        return cursor != null && cursor.getPosition() != null ? cursor.getId() : Long.MAX_VALUE;
     }
 
     /**
-     * Submit an exam
+     * Start answering an exam, or resume the draft started earlier. Answers are autosaved to the
+     * draft with {@link #saveDraftAnswer(Long, AnswerRequest)} and it is submitted by naming it in
+     * {@link #submitExam(SubmissionRequest)}.
      *
-     * @param submissionRequest Submission details
-     * @return Created submission
+     * @param examId The exam ID
+     * @return The draft with the answers saved so far
      */
     @Transactional
+    public AnswerDraft startDraft(Long examId) {
+        User currentUser = validateStudentSubmission();
+        Exam exam = validateExamSubmission(currentUser, examId);
+
+        Submission draft = submissionRepository.findByStudentAndExam(currentUser, exam)
+                .orElseGet(() -> createDraft(currentUser, exam));
+        if (draft.getStatus() != SubmissionStatus.IN_PROGRESS) {
+            throw new ConflictException("You have already submitted this exam");
+        }
+
+        answerDraftService.opened(new OpenDraft(draft.getId(), currentUser.getId(), exam.getId(), exam.getEndTime()));
+        return toAnswerDraft(draft.getId(), exam.getId());
+    }
+
+    /**
+     * Get a draft of the current student with the answers saved so far
+     *
+     * @param submissionId The draft submission ID
+     * @return The draft
+     */
+    @Transactional(readOnly = true)
+    public AnswerDraft getDraft(Long submissionId) {
+        User currentUser = validateStudentSubmission();
+        OpenDraft draft = answerDraftService.getOpenDraft(currentUser.getId(), submissionId);
+        return toAnswerDraft(submissionId, draft.getExamId());
+    }
+
+    /**
+     * Autosave an answer of a draft of the current student. The answer is buffered and written
+     * with the next flush, only its question and options are checked now.
+     *
+     * @param submissionId The draft submission ID
+     * @param answerRequest The answer, it may still be incomplete
+     */
+    public void saveDraftAnswer(Long submissionId, AnswerRequest answerRequest) {
+        User currentUser = validateStudentSubmission();
+        answerDraftService.save(currentUser.getId(), submissionId, answerRequest);
+    }
+
+    /**
+     * Submit an exam. Validation and auto-grading work on the exam's cached question paper and
+     * the answers are written as JDBC batches, so the statement count does not depend on the
+     * number of questions. A request naming a draft submits the draft's autosaved answers,
+     * replaced by any answers sent with the request.
+     *
+     * @param submissionRequest Submission details
+     * @return Created submission; its answers are written directly and are not attached to it
+     */
+    // Read committed, so a draft's answers flushed while this transaction waited for the draft are seen
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public Submission submitExam(SubmissionRequest submissionRequest) {
-        User currentUser = validateStudentSubmission(submissionRequest);
+        User currentUser = validateStudentSubmission();
+
+        Exam exam = validateExamSubmission(currentUser, submissionRequest.getExamId());
 
-        Exam exam = validateExamSubmission(currentUser, submissionRequest);
+        // One fetch-joined load of the questions and options, or none if the paper is cached
+        ExamPaper paper = examPaperCache.getPaper(exam);
+
+        if (submissionRequest.getSubmissionId() != null) {
+            return submitDraft(currentUser, exam, paper, submissionRequest.getSubmissionId(),
+                    answersOf(submissionRequest), null, LocalDateTime.now());
+        }
 
         // Validate answers before creating submission
-        validateAnswers(exam, submissionRequest.getAnswers());
+        validateAnswers(paper, requireAnswers(submissionRequest));
+
+        return saveSubmission(currentUser, exam, paper, submissionRequest.getAnswers(), null, LocalDateTime.now());
+    }
+
+    /**
+     * Run the checks of {@link #submitExam(SubmissionRequest)} for the current student without saving anything.
+     * A duplicate submission is only detected when it is saved, and the answers of a draft only
+     * when it is submitted.
+     *
+     * @param submissionRequest Submission details
+     * @return The submitting student
+     */
+    @Transactional(readOnly = true)
+    public User validateSubmission(SubmissionRequest submissionRequest) {
+        User currentUser = validateStudentSubmission();
+        Exam exam = validateExamSubmission(currentUser, submissionRequest.getExamId());
+        if (submissionRequest.getSubmissionId() != null) {
+            OpenDraft draft = answerDraftService.getOpenDraft(currentUser.getId(), submissionRequest.getSubmissionId());
+            if (!draft.getExamId().equals(exam.getId())) {
+                throw new ValidationException("Submission does not belong to this exam");
+            }
+        } else {
+            validateAnswers(examPaperCache.getPaper(exam), requireAnswers(submissionRequest));
+        }
+        return currentUser;
+    }
+
+    /**
+     * Save and auto-grade a submission that was validated and queued earlier. The time window is
+     * not checked again, the submission counts as made when it was accepted.
+     *
+     * @param queued The queued submission
+     * @return Created submission
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public Submission saveQueuedSubmission(QueuedSubmission queued) {
+        Exam exam = examRepository.findById(queued.getExamId())
+                .orElseThrow(() -> new ResourceNotFoundException("Exam not found"));
+        User student = userRepository.getReferenceById(queued.getStudentId());
+
+        ExamPaper paper = examPaperCache.getPaper(exam);
+        if (queued.getSubmissionId() != null) {
+            return submitDraft(student, exam, paper, queued.getSubmissionId(),
+                    queued.getAnswers() != null ? queued.getAnswers() : List.of(),
+                    queued.getReceiptId(), queued.getSubmittedAt());
+        }
+        validateAnswers(paper, queued.getAnswers());
+
+        return saveSubmission(student, exam, paper, queued.getAnswers(), queued.getReceiptId(), queued.getSubmittedAt());
+    }
+
+    private Submission saveSubmission(User student, Exam exam, ExamPaper paper, List<AnswerRequest> answers,
+                                      String receiptId, LocalDateTime submittedAt) {
+        // Create submission, IDENTITY ids make this insert immediately so the answers can refer to it
+        Submission submission = createSubmission(student, exam);
+        submission.setReceiptId(receiptId);
+        submission.setSubmittedAt(submittedAt);
+        try {
+            submission = submissionRepository.save(submission);
+        } catch (DataIntegrityViolationException e) {
+            // Unique on student and exam, so concurrent retries cannot both get in
+            throw new ConflictException("You have already submitted this exam or have a draft of it in progress");
+        }
+
+        return saveAnswersAndGrade(submission, paper, answers);
+    }
 
-        // Create submission
-        Submission submission = createSubmission(currentUser, exam);
+    /**
+     * Submit a draft with its autosaved answers: those already flushed, replaced by those still
+     * buffered, replaced by those sent with the submit. The draft's answers are then rewritten as
+     * the final ones.
+     */
+    private Submission submitDraft(User student, Exam exam, ExamPaper paper, Long submissionId,
+                                   List<AnswerRequest> answers, String receiptId, LocalDateTime submittedAt) {
+        // Waits out a flush of this draft, so what it wrote is read below
+        Map<Long, AnswerRequest> buffered = answerDraftService.close(submissionId);
+
+        // Locked, so a second submit of the draft, on this node or another, waits and then sees it submitted
+        Submission draft = submissionRepository.findByIdForUpdate(submissionId)
+                .orElseThrow(() -> new ResourceNotFoundException("Submission not found with id: " + submissionId));
+        if (!draft.getStudent().getId().equals(student.getId()) || !draft.getExam().getId().equals(exam.getId())) {
+            throw new UnauthorizedAccessException("You don't have permission to submit this submission");
+        }
+        if (draft.getStatus() != SubmissionStatus.IN_PROGRESS) {
+            throw new ConflictException("You have already submitted this exam");
+        }
 
+        Map<Long, AnswerRequest> merged = new LinkedHashMap<>();
+        for (Answer answer : answerRepository.findWithOptionsBySubmissionId(submissionId)) {
+            merged.put(answer.getQuestion().getId(), toAnswerRequest(submissionId, answer));
+        }
+        merged.putAll(buffered);
+        answers.forEach(answer -> merged.put(answer.getQuestionId(), answer));
+        List<AnswerRequest> finalAnswers = List.copyOf(merged.values());
+        validateAnswers(paper, finalAnswers);
+
+        answerBatchWriter.deleteAnswers(submissionId);
+        draft.setStatus(SubmissionStatus.SUBMITTED);
+        draft.setReceiptId(receiptId);
+        draft.setSubmittedAt(submittedAt);
+        return saveAnswersAndGrade(draft, paper, finalAnswers);
+    }
+
+    private Submission saveAnswersAndGrade(Submission submission, ExamPaper paper, List<AnswerRequest> answers) {
         // Create and save answers
-        Set<Answer> answers = createAnswersForSubmission(submission, submissionRequest.getAnswers());
-        submission.setAnswers(answers);
+        answerBatchWriter.insertAnswers(submission.getId(), answers);
 
         // Auto-grade if possible
-        autoGradeSubmission(submission);
+        autoGradeSubmission(submission, paper, answers);
+        examStatisticsService.submitted(submission.getExam(), submission.isGraded() ? submission.getScore() : null);
 
         return submissionRepository.save(submission);
     }
 
+    /**
+     * Create the submission a student's autosaved answers go to
+     */
+    private Submission createDraft(User student, Exam exam) {
+        Submission draft = Submission.builder()
+                .student(student)
+                .exam(exam)
+                .status(SubmissionStatus.IN_PROGRESS)
+                .build();
+        try {
+            return submissionRepository.save(draft);
+        } catch (DataIntegrityViolationException e) {
+            throw new ConflictException("This exam was started in another request, please try again");
+        }
+    }
+
+    private AnswerDraft toAnswerDraft(Long submissionId, Long examId) {
+        // Buffered answers first, one flushed in between is then read from the database
+        Map<Long, AnswerRequest> buffered = answerDraftService.getBuffered(submissionId);
+
+        Map<Long, AnswerRequest> answers = new LinkedHashMap<>();
+        for (Answer answer : answerRepository.findWithOptionsBySubmissionId(submissionId)) {
+            answers.put(answer.getQuestion().getId(), toAnswerRequest(submissionId, answer));
+        }
+        answers.putAll(buffered);
+        return new AnswerDraft(submissionId, examId, List.copyOf(answers.values()));
+    }
+
+    private static AnswerRequest toAnswerRequest(Long submissionId, Answer answer) {
+        return AnswerRequest.builder()
+                .submissionId(submissionId)
+                .questionId(answer.getQuestion().getId())
+                .textAnswer(answer.getTextAnswer())
+                .selectedOptionIds(new ArrayList<>(answer.getSelectedOptionIds()))
+                .build();
+    }
+
+    private static List<AnswerRequest> answersOf(SubmissionRequest submissionRequest) {
+        return submissionRequest.getAnswers() != null ? submissionRequest.getAnswers() : List.of();
+    }
+
+    // Only a draft can be submitted without answers, its answers were autosaved
+    private static List<AnswerRequest> requireAnswers(SubmissionRequest submissionRequest) {
+        if (submissionRequest.getAnswers() == null || submissionRequest.getAnswers().isEmpty()) {
+            throw new ValidationException("Answers are required");
+        }
+        return submissionRequest.getAnswers();
+    }
+
     /**
      * Grade a submission
      *
@@ -101,7 +375,7 @@ public class SubmissionService {
     @Transactional
     public Submission gradeSubmission(Long submissionId, Double score) {
         Submission submission = getSubmissionById(submissionId);
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         // Validate grading access
         validateGradingAccess(currentUser, submission);
@@ -109,12 +383,18 @@ public class SubmissionService {
         // Validate score
         validateScore(submission, score);
 
+        // The score the submission counts with in the exam's statistics so far
+        GradedScore previous = submission.isGraded() && submission.getScore() != null
+                ? new GradedScore(submission.getScore().getTotalScore(), submission.getScore().getPercentageScore())
+                : null;
+
         // Create or update score
         Score submissionScore = createOrUpdateScore(submission, score, currentUser);
 
         // Mark submission as graded
         submission.setGraded(true);
         submission.setScore(submissionScore);
+        examStatisticsService.graded(submission.getExam(), previous, submissionScore);
 
         return submissionRepository.save(submission);
     }
@@ -122,8 +402,8 @@ public class SubmissionService {
     /**
      * Validate student can submit the exam
      */
-    private User validateStudentSubmission(SubmissionRequest submissionRequest) {
-        User currentUser = getCurrentUser();
+    private User validateStudentSubmission() {
+        User currentUser = currentUserProvider.getCurrentUser();
 
         if (currentUser.getRole() != Role.STUDENT) {
             throw new UnauthorizedAccessException("Only students can submit exams");
@@ -135,8 +415,8 @@ public class SubmissionService {
     /**
      * Validate exam submission conditions
      */
-    private Exam validateExamSubmission(User currentUser, SubmissionRequest submissionRequest) {
-        Exam exam = examRepository.findById(submissionRequest.getExamId())
+    private Exam validateExamSubmission(User currentUser, Long examId) {
+        Exam exam = examRepository.findById(examId)
                 .orElseThrow(() -> new ResourceNotFoundException("Exam not found"));
 
         // Check exam publication status
@@ -145,7 +425,7 @@ public class SubmissionService {
         }
 
         // Check student enrollment
-        if (!exam.getCourse().getStudents().contains(currentUser)) {
+        if (!enrollmentIndex.isEnrolled(exam.getCourse().getId(), currentUser.getId())) {
             throw new UnauthorizedAccessException("You are not enrolled in this course");
         }
 
@@ -155,12 +435,7 @@ public class SubmissionService {
             throw new ValidationException("Exam is not currently available for submission");
         }
 
-        // Check duplicate submission
-        submissionRepository.findByStudentAndExam(currentUser, exam)
-                .ifPresent(s -> {
-                    throw new ValidationException("You have already submitted this exam");
-                });
-
+        // Duplicate submissions are rejected by the unique constraint when the submission is saved
         return exam;
     }
 
@@ -200,9 +475,7 @@ public class SubmissionService {
      * Validate score
      */
     private void validateScore(Submission submission, Double score) {
-        double totalMarks = submission.getExam().getQuestions().stream()
-                .mapToDouble(Question::getMarks)
-                .sum();
+        double totalMarks = examTotalsService.getTotalMarks(submission.getExam());
 
         if (score < 0 || score > totalMarks) {
             throw new ValidationException("Score must be between 0 and " + totalMarks);
@@ -230,33 +503,16 @@ public class SubmissionService {
     // Existing helper methods like validateAnswers, createAnswersForSubmission, etc.
     // would remain largely the same, with minor adjustments for error handling
 
-    /**
-     * Get current authenticated user
-     */
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new UnauthorizedAccessException("No authenticated user found");
-        }
-
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with email: " + email));
-    }
-
     /**
      * Validate the answers in a submission request
      *
-     * @param exam The exam being answered
+     * @param paper The paper of the exam being answered
      * @param answerRequests The answers provided
      * @throws ValidationException for validation errors
      */
-    private void validateAnswers(Exam exam, List<AnswerRequest> answerRequests) {
+    private void validateAnswers(ExamPaper paper, List<AnswerRequest> answerRequests) {
         // Check if all required questions are answered
-        Set<Long> examQuestionIds = exam.getQuestions().stream()
-                .map(Question::getId)
-                .collect(Collectors.toSet());
+        Set<Long> examQuestionIds = paper.getQuestionsById().keySet();
 
         Set<Long> answeredQuestionIds = answerRequests.stream()
                 .map(AnswerRequest::getQuestionId)
@@ -266,155 +522,28 @@ public class SubmissionService {
             throw new ValidationException("All questions must be answered");
         }
 
-        // Validate each answer
+        // Validate each answer with the grader of its question type
         for (AnswerRequest answerRequest : answerRequests) {
-            Question question = questionRepository.findById(answerRequest.getQuestionId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Question not found with id: " + answerRequest.getQuestionId()));
+            QuestionKey question = paper.getAnswerKey().getQuestion(answerRequest.getQuestionId());
 
-            if (!question.getExam().getId().equals(exam.getId())) {
+            if (question == null) {
                 throw new ValidationException("Question does not belong to this exam");
             }
 
-            // Validate answer based on question type
-            switch (question.getQuestionType()) {
-                case ESSAY:
-                    if (answerRequest.getTextAnswer() == null || answerRequest.getTextAnswer().isBlank()) {
-                        throw new ValidationException("Essay questions require a text answer");
-                    }
-                    break;
-                case MULTIPLE_CHOICE:
-                    if (answerRequest.getSelectedOptionIds() == null || answerRequest.getSelectedOptionIds().isEmpty()) {
-                        throw new ValidationException("Multiple choice questions require at least one selected option");
-                    }
-                    validateOptions(question, answerRequest.getSelectedOptionIds());
-                    break;
-                case SINGLE_CHOICE:
-                case TRUE_FALSE:
-                    if (answerRequest.getSelectedOptionIds() == null || answerRequest.getSelectedOptionIds().size() != 1) {
-                        throw new ValidationException("Single choice and true/false questions require exactly one selected option");
-                    }
-                    validateOptions(question, answerRequest.getSelectedOptionIds());
-                    break;
-            }
-        }
-    }
-
-    /**
-     * Validate that selected options belong to the question
-     *
-     * @param question The question
-     * @param selectedOptionIds The selected option IDs
-     * @throws ValidationException if options are invalid
-     */
-    private void validateOptions(Question question, List<Long> selectedOptionIds) {
-        // Check if all selected options belong to the question
-        Set<Long> questionOptionIds = question.getOptions().stream()
-                .map(Option::getId)
-                .collect(Collectors.toSet());
-
-        boolean allOptionsValid = selectedOptionIds.stream()
-                .allMatch(questionOptionIds::contains);
-
-        if (!allOptionsValid) {
-            throw new ValidationException("Selected options must belong to the question");
-        }
-    }
-
-
-    /**
-     * Create answer entities for a submission
-     *
-     * @param submission The submission
-     * @param answerRequests The answer requests
-     * @return Set of created answers
-     */
-    private Set<Answer> createAnswersForSubmission(Submission submission, List<AnswerRequest> answerRequests) {
-        Set<Answer> answers = new HashSet<>();
-
-        for (AnswerRequest answerRequest : answerRequests) {
-            Question question = questionRepository.findById(answerRequest.getQuestionId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Question not found with id: " + answerRequest.getQuestionId()));
-
-            // Create basic answer
-            Answer answer = Answer.builder()
-                    .textAnswer(answerRequest.getTextAnswer())
-                    .submission(submission)
-                    .question(question)
-                    .build();
-
-            // Handle selected options
-            if (answerRequest.getSelectedOptionIds() != null && !answerRequest.getSelectedOptionIds().isEmpty()) {
-                Set<Option> selectedOptions = answerRequest.getSelectedOptionIds().stream()
-                        .map(optionId -> optionRepository.findById(optionId)
-                                .orElseThrow(() -> new ResourceNotFoundException("Option not found with id: " + optionId)))
-                        .collect(Collectors.toSet());
-
-                // Set selected options
-                answer.setSelectedOptions(selectedOptions);
-            }
-
-            answers.add(answerRepository.save(answer));
+            gradingEngine.validate(question, answerRequest);
         }
-
-        return answers;
     }
 
     /**
      * Auto-grade submission for objective questions
      *
      * @param submission The submission to grade
+     * @param paper The paper of the exam, with the compiled answer key
+     * @param answerRequests The validated answers
      */
-    private void autoGradeSubmission(Submission submission) {
-        double totalScore = 0;
-
-        for (Answer answer : submission.getAnswers()) {
-            Question question = answer.getQuestion();
-
-            // Skip essay questions
-            if (question.getQuestionType() == QuestionType.ESSAY) {
-                continue;
-            }
-
-            // Get correct options for this question
-            Set<Long> correctOptionIds = question.getOptions().stream()
-                    .filter(Option::isCorrect)
-                    .map(Option::getId)
-                    .collect(Collectors.toSet());
-
-            // Get selected options for this answer
-            Set<Long> selectedOptionIds = answer.getSelectedOptions().stream()
-                    .map(Option::getId)
-                    .collect(Collectors.toSet());
-
-            // Grading logic for different question types
-            switch (question.getQuestionType()) {
-                case SINGLE_CHOICE:
-                case TRUE_FALSE:
-                    if (correctOptionIds.equals(selectedOptionIds)) {
-                        totalScore += question.getMarks();
-                    }
-                    break;
-                case MULTIPLE_CHOICE:
-                    // Count correct selections (true positives)
-                    int truePositives = 0;
-                    for (Long selectedId : selectedOptionIds) {
-                        if (correctOptionIds.contains(selectedId)) {
-                            truePositives++;
-                        }
-                    }
-
-                    // Count incorrect selections (false positives)
-                    int falsePositives = selectedOptionIds.size() - truePositives;
-
-                    // Count missed correct options (false negatives)
-                    int falseNegatives = correctOptionIds.size() - truePositives;
-
-                    // Calculate score based on accuracy
-                    double accuracy = (double) truePositives / (truePositives + falsePositives + falseNegatives);
-                    totalScore += Math.round(accuracy * question.getMarks());
-                    break;
-            }
-        }
+    private void autoGradeSubmission(Submission submission, ExamPaper paper, List<AnswerRequest> answerRequests) {
+        // Essays and other questions left to the teacher score 0 until graded by hand
+        double totalScore = gradingEngine.score(paper.getAnswerKey(), answerRequests);
 
         // Create or update Score
         Score score = submission.getScore();
@@ -423,110 +552,18 @@ public class SubmissionService {
             submission.setScore(score);
         }
 
-        // Set total score
+        // Set total score, and the automatic part of it a re-grade starts from
         score.setTotalScore(totalScore);
+        score.setAutoScore(totalScore);
 
         // Calculate percentage and other details
         score.calculatePercentageScore();
 
-        // Check if all questions are objective
-        boolean allObjective = submission.getExam().getQuestions().stream()
-                .noneMatch(q -> q.getQuestionType() == QuestionType.ESSAY);
-
-        if (allObjective) {
+        if (gradingEngine.isFullyAutomatic(paper.getAnswerKey())) {
             submission.setGraded(true);
         }
     }
 
-    /**
-     * Check if the question is non-objective (cannot be auto-graded)
-     */
-    private boolean isNonObjectiveQuestion(Question question) {
-        return question.getQuestionType() == QuestionType.ESSAY ||
-                question.getQuestionType() == QuestionType.SHORT_ANSWER;
-    }
-
-    /**
-     * Get correct option IDs for a question
-     */
-    private Set<Long> getCorrectOptionIds(Question question) {
-        return question.getOptions().stream()
-                .filter(Option::isCorrect)
-                .map(Option::getId)
-                .collect(Collectors.toSet());
-    }
-
-    /**
-     * Get selected option IDs for an answer
-     */
-    private Set<Long> getSelectedOptionIds(Answer answer) {
-        return answer.getSelectedOptions().stream()
-                .map(Option::getId)
-                .collect(Collectors.toSet());
-    }
-
-    /**
-     * Calculate score for a specific question
-     */
-    private double calculateQuestionScore(Question question, Set<Long> correctOptionIds, Set<Long> selectedOptionIds) {
-        switch (question.getQuestionType()) {
-            case SINGLE_CHOICE:
-            case TRUE_FALSE:
-                return isSingleChoiceCorrect(correctOptionIds, selectedOptionIds) ?
-                        question.getMarks() : 0;
-
-            case MULTIPLE_CHOICE:
-                return calculateMultipleChoiceScore(question, correctOptionIds, selectedOptionIds);
-
-            default:
-                return 0;
-        }
-    }
-
-    /**
-     * Check if single choice question is correct
-     */
-    private boolean isSingleChoiceCorrect(Set<Long> correctOptionIds, Set<Long> selectedOptionIds) {
-        return correctOptionIds.equals(selectedOptionIds);
-    }
-
-    /**
-     * Calculate score for multiple choice questions
-     */
-    private double calculateMultipleChoiceScore(Question question, Set<Long> correctOptionIds, Set<Long> selectedOptionIds) {
-        // Count correct and incorrect selections
-        int truePositives = (int) selectedOptionIds.stream()
-                .filter(correctOptionIds::contains)
-                .count();
-
-        int falsePositives = selectedOptionIds.size() - truePositives;
-        int falseNegatives = correctOptionIds.size() - truePositives;
-
-        // Calculate accuracy
-        double accuracy = calculateAccuracy(truePositives, falsePositives, falseNegatives);
-
-        // Calculate proportional score
-        return Math.round(accuracy * question.getMarks());
-    }
-
-    /**
-     * Calculate accuracy for multiple choice questions
-     */
-    private double calculateAccuracy(int truePositives, int falsePositives, int falseNegatives) {
-        // Prevent division by zero
-        int totalSelections = truePositives + falsePositives + falseNegatives;
-        return totalSelections > 0 ?
-                (double) truePositives / totalSelections :
-                0;
-    }
-
-    /**
-     * Check if exam can be fully auto-graded
-     */
-    private boolean isFullyObjectiveExam(Submission submission) {
-        return submission.getExam().getQuestions().stream()
-                .noneMatch(this::isNonObjectiveQuestion);
-    }
     /**
      * Get a submission by ID with access control
      *
@@ -539,7 +576,7 @@ public class SubmissionService {
         Submission submission = submissionRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Submission not found with id: " + id));
 
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         // Check access permissions
         boolean hasAccess = submission.getStudent().getId().equals(currentUser.getId()) ||
@@ -582,7 +619,7 @@ public class SubmissionService {
     }
 
     private void validateSubmissionResultsAccess(Submission submission) {
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserProvider.getCurrentUser();
 
         boolean hasAccess = submission.getStudent().getId().equals(currentUser.getId()) ||
                 submission.getExam().getCourse().getTeacher().getId().equals(currentUser.getId()) ||
@@ -0,0 +1,138 @@
+package com.exam.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timer wheel. Level 0 has one slot per tick; each higher level has one slot per
+ * full turn of the level below. A timer is filed on the lowest level whose span covers it and
+ * cascades down a level each time the wheel below wraps, so scheduling and expiring are O(1)
+ * per timer no matter how many timers are pending.
+ * <p>
+ * Not thread-safe; callers synchronize.
+ *
+ * @param <T> The payload carried by each timer
+ */
+class TimerWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int MAX_LEVELS = 8;
+
+    private final long tickMillis;
+    private final List<List<Timer<T>>[]> levels = new ArrayList<>();
+    private final List<T> due = new ArrayList<>();
+    private long currentTick;
+
+    /**
+     * @param tickMillis The resolution of the wheel
+     * @param horizonMillis How far ahead timers can be scheduled, decides the number of levels
+     * @param nowMillis The current time
+     */
+    TimerWheel(long tickMillis, long horizonMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+
+        // Add levels until the wheel spans the horizon
+        levels.add(newLevel());
+        while ((1L << (SLOT_BITS * levels.size())) * tickMillis <= horizonMillis && levels.size() < MAX_LEVELS) {
+            levels.add(newLevel());
+        }
+    }
+
+    /**
+     * Schedule a timer
+     *
+     * @param deadlineMillis When the timer expires
+     * @param payload Returned by {@link #advance(long)} once the deadline has passed
+     * @return false if the deadline is beyond the horizon of the wheel and was not scheduled
+     */
+    boolean schedule(long deadlineMillis, T payload) {
+        return insert(new Timer<>(ceilDiv(deadlineMillis, tickMillis), payload));
+    }
+
+    /**
+     * Move the wheel forward and collect every timer that expired on the way
+     *
+     * @param nowMillis The current time
+     * @return The payloads of the expired timers, in no particular order
+     */
+    List<T> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade(1);
+
+            List<Timer<T>>[] level0 = levels.get(0);
+            int slot = (int) (currentTick & SLOT_MASK);
+            for (Timer<T> timer : level0[slot]) {
+                due.add(timer.payload);
+            }
+            level0[slot] = new ArrayList<>();
+        }
+
+        List<T> expired = new ArrayList<>(due);
+        due.clear();
+        return expired;
+    }
+
+    /**
+     * When every level below has wrapped, move the current slot of this level one level down
+     */
+    private void cascade(int level) {
+        if (level >= levels.size() || (currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+            return;
+        }
+        // Higher levels cascade first so their timers can land in this level's slot
+        cascade(level + 1);
+
+        List<Timer<T>>[] slots = levels.get(level);
+        int slot = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        List<Timer<T>> timers = slots[slot];
+        slots[slot] = new ArrayList<>();
+        for (Timer<T> timer : timers) {
+            insert(timer);
+        }
+    }
+
+    private boolean insert(Timer<T> timer) {
+        long delta = timer.deadlineTick - currentTick;
+        if (delta <= 0) {
+            due.add(timer.payload);
+            return true;
+        }
+
+        for (int level = 0; level < levels.size(); level++) {
+            if (delta < 1L << (SLOT_BITS * (level + 1))) {
+                int slot = (int) ((timer.deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+                levels.get(level)[slot].add(timer);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> List<Timer<T>>[] newLevel() {
+        List<Timer<T>>[] slots = new List[SLOTS];
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i] = new ArrayList<>();
+        }
+        return slots;
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+
+    private static class Timer<T> {
+        private final long deadlineTick;
+        private final T payload;
+
+        Timer(long deadlineTick, T payload) {
+            this.deadlineTick = deadlineTick;
+            this.payload = payload;
+        }
+    }
+}
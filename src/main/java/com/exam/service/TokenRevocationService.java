@@ -0,0 +1,56 @@
+package com.exam.service;
+
+import com.exam.dal.dto.UserTokenState;
+import com.exam.dal.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Decides whether a stateless token is still accepted, based on the user's token version.
+ * The state is cached for a short TTL, so a revocation takes effect within that window
+ * on other nodes and immediately on the node that performed it.
+ */
+@Service
+public class TokenRevocationService {
+
+    private final UserRepository userRepository;
+    private final LoadingCache<Long, Optional<UserTokenState>> tokenStates;
+
+    public TokenRevocationService(
+            UserRepository userRepository,
+            @Value("${security.jwt.stateless-principal.revocation-ttl:30s}") Duration revocationTtl,
+            @Value("${security.jwt.stateless-principal.cache-max-size:50000}") long cacheMaxSize) {
+        this.userRepository = userRepository;
+        this.tokenStates = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(revocationTtl)
+                .build(this.userRepository::findTokenStateById);
+    }
+
+    /**
+     * Check whether a token carrying the given version is still valid for the user
+     *
+     * @param userId The user ID from the token
+     * @param tokenVersion The version from the token
+     * @return true if the user exists, is active and has not revoked the version
+     */
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        return tokenStates.get(userId)
+                .map(state -> state.isActive() && state.getTokenVersion() == tokenVersion)
+                .orElse(false);
+    }
+
+    /**
+     * Drop the cached state of a user after their tokens were revoked or the user was removed
+     *
+     * @param userId The user ID
+     */
+    public void evict(Long userId) {
+        tokenStates.invalidate(userId);
+    }
+}
@@ -17,6 +17,7 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final TokenRevocationService tokenRevocationService;
 
     public List<User> getAllUsers() {
         return userRepository.findAll();
@@ -45,6 +46,7 @@ public class UserService {
 
     public User updateUser(Long id, UserUpdateRequest updateRequest) {
         User user = getUserById(id);
+        boolean credentialsChanged = false;
 
         // Update fields if provided
         if (updateRequest.getName() != null) {
@@ -57,21 +59,32 @@ public class UserService {
                 throw new RuntimeException("Email is already taken");
             }
             user.setEmail(updateRequest.getEmail());
+            credentialsChanged = true;
         }
 
         if (updateRequest.getPassword() != null) {
             user.setPassword(passwordEncoder.encode(updateRequest.getPassword()));
+            credentialsChanged = true;
         }
 
-        if (updateRequest.getRole() != null) {
+        if (updateRequest.getRole() != null && updateRequest.getRole() != user.getRole()) {
             user.setRole(updateRequest.getRole());
+            credentialsChanged = true;
         }
 
-        return userRepository.save(user);
+        // Tokens carry the email and role, so they must not outlive a change to either
+        if (credentialsChanged) {
+            user.revokeTokens();
+        }
+
+        User savedUser = userRepository.save(user);
+        tokenRevocationService.evict(savedUser.getId());
+        return savedUser;
     }
 
     public void deleteUser(Long id) {
         User user = getUserById(id);
         userRepository.delete(user);
+        tokenRevocationService.evict(id);
     }
 }
@@ -0,0 +1,36 @@
+package com.exam.service.grading;
+
+import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.CompiledAnswerKey.QuestionKey;
+import com.exam.dal.model.QuestionType;
+import com.exam.exception.ValidationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Essays are graded by the teacher, they score 0 until then
+ */
+@Component
+public class EssayGrader implements QuestionGrader {
+
+    @Override
+    public QuestionType getType() {
+        return QuestionType.ESSAY;
+    }
+
+    @Override
+    public void validate(QuestionKey key, AnswerRequest answer) {
+        if (TextAnswers.isBlank(answer.getTextAnswer())) {
+            throw new ValidationException("Essay questions require a text answer");
+        }
+    }
+
+    @Override
+    public double score(QuestionKey key, AnswerRequest answer) {
+        return 0;
+    }
+
+    @Override
+    public boolean isAutomatic(QuestionKey key) {
+        return false;
+    }
+}
@@ -0,0 +1,24 @@
+package com.exam.service.grading;
+
+import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.CompiledAnswerKey.QuestionKey;
+import com.exam.exception.ValidationException;
+
+/**
+ * Questions answered by selecting one option, which get all of their marks if it is the correct one
+ */
+abstract class ExactChoiceGrader implements QuestionGrader {
+
+    @Override
+    public void validate(QuestionKey key, AnswerRequest answer) {
+        if (answer.getSelectedOptionIds() == null || answer.getSelectedOptionIds().size() != 1) {
+            throw new ValidationException("Single choice and true/false questions require exactly one selected option");
+        }
+        Selections.validateOptions(key, answer.getSelectedOptionIds());
+    }
+
+    @Override
+    public double score(QuestionKey key, AnswerRequest answer) {
+        return Selections.isExact(key, answer.getSelectedOptionIds()) ? key.getMarks() : 0;
+    }
+}
@@ -0,0 +1,57 @@
+package com.exam.service.grading;
+
+import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.CompiledAnswerKey.QuestionKey;
+import com.exam.dal.model.QuestionType;
+import com.exam.exception.ValidationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * A fill-in-the-blank question's accepted answers say which blank they fill. Without any, its
+ * correct options are the blanks in option order, accepted ignoring case and whitespace. An
+ * answer fills the blanks one per line and gets the marks scaled by the blanks filled right,
+ * rounded. A question with neither is left to the teacher.
+ */
+@Component
+public class FillInBlankGrader implements QuestionGrader {
+
+    @Override
+    public QuestionType getType() {
+        return QuestionType.FILL_IN_BLANK;
+    }
+
+    @Override
+    public void validate(QuestionKey key, AnswerRequest answer) {
+        if (TextAnswers.isBlank(answer.getTextAnswer())) {
+            throw new ValidationException("Fill in the blank questions require a text answer");
+        }
+    }
+
+    @Override
+    public double score(QuestionKey key, AnswerRequest answer) {
+        String text = answer.getTextAnswer();
+        int blanks = key.getBlankCount();
+        if (text == null || blanks == 0) {
+            return 0;
+        }
+
+        int filled = 0;
+        int from = 0;
+        for (int blank = 0; blank < blanks && from <= text.length(); blank++) {
+            int to = text.indexOf('\n', from);
+            if (to < 0) {
+                to = text.length();
+            }
+            if (key.getBlank(blank).matches(text, from, to)) {
+                filled++;
+            }
+            from = to + 1;
+        }
+        return Math.round((double) filled / blanks * key.getMarks());
+    }
+
+    @Override
+    public boolean isAutomatic(QuestionKey key) {
+        return key.getBlankCount() > 0;
+    }
+}
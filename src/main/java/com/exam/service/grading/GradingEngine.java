@@ -0,0 +1,105 @@
+package com.exam.service.grading;
+
+import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.CompiledAnswerKey;
+import com.exam.dal.dto.CompiledAnswerKey.QuestionKey;
+import com.exam.dal.model.QuestionType;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Validates and scores answers with the grader registered for each question type. Fails at
+ * startup if a question type has no grader or more than one.
+ */
+@Service
+public class GradingEngine {
+
+    private final Map<QuestionType, QuestionGrader> graders = new EnumMap<>(QuestionType.class);
+
+    public GradingEngine(List<QuestionGrader> questionGraders) {
+        for (QuestionGrader grader : questionGraders) {
+            QuestionGrader existing = graders.put(grader.getType(), grader);
+            if (existing != null) {
+                throw new IllegalStateException("Question type " + grader.getType() + " has two graders: "
+                        + existing.getClass().getSimpleName() + " and " + grader.getClass().getSimpleName());
+            }
+        }
+
+        Set<QuestionType> missing = EnumSet.allOf(QuestionType.class);
+        missing.removeAll(graders.keySet());
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("No grader registered for question types " + missing);
+        }
+    }
+
+    /**
+     * Check that an answer to a question is complete
+     *
+     * @param key The question's key
+     * @param answer The answer
+     * @throws com.exam.exception.ValidationException if it is not
+     */
+    public void validate(QuestionKey key, AnswerRequest answer) {
+        graders.get(key.getType()).validate(key, answer);
+    }
+
+    /**
+     * Score the answers of a submission
+     *
+     * @param answerKey The exam's answer key
+     * @param answers The answers, those to questions not in the key score 0
+     * @return The total marks awarded
+     */
+    public double score(CompiledAnswerKey answerKey, List<AnswerRequest> answers) {
+        double totalScore = 0;
+        for (int i = 0; i < answers.size(); i++) {
+            AnswerRequest answer = answers.get(i);
+            QuestionKey key = answerKey.getQuestion(answer.getQuestionId());
+            if (key != null) {
+                totalScore += score(key, answer);
+            }
+        }
+        return totalScore;
+    }
+
+    /**
+     * Score one answer
+     *
+     * @param key The question's key
+     * @param answer The answer to the question
+     * @return The marks awarded
+     */
+    public double score(QuestionKey key, AnswerRequest answer) {
+        return graders.get(key.getType()).score(key, answer);
+    }
+
+    /**
+     * Check whether answers to a question are graded when scored, or need a teacher
+     *
+     * @param key The question's key
+     * @return true if the question is graded automatically
+     */
+    public boolean isAutomatic(QuestionKey key) {
+        return graders.get(key.getType()).isAutomatic(key);
+    }
+
+    /**
+     * Check whether submissions to an exam are fully graded when scored, or need a teacher
+     *
+     * @param answerKey The exam's answer key
+     * @return true if every question is graded automatically
+     */
+    public boolean isFullyAutomatic(CompiledAnswerKey answerKey) {
+        for (QuestionKey key : answerKey.getQuestions()) {
+            if (!isAutomatic(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,51 @@
+package com.exam.service.grading;
+
+import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.CompiledAnswerKey.QuestionKey;
+import com.exam.dal.model.QuestionType;
+import com.exam.exception.ValidationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Each option of a matching question records the item listed in the question that it matches.
+ * An answer selects one option per item, in item order, and gets the marks scaled by the items
+ * matched right, rounded.
+ */
+@Component
+public class MatchingGrader implements QuestionGrader {
+
+    @Override
+    public QuestionType getType() {
+        return QuestionType.MATCHING;
+    }
+
+    @Override
+    public void validate(QuestionKey key, AnswerRequest answer) {
+        if (answer.getSelectedOptionIds() == null || answer.getSelectedOptionIds().size() != key.getOptionCount()) {
+            throw new ValidationException("Matching questions require one selected option per item");
+        }
+        Selections.validateOptions(key, answer.getSelectedOptionIds());
+    }
+
+    @Override
+    public double score(QuestionKey key, AnswerRequest answer) {
+        int items = key.getOptionCount();
+        if (answer.getSelectedOptionIds() == null || items == 0) {
+            return 0;
+        }
+
+        int matched = 0;
+        for (int item = 0; item < items && item < answer.getSelectedOptionIds().size(); item++) {
+            int index = key.indexOf(answer.getSelectedOptionIds().get(item));
+            if (index >= 0 && key.getMatchItem(index) == item) {
+                matched++;
+            }
+        }
+        return Math.round((double) matched / items * key.getMarks());
+    }
+
+    @Override
+    public boolean isAutomatic(QuestionKey key) {
+        return key.getOptionCount() > 0;
+    }
+}
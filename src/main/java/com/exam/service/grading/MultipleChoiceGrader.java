@@ -0,0 +1,32 @@
+package com.exam.service.grading;
+
+import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.CompiledAnswerKey.QuestionKey;
+import com.exam.dal.model.QuestionType;
+import com.exam.exception.ValidationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Multiple choice answers get partial marks, scaled by how many selections are right
+ */
+@Component
+public class MultipleChoiceGrader implements QuestionGrader {
+
+    @Override
+    public QuestionType getType() {
+        return QuestionType.MULTIPLE_CHOICE;
+    }
+
+    @Override
+    public void validate(QuestionKey key, AnswerRequest answer) {
+        if (answer.getSelectedOptionIds() == null || answer.getSelectedOptionIds().isEmpty()) {
+            throw new ValidationException("Multiple choice questions require at least one selected option");
+        }
+        Selections.validateOptions(key, answer.getSelectedOptionIds());
+    }
+
+    @Override
+    public double score(QuestionKey key, AnswerRequest answer) {
+        return Selections.partialMarks(key, answer.getSelectedOptionIds());
+    }
+}
@@ -0,0 +1,33 @@
+package com.exam.service.grading;
+
+import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.CompiledAnswerKey.QuestionKey;
+import com.exam.dal.model.QuestionType;
+import com.exam.exception.ValidationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Multiple response answers get all of the marks only if they select every correct option and
+ * nothing else
+ */
+@Component
+public class MultipleResponseGrader implements QuestionGrader {
+
+    @Override
+    public QuestionType getType() {
+        return QuestionType.MULTIPLE_RESPONSE;
+    }
+
+    @Override
+    public void validate(QuestionKey key, AnswerRequest answer) {
+        if (answer.getSelectedOptionIds() == null || answer.getSelectedOptionIds().isEmpty()) {
+            throw new ValidationException("Multiple response questions require at least one selected option");
+        }
+        Selections.validateOptions(key, answer.getSelectedOptionIds());
+    }
+
+    @Override
+    public double score(QuestionKey key, AnswerRequest answer) {
+        return Selections.isExact(key, answer.getSelectedOptionIds()) ? key.getMarks() : 0;
+    }
+}
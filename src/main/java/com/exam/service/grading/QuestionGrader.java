@@ -0,0 +1,50 @@
+package com.exam.service.grading;
+
+import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.CompiledAnswerKey.QuestionKey;
+import com.exam.dal.model.QuestionType;
+
+/**
+ * Validates and scores the answers to one type of question. Every question type has exactly one
+ * grader bean, the {@link GradingEngine} picks it by the question's type.
+ * <p>
+ * Graders are shared between threads and called for every answer of every submission, so they
+ * must be stateless and should not allocate.
+ */
+public interface QuestionGrader {
+
+    /**
+     * Get the question type this grader handles
+     *
+     * @return The question type
+     */
+    QuestionType getType();
+
+    /**
+     * Check that an answer is complete. The question is already known to be in the exam.
+     *
+     * @param key The question's key
+     * @param answer The answer
+     * @throws com.exam.exception.ValidationException if the answer is incomplete or selects options of another question
+     */
+    void validate(QuestionKey key, AnswerRequest answer);
+
+    /**
+     * Score an answer
+     *
+     * @param key The question's key
+     * @param answer The answer, validated when submitted but possibly not when re-graded
+     * @return The marks awarded, between 0 and the question's marks
+     */
+    double score(QuestionKey key, AnswerRequest answer);
+
+    /**
+     * Check whether answers to a question are fully graded by {@link #score}, or still need a teacher
+     *
+     * @param key The question's key
+     * @return true if no teacher grading is needed
+     */
+    default boolean isAutomatic(QuestionKey key) {
+        return true;
+    }
+}
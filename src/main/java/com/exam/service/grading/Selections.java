@@ -0,0 +1,74 @@
+package com.exam.service.grading;
+
+import com.exam.dal.dto.CompiledAnswerKey.QuestionKey;
+import com.exam.exception.ValidationException;
+
+import java.util.List;
+
+/**
+ * Comparisons of selected options with a question's bitmask of correct options
+ */
+final class Selections {
+
+    private Selections() {
+    }
+
+    /**
+     * Check that all selected options belong to the question
+     */
+    static void validateOptions(QuestionKey key, List<Long> selectedOptionIds) {
+        for (int i = 0; i < selectedOptionIds.size(); i++) {
+            if (key.indexOf(selectedOptionIds.get(i)) < 0) {
+                throw new ValidationException("Selected options must belong to the question");
+            }
+        }
+    }
+
+    /**
+     * Check that exactly the correct options are selected
+     */
+    static boolean isExact(QuestionKey key, List<Long> selectedOptionIds) {
+        for (int word = 0; word < key.getWordCount(); word++) {
+            long selected = 0;
+            for (int i = 0; selectedOptionIds != null && i < selectedOptionIds.size(); i++) {
+                int index = key.indexOf(selectedOptionIds.get(i));
+                if (index < 0) {
+                    return false;
+                }
+                if (index >>> 6 == word) {
+                    selected |= 1L << index;
+                }
+            }
+            if ((selected ^ key.getCorrectWord(word)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scale the question's marks by correct selections over correct, wrong and missed selections
+     * together, rounded. Options not of the question count as wrong selections.
+     */
+    static double partialMarks(QuestionKey key, List<Long> selectedOptionIds) {
+        int truePositives = 0;
+        int mismatches = 0;
+        for (int word = 0; word < key.getWordCount(); word++) {
+            // An option selected twice sets its bit once
+            long selected = 0;
+            for (int i = 0; selectedOptionIds != null && i < selectedOptionIds.size(); i++) {
+                int index = key.indexOf(selectedOptionIds.get(i));
+                if (index < 0) {
+                    mismatches += word == 0 ? 1 : 0;
+                } else if (index >>> 6 == word) {
+                    selected |= 1L << index;
+                }
+            }
+            truePositives += Long.bitCount(selected & key.getCorrectWord(word));
+            // Wrong selections and missed correct options
+            mismatches += Long.bitCount(selected ^ key.getCorrectWord(word));
+        }
+        int total = truePositives + mismatches;
+        return total > 0 ? Math.round((double) truePositives / total * key.getMarks()) : 0;
+    }
+}
@@ -0,0 +1,42 @@
+package com.exam.service.grading;
+
+import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.CompiledAnswerKey.QuestionKey;
+import com.exam.dal.model.QuestionType;
+import com.exam.exception.ValidationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Short answers get all of the marks if they match one of the question's accepted answers, or
+ * without any, one of its correct options ignoring case and whitespace. A question with neither
+ * is left to the teacher.
+ */
+@Component
+public class ShortAnswerGrader implements QuestionGrader {
+
+    @Override
+    public QuestionType getType() {
+        return QuestionType.SHORT_ANSWER;
+    }
+
+    @Override
+    public void validate(QuestionKey key, AnswerRequest answer) {
+        if (TextAnswers.isBlank(answer.getTextAnswer())) {
+            throw new ValidationException("Short answer questions require a text answer");
+        }
+    }
+
+    @Override
+    public double score(QuestionKey key, AnswerRequest answer) {
+        String text = answer.getTextAnswer();
+        if (text == null || key.getBlankCount() == 0) {
+            return 0;
+        }
+        return key.getBlank(0).matches(text, 0, text.length()) ? key.getMarks() : 0;
+    }
+
+    @Override
+    public boolean isAutomatic(QuestionKey key) {
+        return key.getBlankCount() > 0;
+    }
+}
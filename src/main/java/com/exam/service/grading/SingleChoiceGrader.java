@@ -0,0 +1,13 @@
+package com.exam.service.grading;
+
+import com.exam.dal.model.QuestionType;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SingleChoiceGrader extends ExactChoiceGrader {
+
+    @Override
+    public QuestionType getType() {
+        return QuestionType.SINGLE_CHOICE;
+    }
+}
@@ -0,0 +1,14 @@
+package com.exam.service.grading;
+
+/**
+ * Checks of text answers
+ */
+final class TextAnswers {
+
+    private TextAnswers() {
+    }
+
+    static boolean isBlank(String text) {
+        return text == null || text.isBlank();
+    }
+}
@@ -0,0 +1,13 @@
+package com.exam.service.grading;
+
+import com.exam.dal.model.QuestionType;
+import org.springframework.stereotype.Component;
+
+@Component
+public class TrueFalseGrader extends ExactChoiceGrader {
+
+    @Override
+    public QuestionType getType() {
+        return QuestionType.TRUE_FALSE;
+    }
+}
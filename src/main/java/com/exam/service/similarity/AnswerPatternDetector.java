@@ -0,0 +1,248 @@
+package com.exam.service.similarity;
+
+import com.exam.dal.dto.CompiledAnswerKey;
+import com.exam.dal.dto.CompiledAnswerKey.QuestionKey;
+import com.exam.dal.model.QuestionType;
+import com.exam.dal.model.SimilarityFlag;
+import com.exam.dal.model.SimilarityKind;
+import com.exam.dal.repository.SimilarityRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds pairs of submissions picking the same wrong options of choice questions more often than
+ * independent students would. Each submission's wrong picks are kept as a row of bits, one per
+ * wrong option of the exam. Candidate pairs are found through the rarely picked wrong options
+ * only, each indexed to the submissions picking it, and then compared on all their bits at once.
+ * <p>
+ * A student picks each wrong option about as often as its share of the other submissions, scaled
+ * by how many wrong options the student picked against the average. Two independent students are
+ * expected to share the sum of that over the wrong options the other one picked, averaged both
+ * ways. The pair itself is left out of the shares, or a copied rare option would look common. A pair is
+ * flagged when a Poisson count with that mean reaches its number of shared wrong options with a
+ * probability below the significance level. Shared wrong options of independent students spread
+ * less than a Poisson count, so the probability errs high and honest pairs are rarely flagged.
+ */
+@Component
+@Slf4j
+public class AnswerPatternDetector {
+
+    private static final Set<QuestionType> CHOICE_TYPES = EnumSet.of(
+            QuestionType.SINGLE_CHOICE, QuestionType.MULTIPLE_CHOICE, QuestionType.MULTIPLE_RESPONSE, QuestionType.TRUE_FALSE);
+
+    private final SimilarityRepository similarityRepository;
+    private final double rareShare;
+    private final int minSharedErrors;
+    private final double significance;
+
+    public AnswerPatternDetector(
+            SimilarityRepository similarityRepository,
+            @Value("${app.similarity.answer-pattern.rare-share:0.1}") double rareShare,
+            @Value("${app.similarity.answer-pattern.min-shared-errors:3}") int minSharedErrors,
+            @Value("${app.similarity.answer-pattern.significance:1e-6}") double significance) {
+        this.similarityRepository = similarityRepository;
+        this.rareShare = rareShare;
+        this.minSharedErrors = Math.max(1, minSharedErrors);
+        this.significance = significance;
+    }
+
+    /**
+     * Find the pairs of an exam's submissions with unlikely shared wrong answers
+     *
+     * @param examId The exam ID
+     * @param answerKey The exam's answer key
+     * @return A flag per pair
+     */
+    public List<SimilarityFlag> detect(Long examId, CompiledAnswerKey answerKey) {
+        // Number every wrong option of the choice questions, each question maps its options to it
+        Map<Long, int[]> wrongBits = new HashMap<>();
+        int wrongOptions = 0;
+        for (QuestionKey question : answerKey.getQuestions()) {
+            if (!CHOICE_TYPES.contains(question.getType())) {
+                continue;
+            }
+            int[] bits = new int[question.getOptionCount()];
+            for (int option = 0; option < bits.length; option++) {
+                boolean correct = (question.getCorrectWord(option >>> 6) & 1L << option) != 0;
+                bits[option] = correct ? -1 : wrongOptions++;
+            }
+            wrongBits.put(question.getQuestionId(), bits);
+        }
+        long submissions = similarityRepository.countFinished(examId);
+        if (wrongOptions == 0 || submissions < 3) {
+            return List.of();
+        }
+
+        int words = (wrongOptions + 63) >>> 6;
+        Map<Long, long[]> rowsBySubmission = new HashMap<>();
+        similarityRepository.forEachSelectedOption(examId, (submissionId, questionId, optionId) -> {
+            int[] bits = wrongBits.get(questionId);
+            QuestionKey question = answerKey.getQuestion(questionId);
+            int option = bits != null ? question.indexOf(optionId) : -1;
+            if (option >= 0 && bits[option] >= 0) {
+                int bit = bits[option];
+                rowsBySubmission.computeIfAbsent(submissionId, id -> new long[words])[bit >>> 6] |= 1L << bit;
+            }
+        });
+
+        // Only submissions with a wrong pick can share one
+        long[] submissionIds = new long[rowsBySubmission.size()];
+        long[][] rows = new long[rowsBySubmission.size()][];
+        int[] errors = new int[rows.length];
+        int[] pickedBy = new int[wrongOptions];
+        long totalErrors = 0;
+        int r = 0;
+        for (Map.Entry<Long, long[]> entry : rowsBySubmission.entrySet()) {
+            submissionIds[r] = entry.getKey();
+            rows[r] = entry.getValue();
+            for (int word = 0; word < words; word++) {
+                long bits = rows[r][word];
+                errors[r] += Long.bitCount(bits);
+                for (; bits != 0; bits &= bits - 1) {
+                    pickedBy[word << 6 | Long.numberOfTrailingZeros(bits)]++;
+                }
+            }
+            totalErrors += errors[r];
+            r++;
+        }
+
+        // The submissions picking each wrong option, summed over each submission's picks
+        long[] picks = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            for (int word = 0; word < words; word++) {
+                for (long bits = rows[i][word]; bits != 0; bits &= bits - 1) {
+                    picks[i] += pickedBy[word << 6 | Long.numberOfTrailingZeros(bits)];
+                }
+            }
+        }
+        double meanErrors = (double) totalErrors / submissions;
+
+        // An option only a pair picked is rare however small the exam
+        int[][] postings = rarePostings(rows, pickedBy, Math.max(2, (int) (rareShare * submissions)));
+
+        LocalDateTime detectedAt = LocalDateTime.now();
+        List<SimilarityFlag> flags = new ArrayList<>();
+        int[] rareShared = new int[rows.length];
+        int[] touched = new int[rows.length];
+        long candidates = 0;
+        for (int i = 0; i < rows.length; i++) {
+            // Count the rare wrong options shared with each later submission
+            int touchedCount = 0;
+            for (int word = 0; word < words; word++) {
+                for (long bits = rows[i][word]; bits != 0; bits &= bits - 1) {
+                    int[] posting = postings[word << 6 | Long.numberOfTrailingZeros(bits)];
+                    if (posting == null) {
+                        continue;
+                    }
+                    for (int j : posting) {
+                        if (j > i && rareShared[j]++ == 0) {
+                            touched[touchedCount++] = j;
+                        }
+                    }
+                }
+            }
+            candidates += touchedCount;
+
+            for (int t = 0; t < touchedCount; t++) {
+                int j = touched[t];
+                rareShared[j] = 0;
+                int shared = 0;
+                for (int word = 0; word < words; word++) {
+                    shared += Long.bitCount(rows[i][word] & rows[j][word]);
+                }
+                if (shared < minSharedErrors) {
+                    continue;
+                }
+                // Picks of the other submissions, without the first of the pair and the second where it shares
+                double othersShareI = (double) (picks[i] - errors[i] - shared) / (submissions - 2);
+                double othersShareJ = (double) (picks[j] - errors[j] - shared) / (submissions - 2);
+                double expected = (othersShareI * errors[j] + othersShareJ * errors[i]) / (2 * meanErrors);
+                double probability = poissonTail(shared, expected);
+                if (probability < significance) {
+                    flags.add(SimilarityFlag.builder()
+                            .kind(SimilarityKind.ANSWER_PATTERN)
+                            .examId(examId)
+                            .submissionId(Math.min(submissionIds[i], submissionIds[j]))
+                            .otherSubmissionId(Math.max(submissionIds[i], submissionIds[j]))
+                            .similarity((double) shared / (errors[i] + errors[j] - shared))
+                            .sharedErrors(shared)
+                            .probability(probability)
+                            .detectedAt(detectedAt)
+                            .build());
+                }
+            }
+        }
+        log.debug("Answer patterns of exam {}: {} submissions with wrong picks, {} candidate pairs", examId,
+                rows.length, candidates);
+        return flags;
+    }
+
+    /**
+     * Index the submissions picking each rare wrong option
+     *
+     * @return The indexes of the submissions picking each wrong option, null if it is not rare
+     */
+    private static int[][] rarePostings(long[][] rows, int[] pickedBy, int maxPicks) {
+        int[][] postings = new int[pickedBy.length][];
+        int[] filled = new int[pickedBy.length];
+        for (int bit = 0; bit < pickedBy.length; bit++) {
+            // An option picked once cannot be shared
+            if (pickedBy[bit] >= 2 && pickedBy[bit] <= maxPicks) {
+                postings[bit] = new int[pickedBy[bit]];
+            }
+        }
+        for (int i = 0; i < rows.length; i++) {
+            for (int word = 0; word < rows[i].length; word++) {
+                for (long bits = rows[i][word]; bits != 0; bits &= bits - 1) {
+                    int bit = word << 6 | Long.numberOfTrailingZeros(bits);
+                    if (postings[bit] != null) {
+                        postings[bit][filled[bit]++] = i;
+                    }
+                }
+            }
+        }
+        return postings;
+    }
+
+    /**
+     * Get the probability of a Poisson count reaching a value
+     *
+     * @param count The value
+     * @param mean The mean of the count
+     * @return P(X >= count)
+     */
+    static double poissonTail(int count, double mean) {
+        if (count <= 0) {
+            return 1;
+        }
+        if (mean <= 0) {
+            return 0;
+        }
+
+        // The terms from count upwards, summed in log space until they stop adding anything
+        double logMean = Math.log(mean);
+        double logTerm = -mean + count * logMean;
+        for (int k = 2; k <= count; k++) {
+            logTerm -= Math.log(k);
+        }
+        double tail = 0;
+        for (int k = count; k < count + 10_000; k++) {
+            double term = Math.exp(logTerm);
+            tail += term;
+            if (k > mean && term <= tail * 1e-12) {
+                break;
+            }
+            logTerm += logMean - Math.log(k + 1);
+        }
+        return Math.min(1, tail);
+    }
+}
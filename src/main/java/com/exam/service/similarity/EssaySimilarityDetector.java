@@ -0,0 +1,238 @@
+package com.exam.service.similarity;
+
+import com.exam.dal.model.SimilarityFlag;
+import com.exam.dal.model.SimilarityKind;
+import com.exam.dal.repository.SimilarityRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds essay answers to the same question that share most of their wording. Each answer is cut
+ * into overlapping word shingles and summarized by a MinHash signature. Signatures are split into
+ * bands and answers agreeing on a whole band land in the same bucket, so only answers likely to
+ * be similar become candidate pairs. Candidates are then compared exactly, by the Jaccard
+ * similarity of their shingles.
+ * <p>
+ * With 32 bands of 4 rows, a pair with a Jaccard similarity of 0.5 becomes a candidate with a
+ * probability of about 87%, and of 0.7 with a probability of over 99.9%.
+ */
+@Component
+@Slf4j
+public class EssaySimilarityDetector {
+
+    private static final int BANDS = 32;
+    private static final int ROWS = 4;
+    private static final int SIGNATURE_SIZE = BANDS * ROWS;
+
+    // A bucket this large holds near-identical boilerplate, pairing all of it would swamp the review
+    private static final int MAX_BUCKET_SIZE = 500;
+
+    private static final long[] SEEDS = new long[SIGNATURE_SIZE];
+
+    static {
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            SEEDS[i] = mix(seed);
+        }
+    }
+
+    private final SimilarityRepository similarityRepository;
+    private final int shingleSize;
+    private final int minWords;
+    private final double threshold;
+
+    public EssaySimilarityDetector(
+            SimilarityRepository similarityRepository,
+            @Value("${app.similarity.essay.shingle-size:3}") int shingleSize,
+            @Value("${app.similarity.essay.min-words:20}") int minWords,
+            @Value("${app.similarity.essay.threshold:0.5}") double threshold) {
+        this.similarityRepository = similarityRepository;
+        this.shingleSize = shingleSize;
+        this.minWords = Math.max(minWords, shingleSize);
+        this.threshold = threshold;
+    }
+
+    /**
+     * Find the pairs of similar essay answers of an exam
+     *
+     * @param examId The exam ID
+     * @return A flag per pair of answers at least as similar as the threshold
+     */
+    public List<SimilarityFlag> detect(Long examId) {
+        Map<Long, List<Sketch>> sketchesByQuestion = new HashMap<>();
+        similarityRepository.forEachEssayAnswer(examId, (submissionId, questionId, textAnswer) -> {
+            long[] shingles = shingles(textAnswer);
+            if (shingles != null) {
+                sketchesByQuestion.computeIfAbsent(questionId, id -> new ArrayList<>())
+                        .add(new Sketch(submissionId, shingles, signature(shingles)));
+            }
+        });
+
+        LocalDateTime detectedAt = LocalDateTime.now();
+        List<SimilarityFlag> flags = new ArrayList<>();
+        sketchesByQuestion.forEach((questionId, sketches) -> {
+            Set<Long> candidates = candidatePairs(sketches);
+            for (long pair : candidates) {
+                Sketch first = sketches.get((int) (pair >>> 32));
+                Sketch second = sketches.get((int) pair);
+                double similarity = jaccard(first.shingles, second.shingles);
+                if (similarity >= threshold) {
+                    flags.add(SimilarityFlag.builder()
+                            .kind(SimilarityKind.ESSAY_TEXT)
+                            .examId(examId)
+                            .questionId(questionId)
+                            .submissionId(Math.min(first.submissionId, second.submissionId))
+                            .otherSubmissionId(Math.max(first.submissionId, second.submissionId))
+                            .similarity(similarity)
+                            .detectedAt(detectedAt)
+                            .build());
+                }
+            }
+            log.debug("Essay question {} of exam {}: {} answers, {} candidate pairs", questionId, examId,
+                    sketches.size(), candidates.size());
+        });
+        return flags;
+    }
+
+    /**
+     * Hash the word shingles of a text
+     *
+     * @return The distinct shingle hashes in ascending order, or null if the text is too short to compare
+     */
+    long[] shingles(String text) {
+        List<Long> words = new ArrayList<>();
+        long hash = 0;
+        boolean inWord = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                // FNV-1a over the lower-cased word
+                hash = ((inWord ? hash : 0xCBF29CE484222325L) ^ Character.toLowerCase(c)) * 0x100000001B3L;
+                inWord = true;
+            } else if (inWord) {
+                words.add(hash);
+                inWord = false;
+            }
+        }
+        if (inWord) {
+            words.add(hash);
+        }
+        if (words.size() < minWords) {
+            return null;
+        }
+
+        long[] shingles = new long[words.size() - shingleSize + 1];
+        for (int i = 0; i < shingles.length; i++) {
+            long shingle = 0;
+            for (int j = 0; j < shingleSize; j++) {
+                shingle = shingle * 0x9E3779B97F4A7C15L + words.get(i + j);
+            }
+            shingles[i] = mix(shingle);
+        }
+        Arrays.sort(shingles);
+
+        int distinct = 0;
+        for (int i = 0; i < shingles.length; i++) {
+            if (i == 0 || shingles[i] != shingles[i - 1]) {
+                shingles[distinct++] = shingles[i];
+            }
+        }
+        return Arrays.copyOf(shingles, distinct);
+    }
+
+    private static int[] signature(long[] shingles) {
+        int[] signature = new int[SIGNATURE_SIZE];
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            long min = Long.MAX_VALUE;
+            for (long shingle : shingles) {
+                // Each seed gives an independent permutation of the shingle hashes
+                min = Math.min(min, mix(shingle ^ SEEDS[i]) >>> 1);
+            }
+            signature[i] = (int) (min >>> 31);
+        }
+        return signature;
+    }
+
+    /**
+     * Pair up the answers that agree on at least one band of their signatures
+     *
+     * @return The pairs as the indexes of the two answers, the lower in the high half
+     */
+    private static Set<Long> candidatePairs(List<Sketch> sketches) {
+        Set<Long> pairs = new HashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            Map<Long, List<Integer>> buckets = new HashMap<>();
+            for (int i = 0; i < sketches.size(); i++) {
+                long key = band;
+                int[] signature = sketches.get(i).signature;
+                for (int row = band * ROWS; row < (band + 1) * ROWS; row++) {
+                    key = key * 0x9E3779B97F4A7C15L + signature[row];
+                }
+                buckets.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            }
+
+            for (List<Integer> bucket : buckets.values()) {
+                if (bucket.size() < 2 || bucket.size() > MAX_BUCKET_SIZE) {
+                    continue;
+                }
+                for (int i = 0; i < bucket.size(); i++) {
+                    for (int j = i + 1; j < bucket.size(); j++) {
+                        pairs.add((long) bucket.get(i) << 32 | bucket.get(j));
+                    }
+                }
+            }
+        }
+        return pairs;
+    }
+
+    private static double jaccard(long[] first, long[] second) {
+        int shared = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] == second[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (first[i] < second[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) shared / (first.length + second.length - shared);
+    }
+
+    // The finalizer of MurmurHash3, spreads every input bit over the whole hash
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB93FE1A85B35L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Sketch {
+        private final long submissionId;
+        private final long[] shingles;
+        private final int[] signature;
+
+        Sketch(long submissionId, long[] shingles, int[] signature) {
+            this.submissionId = submissionId;
+            this.shingles = shingles;
+            this.signature = signature;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.exam;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Timing helpers for the benchmarks. Benchmarks are tests tagged {@value #TAG}, they are left out of
+ * the normal build and run with {@code mvn test -Pbenchmark}. They print their results instead of
+ * asserting on them, a timing threshold would only make the build flaky.
+ */
+public final class Benchmarks {
+
+    public static final String TAG = "benchmark";
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Run an operation in timed rounds after some untimed warm-up rounds
+     *
+     * @param warmups Number of untimed rounds run first
+     * @param rounds Number of timed rounds
+     * @param operations Number of operations per round, the operation gets its index
+     * @param operation The operation to time
+     * @return The median time of one operation over the timed rounds, in nanoseconds
+     */
+    public static double medianNanosPerOperation(int warmups, int rounds, int operations, IntConsumer operation) {
+        for (int round = 0; round < warmups; round++) {
+            for (int i = 0; i < operations; i++) {
+                operation.accept(i);
+            }
+        }
+        double[] nanos = new double[rounds];
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < operations; i++) {
+                operation.accept(i);
+            }
+            nanos[round] = (double) (System.nanoTime() - start) / operations;
+        }
+        return median(nanos);
+    }
+
+    /**
+     * Bytes allocated by the current thread per operation, measured over one round after warm-up
+     *
+     * @param operations Number of operations, the operation gets its index
+     * @param operation The operation to measure
+     * @return Allocated bytes per operation, or -1 if the JVM cannot tell
+     */
+    public static double allocatedBytesPerOperation(int operations, IntConsumer operation) {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported()) {
+            return -1;
+        }
+        for (int i = 0; i < operations; i++) {
+            operation.accept(i);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < operations; i++) {
+            operation.accept(i);
+        }
+        return (double) (threads.getThreadAllocatedBytes(threadId) - before) / operations;
+    }
+
+    public static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    /**
+     * Print one result line, prefixed so the results are easy to find in the build output
+     */
+    public static void report(String format, Object... args) {
+        System.out.printf("[benchmark] " + format + "%n", args);
+    }
+}
@@ -0,0 +1,138 @@
+package com.exam.dal.dto;
+
+import com.exam.dal.dto.ExamPaper.PaperAcceptedAnswer;
+import com.exam.dal.model.MatchType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AnswerMatcherTest {
+
+    @Test
+    void matchesExactAnswersIgnoringSurroundingWhitespace() {
+        AnswerMatcher matcher = compile(accepted("New York", MatchType.EXACT));
+
+        assertThat(matches(matcher, "New York")).isTrue();
+        assertThat(matches(matcher, " \tNew York\n")).isTrue();
+        assertThat(matches(matcher, "new york")).isFalse();
+        assertThat(matches(matcher, "New  York")).isFalse();
+        assertThat(matches(matcher, "New Yor")).isFalse();
+        assertThat(matches(matcher, "New Yorks")).isFalse();
+    }
+
+    @Test
+    void matchesIgnoringCase() {
+        AnswerMatcher matcher = compile(accepted("New York", MatchType.IGNORE_CASE));
+
+        assertThat(matches(matcher, "NEW york")).isTrue();
+        assertThat(matches(matcher, "new  york")).isFalse();
+    }
+
+    @Test
+    void matchesIgnoringWhitespace() {
+        AnswerMatcher matcher = compile(accepted(" New \t York ", MatchType.IGNORE_WHITESPACE));
+
+        assertThat(matches(matcher, "New York")).isTrue();
+        assertThat(matches(matcher, "New\n\n  York")).isTrue();
+        assertThat(matches(matcher, "NewYork")).isFalse();
+        assertThat(matches(matcher, "new york")).isFalse();
+    }
+
+    @Test
+    void matchesIgnoringCaseAndWhitespace() {
+        AnswerMatcher matcher = compile(accepted("New York", MatchType.IGNORE_CASE_AND_WHITESPACE));
+
+        assertThat(matches(matcher, "  nEw   YORK ")).isTrue();
+        assertThat(matches(matcher, "newyork")).isFalse();
+    }
+
+    @Test
+    void matchesAnyOfSeveralAcceptedAnswers() {
+        AnswerMatcher matcher = compile(
+                accepted("NYC", MatchType.EXACT),
+                accepted("new york", MatchType.IGNORE_CASE),
+                accepted("New York City", MatchType.IGNORE_WHITESPACE));
+
+        assertThat(matches(matcher, "NYC")).isTrue();
+        assertThat(matches(matcher, "NEW YORK")).isTrue();
+        assertThat(matches(matcher, "New   York City")).isTrue();
+        assertThat(matches(matcher, "nyc")).isFalse();
+        assertThat(matches(matcher, "New")).isFalse();
+    }
+
+    @Test
+    void matchesNumbersWithinTheTolerance() {
+        AnswerMatcher matcher = compile(new PaperAcceptedAnswer(1L, "3.14", MatchType.NUMERIC, -0.01, null));
+
+        assertThat(matches(matcher, "3.14")).isTrue();
+        assertThat(matches(matcher, " 3.145 ")).isTrue();
+        assertThat(matches(matcher, "314e-2")).isTrue();
+        assertThat(matches(matcher, "+3.135")).isTrue();
+        assertThat(matches(matcher, "3.2")).isFalse();
+        assertThat(matches(matcher, "-3.14")).isFalse();
+        assertThat(matches(matcher, "pi")).isFalse();
+        assertThat(matches(matcher, "")).isFalse();
+    }
+
+    @Test
+    void matchesWholeAnswersAgainstRegularExpressions() {
+        AnswerMatcher matcher = compile(accepted("colou?r", MatchType.REGEX));
+
+        assertThat(matches(matcher, "color")).isTrue();
+        assertThat(matches(matcher, " colour ")).isTrue();
+        assertThat(matches(matcher, "colors")).isFalse();
+    }
+
+    @Test
+    void matchesARangeOfALongerText() {
+        AnswerMatcher matcher = compile(accepted("paris", MatchType.IGNORE_CASE), accepted("42", MatchType.NUMERIC));
+        String text = "Paris|  42 |Rome";
+
+        assertThat(matcher.matches(text, 0, 5)).isTrue();
+        assertThat(matcher.matches(text, 6, 11)).isTrue();
+        assertThat(matcher.matches(text, 12, text.length())).isFalse();
+        assertThat(matcher.matches(text, 0, 4)).isFalse();
+    }
+
+    @Test
+    void matchesNothingWithoutAcceptedAnswers() {
+        AnswerMatcher matcher = AnswerMatcher.compile(List.of());
+
+        assertThat(matcher.isEmpty()).isTrue();
+        assertThat(matches(matcher, "")).isFalse();
+        assertThat(matches(matcher, "anything")).isFalse();
+        assertThat(compile(accepted("a", MatchType.EXACT)).isEmpty()).isFalse();
+    }
+
+    @Test
+    void rejectsNumericAnswersThatAreNotNumbers() {
+        assertThatThrownBy(() -> compile(accepted("three", MatchType.NUMERIC)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void parsesNumbersLikeDouble() {
+        for (String number : List.of("0", "-12", "+7", "3.5", ".25", "10.", "6.02e23", "1E-7", "-2.5e+3",
+                "123456789012345", "0.000001", "1e22", "1e-22")) {
+            assertThat(AnswerMatcher.parseNumber(number, 0, number.length())).as(number).isEqualTo(Double.parseDouble(number));
+        }
+        for (String notNumber : List.of("", "-", ".", "e5", "1e", "1e+", "1.2.3", "12a", "0x10")) {
+            assertThat(AnswerMatcher.parseNumber(notNumber, 0, notNumber.length())).as(notNumber).isNaN();
+        }
+    }
+
+    private static PaperAcceptedAnswer accepted(String pattern, MatchType matchType) {
+        return new PaperAcceptedAnswer(1L, pattern, matchType, null, null);
+    }
+
+    private static AnswerMatcher compile(PaperAcceptedAnswer... acceptedAnswers) {
+        return AnswerMatcher.compile(List.of(acceptedAnswers));
+    }
+
+    private static boolean matches(AnswerMatcher matcher, String answer) {
+        return matcher.matches(answer, 0, answer.length());
+    }
+}
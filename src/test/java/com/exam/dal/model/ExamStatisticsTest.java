@@ -0,0 +1,76 @@
+package com.exam.dal.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ExamStatisticsTest {
+
+    private static final double MARKS = 40;
+
+    @Test
+    void removingScoresMatchesRecomputingFromTheRest() {
+        Random random = new Random(42);
+        ExamStatistics running = new ExamStatistics(1L);
+        List<Double> scores = new ArrayList<>();
+
+        // Submissions graded and re-graded in random order
+        for (int i = 0; i < 5000; i++) {
+            if (scores.size() > 10 && random.nextInt(3) == 0) {
+                double removed = scores.remove(random.nextInt(scores.size()));
+                running.removeScore(removed, percentage(removed));
+            } else {
+                double score = Math.round(random.nextDouble() * MARKS * 4) / 4.0;
+                scores.add(score);
+                running.addScore(score, percentage(score));
+            }
+        }
+
+        ExamStatistics recomputed = new ExamStatistics(1L);
+        scores.forEach(score -> recomputed.addScore(score, percentage(score)));
+        assertThat(running.getGraded()).isEqualTo(scores.size());
+        assertThat(running.getPassed()).isEqualTo(recomputed.getPassed());
+        assertThat(running.getHistogram()).isEqualTo(recomputed.getHistogram());
+        assertThat(running.getMeanScore()).isCloseTo(recomputed.getMeanScore(), within(1e-9));
+        assertThat(running.getVariance()).isCloseTo(recomputed.getVariance(), within(1e-6));
+    }
+
+    @Test
+    void removingTheLowestOrHighestScoreReportsTheRangeMayHaveChanged() {
+        ExamStatistics statistics = new ExamStatistics(1L);
+        for (double score : new double[] {10, 20, 30, 40}) {
+            statistics.addScore(score, percentage(score));
+        }
+
+        assertThat(statistics.removeScore(20, percentage(20))).isFalse();
+        assertThat(statistics.removeScore(10, percentage(10))).isTrue();
+        assertThat(statistics.removeScore(40, percentage(40))).isTrue();
+        assertThat(statistics.getGraded()).isEqualTo(1);
+        assertThat(statistics.getMeanScore()).isCloseTo(30, within(1e-9));
+        assertThat(statistics.getVariance()).isCloseTo(0, within(1e-9));
+    }
+
+    @Test
+    void removingTheLastScoreClearsTheStatistics() {
+        ExamStatistics statistics = new ExamStatistics(1L);
+        statistics.addScore(35, percentage(35));
+
+        assertThat(statistics.removeScore(35, percentage(35))).isFalse();
+        assertThat(statistics.getGraded()).isZero();
+        assertThat(statistics.getPassed()).isZero();
+        assertThat(statistics.getMeanScore()).isZero();
+        assertThat(statistics.getVariance()).isZero();
+        assertThat(statistics.getMinScore()).isNull();
+        assertThat(statistics.getMaxScore()).isNull();
+        assertThat(statistics.getHistogram()).isEqualTo(new ScoreHistogram());
+    }
+
+    private static double percentage(double score) {
+        return score / MARKS * 100;
+    }
+}
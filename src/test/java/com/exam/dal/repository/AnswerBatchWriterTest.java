@@ -0,0 +1,80 @@
+package com.exam.dal.repository;
+
+import com.exam.dal.dto.AnswerRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnswerBatchWriterTest {
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private AnswerBatchWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:answers;MODE=MySQL;DATABASE_TO_LOWER=TRUE", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table submissions (id bigint primary key, status varchar(20))");
+        jdbcTemplate.execute("create table answers (id bigint auto_increment primary key, submission_id bigint, " +
+                "question_id bigint, text_answer varchar(1000), unique (submission_id, question_id))");
+        jdbcTemplate.execute("create table answer_options (answer_id bigint, option_id bigint, primary key (answer_id, option_id))");
+        jdbcTemplate.update("insert into submissions values (1, 'IN_PROGRESS'), (2, 'SUBMITTED'), (3, 'IN_PROGRESS')");
+        writer = new AnswerBatchWriter(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("drop all objects");
+        dataSource.destroy();
+    }
+
+    @Test
+    void insertsThenReplacesTheAnswersOfDrafts() {
+        assertThat(writer.upsertAnswers(List.of(answer(1L, 10L, "first", 100L, 101L), answer(3L, 10L, "other")))).isEmpty();
+        assertThat(writer.upsertAnswers(List.of(answer(1L, 10L, "second", 102L)))).isEmpty();
+
+        assertThat(textOf(1L, 10L)).isEqualTo("second");
+        assertThat(selectedOf(1L, 10L)).containsExactly(102L);
+        assertThat(textOf(3L, 10L)).isEqualTo("other");
+    }
+
+    @Test
+    void leavesTheAnswersOfSubmittedSubmissionsAlone() {
+        jdbcTemplate.update("insert into answers (submission_id, question_id, text_answer) values (2, 10, 'graded')");
+
+        // As a flush on a node that has not seen the submit would
+        assertThat(writer.upsertAnswers(List.of(answer(2L, 10L, "late", 100L), answer(2L, 11L, "new"), answer(1L, 10L, "draft"))))
+                .containsExactly(2L);
+
+        assertThat(textOf(2L, 10L)).isEqualTo("graded");
+        assertThat(selectedOf(2L, 10L)).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("select count(*) from answers where submission_id = 2", Long.class)).isEqualTo(1);
+        assertThat(textOf(1L, 10L)).isEqualTo("draft");
+    }
+
+    private String textOf(Long submissionId, Long questionId) {
+        return jdbcTemplate.queryForObject("select text_answer from answers where submission_id = ? and question_id = ?",
+                String.class, submissionId, questionId);
+    }
+
+    private List<Long> selectedOf(Long submissionId, Long questionId) {
+        return jdbcTemplate.queryForList("select ao.option_id from answer_options ao join answers a on a.id = ao.answer_id " +
+                "where a.submission_id = ? and a.question_id = ? order by ao.option_id", Long.class, submissionId, questionId);
+    }
+
+    private static AnswerRequest answer(Long submissionId, Long questionId, String text, Long... optionIds) {
+        return AnswerRequest.builder()
+                .submissionId(submissionId)
+                .questionId(questionId)
+                .textAnswer(text)
+                .selectedOptionIds(List.of(optionIds))
+                .build();
+    }
+}
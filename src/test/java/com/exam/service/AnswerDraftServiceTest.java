@@ -0,0 +1,206 @@
+package com.exam.service;
+
+import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.ExamPaper;
+import com.exam.dal.dto.OpenDraft;
+import com.exam.dal.model.Course;
+import com.exam.dal.model.Exam;
+import com.exam.dal.model.Question;
+import com.exam.dal.model.QuestionType;
+import com.exam.dal.model.User;
+import com.exam.dal.repository.AnswerBatchWriter;
+import com.exam.dal.repository.ExamRepository;
+import com.exam.dal.repository.SubmissionRepository;
+import com.exam.exception.ConflictException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnswerDraftServiceTest {
+
+    private static final Long STUDENT = 7L;
+    private static final Long EXAM = 1L;
+    private static final Long DRAFT = 11L;
+    private static final Long OTHER_DRAFT = 12L;
+
+    private final SubmissionRepository submissionRepository = mock(SubmissionRepository.class);
+    private final ExamPaperCache examPaperCache = mock(ExamPaperCache.class);
+    private final AnswerBatchWriter answerBatchWriter = mock(AnswerBatchWriter.class);
+
+    // Answers written by each flush, in order
+    private final List<List<AnswerRequest>> flushed = new ArrayList<>();
+
+    private AnswerDraftService drafts;
+
+    @BeforeEach
+    void setUp() {
+        Exam exam = Exam.builder().id(EXAM).course(Course.builder().id(1L).teacher(User.builder().id(1L).build()).build()).build();
+        List<Question> questions = List.of(
+                Question.builder().id(1L).marks(5).questionType(QuestionType.ESSAY).exam(exam).build(),
+                Question.builder().id(2L).marks(5).questionType(QuestionType.ESSAY).exam(exam).build());
+        when(examPaperCache.getIfPresent(EXAM)).thenReturn(ExamPaper.of(exam, questions));
+        for (Long draft : List.of(DRAFT, OTHER_DRAFT)) {
+            when(submissionRepository.findOpenDraft(draft))
+                    .thenReturn(Optional.of(new OpenDraft(draft, STUDENT, EXAM, LocalDateTime.now().plusHours(1))));
+        }
+        when(answerBatchWriter.upsertAnswers(anyList())).thenAnswer(invocation -> {
+            flushed.add(List.copyOf(invocation.<List<AnswerRequest>>getArgument(0)));
+            return Set.of();
+        });
+
+        drafts = new AnswerDraftService(submissionRepository, mock(ExamRepository.class), examPaperCache, answerBatchWriter,
+                mock(PlatformTransactionManager.class), 1000, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+    }
+
+    @Test
+    void flushesOnlyTheLatestSaveOfEachQuestion() {
+        drafts.save(STUDENT, DRAFT, answer(1L, "a"));
+        drafts.save(STUDENT, DRAFT, answer(1L, "ab"));
+        drafts.save(STUDENT, DRAFT, answer(2L, "x"));
+        drafts.save(STUDENT, OTHER_DRAFT, answer(1L, "other"));
+
+        drafts.flush();
+        drafts.flush();
+
+        assertThat(flushed).hasSize(1);
+        assertThat(flushed.get(0)).extracting(AnswerRequest::getTextAnswer).containsExactlyInAnyOrder("ab", "x", "other");
+        assertThat(drafts.getBuffered(DRAFT)).isEmpty();
+    }
+
+    @Test
+    void closingTakesOverTheBufferAndStopsAutosaves() {
+        drafts.save(STUDENT, DRAFT, answer(1L, "final"));
+        drafts.save(STUDENT, OTHER_DRAFT, answer(1L, "other"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        Map<Long, AnswerRequest> taken = drafts.close(DRAFT);
+
+        assertThat(taken.get(1L).getTextAnswer()).isEqualTo("final");
+        assertThatThrownBy(() -> drafts.save(STUDENT, DRAFT, answer(1L, "late"))).isInstanceOf(ConflictException.class);
+
+        // The flush leaves the closed draft to the submit
+        drafts.flush();
+        assertThat(flushed.get(0)).extracting(AnswerRequest::getSubmissionId).containsOnly(OTHER_DRAFT);
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertThatThrownBy(() -> drafts.save(STUDENT, DRAFT, answer(1L, "late"))).isInstanceOf(ConflictException.class);
+    }
+
+    @Test
+    void reopensTheDraftWithItsAnswersWhenTheSubmitRollsBack() {
+        drafts.save(STUDENT, DRAFT, answer(1L, "kept"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        drafts.close(DRAFT);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(drafts.getBuffered(DRAFT).get(1L).getTextAnswer()).isEqualTo("kept");
+        drafts.save(STUDENT, DRAFT, answer(2L, "more"));
+        assertThat(drafts.getBuffered(DRAFT)).containsOnlyKeys(1L, 2L);
+    }
+
+    @Test
+    void closesOneDraftPerTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        drafts.close(DRAFT);
+
+        assertThatThrownBy(() -> drafts.close(OTHER_DRAFT)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> {
+            complete(TransactionSynchronization.STATUS_COMMITTED);
+            drafts.close(OTHER_DRAFT);
+        }).isInstanceOf(IllegalStateException.class).hasMessageContaining("in a transaction");
+    }
+
+    @Test
+    void closingWaitsForAFlushOfTheDraftInProgress() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(answerBatchWriter.upsertAnswers(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return Set.of();
+        });
+        drafts.save(STUDENT, DRAFT, answer(1L, "flushing"));
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(drafts::flush);
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Map<Long, AnswerRequest>> close = CompletableFuture.supplyAsync(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                return drafts.close(DRAFT);
+            } finally {
+                List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+                TransactionSynchronizationManager.clearSynchronization();
+                synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            }
+        });
+        assertThatThrownBy(() -> close.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+        release.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+        // What the flush wrote is in the database for the submit to read, nothing is left to take over
+        assertThat(close.get(5, TimeUnit.SECONDS)).isEmpty();
+    }
+
+    @Test
+    void dropsAnswersOfADraftSubmittedOnAnotherNode() {
+        when(answerBatchWriter.upsertAnswers(anyList())).thenReturn(Set.of(DRAFT));
+        drafts.save(STUDENT, DRAFT, answer(1L, "too late"));
+
+        drafts.flush();
+
+        assertThat(drafts.getBuffered(DRAFT)).isEmpty();
+        assertThatThrownBy(() -> drafts.save(STUDENT, DRAFT, answer(1L, "again"))).isInstanceOf(ConflictException.class);
+    }
+
+    @Test
+    void looksUpUnknownDraftsOnce() {
+        drafts.save(STUDENT, DRAFT, answer(1L, "a"));
+        drafts.save(STUDENT, DRAFT, answer(2L, "b"));
+
+        verify(submissionRepository).findOpenDraft(DRAFT);
+        verify(submissionRepository, never()).findOpenDraft(OTHER_DRAFT);
+        verify(examPaperCache, never()).getPaper(any());
+    }
+
+    private static AnswerRequest answer(Long questionId, String text) {
+        return AnswerRequest.builder().questionId(questionId).textAnswer(text).build();
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
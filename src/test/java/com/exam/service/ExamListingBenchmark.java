@@ -0,0 +1,187 @@
+package com.exam.service;
+
+import com.exam.Benchmarks;
+import com.exam.dal.model.Exam;
+import com.exam.dal.model.ExamStatus;
+import com.exam.dal.model.Role;
+import com.exam.dal.model.User;
+import com.exam.dal.repository.ExamRepository;
+import com.exam.dal.repository.SubmissionRepository;
+import com.exam.security.CurrentUserProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Exam listings over 100k seeded exams, against the previous listings which loaded every exam
+ * and filtered them in memory
+ */
+@Tag(Benchmarks.TAG)
+@DataJpaTest(showSql = false, properties = {
+        "spring.jpa.database=H2",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "logging.level.org.hibernate.SQL=WARN"
+})
+class ExamListingBenchmark {
+
+    private static final int COURSES = 1000;
+    private static final int EXAMS_PER_COURSE = 100;
+    private static final int OWN_COURSES = 5;
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ExamRepository examRepository;
+    @Autowired
+    private SubmissionRepository submissionRepository;
+
+    private final CurrentUserProvider currentUserProvider = mock(CurrentUserProvider.class);
+    private ExamService examService;
+    private User teacher;
+    private User student;
+
+    @BeforeEach
+    void setUp() {
+        examService = new ExamService(examRepository, null, submissionRepository, currentUserProvider, null, null, null, null);
+        teacher = entityManager.persist(user("teacher", Role.TEACHER));
+        student = entityManager.persist(user("student", Role.STUDENT));
+        User otherTeacher = entityManager.persist(user("other", Role.TEACHER));
+        entityManager.flush();
+        seed(otherTeacher);
+    }
+
+    @Test
+    void listExams() {
+        LocalDateTime now = LocalDateTime.now();
+
+        when(currentUserProvider.getCurrentUser()).thenReturn(teacher);
+        compare("teacher exams", () -> examService.getTeacherExams(null, null).getItems().size(),
+                () -> (int) examRepository.findAll().stream()
+                        .filter(exam -> exam.getCourse().getTeacher().getId().equals(teacher.getId()))
+                        .count());
+        compare("all exams as a teacher", () -> examService.getAllExams(null, null).getItems().size(),
+                () -> (int) examRepository.findAll().stream()
+                        .filter(exam -> exam.getCourse().getTeacher().getId().equals(teacher.getId()))
+                        .count());
+        measure("first teacher page of 50", () -> examService.getTeacherExams(null, 50).getItems().size());
+
+        when(currentUserProvider.getCurrentUser()).thenReturn(student);
+        compare("all exams as a student", () -> examService.getAllExams(null, null).getItems().size(),
+                () -> (int) examRepository.findAll().stream()
+                        .filter(Exam::isPublished)
+                        .filter(this::enrolled)
+                        .count());
+        compare("upcoming exams", () -> examService.getUpcomingExams(null, null).getItems().size(),
+                () -> (int) examRepository.findAll().stream()
+                        .filter(Exam::isPublished)
+                        .filter(exam -> exam.getStartTime().isAfter(now))
+                        .filter(this::enrolled)
+                        .count());
+        measure("first upcoming page of 50", () -> examService.getUpcomingExams(null, 50).getItems().size());
+        compare("available exams", () -> examService.getAvailableExams(null, null).getItems().size(),
+                () -> (int) examRepository.findAll().stream()
+                        .filter(Exam::isPublished)
+                        .filter(exam -> exam.getStartTime().isBefore(now) && exam.getEndTime().isAfter(now))
+                        .filter(this::enrolled)
+                        .filter(exam -> submissionRepository.findByStudentAndExam(student, exam).isEmpty())
+                        .count());
+    }
+
+    /**
+     * The previous listings checked enrollment with contains. User equality compares every field,
+     * which the student persisted here no longer matches once reloaded, so it is matched by id
+     */
+    private boolean enrolled(Exam exam) {
+        return exam.getCourse().getStudents().stream().anyMatch(enrolled -> enrolled.getId().equals(student.getId()));
+    }
+
+    private void compare(String listing, Supplier<Integer> after, Supplier<Integer> before) {
+        int[] items = new int[2];
+        double beforeNanos = time(() -> items[0] = before.get());
+        double afterNanos = time(() -> items[1] = after.get());
+        Benchmarks.report("%-26s before %7.1f ms, after %6.1f ms, %d items",
+                listing, beforeNanos / 1e6, afterNanos / 1e6, items[1]);
+        assertThat(items[1]).isEqualTo(items[0]);
+    }
+
+    private void measure(String listing, Supplier<Integer> after) {
+        int[] items = new int[1];
+        double afterNanos = time(() -> items[0] = after.get());
+        Benchmarks.report("%-26s                  after %6.1f ms, %d items", listing, afterNanos / 1e6, items[0]);
+    }
+
+    /**
+     * Median of 5 calls after 2 warm-up calls, each starting from an empty persistence context
+     * as a request would
+     */
+    private double time(Runnable listing) {
+        return Benchmarks.medianNanosPerOperation(2, 5, 1, i -> {
+            entityManager.clear();
+            listing.run();
+        });
+    }
+
+    /**
+     * 1000 courses of 100 exams each, 80% of them published, starting within 30 days either way.
+     * The teacher owns 5 of the courses and the student is enrolled in 5 others.
+     */
+    private void seed(User otherTeacher) {
+        List<Object[]> courses = new ArrayList<>();
+        for (int i = 0; i < COURSES; i++) {
+            courses.add(new Object[]{"Course " + i, i < OWN_COURSES ? teacher.getId() : otherTeacher.getId()});
+        }
+        jdbcTemplate.batchUpdate("insert into courses (title, teacher_id) values (?, ?)", courses);
+        List<Long> courseIds = jdbcTemplate.queryForList("select id from courses order by id", Long.class);
+        for (int i = OWN_COURSES; i < 2 * OWN_COURSES; i++) {
+            jdbcTemplate.update("insert into course_students (course_id, student_id) values (?, ?)",
+                    courseIds.get(i), student.getId());
+        }
+
+        Random random = new Random(4);
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> exams = new ArrayList<>();
+        for (Long courseId : courseIds) {
+            for (int i = 0; i < EXAMS_PER_COURSE; i++) {
+                LocalDateTime start = now.plusMinutes(random.nextInt(60 * 24 * 60) - 60 * 24 * 30);
+                LocalDateTime end = start.plusHours(2);
+                boolean published = random.nextInt(5) > 0;
+                ExamStatus status = !published ? ExamStatus.DRAFT
+                        : start.isAfter(now) ? ExamStatus.SCHEDULED
+                        : end.isAfter(now) ? ExamStatus.ACTIVE
+                        : ExamStatus.COMPLETED;
+                exams.add(new Object[]{"Exam " + i, courseId, Timestamp.valueOf(start), Timestamp.valueOf(end),
+                        published, status.name()});
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into exams (title, course_id, start_time, end_time, duration_minutes, " +
+                "published, status, multiple_choice_count, multiple_response_count, true_false_count, " +
+                "short_answer_count, essay_count, matching_count, fill_in_blank_count, single_choice_count) " +
+                "values (?, ?, ?, ?, 120, ?, ?, 0, 0, 0, 0, 0, 0, 0, 0)", exams);
+    }
+
+    private static User user(String name, Role role) {
+        return User.builder()
+                .name(name)
+                .email(name + "@example.com")
+                .password("password1")
+                .role(role)
+                .build();
+    }
+}
@@ -0,0 +1,170 @@
+package com.exam.service;
+
+import com.exam.dal.dto.ExamSummary;
+import com.exam.dal.dto.KeysetPage;
+import com.exam.dal.model.Course;
+import com.exam.dal.model.Exam;
+import com.exam.dal.model.ExamStatus;
+import com.exam.dal.model.Role;
+import com.exam.dal.model.Submission;
+import com.exam.dal.model.SubmissionStatus;
+import com.exam.dal.model.User;
+import com.exam.dal.repository.ExamRepository;
+import com.exam.security.CurrentUserProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Walks the keyset-paginated exam listings page by page against an in-memory database
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.jpa.database=H2",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "logging.level.org.hibernate.SQL=WARN"
+})
+class ExamListingTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private ExamRepository examRepository;
+
+    private final CurrentUserProvider currentUserProvider = mock(CurrentUserProvider.class);
+    private ExamService examService;
+    private User teacher;
+    private User student;
+    private Course course;
+    private Course otherCourse;
+
+    @BeforeEach
+    void setUp() {
+        examService = new ExamService(examRepository, null, null, currentUserProvider, null, null, null, null);
+
+        teacher = entityManager.persist(user("teacher", Role.TEACHER));
+        student = entityManager.persist(user("student", Role.STUDENT));
+        course = Course.builder().title("Algebra").teacher(teacher).build();
+        course.getStudents().add(student);
+        course = entityManager.persist(course);
+        otherCourse = entityManager.persist(Course.builder().title("History")
+                .teacher(entityManager.persist(user("other", Role.TEACHER))).build());
+    }
+
+    @Test
+    void pagesThroughEveryExamForAnAdminAndTheirOwnForATeacher() {
+        List<Exam> exams = new ArrayList<>();
+        for (int i = 0; i < 17; i++) {
+            exams.add(exam(i % 3 == 0 ? otherCourse : course, ExamStatus.DRAFT, LocalDateTime.now().plusDays(1)));
+        }
+
+        when(currentUserProvider.getCurrentUser()).thenReturn(user("admin", Role.ADMIN));
+        assertThat(walk(4, examService::getAllExams, Exam::getId)).containsExactlyElementsOf(ids(exams));
+
+        when(currentUserProvider.getCurrentUser()).thenReturn(teacher);
+        List<Long> own = exams.stream().filter(exam -> exam.getCourse() == course).map(Exam::getId).toList();
+        assertThat(walk(4, examService::getAllExams, Exam::getId)).containsExactlyElementsOf(own);
+        assertThat(walk(5, examService::getTeacherExams, Exam::getId)).containsExactlyElementsOf(own);
+    }
+
+    @Test
+    void pagesThroughUpcomingExamsByStartTimeWithTies() {
+        LocalDateTime tomorrow = LocalDateTime.now().plusDays(1).withNano(0);
+        List<Exam> upcoming = new ArrayList<>();
+        for (int i = 0; i < 14; i++) {
+            // Three exams start at each time, listed later times first so ids do not give the order away
+            upcoming.add(exam(course, ExamStatus.SCHEDULED, tomorrow.plusHours(10 - i / 3)));
+        }
+        exam(course, ExamStatus.ACTIVE, LocalDateTime.now().minusHours(1));
+        exam(otherCourse, ExamStatus.SCHEDULED, tomorrow);
+        when(currentUserProvider.getCurrentUser()).thenReturn(student);
+
+        List<Long> listed = walk(4, examService::getUpcomingExams, Exam::getId);
+
+        assertThat(listed).containsExactlyElementsOf(upcoming.stream()
+                .sorted(Comparator.comparing(Exam::getStartTime).thenComparing(Exam::getId))
+                .map(Exam::getId)
+                .toList());
+    }
+
+    @Test
+    void pagesThroughAvailableExamsLeavingOutSubmittedOnes() {
+        List<Exam> active = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            active.add(exam(course, ExamStatus.ACTIVE, LocalDateTime.now().minusHours(1)));
+        }
+        submission(active.get(2), SubmissionStatus.SUBMITTED);
+        submission(active.get(7), SubmissionStatus.SUBMITTED);
+        // A draft in progress leaves the exam available
+        submission(active.get(4), SubmissionStatus.IN_PROGRESS);
+        exam(course, ExamStatus.SCHEDULED, LocalDateTime.now().plusDays(1));
+        when(currentUserProvider.getCurrentUser()).thenReturn(student);
+
+        List<Long> listed = walk(3, examService::getAvailableExams, ExamSummary::getId);
+
+        List<Long> expected = new ArrayList<>(ids(active));
+        expected.remove(active.get(7).getId());
+        expected.remove(active.get(2).getId());
+        assertThat(listed).containsExactlyElementsOf(expected);
+    }
+
+    private <T> List<Long> walk(int size, BiFunction<String, Integer, KeysetPage<T>> listing, Function<T, Long> idOf) {
+        List<Long> listed = new ArrayList<>();
+        String cursor = null;
+        do {
+            KeysetPage<T> page = listing.apply(cursor, size);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(size);
+            page.getItems().forEach(item -> listed.add(idOf.apply(item)));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return listed;
+    }
+
+    private Exam exam(Course examCourse, ExamStatus status, LocalDateTime startTime) {
+        Exam exam = entityManager.persist(Exam.builder()
+                .title("Exam")
+                .course(examCourse)
+                .published(status != ExamStatus.DRAFT)
+                .status(status)
+                .startTime(startTime)
+                .endTime(startTime.plusHours(2))
+                .durationMinutes(60)
+                .build());
+        entityManager.flush();
+        return exam;
+    }
+
+    private void submission(Exam exam, SubmissionStatus status) {
+        Submission submission = new Submission();
+        submission.setExam(exam);
+        submission.setStudent(student);
+        submission.setStatus(status);
+        entityManager.persist(submission);
+        entityManager.flush();
+    }
+
+    private static List<Long> ids(List<Exam> exams) {
+        return exams.stream().map(Exam::getId).toList();
+    }
+
+    private static User user(String name, Role role) {
+        return User.builder()
+                .name(name)
+                .email(name + "@example.com")
+                .password("password1")
+                .role(role)
+                .build();
+    }
+}
@@ -0,0 +1,142 @@
+package com.exam.service;
+
+import com.exam.dal.dto.CompiledAnswerKey;
+import com.exam.dal.dto.ExamPaper;
+import com.exam.dal.dto.RegradeProgress;
+import com.exam.dal.model.Course;
+import com.exam.dal.model.Exam;
+import com.exam.dal.model.Role;
+import com.exam.dal.model.User;
+import com.exam.dal.repository.ExamRepository;
+import com.exam.dal.repository.RegradeRepository;
+import com.exam.security.CurrentUserProvider;
+import com.exam.service.grading.GradingEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExamRegradeServiceTest {
+
+    private static final double TOTAL_MARKS = 50;
+    private static final double NEW_AUTO_SCORE = 30;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private final ExamStatisticsService examStatisticsService = mock(ExamStatisticsService.class);
+    private ExamRegradeService service;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:regrade;MODE=MySQL;DATABASE_TO_LOWER=TRUE", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table submissions (id bigint primary key, exam_id bigint)");
+        jdbcTemplate.execute("create table scores (submission_id bigint primary key, total_score double, " +
+                "percentage_score double, reading varchar(50), status varchar(20), auto_score double, " +
+                "graded_at timestamp, graded_by bigint)");
+        jdbcTemplate.execute("create table answers (id bigint auto_increment primary key, submission_id bigint, " +
+                "question_id bigint, text_answer varchar(1000))");
+        jdbcTemplate.execute("create table answer_options (answer_id bigint, option_id bigint)");
+        jdbcTemplate.update("insert into submissions values (1, 1), (2, 1), (3, 1), (4, 1), (5, 1)");
+        jdbcTemplate.update("insert into answers (submission_id, question_id, text_answer) " +
+                "values (1, 10, null), (2, 10, null), (3, 10, null), (4, 10, null), (5, 10, null)");
+
+        User teacher = User.builder().id(1L).role(Role.TEACHER).build();
+        Exam exam = Exam.builder().id(1L).totalMarks(TOTAL_MARKS).course(Course.builder().id(1L).teacher(teacher).build()).build();
+        ExamRepository examRepository = mock(ExamRepository.class);
+        when(examRepository.findById(1L)).thenReturn(Optional.of(exam));
+        CurrentUserProvider currentUserProvider = mock(CurrentUserProvider.class);
+        when(currentUserProvider.getCurrentUser()).thenReturn(teacher);
+        ExamPaper paper = mock(ExamPaper.class);
+        when(paper.getAnswerKey()).thenReturn(mock(CompiledAnswerKey.class));
+        ExamPaperCache examPaperCache = mock(ExamPaperCache.class);
+        when(examPaperCache.getPaper(exam)).thenReturn(paper);
+        // Every submission's automatic marks come to the same under the corrected key
+        GradingEngine gradingEngine = mock(GradingEngine.class);
+        when(gradingEngine.score(any(CompiledAnswerKey.class), anyList())).thenReturn(NEW_AUTO_SCORE);
+
+        service = new ExamRegradeService(examRepository, examPaperCache, new RegradeRepository(jdbcTemplate),
+                currentUserProvider, gradingEngine, examStatisticsService, mock(PlatformTransactionManager.class),
+                2, 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+        jdbcTemplate.execute("drop all objects");
+        dataSource.destroy();
+    }
+
+    @Test
+    void regradesAutomaticMarksAndKeepsTheTeachersOwn() {
+        score(1, 20, 20.0, null);
+        score(2, 35, 20.0, 7L);
+        score(3, 48, 20.0, 7L);
+        score(5, 30, null, null);
+
+        RegradeProgress progress = runRegrade();
+
+        assertThat(progress.getStatus()).isEqualTo(RegradeProgress.Status.COMPLETED);
+        assertThat(progress.getProcessed()).isEqualTo(4);
+        assertThat(progress.getStale()).isZero();
+        assertThat(progress.getMessage()).isNull();
+        // Auto-graded, takes the new marks
+        assertThat(scoreOf(1)).containsEntry("total_score", 30.0).containsEntry("auto_score", 30.0);
+        // Graded by a teacher, keeps the 15 marks given on top of the automatic 20
+        assertThat(scoreOf(2)).containsEntry("total_score", 45.0).containsEntry("auto_score", 30.0)
+                .containsEntry("percentage_score", 90.0);
+        // Never above the exam's marks
+        assertThat(scoreOf(3)).containsEntry("total_score", TOTAL_MARKS);
+        // Unchanged, but now knows its automatic marks
+        assertThat(scoreOf(5)).containsEntry("total_score", 30.0).containsEntry("auto_score", 30.0);
+        verify(examStatisticsService).rebuild(1L);
+    }
+
+    @Test
+    void reportsTeacherScoresItCannotSplit() {
+        score(1, 20, 20.0, null);
+        score(4, 40, null, 7L);
+
+        RegradeProgress progress = runRegrade();
+
+        assertThat(progress.getStatus()).isEqualTo(RegradeProgress.Status.COMPLETED);
+        assertThat(progress.getProcessed()).isEqualTo(1);
+        assertThat(progress.getStale()).isEqualTo(1);
+        assertThat(progress.getMessage()).startsWith("1 submissions graded by a teacher kept their old score");
+        assertThat(scoreOf(4)).containsEntry("total_score", 40.0);
+    }
+
+    private RegradeProgress runRegrade() {
+        service.start(1L);
+        long deadline = System.currentTimeMillis() + 10_000;
+        RegradeProgress progress = service.getProgress(1L);
+        while ((progress.getStatus() == RegradeProgress.Status.QUEUED || progress.getStatus() == RegradeProgress.Status.RUNNING)
+                && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+            progress = service.getProgress(1L);
+        }
+        return progress;
+    }
+
+    private void score(long submissionId, double totalScore, Double autoScore, Long gradedBy) {
+        jdbcTemplate.update("insert into scores (submission_id, total_score, percentage_score, auto_score, graded_by) " +
+                "values (?, ?, ?, ?, ?)", submissionId, totalScore, totalScore / TOTAL_MARKS * 100, autoScore, gradedBy);
+    }
+
+    private Map<String, Object> scoreOf(long submissionId) {
+        return jdbcTemplate.queryForMap("select total_score, percentage_score, auto_score from scores where submission_id = ?",
+                submissionId);
+    }
+}
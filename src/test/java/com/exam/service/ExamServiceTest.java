@@ -0,0 +1,93 @@
+package com.exam.service;
+
+import com.exam.dal.dto.ExamRequest;
+import com.exam.dal.model.Course;
+import com.exam.dal.model.Exam;
+import com.exam.dal.model.Role;
+import com.exam.dal.model.User;
+import com.exam.dal.repository.CourseRepository;
+import com.exam.dal.repository.ExamRepository;
+import com.exam.dal.repository.SubmissionRepository;
+import com.exam.security.CurrentUserProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ExamServiceTest {
+
+    @Mock
+    private ExamRepository examRepository;
+    @Mock
+    private CourseRepository courseRepository;
+    @Mock
+    private SubmissionRepository submissionRepository;
+    @Mock
+    private CurrentUserProvider currentUserProvider;
+    @Mock
+    private EnrollmentIndex enrollmentIndex;
+    @Mock
+    private ExamPaperCache examPaperCache;
+    @Mock
+    private ExamLifecycleScheduler examLifecycleScheduler;
+    @Mock
+    private ExamStatisticsService examStatisticsService;
+
+    @InjectMocks
+    private ExamService examService;
+
+    private User teacher;
+    private Exam exam;
+
+    @BeforeEach
+    void setUp() {
+        teacher = User.builder().id(1L).role(Role.TEACHER).build();
+        exam = Exam.builder().id(1L).title("Midterm").course(course(10L)).build();
+        when(currentUserProvider.getCurrentUser()).thenReturn(teacher);
+        when(examRepository.findById(1L)).thenReturn(Optional.of(exam));
+        when(examRepository.save(any(Exam.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void movingAnExamRebuildsTheStatisticsOfBothCourses() {
+        Course target = course(20L);
+        when(courseRepository.findById(20L)).thenReturn(Optional.of(target));
+
+        Exam saved = examService.updateExam(1L, request(20L));
+
+        verify(examStatisticsService).examMoved(10L, saved);
+    }
+
+    @Test
+    void updatingAnExamInPlaceLeavesCourseStatisticsAlone() {
+        examService.updateExam(1L, request(10L));
+
+        verify(examStatisticsService, never()).examMoved(any(), any());
+    }
+
+    private Course course(Long id) {
+        return Course.builder().id(id).teacher(teacher).build();
+    }
+
+    private ExamRequest request(Long courseId) {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        return ExamRequest.builder()
+                .title("Midterm")
+                .courseId(courseId)
+                .startTime(start)
+                .endTime(start.plusHours(2))
+                .durationMinutes(90)
+                .build();
+    }
+}
@@ -0,0 +1,121 @@
+package com.exam.service;
+
+import com.exam.dal.dto.GradedScore;
+import com.exam.dal.model.Course;
+import com.exam.dal.model.Exam;
+import com.exam.dal.model.ExamStatistics;
+import com.exam.dal.model.Score;
+import com.exam.dal.repository.CourseRepository;
+import com.exam.dal.repository.CourseStatisticsRepository;
+import com.exam.dal.repository.ExamRepository;
+import com.exam.dal.repository.ExamStatisticsRepository;
+import com.exam.dal.repository.SubmissionRepository;
+import com.exam.security.CurrentUserProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ExamStatisticsServiceTest {
+
+    private static final double MARKS = 40;
+
+    private final ExamStatisticsRepository examStatisticsRepository = mock(ExamStatisticsRepository.class);
+    private final SubmissionRepository submissionRepository = mock(SubmissionRepository.class);
+    private final ExamStatisticsService service = new ExamStatisticsService(
+            mock(ExamRepository.class),
+            examStatisticsRepository,
+            mock(CourseRepository.class),
+            mock(CourseStatisticsRepository.class),
+            submissionRepository,
+            mock(CurrentUserProvider.class),
+            mock(PlatformTransactionManager.class));
+
+    private final Exam exam = Exam.builder().id(1L).course(Course.builder().id(10L).build()).build();
+    private ExamStatistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = new ExamStatistics(1L);
+        Stream.of(10.0, 20.0, 30.0, 40.0).forEach(score -> statistics.addScore(score, percentage(score)));
+        when(examStatisticsRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(statistics));
+        when(submissionRepository.findGradedScoresByExam(1L)).thenReturn(List.of());
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void regradingTheLowestScoreLooksUpTheNewRange() {
+        when(submissionRepository.findLowestGradedScore(1L)).thenReturn(20.0);
+        when(submissionRepository.findHighestGradedScore(1L)).thenReturn(40.0);
+
+        service.graded(exam, graded(10), score(25));
+        commit();
+
+        assertThat(statistics.getGraded()).isEqualTo(4);
+        assertThat(statistics.getMinScore()).isEqualTo(20);
+        assertThat(statistics.getMaxScore()).isEqualTo(40);
+        assertThat(statistics.getMeanScore()).isEqualTo((20 + 25 + 30 + 40) / 4.0);
+    }
+
+    @Test
+    void regradingTheHighestScoreDownLooksUpTheNewRange() {
+        when(submissionRepository.findLowestGradedScore(1L)).thenReturn(10.0);
+        when(submissionRepository.findHighestGradedScore(1L)).thenReturn(30.0);
+
+        service.graded(exam, graded(40), score(15));
+        commit();
+
+        assertThat(statistics.getMinScore()).isEqualTo(10);
+        assertThat(statistics.getMaxScore()).isEqualTo(30);
+    }
+
+    @Test
+    void regradingAScoreInsideTheRangeKeepsIt() {
+        service.graded(exam, graded(20), score(25));
+        commit();
+
+        verify(submissionRepository, never()).findLowestGradedScore(any());
+        verify(submissionRepository, never()).findHighestGradedScore(any());
+        assertThat(statistics.getMinScore()).isEqualTo(10);
+        assertThat(statistics.getMaxScore()).isEqualTo(40);
+        assertThat(statistics.getMeanScore()).isEqualTo((10 + 25 + 30 + 40) / 4.0);
+    }
+
+    private static void commit() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+
+    private static GradedScore graded(double score) {
+        return new GradedScore(score, percentage(score));
+    }
+
+    private static Score score(double score) {
+        return Score.builder().totalScore(score).percentageScore(percentage(score)).build();
+    }
+
+    private static double percentage(double score) {
+        return score / MARKS * 100;
+    }
+}
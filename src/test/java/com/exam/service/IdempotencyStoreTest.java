@@ -0,0 +1,113 @@
+package com.exam.service;
+
+import com.exam.exception.ConflictException;
+import com.exam.exception.UnauthorizedAccessException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyStoreTest {
+
+    private final IdempotencyStore store = new IdempotencyStore(1000, Duration.ofHours(1));
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        signIn("student@example.com");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void replaysTheFirstResponseToARetry() {
+        ResponseEntity<?> first = store.execute("key-1", Map.of("examId", 1), this::submit);
+        ResponseEntity<?> retry = store.execute("key-1", Map.of("examId", 1), this::submit);
+
+        assertThat(runs).hasValue(1);
+        assertThat(first.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER)).isFalse();
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getBody()).isEqualTo(first.getBody());
+        assertThat(retry.getHeaders().getFirst("Location")).isEqualTo("/submissions/1");
+        assertThat(retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER)).isEqualTo("true");
+    }
+
+    @Test
+    void rejectsAKeyReusedForADifferentRequest() {
+        store.execute("key-1", Map.of("examId", 1), this::submit);
+
+        assertThatThrownBy(() -> store.execute("key-1", Map.of("examId", 2), this::submit))
+                .isInstanceOf(ConflictException.class)
+                .hasMessageContaining("different request");
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void rejectsARetryWhileTheFirstRequestIsRunning() {
+        store.execute("key-1", "request", () -> {
+            assertThatThrownBy(() -> store.execute("key-1", "request", this::submit))
+                    .isInstanceOf(ConflictException.class)
+                    .hasMessageContaining("still in progress");
+            return submit();
+        });
+
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void releasesTheKeyWhenTheRequestFails() {
+        assertThatThrownBy(() -> store.execute("key-1", "request", () -> {
+            throw new IllegalStateException("Database unavailable");
+        })).isInstanceOf(IllegalStateException.class);
+
+        ResponseEntity<?> retry = store.execute("key-1", "request", this::submit);
+
+        assertThat(runs).hasValue(1);
+        assertThat(retry.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER)).isFalse();
+    }
+
+    @Test
+    void scopesKeysToTheUser() {
+        store.execute("key-1", "request", this::submit);
+        signIn("other@example.com");
+
+        ResponseEntity<?> response = store.execute("key-1", "request", this::submit);
+
+        assertThat(runs).hasValue(2);
+        assertThat(response.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER)).isFalse();
+    }
+
+    @Test
+    void requiresAnAuthenticatedUser() {
+        SecurityContextHolder.clearContext();
+
+        assertThatThrownBy(() -> store.execute("key-1", "request", this::submit))
+                .isInstanceOf(UnauthorizedAccessException.class);
+        assertThat(runs).hasValue(0);
+    }
+
+    private ResponseEntity<?> submit() {
+        int id = runs.incrementAndGet();
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header("Location", "/submissions/" + id)
+                .body(Map.of("id", id));
+    }
+
+    private static void signIn(String email) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(email, null, List.of()));
+    }
+}
@@ -0,0 +1,71 @@
+package com.exam.service;
+
+import com.exam.Benchmarks;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Date;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cost of authenticating one request, checked the way JwtAuthenticationFilter checks its token,
+ * against the previous JwtService which built the key and parser per call and parsed the token three times
+ */
+@Tag(Benchmarks.TAG)
+class JwtServiceBenchmark {
+
+    private static final String SECRET = "ytUk34lkjdLJhsgaoLksjg98sdjgaLDjgasldFslgiehglBOdlgja";
+    private static final int TOKENS = 100;
+    private static final int REQUESTS = 200_000;
+
+    private final JwtService jwtService = new JwtService(SECRET, 86_400_000, 10_000, false);
+    private final UserDetails user = User.withUsername("teacher@example.com").password("password1").authorities("TEACHER").build();
+
+    @Test
+    void authenticateRequests() {
+        String[] tokens = new String[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            tokens[i] = jwtService.generateToken(Map.of("n", i), user);
+        }
+        int[] valid = new int[2];
+
+        double before = Benchmarks.medianNanosPerOperation(1, 3, REQUESTS / 10, i -> {
+            String token = tokens[i % TOKENS];
+            String username = parse(token).getSubject();
+            if (username != null && username.equals(user.getUsername()) && !parse(token).getExpiration().before(new Date())
+                    && parse(token).getSubject().equals(user.getUsername())) {
+                valid[0]++;
+            }
+        });
+        double after = Benchmarks.medianNanosPerOperation(1, 3, REQUESTS, i -> {
+            Claims claims = jwtService.extractAllClaims(tokens[i % TOKENS]);
+            if (claims.getSubject() != null && jwtService.isTokenValid(claims, user)) {
+                valid[1]++;
+            }
+        });
+
+        Benchmarks.report("JWT check per request over %d tokens: before %.2f us, after %.2f us",
+                TOKENS, before / 1000, after / 1000);
+        assertThat(valid[0]).isEqualTo(4 * REQUESTS / 10);
+        assertThat(valid[1]).isEqualTo(4 * REQUESTS);
+    }
+
+    /**
+     * The previous extractAllClaims, called once per claim looked up
+     */
+    private static Claims parse(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+}
@@ -0,0 +1,131 @@
+package com.exam.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class QuantileSketchTest {
+
+    private static final int COUNT = 100_000;
+
+    // The documented bound holds in 99% of sketches, twice it keeps the tests from being flaky
+    private static final double TOLERANCE = 2 * QuantileSketch.RANK_ERROR;
+
+    @Test
+    void isExactUpToK() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 1; i <= QuantileSketch.DEFAULT_K; i++) {
+            sketch.add(i);
+        }
+
+        assertThat(sketch.quantile(0.5)).isEqualTo(100);
+        assertThat(sketch.quantile(0.25)).isEqualTo(50);
+        assertThat(sketch.rank(100)).isEqualTo(199.0 / 400);
+    }
+
+    @Test
+    void quantilesAreWithinTheRankError() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int value : shuffled(0, COUNT, 1)) {
+            sketch.add(value);
+        }
+
+        assertThat(sketch.getCount()).isEqualTo(COUNT);
+        assertThat(sketch.quantile(0)).isEqualTo(0);
+        assertThat(sketch.quantile(1)).isEqualTo(COUNT - 1);
+        assertWithinRankError(sketch, 0, COUNT);
+        assertThat(sketch.toBytes().length).isLessThan(2600);
+    }
+
+    @Test
+    void mergedQuantilesAreWithinTheRankError() {
+        QuantileSketch low = new QuantileSketch();
+        QuantileSketch high = new QuantileSketch();
+        for (int value : shuffled(0, COUNT / 2, 2)) {
+            low.add(value);
+        }
+        for (int value : shuffled(COUNT / 2, COUNT, 3)) {
+            high.add(value);
+        }
+
+        low.merge(high);
+
+        assertThat(low.getCount()).isEqualTo(COUNT);
+        assertThat(low.quantile(0)).isEqualTo(0);
+        assertThat(low.quantile(1)).isEqualTo(COUNT - 1);
+        assertWithinRankError(low, 0, COUNT);
+    }
+
+    @Test
+    void mergingAnEmptySketchChangesNothing() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(5);
+
+        sketch.merge(new QuantileSketch());
+
+        assertThat(sketch.getCount()).isEqualTo(1);
+        assertThat(sketch.quantile(0.5)).isEqualTo(5);
+    }
+
+    @Test
+    void roundTripsThroughBytes() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int value : shuffled(0, COUNT, 4)) {
+            sketch.add(value / 10.0);
+        }
+
+        byte[] bytes = sketch.toBytes();
+        QuantileSketch copy = QuantileSketch.fromBytes(bytes);
+
+        assertThat(copy.getCount()).isEqualTo(sketch.getCount());
+        for (double fraction = 0; fraction <= 1; fraction += 0.05) {
+            assertThat(copy.quantile(fraction)).isEqualTo(sketch.quantile(fraction));
+        }
+        assertThat(copy.toBytes()).isEqualTo(bytes);
+    }
+
+    @Test
+    void readsAnEmptySketchFromNoBytes() {
+        assertThat(QuantileSketch.fromBytes(null).getCount()).isZero();
+        assertThat(QuantileSketch.fromBytes(new byte[0]).quantile(0.5)).isNaN();
+        assertThat(QuantileSketch.fromBytes(new QuantileSketch().toBytes()).getCount()).isZero();
+    }
+
+    @Test
+    void rejectsAnUnknownFormat() {
+        byte[] bytes = new QuantileSketch().toBytes();
+        bytes[0] = 99;
+
+        assertThatThrownBy(() -> QuantileSketch.fromBytes(bytes)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Check the sketch of the values from to to, each added once, against their true ranks
+     */
+    private static void assertWithinRankError(QuantileSketch sketch, int from, int to) {
+        int count = to - from;
+        for (double fraction = 0.01; fraction < 1; fraction += 0.01) {
+            double trueRank = (sketch.quantile(fraction) - from) / count;
+            assertThat(trueRank).as("rank of the %.2f quantile", fraction).isCloseTo(fraction, within(TOLERANCE));
+
+            double value = from + fraction * count;
+            assertThat(sketch.rank(value)).as("rank of %.0f", value).isCloseTo(fraction, within(TOLERANCE));
+        }
+    }
+
+    private static List<Integer> shuffled(int from, int to, long seed) {
+        List<Integer> values = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            values.add(i);
+        }
+        Collections.shuffle(values, new Random(seed));
+        return values;
+    }
+}
@@ -0,0 +1,146 @@
+package com.exam.service;
+
+import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.CompiledAnswerKey;
+import com.exam.dal.dto.CompiledAnswerKey.QuestionKey;
+import com.exam.dal.dto.ExamPaper;
+import com.exam.dal.dto.ExamPaper.PaperOption;
+import com.exam.dal.dto.ExamPaper.PaperQuestion;
+import com.exam.dal.dto.OptionRequest;
+import com.exam.dal.dto.QuestionRequest;
+import com.exam.dal.model.Course;
+import com.exam.dal.model.Exam;
+import com.exam.dal.model.Option;
+import com.exam.dal.model.Question;
+import com.exam.dal.model.QuestionType;
+import com.exam.dal.model.Role;
+import com.exam.dal.model.User;
+import com.exam.dal.repository.ExamRepository;
+import com.exam.dal.repository.OptionRepository;
+import com.exam.dal.repository.QuestionRepository;
+import com.exam.security.CurrentUserProvider;
+import com.exam.service.grading.MatchingGrader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class QuestionServiceTest {
+
+    private static final int ITEMS = 12;
+
+    @Mock
+    private QuestionRepository questionRepository;
+    @Mock
+    private ExamRepository examRepository;
+    @Mock
+    private OptionRepository optionRepository;
+    @Mock
+    private CurrentUserProvider currentUserProvider;
+    @Mock
+    private EnrollmentIndex enrollmentIndex;
+    @Mock
+    private ExamPaperCache examPaperCache;
+    @Mock
+    private ExamTotalsService examTotalsService;
+
+    @InjectMocks
+    private QuestionService questionService;
+
+    private final MatchingGrader grader = new MatchingGrader();
+    private Exam exam;
+
+    @BeforeEach
+    void setUp() {
+        User teacher = User.builder().id(1L).role(Role.TEACHER).build();
+        exam = Exam.builder().id(1L).published(true).course(Course.builder().id(1L).teacher(teacher).build()).build();
+        when(currentUserProvider.getCurrentUser()).thenReturn(teacher);
+        when(examRepository.findById(1L)).thenReturn(Optional.of(exam));
+        when(questionRepository.save(any(Question.class))).thenAnswer(invocation -> {
+            Question question = invocation.getArgument(0);
+            question.setId(1L);
+            return question;
+        });
+        // IDs are assigned in the order the options are saved
+        AtomicLong ids = new AtomicLong(100);
+        when(optionRepository.save(any(Option.class))).thenAnswer(invocation -> {
+            Option option = invocation.getArgument(0);
+            option.setId(ids.incrementAndGet());
+            return option;
+        });
+    }
+
+    @Test
+    void studentViewOfAMatchingQuestionDoesNotRevealTheKeyThroughOptionIds() {
+        PaperQuestion full = createMatchingQuestion();
+        PaperQuestion redacted = full.withoutAnswerKey();
+        QuestionKey key = CompiledAnswerKey.of(List.of(full)).getQuestion(1L);
+
+        // Nothing in the student view says which option matches which item
+        assertThat(redacted.getOptions()).allSatisfy(option -> {
+            assertThat(option.getCorrect()).isNull();
+            assertThat(option.getMatchItem()).isNull();
+        });
+
+        // Reading the options off in ID order is no longer the key
+        List<Long> byId = redacted.getOptions().stream().map(PaperOption::getId).sorted().toList();
+        assertThat(grader.score(key, answer(byId))).isLessThan(full.getMarks());
+
+        // The options the teacher matched to the items, in item order, are
+        List<Long> byItem = full.getOptions().stream()
+                .sorted(Comparator.comparing(PaperOption::getMatchItem))
+                .map(PaperOption::getId)
+                .toList();
+        assertThat(byItem).isNotEqualTo(byId);
+        assertThat(grader.score(key, answer(byItem))).isEqualTo(ITEMS);
+    }
+
+    @Test
+    void optionsOfOtherQuestionTypesMatchNoItem() {
+        QuestionRequest request = QuestionRequest.builder()
+                .content("Pick one")
+                .marks(1)
+                .questionType(QuestionType.SINGLE_CHOICE)
+                .examId(1L)
+                .options(List.of(new OptionRequest(null, "Yes", true), new OptionRequest(null, "No", false)))
+                .build();
+
+        Question question = questionService.createQuestion(request);
+
+        assertThat(question.getOptions()).extracting(Option::getMatchItem).containsOnlyNulls();
+    }
+
+    private PaperQuestion createMatchingQuestion() {
+        List<OptionRequest> options = new ArrayList<>();
+        for (int item = 1; item <= ITEMS; item++) {
+            options.add(new OptionRequest(null, "Match of item " + item, false));
+        }
+        QuestionRequest request = QuestionRequest.builder()
+                .content("Match the items")
+                .marks(ITEMS)
+                .questionType(QuestionType.MATCHING)
+                .examId(1L)
+                .options(options)
+                .build();
+
+        Question question = questionService.createQuestion(request);
+        return ExamPaper.of(exam, List.of(question)).getQuestion(1L);
+    }
+
+    private static AnswerRequest answer(List<Long> selectedOptionIds) {
+        return AnswerRequest.builder().questionId(1L).selectedOptionIds(selectedOptionIds).build();
+    }
+}
@@ -0,0 +1,231 @@
+package com.exam.service;
+
+import com.exam.Benchmarks;
+import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.SubmissionRequest;
+import com.exam.dal.model.ExamStatus;
+import com.exam.dal.model.QuestionType;
+import com.exam.dal.model.Role;
+import com.exam.dal.model.Submission;
+import com.exam.dal.model.User;
+import com.exam.dal.repository.UserRepository;
+import com.exam.security.CurrentUserProvider;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Statements and time per submitted exam, counted on the submitting thread by a counting data source.
+ * Half the questions are single choice with one option selected, the other half multiple response
+ * with two.
+ */
+@Tag(Benchmarks.TAG)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:submissions;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.database=H2",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN"
+})
+class SubmissionBenchmark {
+
+    private static final int SUBMISSIONS = 200;
+    private static final ThreadLocal<int[]> STATEMENTS = ThreadLocal.withInitial(() -> new int[1]);
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeBatch", "executeLargeUpdate", "executeLargeBatch");
+
+    @Autowired
+    private SubmissionService submissionService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ExamStatisticsService examStatisticsService;
+    @MockBean
+    private CurrentUserProvider currentUserProvider;
+
+    @Test
+    void submitExams() {
+        submit(10);
+        submit(100);
+    }
+
+    private void submit(int questions) {
+        User teacher = userRepository.save(user("teacher" + questions, Role.TEACHER));
+        List<User> students = new ArrayList<>();
+        for (int i = 0; i < SUBMISSIONS + 1; i++) {
+            students.add(userRepository.save(user("student" + questions + "-" + i, Role.STUDENT)));
+        }
+        long examId = seedExam(teacher, students, questions);
+        List<AnswerRequest> answers = answers(examId);
+
+        // The first submission loads the paper into the cache
+        int first = countStatements(() -> submitAs(students.get(0), examId, answers));
+        int[] statements = new int[SUBMISSIONS];
+        double nanos = Benchmarks.medianNanosPerOperation(0, 1, SUBMISSIONS, i ->
+                statements[i] = countStatements(() -> submitAs(students.get(i + 1), examId, answers)));
+
+        Benchmarks.report("%d questions: %d statements for the first submission, %d to %d for the next %d, %.2f ms each",
+                questions, first, min(statements), max(statements), SUBMISSIONS, nanos / 1e6);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from answers a join submissions s on s.id = a.submission_id " +
+                "where s.exam_id = ?", Long.class, examId)).isEqualTo((long) questions * (SUBMISSIONS + 1));
+    }
+
+    private Submission submitAs(User student, long examId, List<AnswerRequest> answers) {
+        when(currentUserProvider.getCurrentUser()).thenReturn(student);
+        SubmissionRequest request = new SubmissionRequest();
+        request.setExamId(examId);
+        request.setAnswers(answers);
+        return submissionService.submitExam(request);
+    }
+
+    private static int countStatements(Runnable work) {
+        int before = STATEMENTS.get()[0];
+        work.run();
+        return STATEMENTS.get()[0] - before;
+    }
+
+    /**
+     * An active exam of a course all the students are enrolled in, each question with four options
+     */
+    private long seedExam(User teacher, List<User> students, int questions) {
+        jdbcTemplate.update("insert into courses (title, teacher_id) values (?, ?)", "Course " + questions, teacher.getId());
+        long courseId = jdbcTemplate.queryForObject("select max(id) from courses", Long.class);
+        jdbcTemplate.batchUpdate("insert into course_students (course_id, student_id) values (?, ?)",
+                students.stream().map(student -> new Object[]{courseId, student.getId()}).toList());
+
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("insert into exams (title, course_id, start_time, end_time, duration_minutes, published, " +
+                        "status, total_marks, multiple_choice_count, multiple_response_count, true_false_count, " +
+                        "short_answer_count, essay_count, matching_count, fill_in_blank_count, single_choice_count) " +
+                        "values (?, ?, ?, ?, 120, true, ?, ?, 0, ?, 0, 0, 0, 0, 0, ?)",
+                "Exam " + questions, courseId, Timestamp.valueOf(now.minusHours(1)), Timestamp.valueOf(now.plusHours(1)),
+                ExamStatus.ACTIVE.name(), (double) questions, questions / 2, questions - questions / 2);
+        long examId = jdbcTemplate.queryForObject("select max(id) from exams", Long.class);
+
+        for (int question = 0; question < questions; question++) {
+            QuestionType type = question % 2 == 0 ? QuestionType.SINGLE_CHOICE : QuestionType.MULTIPLE_RESPONSE;
+            jdbcTemplate.update("insert into questions (content, marks, question_type, exam_id) values (?, 1, ?, ?)",
+                    "Question " + question, type.name(), examId);
+            long questionId = jdbcTemplate.queryForObject("select max(id) from questions", Long.class);
+            for (int option = 0; option < 4; option++) {
+                boolean correct = option == 0 || (option == 1 && type == QuestionType.MULTIPLE_RESPONSE);
+                jdbcTemplate.update("insert into options (content, correct, question_id) values (?, ?, ?)",
+                        "Option " + option, correct, questionId);
+            }
+        }
+        // As creating the exam through the application would
+        examStatisticsService.rebuild(examId);
+        return examId;
+    }
+
+    /**
+     * Select the first option of single choice questions and the first two of multiple response ones
+     */
+    private List<AnswerRequest> answers(long examId) {
+        List<AnswerRequest> answers = new ArrayList<>();
+        jdbcTemplate.query("select q.id, q.question_type from questions q where q.exam_id = ? order by q.id", row -> {
+            long questionId = row.getLong(1);
+            int selected = QuestionType.valueOf(row.getString(2)) == QuestionType.SINGLE_CHOICE ? 1 : 2;
+            List<Long> options = jdbcTemplate.queryForList(
+                    "select id from options where question_id = ? order by id limit ?", Long.class, questionId, selected);
+            answers.add(AnswerRequest.builder().questionId(questionId).selectedOptionIds(options).build());
+        }, examId);
+        return answers;
+    }
+
+    private static int min(int[] values) {
+        int min = Integer.MAX_VALUE;
+        for (int value : values) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    private static int max(int[] values) {
+        int max = Integer.MIN_VALUE;
+        for (int value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    private static User user(String name, Role role) {
+        return User.builder()
+                .name(name)
+                .email(name + "@example.com")
+                .password("password1")
+                .role(role)
+                .build();
+    }
+
+    @TestConfiguration
+    static class StatementCountingConfiguration {
+
+        /**
+         * Count every statement executed through the data source, a batch counting once
+         */
+        @Bean
+        static BeanPostProcessor statementCounter() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource dataSource)) {
+                        return bean;
+                    }
+                    return new DelegatingDataSource(dataSource) {
+                        @Override
+                        public Connection getConnection() throws SQLException {
+                            return counting(Connection.class, super.getConnection());
+                        }
+                    };
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T counting(Class<T> type, T target) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                if (EXECUTE_METHODS.contains(method.getName())) {
+                    STATEMENTS.get()[0]++;
+                }
+                try {
+                    Object result = method.invoke(target, args);
+                    // Hand out counting statements, whichever kind the connection creates
+                    if (type == Connection.class && result instanceof Statement statement) {
+                        return counting((Class<Statement>) method.getReturnType(), statement);
+                    }
+                    return result;
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+    }
+}
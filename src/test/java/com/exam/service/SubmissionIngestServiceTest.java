@@ -0,0 +1,153 @@
+package com.exam.service;
+
+import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.QueuedSubmission;
+import com.exam.dal.dto.SubmissionReceipt;
+import com.exam.dal.dto.SubmissionRequest;
+import com.exam.dal.model.RejectedSubmission;
+import com.exam.dal.model.Role;
+import com.exam.dal.model.Submission;
+import com.exam.dal.model.User;
+import com.exam.dal.repository.RejectedSubmissionRepository;
+import com.exam.dal.repository.SubmissionRepository;
+import com.exam.exception.UnauthorizedAccessException;
+import com.exam.security.CurrentUserProvider;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SubmissionIngestServiceTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @TempDir
+    Path directory;
+
+    private final SubmissionService submissionService = mock(SubmissionService.class);
+    private final RejectedSubmissionRepository rejectedSubmissionRepository = mock(RejectedSubmissionRepository.class);
+    private final CurrentUserProvider currentUserProvider = mock(CurrentUserProvider.class);
+    private final User student = User.builder().id(7L).role(Role.STUDENT).build();
+    private final AtomicLong submissionIds = new AtomicLong();
+
+    private SubmissionIngestService ingest;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(submissionService.validateSubmission(any())).thenReturn(student);
+        when(currentUserProvider.getCurrentUser()).thenReturn(student);
+        when(rejectedSubmissionRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ingest = new SubmissionIngestService(submissionService, mock(SubmissionRepository.class), rejectedSubmissionRepository,
+                currentUserProvider, JsonMapper.builder().findAndAddModules().build(), mock(PlatformTransactionManager.class),
+                true, directory, 1 << 16, 2, 16, 5, 10, MAX_ATTEMPTS, Duration.ofHours(1), 1000);
+        ingest.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        ingest.stop();
+    }
+
+    @Test
+    void savesAndGradesQueuedSubmissions() throws Exception {
+        when(submissionService.saveQueuedSubmission(any())).thenAnswer(invocation -> saved());
+
+        SubmissionReceipt receipt = ingest.accept(request(1L));
+        assertThat(receipt.getStatus()).isEqualTo(SubmissionReceipt.Status.QUEUED);
+
+        assertThat(await(receipt).getStatus()).isEqualTo(SubmissionReceipt.Status.SUBMITTED);
+        verify(rejectedSubmissionRepository, never()).save(any());
+    }
+
+    @Test
+    void rejectsASubmissionThatFailsForItsOwnReasonsWithoutHoldingUpTheRest() throws Exception {
+        when(submissionService.saveQueuedSubmission(any())).thenAnswer(invocation -> {
+            QueuedSubmission queued = invocation.getArgument(0);
+            if (queued.getExamId() == 1L) {
+                throw new UnauthorizedAccessException("This draft is not yours");
+            }
+            if (queued.getExamId() == 2L) {
+                throw new DataIntegrityViolationException("Duplicate entry");
+            }
+            return saved();
+        });
+
+        SubmissionReceipt unauthorized = ingest.accept(request(1L));
+        SubmissionReceipt duplicate = ingest.accept(request(2L));
+        SubmissionReceipt fine = ingest.accept(request(3L));
+
+        assertThat(await(unauthorized).getStatus()).isEqualTo(SubmissionReceipt.Status.FAILED);
+        assertThat(await(unauthorized).getMessage()).isEqualTo("This draft is not yours");
+        // The details of unexpected failures stay in the log
+        assertThat(await(duplicate).getStatus()).isEqualTo(SubmissionReceipt.Status.FAILED);
+        assertThat(await(duplicate).getMessage()).isEqualTo("The submission could not be saved");
+        assertThat(await(fine).getStatus()).isEqualTo(SubmissionReceipt.Status.SUBMITTED);
+
+        verify(rejectedSubmissionRepository).save(argThat(rejected -> rejected.getReceiptId().equals(unauthorized.getReceiptId())));
+        verify(rejectedSubmissionRepository).save(argThat(rejected -> rejected.getReceiptId().equals(duplicate.getReceiptId())));
+    }
+
+    @Test
+    void retriesASubmissionWhileTheDatabaseFails() throws Exception {
+        when(submissionService.saveQueuedSubmission(any()))
+                .thenThrow(new CannotAcquireLockException("Lock wait timeout"))
+                .thenAnswer(invocation -> saved());
+
+        SubmissionReceipt receipt = ingest.accept(request(1L));
+
+        assertThat(await(receipt).getStatus()).isEqualTo(SubmissionReceipt.Status.SUBMITTED);
+        verify(rejectedSubmissionRepository, never()).save(any());
+    }
+
+    @Test
+    void rejectsASubmissionTheDatabaseKeepsFailingOn() throws Exception {
+        when(submissionService.saveQueuedSubmission(any())).thenThrow(new CannotAcquireLockException("Lock wait timeout"));
+
+        SubmissionReceipt receipt = ingest.accept(request(1L));
+
+        assertThat(await(receipt).getStatus()).isEqualTo(SubmissionReceipt.Status.FAILED);
+        // Once in its slice's transaction, then alone on every attempt
+        verify(submissionService, times(2 * MAX_ATTEMPTS)).saveQueuedSubmission(any());
+        verify(rejectedSubmissionRepository).save(any(RejectedSubmission.class));
+    }
+
+    private Submission saved() {
+        return Submission.builder().id(submissionIds.incrementAndGet()).student(student).build();
+    }
+
+    private static SubmissionRequest request(Long examId) {
+        return SubmissionRequest.builder()
+                .examId(examId)
+                .answers(List.of(AnswerRequest.builder().questionId(1L).textAnswer("42").build()))
+                .build();
+    }
+
+    private SubmissionReceipt await(SubmissionReceipt queued) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        SubmissionReceipt receipt = ingest.getReceipt(queued.getReceiptId());
+        while (receipt.getStatus() == SubmissionReceipt.Status.QUEUED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            receipt = ingest.getReceipt(queued.getReceiptId());
+        }
+        return receipt;
+    }
+}
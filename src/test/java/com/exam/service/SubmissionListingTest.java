@@ -0,0 +1,173 @@
+package com.exam.service;
+
+import com.exam.dal.dto.KeysetPage;
+import com.exam.dal.dto.SubmissionSummary;
+import com.exam.dal.model.Course;
+import com.exam.dal.model.Exam;
+import com.exam.dal.model.Role;
+import com.exam.dal.model.Submission;
+import com.exam.dal.model.SubmissionStatus;
+import com.exam.dal.model.User;
+import com.exam.dal.repository.ExamRepository;
+import com.exam.dal.repository.SubmissionRepository;
+import com.exam.security.CurrentUserProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Walks the keyset-paginated submission listings page by page against an in-memory database
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.jpa.database=H2",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "logging.level.org.hibernate.SQL=WARN"
+})
+class SubmissionListingTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 6, 1, 9, 0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private SubmissionRepository submissionRepository;
+
+    private final CurrentUserProvider currentUserProvider = mock(CurrentUserProvider.class);
+    private final ExamRepository examRepository = mock(ExamRepository.class);
+    private SubmissionService submissionService;
+    private User teacher;
+    private User student;
+    private Course course;
+    private Exam exam;
+
+    @BeforeEach
+    void setUp() {
+        submissionService = new SubmissionService(submissionRepository, examRepository, currentUserProvider,
+                null, null, null, null, null, null, null, null, null, null);
+
+        teacher = entityManager.persist(user("teacher", Role.TEACHER));
+        student = entityManager.persist(user("student", Role.STUDENT));
+        course = entityManager.persist(Course.builder().title("Algebra").teacher(teacher).build());
+        exam = entityManager.persist(Exam.builder().title("Midterm").course(course).build());
+        when(examRepository.findById(exam.getId())).thenReturn(Optional.of(exam));
+    }
+
+    @Test
+    void pagesThroughAnExamsSubmissionsNewestFirstWithUntimedOnesFirst() {
+        when(currentUserProvider.getCurrentUser()).thenReturn(teacher);
+        List<Submission> submissions = createSubmissions(3, 23, i -> entityManager.persist(user("student" + i, Role.STUDENT)), i -> exam);
+
+        List<SubmissionSummary> listed = walk(5, (cursor, size) -> submissionService.getSubmissionsByExam(exam.getId(), cursor, size));
+
+        assertThat(listed).extracting(SubmissionSummary::getId).containsExactlyElementsOf(expectedOrder(submissions));
+        assertThat(listed.subList(0, 3)).allSatisfy(summary -> assertThat(summary.getSubmittedAt()).isNull());
+    }
+
+    @Test
+    void pagesThroughAStudentsSubmissionsNewestFirstWithUntimedOnesFirst() {
+        when(currentUserProvider.getCurrentUser()).thenReturn(student);
+        List<Submission> submissions = createSubmissions(4, 9, i -> student, i -> exam(i));
+        User other = entityManager.persist(user("other", Role.STUDENT));
+        createSubmissions(2, 5, i -> other, i -> exam(100 + i));
+
+        // A page boundary falls among the untimed submissions, and the last of them fills a page exactly
+        List<SubmissionSummary> listed = walk(2, (cursor, size) -> submissionService.getMySubmissions(cursor, size));
+
+        assertThat(listed).extracting(SubmissionSummary::getId).containsExactlyElementsOf(expectedOrder(submissions));
+    }
+
+    @Test
+    void listsEverythingOnOnePageWithoutASize() {
+        when(currentUserProvider.getCurrentUser()).thenReturn(student);
+        List<Submission> submissions = createSubmissions(2, 6, i -> student, i -> exam(i));
+
+        KeysetPage<SubmissionSummary> page = submissionService.getMySubmissions(null, null);
+
+        assertThat(page.getNextCursor()).isNull();
+        assertThat(page.getItems()).extracting(SubmissionSummary::getId).containsExactlyElementsOf(expectedOrder(submissions));
+    }
+
+    private List<SubmissionSummary> walk(int size, BiFunction<String, Integer, KeysetPage<SubmissionSummary>> listing) {
+        List<SubmissionSummary> listed = new ArrayList<>();
+        String cursor = null;
+        do {
+            KeysetPage<SubmissionSummary> page = listing.apply(cursor, size);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(size);
+            listed.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return listed;
+    }
+
+    /**
+     * Create submissions, several submitted at the same time so the id tie-break matters, and
+     * some without a submission time as rows written outside the application may be
+     */
+    private List<Submission> createSubmissions(int untimed, int timed, IntFunction<User> studentOf, IntFunction<Exam> examOf) {
+        // Mixed in among the rest, so ids do not give the order away
+        List<Boolean> isUntimed = new ArrayList<>();
+        isUntimed.addAll(Collections.nCopies(untimed, true));
+        isUntimed.addAll(Collections.nCopies(timed, false));
+        Collections.shuffle(isUntimed, new Random(untimed * 31L + timed));
+
+        List<Submission> submissions = new ArrayList<>();
+        for (int i = 0; i < isUntimed.size(); i++) {
+            Submission submission = new Submission();
+            submission.setExam(examOf.apply(i));
+            submission.setStudent(studentOf.apply(i));
+            submission.setStatus(SubmissionStatus.SUBMITTED);
+            submission.setSubmittedAt(START.plusMinutes(i / 3));
+            submissions.add(entityManager.persist(submission));
+            if (isUntimed.get(i)) {
+                // The application always sets one when saving
+                entityManager.flush();
+                entityManager.getEntityManager()
+                        .createQuery("update Submission s set s.submittedAt = null where s.id = :id")
+                        .setParameter("id", submission.getId())
+                        .executeUpdate();
+                submission.setSubmittedAt(null);
+            }
+        }
+        entityManager.flush();
+        return submissions;
+    }
+
+    private Exam exam(int number) {
+        return entityManager.persist(Exam.builder().title("Quiz " + number).course(course).build());
+    }
+
+    private static List<Long> expectedOrder(List<Submission> submissions) {
+        Comparator<Submission> untimedFirst = Comparator.comparing(submission -> submission.getSubmittedAt() != null);
+        return submissions.stream()
+                .sorted(untimedFirst
+                        .thenComparing(Submission::getSubmittedAt, Comparator.nullsFirst(Comparator.reverseOrder()))
+                        .thenComparing(Submission::getId, Comparator.reverseOrder()))
+                .map(Submission::getId)
+                .toList();
+    }
+
+    private static User user(String name, Role role) {
+        return User.builder()
+                .name(name)
+                .email(name + "@example.com")
+                .password("password1")
+                .role(role)
+                .build();
+    }
+}
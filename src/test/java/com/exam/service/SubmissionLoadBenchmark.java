@@ -0,0 +1,213 @@
+package com.exam.service;
+
+import com.exam.Benchmarks;
+import com.exam.OnlineExamApplication;
+import com.exam.dal.model.ExamStatus;
+import com.exam.dal.model.QuestionType;
+import com.exam.dal.model.Role;
+import com.exam.dal.model.User;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 2000 students submitting the same exam at once over HTTP, as at the end of an exam, with the
+ * submission queue off and on. Client and server share the machine, so on few cores the client's
+ * own work is part of the latency.
+ */
+@Tag(Benchmarks.TAG)
+class SubmissionLoadBenchmark {
+
+    private static final int STUDENTS = 2000;
+    private static final int QUESTIONS = 20;
+
+    private int port;
+    private JdbcTemplate jdbcTemplate;
+    private JwtService jwtService;
+    private ExamStatisticsService examStatisticsService;
+    private List<String> tokens;
+    private final Map<Long, String> submissions = new HashMap<>();
+
+    @Test
+    void submitSynchronously() throws Exception {
+        try (ConfigurableApplicationContext context = start("synchronous", false)) {
+            // A first burst on another exam warms the server up, so neither mode pays for compiling it
+            burst(exam("Quiz"));
+            long examId = exam("Final");
+
+            long[] latencies = burst(examId);
+
+            report("synchronous", latencies);
+            assertThat(savedSubmissions(examId)).isEqualTo(STUDENTS);
+        }
+    }
+
+    @Test
+    void submitThroughTheQueue() throws Exception {
+        try (ConfigurableApplicationContext context = start("queued", true)) {
+            long quizId = exam("Quiz");
+            burst(quizId);
+            awaitSaved(quizId);
+            long examId = exam("Final");
+
+            long[] latencies = burst(examId);
+            long burstEnd = System.nanoTime();
+            awaitSaved(examId);
+
+            report("queued", latencies);
+            Benchmarks.report("queued: all %d saved and graded %.1f s after the last response",
+                    STUDENTS, (System.nanoTime() - burstEnd) / 1e9);
+            assertThat(savedSubmissions(examId)).isEqualTo(STUDENTS);
+        }
+    }
+
+    /**
+     * Boot the application on a fresh in-memory database and seed it
+     */
+    private ConfigurableApplicationContext start(String database, boolean queued) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(OnlineExamApplication.class)
+                // As arguments, since default properties would lose to the application.yaml
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.jpa.database=H2",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.com.exam=WARN",
+                        "--app.submission-ingest.enabled=" + queued,
+                        "--app.submission-ingest.directory=target/benchmark/submission-log-${random.uuid}");
+        port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jwtService = context.getBean(JwtService.class);
+        examStatisticsService = context.getBean(ExamStatisticsService.class);
+        seed();
+        return context;
+    }
+
+    /**
+     * Send every student's submission at once
+     *
+     * @return Each request's latency in nanoseconds
+     */
+    private long[] burst(long examId) throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMinutes(1)).build();
+        URI uri = URI.create("http://localhost:" + port + "/api/api/submissions");
+        long[] latencies = new long[STUDENTS];
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            int student = i;
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .header("Authorization", "Bearer " + tokens.get(i))
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofMinutes(2))
+                    .POST(HttpRequest.BodyPublishers.ofString(submissions.get(examId)))
+                    .build();
+            long start = System.nanoTime();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, error) -> latencies[student] = System.nanoTime() - start));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertThat(response.get().statusCode()).as(response.get().body()).isIn(200, 202);
+        }
+        return latencies;
+    }
+
+    private static void report(String mode, long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        Benchmarks.report("%s: %d submissions at once, p50 %.2f s, p99 %.2f s, slowest %.2f s", mode, STUDENTS,
+                sorted[STUDENTS / 2] / 1e9, sorted[STUDENTS * 99 / 100] / 1e9, sorted[STUDENTS - 1] / 1e9);
+    }
+
+    private long savedSubmissions(long examId) {
+        return jdbcTemplate.queryForObject("select count(*) from submissions where exam_id = ? and status <> 'IN_PROGRESS'",
+                Long.class, examId);
+    }
+
+    private void awaitSaved(long examId) throws InterruptedException {
+        long start = System.nanoTime();
+        while (savedSubmissions(examId) < STUDENTS && System.nanoTime() - start < Duration.ofMinutes(5).toNanos()) {
+            Thread.sleep(50);
+        }
+    }
+
+    /**
+     * The students, enrolled in one course, and a token for each of them
+     */
+    private void seed() {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("insert into users (name, email, password, role, is_active, token_version, created_at) " +
+                "values ('Teacher', 'teacher@example.com', 'password1', 'TEACHER', true, 0, ?)", Timestamp.valueOf(now));
+        List<Object[]> students = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            students.add(new Object[]{"Student " + i, "student" + i + "@example.com", Timestamp.valueOf(now)});
+        }
+        jdbcTemplate.batchUpdate("insert into users (name, email, password, role, is_active, token_version, created_at) " +
+                "values (?, ?, 'password1', 'STUDENT', true, 0, ?)", students);
+        jdbcTemplate.update("insert into courses (title, teacher_id) " +
+                "select 'Algebra', id from users where email = 'teacher@example.com'");
+        jdbcTemplate.update("insert into course_students (course_id, student_id) " +
+                "select c.id, u.id from courses c cross join users u where u.role = 'STUDENT'");
+
+        tokens = jdbcTemplate.queryForList("select email from users where role = 'STUDENT' order by id", String.class)
+                .stream()
+                .map(email -> jwtService.generateToken(User.builder().email(email).role(Role.STUDENT).build()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * An active exam of single choice questions, and the submission every student sends for it
+     *
+     * @return The exam ID
+     */
+    private long exam(String title) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("insert into exams (title, course_id, start_time, end_time, duration_minutes, published, " +
+                        "status, total_marks, multiple_choice_count, multiple_response_count, true_false_count, " +
+                        "short_answer_count, essay_count, matching_count, fill_in_blank_count, single_choice_count) " +
+                        "select ?, id, ?, ?, 120, true, ?, ?, 0, 0, 0, 0, 0, 0, 0, ? from courses",
+                title, Timestamp.valueOf(now.minusHours(1)), Timestamp.valueOf(now.plusHours(1)),
+                ExamStatus.ACTIVE.name(), (double) QUESTIONS, QUESTIONS);
+        long examId = jdbcTemplate.queryForObject("select max(id) from exams", Long.class);
+        List<String> answers = new ArrayList<>();
+        for (int question = 0; question < QUESTIONS; question++) {
+            jdbcTemplate.update("insert into questions (content, marks, question_type, exam_id) values (?, 1, ?, ?)",
+                    "Question " + question, QuestionType.SINGLE_CHOICE.name(), examId);
+            long questionId = jdbcTemplate.queryForObject("select max(id) from questions", Long.class);
+            for (int option = 0; option < 4; option++) {
+                jdbcTemplate.update("insert into options (content, correct, question_id) values (?, ?, ?)",
+                        "Option " + option, option == 0, questionId);
+            }
+            long selected = jdbcTemplate.queryForObject("select min(id) + ? from options where question_id = ?",
+                    Long.class, question % 4, questionId);
+            answers.add("{\"submissionId\":0,\"questionId\":" + questionId + ",\"selectedOptionIds\":[" + selected + "]}");
+        }
+        // As creating the exam through the application would
+        examStatisticsService.rebuild(examId);
+        submissions.put(examId, "{\"examId\":" + examId + ",\"answers\":[" + String.join(",", answers) + "]}");
+        return examId;
+    }
+}
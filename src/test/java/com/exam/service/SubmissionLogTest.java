@@ -0,0 +1,147 @@
+package com.exam.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SubmissionLogTest {
+
+    private static final int SEGMENT_SIZE = 256;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsOnlySyncedRecords() throws IOException {
+        try (SubmissionLog log = new SubmissionLog(directory, SEGMENT_SIZE)) {
+            long first = log.append(bytes("first"));
+            long second = log.append(bytes("second"));
+            assertThat(log.read(10)).isEmpty();
+
+            log.sync(first);
+            log.sync(second);
+
+            List<SubmissionLog.Entry> entries = log.read(10);
+            assertThat(payloads(entries)).containsExactly("first", "second");
+            assertThat(entries.get(1).getEndPosition()).isEqualTo(second);
+            assertThat(log.backlog()).isZero();
+        }
+    }
+
+    @Test
+    void rollsOverToNewSegments() throws IOException {
+        try (SubmissionLog log = new SubmissionLog(directory, SEGMENT_SIZE)) {
+            long position = 0;
+            for (int i = 0; i < 20; i++) {
+                position = log.append(bytes("record-" + i + "-" + "x".repeat(40)));
+            }
+            log.sync(position);
+
+            List<SubmissionLog.Entry> entries = log.read(100);
+            assertThat(entries).hasSize(20);
+            assertThat(payloads(entries).get(19)).startsWith("record-19-");
+            assertThat(segments()).hasSizeGreaterThan(1);
+
+            // Segments entirely before the checkpoint are deleted
+            log.checkpoint(position);
+            assertThat(segments()).hasSizeLessThanOrEqualTo(2);
+        }
+    }
+
+    @Test
+    void rejectsRecordsLargerThanASegment() throws IOException {
+        try (SubmissionLog log = new SubmissionLog(directory, SEGMENT_SIZE)) {
+            assertThatThrownBy(() -> log.append(new byte[SEGMENT_SIZE])).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void replaysRecordsAfterTheCheckpointOnRestart() throws IOException {
+        try (SubmissionLog log = new SubmissionLog(directory, SEGMENT_SIZE)) {
+            log.append(bytes("a"));
+            long b = log.append(bytes("b"));
+            log.sync(log.append(bytes("c")));
+            log.read(10);
+            log.checkpoint(b);
+        }
+
+        try (SubmissionLog log = new SubmissionLog(directory, SEGMENT_SIZE)) {
+            assertThat(payloads(log.read(10))).containsExactly("c");
+
+            // Appending resumes after the last record
+            log.sync(log.append(bytes("d")));
+            assertThat(payloads(log.read(10))).containsExactly("d");
+        }
+    }
+
+    @Test
+    void dropsACorruptRecordAndEverythingAfterItOnRestart() throws IOException {
+        try (SubmissionLog log = new SubmissionLog(directory, SEGMENT_SIZE)) {
+            log.append(bytes("intact"));
+            log.append(bytes("torn"));
+            log.sync(log.append(bytes("after")));
+        }
+        // Flip a payload byte of the second record, past its 8 byte header
+        corrupt(segments().get(0), 8 + "intact".length() + 8);
+
+        try (SubmissionLog log = new SubmissionLog(directory, SEGMENT_SIZE)) {
+            assertThat(payloads(log.read(10))).containsExactly("intact");
+
+            // The torn record is overwritten by the next append
+            log.sync(log.append(bytes("next")));
+            assertThat(payloads(log.read(10))).containsExactly("next");
+        }
+    }
+
+    @Test
+    void dropsARecordWhoseLengthRunsPastTheSegment() throws IOException {
+        try (SubmissionLog log = new SubmissionLog(directory, SEGMENT_SIZE)) {
+            log.sync(log.append(bytes("intact")));
+        }
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, SEGMENT_SIZE), 8 + "intact".length());
+        }
+
+        try (SubmissionLog log = new SubmissionLog(directory, SEGMENT_SIZE)) {
+            assertThat(payloads(log.read(10))).containsExactly("intact");
+            log.sync(log.append(bytes("next")));
+            assertThat(payloads(log.read(10))).containsExactly("next");
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static void corrupt(Path segment, int offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, offset);
+            b.put(0, (byte) (b.get(0) ^ 0xFF));
+            b.rewind();
+            channel.write(b, offset);
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> payloads(List<SubmissionLog.Entry> entries) {
+        return entries.stream().map(entry -> new String(entry.getPayload(), StandardCharsets.UTF_8)).toList();
+    }
+}
@@ -0,0 +1,98 @@
+package com.exam.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimerWheelTest {
+
+    private static final long TICK = 10;
+    private static final long START = 1_000_003;
+
+    @Test
+    void expiresTimersOnTheFirstTickAtOrPastTheirDeadline() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 3_600_000, START);
+        wheel.schedule(START + 25, "a");
+        wheel.schedule(START + 30, "b");
+
+        assertThat(wheel.advance(START + 20)).isEmpty();
+        assertThat(wheel.advance(START + 29)).containsExactly("a");
+        assertThat(wheel.advance(START + 40)).containsExactly("b");
+        assertThat(wheel.advance(START + 1000)).isEmpty();
+    }
+
+    @Test
+    void expiresTimersAlreadyDueOnTheNextAdvance() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 3_600_000, START);
+        wheel.schedule(START - 500, "late");
+
+        assertThat(wheel.advance(START)).containsExactly("late");
+    }
+
+    @Test
+    void cascadesTimersDownEveryLevel() {
+        // 64 ticks on level 0, 4096 with level 1, 262144 with level 2
+        TimerWheel<Long> wheel = new TimerWheel<>(TICK, 3_600_000, START);
+        long[] delays = {5, 63 * TICK, 64 * TICK, 65 * TICK, 4095 * TICK, 4096 * TICK, 4097 * TICK,
+                100_000 * TICK, 262_143 * TICK, 300_000 * TICK};
+        for (long delay : delays) {
+            assertThat(wheel.schedule(START + delay, START + delay)).isTrue();
+        }
+
+        List<Long> expired = new ArrayList<>();
+        for (long now = START; expired.size() < delays.length && now < START + 4_000_000; now += TICK) {
+            for (long deadline : wheel.advance(now)) {
+                // Deadlines are rounded up to a whole tick
+                long tickDeadline = ceilToTick(deadline);
+                assertThat(now).as("expiry of %d", deadline).isGreaterThanOrEqualTo(tickDeadline).isLessThan(tickDeadline + TICK);
+                expired.add(deadline);
+            }
+        }
+        assertThat(expired).hasSize(delays.length);
+    }
+
+    @Test
+    void expiresRandomTimersWhenAdvancedInUnevenSteps() {
+        Random random = new Random(42);
+        TimerWheel<Integer> wheel = new TimerWheel<>(TICK, 3_600_000, START);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            long deadline = START + (long) (Math.pow(random.nextDouble(), 3) * 3_000_000);
+            wheel.schedule(deadline, i);
+            deadlines.put(i, deadline);
+        }
+
+        long previous = START;
+        long now = START;
+        while (!deadlines.isEmpty()) {
+            now += 1 + random.nextInt(5_000);
+            for (int id : wheel.advance(now)) {
+                long tickDeadline = ceilToTick(deadlines.remove(id));
+                assertThat(tickDeadline).as("deadline of timer %d", id).isLessThanOrEqualTo(now).isGreaterThan(previous);
+            }
+            for (long deadline : deadlines.values()) {
+                assertThat(ceilToTick(deadline)).isGreaterThan(now);
+            }
+            previous = now;
+        }
+    }
+
+    @Test
+    void refusesTimersBeyondTheHorizon() {
+        // One level of 64 ticks is not enough for a second, so a second level covers 4096 ticks
+        TimerWheel<String> wheel = new TimerWheel<>(TICK, 1000, START);
+
+        assertThat(wheel.schedule(START + 4000 * TICK, "within")).isTrue();
+        assertThat(wheel.schedule(START + 5000 * TICK, "beyond")).isFalse();
+    }
+
+    private static long ceilToTick(long millis) {
+        return -Math.floorDiv(-millis, TICK) * TICK;
+    }
+}
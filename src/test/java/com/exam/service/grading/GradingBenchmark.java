@@ -0,0 +1,154 @@
+package com.exam.service.grading;
+
+import com.exam.Benchmarks;
+import com.exam.dal.dto.AnswerRequest;
+import com.exam.dal.dto.CompiledAnswerKey;
+import com.exam.dal.dto.ExamPaper.PaperOption;
+import com.exam.dal.dto.ExamPaper.PaperQuestion;
+import com.exam.dal.model.QuestionType;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Auto-grading of generated submissions against the compiled answer key, compared with the
+ * previous grading which built a set of correct and of selected option ids per answer
+ */
+@Tag(Benchmarks.TAG)
+class GradingBenchmark {
+
+    private static final int SUBMISSIONS = 10_000;
+
+    private final GradingEngine gradingEngine = new GradingEngine(List.of(
+            new SingleChoiceGrader(), new TrueFalseGrader(), new MultipleChoiceGrader(), new MultipleResponseGrader(),
+            new EssayGrader(), new ShortAnswerGrader(), new FillInBlankGrader(), new MatchingGrader()));
+    private final Random random = new Random(15);
+
+    @Test
+    void gradeSubmissions() {
+        // 15 single choice, 10 true/false, 10 multiple choice and 5 essay questions
+        List<PaperQuestion> questions = new ArrayList<>();
+        addQuestions(questions, 15, QuestionType.SINGLE_CHOICE, 4, 1);
+        addQuestions(questions, 10, QuestionType.TRUE_FALSE, 2, 1);
+        addQuestions(questions, 10, QuestionType.MULTIPLE_CHOICE, 5, 2);
+        addQuestions(questions, 5, QuestionType.ESSAY, 0, 0);
+        CompiledAnswerKey answerKey = CompiledAnswerKey.of(questions);
+        Map<Long, PaperQuestion> paper = questions.stream().collect(Collectors.toMap(PaperQuestion::getId, Function.identity()));
+
+        List<List<AnswerRequest>> submissions = new ArrayList<>();
+        for (int i = 0; i < SUBMISSIONS; i++) {
+            submissions.add(answers(questions));
+        }
+        double[] before = new double[SUBMISSIONS];
+        double[] after = new double[SUBMISSIONS];
+
+        double beforeNanos = Benchmarks.medianNanosPerOperation(3, 5, SUBMISSIONS,
+                i -> before[i] = scoreWithSets(paper, submissions.get(i)));
+        double afterNanos = Benchmarks.medianNanosPerOperation(3, 5, SUBMISSIONS,
+                i -> after[i] = gradingEngine.score(answerKey, submissions.get(i)));
+        double beforeBytes = Benchmarks.allocatedBytesPerOperation(SUBMISSIONS,
+                i -> before[i] = scoreWithSets(paper, submissions.get(i)));
+        double afterBytes = Benchmarks.allocatedBytesPerOperation(SUBMISSIONS,
+                i -> after[i] = gradingEngine.score(answerKey, submissions.get(i)));
+
+        Benchmarks.report("Grading a 40 question submission: before %.0f ns and %.0f bytes, after %.0f ns and %.0f bytes",
+                beforeNanos, beforeBytes, afterNanos, afterBytes);
+        assertThat(after).containsExactly(before);
+    }
+
+    /**
+     * The previous auto-grading loop
+     */
+    private static double scoreWithSets(Map<Long, PaperQuestion> paper, List<AnswerRequest> answers) {
+        double totalScore = 0;
+        for (AnswerRequest answer : answers) {
+            PaperQuestion question = paper.get(answer.getQuestionId());
+            if (question.getQuestionType() == QuestionType.ESSAY) {
+                continue;
+            }
+            Set<Long> correctOptionIds = question.getOptions().stream()
+                    .filter(option -> Boolean.TRUE.equals(option.getCorrect()))
+                    .map(PaperOption::getId)
+                    .collect(Collectors.toSet());
+            Set<Long> selectedOptionIds = answer.getSelectedOptionIds() == null ? Set.of() :
+                    new HashSet<>(answer.getSelectedOptionIds());
+
+            switch (question.getQuestionType()) {
+                case SINGLE_CHOICE:
+                case TRUE_FALSE:
+                    if (correctOptionIds.equals(selectedOptionIds)) {
+                        totalScore += question.getMarks();
+                    }
+                    break;
+                case MULTIPLE_CHOICE:
+                    int truePositives = 0;
+                    for (Long selectedId : selectedOptionIds) {
+                        if (correctOptionIds.contains(selectedId)) {
+                            truePositives++;
+                        }
+                    }
+                    int falsePositives = selectedOptionIds.size() - truePositives;
+                    int falseNegatives = correctOptionIds.size() - truePositives;
+                    double accuracy = (double) truePositives / (truePositives + falsePositives + falseNegatives);
+                    totalScore += Math.round(accuracy * question.getMarks());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return totalScore;
+    }
+
+    /**
+     * Add questions whose first options are the correct ones
+     */
+    private static void addQuestions(List<PaperQuestion> questions, int count, QuestionType type, int options, int correct) {
+        for (int i = 0; i < count; i++) {
+            long questionId = 100L + questions.size();
+            List<PaperOption> paperOptions = new ArrayList<>();
+            for (int option = 0; option < options; option++) {
+                paperOptions.add(new PaperOption(questionId * 10 + option, "Option " + option, option < correct, null));
+            }
+            questions.add(new PaperQuestion(questionId, "Question " + questionId, 4, type, null, paperOptions, List.of()));
+        }
+    }
+
+    /**
+     * Answers that pick each option with even odds, at least one option per question
+     */
+    private List<AnswerRequest> answers(List<PaperQuestion> questions) {
+        List<AnswerRequest> answers = new ArrayList<>();
+        for (PaperQuestion question : questions) {
+            AnswerRequest.AnswerRequestBuilder answer = AnswerRequest.builder().questionId(question.getId());
+            List<PaperOption> options = question.getOptions();
+            if (question.getQuestionType() == QuestionType.ESSAY) {
+                answer.textAnswer("An essay");
+            } else if (question.getQuestionType() == QuestionType.MULTIPLE_CHOICE) {
+                List<Long> selected = new ArrayList<>();
+                for (PaperOption option : options) {
+                    if (random.nextBoolean()) {
+                        selected.add(option.getId());
+                    }
+                }
+                if (selected.isEmpty()) {
+                    selected.add(options.get(random.nextInt(options.size())).getId());
+                }
+                answer.selectedOptionIds(selected);
+            } else {
+                answer.selectedOptionIds(List.of(options.get(random.nextInt(options.size())).getId()));
+            }
+            answers.add(answer.build());
+        }
+        return answers;
+    }
+}
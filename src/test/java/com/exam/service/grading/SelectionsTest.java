@@ -0,0 +1,90 @@
+package com.exam.service.grading;
+
+import com.exam.dal.dto.CompiledAnswerKey;
+import com.exam.dal.dto.CompiledAnswerKey.QuestionKey;
+import com.exam.dal.dto.ExamPaper.PaperOption;
+import com.exam.dal.dto.ExamPaper.PaperQuestion;
+import com.exam.dal.model.QuestionType;
+import com.exam.exception.ValidationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+
+class SelectionsTest {
+
+    // Options 10, 20 and 30, of which 20 and 30 are correct
+    private final QuestionKey key = key(4, 3, 1, 2);
+
+    @Test
+    void validatesThatOptionsBelongToTheQuestion() {
+        assertThatNoException().isThrownBy(() -> Selections.validateOptions(key, List.of(10L, 30L)));
+        assertThatThrownBy(() -> Selections.validateOptions(key, List.of(10L, 99L)))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> Selections.validateOptions(key, Arrays.asList(10L, null)))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    void isExactOnlyForTheCorrectOptionsInAnyOrder() {
+        assertThat(Selections.isExact(key, List.of(20L, 30L))).isTrue();
+        assertThat(Selections.isExact(key, List.of(30L, 20L, 30L))).isTrue();
+        assertThat(Selections.isExact(key, List.of(20L))).isFalse();
+        assertThat(Selections.isExact(key, List.of(10L, 20L, 30L))).isFalse();
+        assertThat(Selections.isExact(key, List.of(20L, 30L, 99L))).isFalse();
+        assertThat(Selections.isExact(key, List.of())).isFalse();
+        assertThat(Selections.isExact(key, null)).isFalse();
+    }
+
+    @Test
+    void scoresCorrectSelectionsOverAllMismatches() {
+        assertThat(Selections.partialMarks(key, List.of(20L, 30L))).isEqualTo(4);
+        // One right, one missed
+        assertThat(Selections.partialMarks(key, List.of(20L))).isEqualTo(2);
+        // Two right, one wrong: 4 * 2/3 rounded
+        assertThat(Selections.partialMarks(key, List.of(10L, 20L, 30L))).isEqualTo(3);
+        // Selecting an option twice counts it once
+        assertThat(Selections.partialMarks(key, List.of(20L, 20L))).isEqualTo(2);
+        // An option of another question is a wrong selection
+        assertThat(Selections.partialMarks(key, List.of(20L, 30L, 99L))).isEqualTo(3);
+        assertThat(Selections.partialMarks(key, List.of(10L))).isZero();
+        assertThat(Selections.partialMarks(key, null)).isZero();
+    }
+
+    @Test
+    void comparesEveryWordOfLargeQuestions() {
+        // 130 options in three words, options 1, 65 and 129 correct
+        QuestionKey large = key(3, 130, 0, 64, 128);
+        assertThat(large.getWordCount()).isEqualTo(3);
+
+        assertThat(Selections.isExact(large, List.of(1L, 65L, 129L))).isTrue();
+        assertThat(Selections.isExact(large, List.of(1L, 65L))).isFalse();
+        assertThat(Selections.isExact(large, List.of(1L, 65L, 129L, 100L))).isFalse();
+
+        assertThat(Selections.partialMarks(large, List.of(1L, 65L, 129L))).isEqualTo(3);
+        // Two right and one missed, the other question's option counted once across the words
+        assertThat(Selections.partialMarks(large, List.of(1L, 65L))).isEqualTo(2);
+        assertThat(Selections.partialMarks(large, List.of(1L, 65L, 999L))).isEqualTo(2);
+        assertThat(Selections.partialMarks(large, List.of(1L, 65L, 129L, 999L))).isEqualTo(2);
+    }
+
+    /**
+     * A question of options numbered from 1, or 10 apart if there are three, with the given indexes correct
+     */
+    private static QuestionKey key(int marks, int optionCount, int... correctIndexes) {
+        List<PaperOption> options = new ArrayList<>();
+        for (int i = 0; i < optionCount; i++) {
+            int index = i;
+            boolean correct = Arrays.stream(correctIndexes).anyMatch(c -> c == index);
+            long id = optionCount == 3 ? 10L * (i + 1) : i + 1;
+            options.add(new PaperOption(id, "Option " + id, correct, null));
+        }
+        PaperQuestion question = new PaperQuestion(1L, "Question", marks, QuestionType.MULTIPLE_CHOICE, null, options, List.of());
+        return CompiledAnswerKey.of(List.of(question)).getQuestion(1L);
+    }
+}
@@ -0,0 +1,175 @@
+package com.exam.service.similarity;
+
+import com.exam.dal.dto.CompiledAnswerKey;
+import com.exam.dal.dto.ExamPaper.PaperOption;
+import com.exam.dal.dto.ExamPaper.PaperQuestion;
+import com.exam.dal.model.QuestionType;
+import com.exam.dal.model.SimilarityFlag;
+import com.exam.dal.model.SimilarityKind;
+import com.exam.dal.repository.SimilarityRepository;
+import com.exam.dal.repository.SimilarityRepository.SelectedOptionHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AnswerPatternDetectorTest {
+
+    private static final long EXAM_ID = 1L;
+    private static final int QUESTIONS = 40;
+    private static final int OPTIONS = 4;
+
+    private final SimilarityRepository similarityRepository = mock(SimilarityRepository.class);
+    private final AnswerPatternDetector detector = new AnswerPatternDetector(similarityRepository, 0.1, 3, 1e-6);
+    private final Random random = new Random(11);
+
+    @Test
+    void flagsAPairCopyingItsWrongAnswersAndNoIndependentStudents() {
+        List<long[]> choices = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            choices.add(independentChoices());
+        }
+        // The last student copies the first, wrong answers and all
+        choices.add(choices.get(0).clone());
+        select(choices);
+
+        List<SimilarityFlag> flags = detector.detect(EXAM_ID, answerKey(QuestionType.SINGLE_CHOICE));
+
+        assertThat(flags).singleElement().satisfies(flag -> {
+            assertThat(flag.getKind()).isEqualTo(SimilarityKind.ANSWER_PATTERN);
+            assertThat(flag.getExamId()).isEqualTo(EXAM_ID);
+            assertThat(flag.getSubmissionId()).isEqualTo(1L);
+            assertThat(flag.getOtherSubmissionId()).isEqualTo(choices.size());
+            assertThat(flag.getSimilarity()).isEqualTo(1.0);
+            assertThat(flag.getSharedErrors()).isEqualTo(wrongAnswers(choices.get(0)));
+            assertThat(flag.getProbability()).isLessThan(1e-6);
+        });
+    }
+
+    @Test
+    void leavesStudentsSharingOnlyThePopularWrongAnswerAlone() {
+        List<long[]> choices = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            // Everyone who gets a question wrong picks its first wrong option
+            long[] student = new long[QUESTIONS];
+            for (int question = 0; question < QUESTIONS; question++) {
+                student[question] = optionId(question, random.nextDouble() < 0.6 ? 0 : 1);
+            }
+            choices.add(student);
+        }
+        select(choices);
+
+        assertThat(detector.detect(EXAM_ID, answerKey(QuestionType.SINGLE_CHOICE))).isEmpty();
+    }
+
+    @Test
+    void ignoresQuestionsThatAreNotChoices() {
+        List<long[]> choices = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            choices.add(independentChoices());
+        }
+        choices.add(choices.get(0).clone());
+        select(choices);
+
+        assertThat(detector.detect(EXAM_ID, answerKey(QuestionType.MATCHING))).isEmpty();
+    }
+
+    @Test
+    void needsAtLeastThreeSubmissions() {
+        long[] copied = independentChoices();
+        select(List.of(copied, copied.clone()));
+
+        assertThat(detector.detect(EXAM_ID, answerKey(QuestionType.SINGLE_CHOICE))).isEmpty();
+    }
+
+    @Test
+    void poissonTailMatchesItsClosedForm() {
+        assertThat(AnswerPatternDetector.poissonTail(0, 2.5)).isEqualTo(1);
+        assertThat(AnswerPatternDetector.poissonTail(3, 0)).isEqualTo(0);
+        assertThat(AnswerPatternDetector.poissonTail(1, 2.5)).isCloseTo(1 - Math.exp(-2.5), within(1e-12));
+        assertThat(AnswerPatternDetector.poissonTail(2, 1)).isCloseTo(1 - 2 / Math.E, within(1e-12));
+        // Far in the tail, a term of its own dominates
+        double mean = 0.5;
+        int count = 15;
+        double term = Math.exp(-mean + count * Math.log(mean) - logFactorial(count));
+        assertThat(AnswerPatternDetector.poissonTail(count, mean)).isCloseTo(term, within(term * 0.05));
+    }
+
+    /**
+     * A student who knows about two answers in three and otherwise guesses among the wrong options,
+     * the first of which is the most tempting
+     */
+    private long[] independentChoices() {
+        long[] student = new long[QUESTIONS];
+        for (int question = 0; question < QUESTIONS; question++) {
+            double draw = random.nextDouble();
+            int option = draw < 0.67 ? 0 : draw < 0.87 ? 1 : draw < 0.95 ? 2 : 3;
+            student[question] = optionId(question, option);
+        }
+        return student;
+    }
+
+    private static int wrongAnswers(long[] student) {
+        int wrong = 0;
+        for (int question = 0; question < QUESTIONS; question++) {
+            wrong += student[question] != optionId(question, 0) ? 1 : 0;
+        }
+        return wrong;
+    }
+
+    /**
+     * Answer the detector's reads with the choices, submission ids from 1 in list order
+     */
+    private void select(List<long[]> choices) {
+        when(similarityRepository.countFinished(EXAM_ID)).thenReturn((long) choices.size());
+        doAnswer(invocation -> {
+            SelectedOptionHandler handler = invocation.getArgument(1);
+            for (int i = 0; i < choices.size(); i++) {
+                for (int question = 0; question < QUESTIONS; question++) {
+                    handler.handle(i + 1, questionId(question), choices.get(i)[question]);
+                }
+            }
+            return null;
+        }).when(similarityRepository).forEachSelectedOption(eq(EXAM_ID), any());
+    }
+
+    /**
+     * A key whose first option of each question is the correct one
+     */
+    private static CompiledAnswerKey answerKey(QuestionType type) {
+        List<PaperQuestion> questions = new ArrayList<>();
+        for (int question = 0; question < QUESTIONS; question++) {
+            List<PaperOption> options = new ArrayList<>();
+            for (int option = 0; option < OPTIONS; option++) {
+                options.add(new PaperOption(optionId(question, option), "Option " + option, option == 0, null));
+            }
+            questions.add(new PaperQuestion(questionId(question), "Question " + question, 1, type, null, options, List.of()));
+        }
+        return CompiledAnswerKey.of(questions);
+    }
+
+    private static long questionId(int question) {
+        return 100L + question;
+    }
+
+    private static long optionId(int question, int option) {
+        return 1000L + question * OPTIONS + option;
+    }
+
+    private static double logFactorial(int n) {
+        double log = 0;
+        for (int k = 2; k <= n; k++) {
+            log += Math.log(k);
+        }
+        return log;
+    }
+}
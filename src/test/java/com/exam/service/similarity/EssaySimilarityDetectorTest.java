@@ -0,0 +1,138 @@
+package com.exam.service.similarity;
+
+import com.exam.dal.model.SimilarityFlag;
+import com.exam.dal.model.SimilarityKind;
+import com.exam.dal.repository.SimilarityRepository;
+import com.exam.dal.repository.SimilarityRepository.TextAnswerHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class EssaySimilarityDetectorTest {
+
+    private static final long EXAM_ID = 1L;
+    private static final int WORDS = 80;
+
+    private final SimilarityRepository similarityRepository = mock(SimilarityRepository.class);
+    private final EssaySimilarityDetector detector = new EssaySimilarityDetector(similarityRepository, 3, 20, 0.5);
+    private final Random random = new Random(7);
+
+    @Test
+    void flagsEveryCloseCopyAndNothingElse() {
+        List<Answer> answers = new ArrayList<>();
+        long submissionId = 1;
+        // 40 originals each copied with one word in twenty changed, a Jaccard similarity of about 0.7
+        for (int i = 0; i < 40; i++) {
+            String original = essay();
+            answers.add(new Answer(submissionId++, 10L, original));
+            answers.add(new Answer(submissionId++, 10L, reword(original, 20)));
+        }
+        // And 200 answers written independently
+        for (int i = 0; i < 200; i++) {
+            answers.add(new Answer(submissionId++, 10L, essay()));
+        }
+        answer(answers);
+
+        List<SimilarityFlag> flags = detector.detect(EXAM_ID);
+
+        assertThat(flags).hasSize(40);
+        assertThat(flags).allSatisfy(flag -> {
+            assertThat(flag.getKind()).isEqualTo(SimilarityKind.ESSAY_TEXT);
+            assertThat(flag.getExamId()).isEqualTo(EXAM_ID);
+            assertThat(flag.getQuestionId()).isEqualTo(10L);
+            // Each original sits right before its copy, the original has the odd id
+            assertThat(flag.getSubmissionId() % 2).isEqualTo(1);
+            assertThat(flag.getOtherSubmissionId()).isEqualTo(flag.getSubmissionId() + 1);
+            assertThat(flag.getSimilarity()).isBetween(0.5, 1.0);
+        });
+    }
+
+    @Test
+    void leavesCopiesBelowTheThresholdAlone() {
+        String original = essay();
+        // One word in three changed leaves few shingles in common
+        answer(List.of(new Answer(1L, 10L, original), new Answer(2L, 10L, reword(original, 3))));
+
+        assertThat(detector.detect(EXAM_ID)).isEmpty();
+    }
+
+    @Test
+    void comparesAnswersToTheSameQuestionOnly() {
+        String text = essay();
+        answer(List.of(new Answer(1L, 10L, text), new Answer(2L, 11L, text), new Answer(3L, 11L, text)));
+
+        List<SimilarityFlag> flags = detector.detect(EXAM_ID);
+
+        assertThat(flags).singleElement().satisfies(flag -> {
+            assertThat(flag.getQuestionId()).isEqualTo(11L);
+            assertThat(flag.getSubmissionId()).isEqualTo(2L);
+            assertThat(flag.getOtherSubmissionId()).isEqualTo(3L);
+            assertThat(flag.getSimilarity()).isEqualTo(1.0);
+        });
+    }
+
+    @Test
+    void ignoresAnswersTooShortToCompare() {
+        String text = "The answer is photosynthesis, plants turn light into sugar";
+        answer(List.of(new Answer(1L, 10L, text), new Answer(2L, 10L, text)));
+
+        assertThat(detector.detect(EXAM_ID)).isEmpty();
+    }
+
+    @Test
+    void shinglesIgnoreCaseAndPunctuation() {
+        String text = essay();
+        String shouted = text.toUpperCase().replace(" ", ", ") + "!";
+
+        assertThat(detector.shingles(shouted)).isEqualTo(detector.shingles(text));
+        assertThat(detector.shingles(text)).isSorted().doesNotHaveDuplicates();
+    }
+
+    private void answer(List<Answer> answers) {
+        doAnswer(invocation -> {
+            TextAnswerHandler handler = invocation.getArgument(1);
+            answers.forEach(answer -> handler.handle(answer.submissionId, answer.questionId, answer.text));
+            return null;
+        }).when(similarityRepository).forEachEssayAnswer(eq(EXAM_ID), any());
+    }
+
+    private String essay() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < WORDS; i++) {
+            text.append(i > 0 ? " " : "").append(word());
+        }
+        return text.toString();
+    }
+
+    private String reword(String text, int every) {
+        String[] words = text.split(" ");
+        for (int i = every / 2; i < words.length; i += every) {
+            words[i] = word();
+        }
+        return String.join(" ", words);
+    }
+
+    private String word() {
+        return "w" + random.nextInt(5000);
+    }
+
+    private static final class Answer {
+        private final long submissionId;
+        private final long questionId;
+        private final String text;
+
+        Answer(long submissionId, long questionId, String text) {
+            this.submissionId = submissionId;
+            this.questionId = questionId;
+            this.text = text;
+        }
+    }
+}